@@ -0,0 +1,108 @@
+package phonebook;
+
+import phonebook.exchange.ContactExporter;
+import phonebook.exchange.ContactImporter;
+import phonebook.exchange.ExchangeFormat;
+import phonebook.exchange.ExchangeStats;
+import phonebook.model.PhoneBookModel;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Импорт и экспорт контактов в CSV и vCard без графического интерфейса,
+ * например перенос книги из CRM.
+ * <p>
+ * Загружает файл базы, импортирует в неё контакты и сохраняет базу
+ * или выгружает книгу в файл, печатая скорость обработки.
+ * Пример: {@code java -cp phonebook.jar phonebook.ContactExchange --file phonebook.dat --import crm.csv}.
+ */
+public class ContactExchange {
+
+    private static final String USAGE = """
+            Использование: phonebook.ContactExchange [параметры]
+              --file ПУТЬ          файл базы (по умолчанию phonebook.dat)
+              --import ПУТЬ        импортировать контакты из .csv или .vcf и сохранить базу
+              --export ПУТЬ        выгрузить книгу в файл
+              --format ФОРМАТ      csv, vcard3 или vcard4 (по умолчанию по расширению файла)
+              --batch N            записей в порции (по умолчанию 8192)
+              --verbose            подробный журнал
+              --help               показать эту справку
+            """;
+
+    /**
+     * Точка входа.
+     *
+     * @param args параметры командной строки, см. {@link #USAGE}
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            run(args, System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Выполняет импорт или экспорт и печатает итог.
+     *
+     * @param args параметры командной строки
+     * @param out поток для отчёта
+     * @throws IOException если файл не удалось прочитать или записать
+     * @throws IllegalArgumentException при неверных параметрах
+     */
+    static void run(String[] args, PrintStream out) throws IOException {
+        Map<String, String> opts = LoadTest.parse(args, "verbose", "help");
+        if (opts.containsKey("help")) {
+            out.print(USAGE);
+            return;
+        }
+        String source = opts.get("import"), target = opts.get("export");
+        if ((source == null) == (target == null)) throw new IllegalArgumentException("Укажите либо --import, либо --export");
+        Configurator.setRootLevel(opts.containsKey("verbose") ? Level.DEBUG : Level.WARN);
+        int batch = Integer.parseInt(opts.getOrDefault("batch", String.valueOf(ContactImporter.DEFAULT_BATCH_SIZE)));
+
+        PhoneBookModel model = new PhoneBookModel(new File(opts.getOrDefault("file", "phonebook.dat")));
+        model.loadFromFile();
+        if (source != null) {
+            Path file = Path.of(source);
+            ExchangeStats stats = new ContactImporter(model).setBatchSize(batch).importFile(file, format(opts, file));
+            report(out, "Импортировано", stats);
+            if (!model.saveToFile()) throw new IOException("Не удалось сохранить базу: " + model.getSaveState().error());
+        } else {
+            Path file = Path.of(target);
+            ExchangeStats stats = new ContactExporter().setBatchSize(batch)
+                    .export(model.snapshot().getContacts(), file, format(opts, file));
+            report(out, "Выгружено", stats);
+        }
+    }
+
+    private static ExchangeFormat format(Map<String, String> opts, Path file) {
+        String format = opts.get("format");
+        if (format == null) return ExchangeFormat.forFile(file);
+        return switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv" -> ExchangeFormat.CSV;
+            case "vcard", "vcard3", "vcf" -> ExchangeFormat.VCARD_3;
+            case "vcard4" -> ExchangeFormat.VCARD_4;
+            default -> throw new IllegalArgumentException("Неизвестный формат: " + format);
+        };
+    }
+
+    private static void report(PrintStream out, String what, ExchangeStats stats) {
+        out.printf(Locale.ROOT, "%s контактов: %,d из %,d записей за %,d мс (%,d записей/с), пропущено %,d%n",
+                what, stats.contacts(), stats.records(), stats.millis(), stats.recordsPerSecond(), stats.skipped());
+    }
+}
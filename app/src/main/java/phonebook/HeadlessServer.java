@@ -0,0 +1,89 @@
+package phonebook;
+
+import phonebook.model.PhoneBookModel;
+import phonebook.server.CallerIdServer;
+import phonebook.storage.MappedContactList;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Запуск телефонного справочника без графического интерфейса в режиме сервера
+ * определения номера для АТС (см. {@link CallerIdServer}).
+ * <p>
+ * Загружает ту же базу, что и приложение, и отвечает на запросы до остановки процесса.
+ * Пример: {@code java -cp phonebook.jar phonebook.HeadlessServer --file phonebook.dat --port 8080}.
+ */
+public class HeadlessServer {
+
+    private static final Logger logger = LogManager.getLogger(HeadlessServer.class);
+
+    private static final String USAGE = """
+            Использование: phonebook.HeadlessServer [параметры]
+              --file ПУТЬ          файл базы (по умолчанию phonebook.dat)
+              --host АДРЕС         адрес прослушивания (по умолчанию 127.0.0.1)
+              --port N             порт (по умолчанию 8080)
+              --lazy               отображать файл базы в память вместо чтения целиком
+              --columnar ВИД       хранить контакты по столбцам: heap или offheap
+              --report СЕКУНДЫ     интервал отчёта о нагрузке в логе, 0 — без отчёта (по умолчанию 60)
+              --verbose            подробный журнал
+              --help               показать эту справку
+            """;
+
+    /**
+     * Точка входа сервера.
+     *
+     * @param args параметры командной строки, см. {@link #USAGE}
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        // до создания первого HTTP-сервера: иначе свойство не действует (см. CallerIdServer)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Map<String, String> opts;
+        try {
+            opts = LoadTest.parse(args, "lazy", "verbose", "help");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (opts.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        // отладочный журнал на каждый запрос снижает пропускную способность
+        Configurator.setRootLevel(opts.containsKey("verbose") ? Level.DEBUG : Level.INFO);
+
+        PhoneBookModel model = new PhoneBookModel(new File(opts.getOrDefault("file", "phonebook.dat")));
+        model.setLazyLoading(opts.containsKey("lazy"), MappedContactList.DEFAULT_CACHE_SIZE);
+        String columnar = opts.getOrDefault("columnar", "");
+        model.setColumnarStore(!columnar.isEmpty(), columnar.equals("offheap"));
+        model.loadFromFile();
+
+        InetSocketAddress address = new InetSocketAddress(opts.getOrDefault("host", "127.0.0.1"),
+                Integer.parseInt(opts.getOrDefault("port", "8080")));
+        CallerIdServer server;
+        try {
+            server = new CallerIdServer(model, address);
+        } catch (IOException e) {
+            logger.error("Не удалось открыть порт {}: {}", address, e.getMessage());
+            System.exit(1);
+            return;
+        }
+        server.start();
+        long report = Long.parseLong(opts.getOrDefault("report", "60"));
+        if (report > 0) server.startReporting(Duration.ofSeconds(report));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "caller-id-shutdown"));
+    }
+}
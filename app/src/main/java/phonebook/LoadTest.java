@@ -0,0 +1,303 @@
+package phonebook;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneNumber;
+import phonebook.storage.ShardedStorage;
+import phonebook.storage.StorageLayout;
+import phonebook.util.ContactGenerator;
+import phonebook.util.LatencyStats;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Нагрузочное испытание телефонного справочника без графического интерфейса.
+ * <p>
+ * Генерирует синтетическую книгу {@link ContactGenerator}, записывает её через
+ * {@link PhoneBookModel} в файл базы, загружает заново и выполняет заданную смесь
+ * операций (добавление, правка, удаление, поиск, сохранение), после чего печатает
+ * перцентили задержек по каждому виду операций.
+ * <p>
+ * Пример: {@code java -cp phonebook.jar phonebook.LoadTest --contacts 1000000 --ops 50000}.
+ */
+public class LoadTest {
+
+    /** Виды операций нагрузочной смеси */
+    enum Op { ADD, EDIT, DELETE, SEARCH, SAVE }
+
+    private static final String USAGE = """
+            Использование: phonebook.LoadTest [параметры]
+              --contacts N        размер книги (по умолчанию 100000)
+              --seed N            зерно случайных чисел (по умолчанию 1)
+              --latin ДОЛЯ        доля латинских имён, 0..1 (по умолчанию 0.1)
+              --phones MIN-MAX    телефонов у контакта (по умолчанию 1-3)
+              --types ВЕСА        веса типов MOBILE,HOME,WORK,FAX,OTHER (по умолчанию 60,20,15,2,3)
+              --notes ДОЛЯ:ДЛИНА  доля контактов с заметкой и её наибольшая длина (по умолчанию 0.3:60)
+              --file ПУТЬ         файл базы (по умолчанию loadtest.dat); перезаписывается
+              --storage ВИД       способ сохранения: journal, records или sharded (по умолчанию journal)
+              --shards N          количество шардов для sharded (по умолчанию 32)
+              --compress          записывать базовый снимок сжатыми блоками
+              --ops N             количество операций смеси (по умолчанию 10000)
+              --mix СМЕСЬ         веса операций (по умолчанию add:20,edit:30,delete:10,search:35,save:5)
+              --verbose           не приглушать журнал приложения
+              --help              показать эту справку
+            """;
+
+    /**
+     * Точка входа нагрузочного испытания.
+     *
+     * @param args параметры командной строки, см. {@link #USAGE}
+     */
+    public static void main(String[] args) {
+        try {
+            run(args, System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Выполняет испытание и печатает отчёт.
+     *
+     * @param args параметры командной строки
+     * @param out поток для отчёта
+     * @throws IllegalArgumentException при неверных параметрах или ошибке записи базы
+     */
+    static void run(String[] args, PrintStream out) {
+        Map<String, String> opts = parse(args, "compress", "verbose", "help");
+        if (opts.containsKey("help")) {
+            out.print(USAGE);
+            return;
+        }
+        if (!opts.containsKey("verbose")) Configurator.setRootLevel(Level.WARN);
+
+        int contacts = Integer.parseInt(opts.getOrDefault("contacts", "100000"));
+        long seed = Long.parseLong(opts.getOrDefault("seed", "1"));
+        int ops = Integer.parseInt(opts.getOrDefault("ops", "10000"));
+        File file = new File(opts.getOrDefault("file", "loadtest.dat"));
+        StorageLayout layout = StorageLayout.valueOf(opts.getOrDefault("storage", "journal").toUpperCase(Locale.ROOT));
+        int shards = Integer.parseInt(opts.getOrDefault("shards", String.valueOf(ShardedStorage.DEFAULT_SHARDS)));
+
+        ContactGenerator generator = new ContactGenerator(seed)
+                .setLatinShare(Double.parseDouble(opts.getOrDefault("latin", "0.1")));
+        String[] phones = opts.getOrDefault("phones", "1-3").split("-");
+        generator.setPhones(Integer.parseInt(phones[0]), Integer.parseInt(phones[phones.length - 1]));
+        generator.setTypeWeights(ints(opts.getOrDefault("types", "60,20,15,2,3")));
+        String[] notes = opts.getOrDefault("notes", "0.3:60").split(":");
+        generator.setNotes(Double.parseDouble(notes[0]), Integer.parseInt(notes[1]));
+        Map<Op, Integer> mix = mix(opts.getOrDefault("mix", "add:20,edit:30,delete:10,search:35,save:5"));
+
+        out.printf(Locale.ROOT, "Генерация %,d контактов (зерно %d, потоков %d)%n",
+                contacts, seed, ForkJoinPool.commonPool().getParallelism());
+        long t = System.nanoTime();
+        List<Contact> book = generator.generate(contacts);
+        report(out, "генерация", t, contacts);
+
+        deleteBase(file);
+        PhoneBookModel writer = new PhoneBookModel(file);
+        writer.setStorageLayout(layout);
+        writer.setCompressedSnapshots(opts.containsKey("compress"));
+        writer.setShardCount(shards);
+        t = System.nanoTime();
+        writer.addAll(book);
+        report(out, "добавление в модель", t, contacts);
+        t = System.nanoTime();
+        if (!writer.saveToFile()) throw new IllegalArgumentException("Не удалось записать базу: " + writer.getSaveState().error());
+        report(out, "запись базы", t, contacts);
+        if (layout == StorageLayout.SHARDED) {
+            Path dir = ShardedStorage.directoryFor(file.toPath());
+            out.printf(Locale.ROOT, "  каталог %s, %d шардов, %,d байт%n", dir, shards, shardedSize(dir));
+        } else {
+            out.printf(Locale.ROOT, "  файл %s, %,d байт%n", file, file.length());
+        }
+        book = null;
+        writer = null;
+
+        PhoneBookModel model = new PhoneBookModel(file);
+        model.setStorageLayout(layout);
+        model.setCompressedSnapshots(opts.containsKey("compress"));
+        t = System.nanoTime();
+        model.loadFromFile();
+        report(out, "загрузка базы", t, model.getContacts().size());
+
+        t = System.nanoTime();
+        model.findRowsByName("");
+        model.findRowsByNumber("");
+        report(out, "построение индексов", t, model.getContacts().size());
+
+        Map<Op, LatencyStats> stats = runMix(model, generator, mix, ops, new SplittableRandom(seed ^ 0x5DEECE66DL));
+        out.printf(Locale.ROOT, "%nСмесь из %,d операций над книгой из %,d контактов, мкс:%n", ops, contacts);
+        out.printf(Locale.ROOT, "%-8s %8s %10s %10s %10s %10s %10s %10s%n",
+                "операция", "n", "среднее", "p50", "p90", "p99", "p99.9", "макс");
+        for (Map.Entry<Op, LatencyStats> e : stats.entrySet()) {
+            LatencyStats s = e.getValue();
+            if (s.count() == 0) continue;
+            out.printf(Locale.ROOT, "%-8s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    e.getKey().name().toLowerCase(Locale.ROOT), s.count(), s.meanNanos() / 1e3,
+                    s.percentileNanos(50) / 1e3, s.percentileNanos(90) / 1e3, s.percentileNanos(99) / 1e3,
+                    s.percentileNanos(99.9) / 1e3, s.percentileNanos(100) / 1e3);
+        }
+        if (stats.values().stream().anyMatch(s -> s.count() > LatencyStats.WINDOW)) {
+            out.printf(Locale.ROOT, "(перцентили по последним %,d замерам каждого вида)%n", LatencyStats.WINDOW);
+        }
+        model.saveToFile();
+    }
+
+    /**
+     * Выполняет смесь операций над моделью, замеряя каждую.
+     */
+    static Map<Op, LatencyStats> runMix(PhoneBookModel model, ContactGenerator generator, Map<Op, Integer> mix,
+                                        int ops, SplittableRandom rnd) {
+        Map<Op, LatencyStats> stats = new EnumMap<>(Op.class);
+        for (Op op : Op.values()) stats.put(op, new LatencyStats());
+        Op[] ring = weighted(mix);
+        long added = Long.MAX_VALUE / 2; // номера добавляемых контактов не пересекаются со сгенерированными
+
+        for (int i = 0; i < ops; i++) {
+            Op op = ring[rnd.nextInt(ring.length)];
+            int size = model.getContacts().size();
+            if (size == 0 && (op == Op.EDIT || op == Op.DELETE || op == Op.SEARCH)) op = Op.ADD;
+            long start;
+            switch (op) {
+                case ADD -> {
+                    Contact c = generator.contact(added++);
+                    start = System.nanoTime();
+                    model.addContact(c);
+                }
+                case EDIT -> {
+                    int row = rnd.nextInt(size);
+                    Contact c = model.getContacts().get(row).copy();
+                    c.note = "правка " + i;
+                    if (rnd.nextBoolean()) {
+                        List<PhoneNumber> phones = new ArrayList<>(c.getPhones());
+                        phones.add(generator.phone(rnd));
+                        c.setPhones(phones);
+                    }
+                    start = System.nanoTime();
+                    model.updateContact(row, c);
+                }
+                case DELETE -> {
+                    int row = rnd.nextInt(size);
+                    start = System.nanoTime();
+                    model.removeContact(row);
+                }
+                case SEARCH -> {
+                    Contact c = model.getContacts().get(rnd.nextInt(size));
+                    if (rnd.nextBoolean() || c.getPhones().isEmpty()) {
+                        String word = c.fullName.split(" ")[0];
+                        String query = word.substring(0, Math.min(word.length(), 3 + rnd.nextInt(3)));
+                        start = System.nanoTime();
+                        model.findRowsByName(query);
+                    } else {
+                        String digits = c.getPhones().get(0).getNumber().replaceAll("\\D", "");
+                        int from = rnd.nextInt(Math.max(1, digits.length() - 4));
+                        String query = digits.substring(from, Math.min(digits.length(), from + 4 + rnd.nextInt(4)));
+                        start = System.nanoTime();
+                        model.findRowsByNumber(query);
+                    }
+                }
+                default -> {
+                    start = System.nanoTime();
+                    model.saveToFile();
+                }
+            }
+            stats.get(op).record(System.nanoTime() - start);
+        }
+        return stats;
+    }
+
+    /**
+     * Разбирает параметры вида {@code --имя значение} или {@code --имя=значение}.
+     *
+     * @param flags параметры без значения
+     */
+    static Map<String, String> parse(String[] args, String... flags) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--")) throw new IllegalArgumentException("Неизвестный аргумент: " + a);
+            String key = a.substring(2);
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                opts.put(key.substring(0, eq), key.substring(eq + 1));
+            } else if (List.of(flags).contains(key)) {
+                opts.put(key, "true");
+            } else if (i + 1 < args.length) {
+                opts.put(key, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Не задано значение параметра " + a);
+            }
+        }
+        return opts;
+    }
+
+    static Map<Op, Integer> mix(String spec) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) throw new IllegalArgumentException("Неверная смесь операций: " + spec);
+            mix.put(Op.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(kv[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Пустая смесь операций: " + spec);
+        }
+        return mix;
+    }
+
+    private static Op[] weighted(Map<Op, Integer> mix) {
+        List<Op> ring = new ArrayList<>();
+        mix.forEach((op, w) -> {
+            for (int i = 0; i < w; i++) ring.add(op);
+        });
+        return ring.toArray(new Op[0]);
+    }
+
+    private static int[] ints(String csv) {
+        String[] parts = csv.split(",");
+        int[] r = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) r[i] = Integer.parseInt(parts[i].trim());
+        return r;
+    }
+
+    private static void deleteBase(File file) {
+        for (String suffix : new String[]{"", ".journal", ".tmp"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+        try {
+            ShardedStorage.delete(ShardedStorage.directoryFor(file.toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long shardedSize(Path dir) {
+        try {
+            return ShardedStorage.readManifest(dir).size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void report(PrintStream out, String what, long start, int count) {
+        long nanos = System.nanoTime() - start;
+        out.printf(Locale.ROOT, "  %-20s %,10d мс  %,12.0f контактов/с%n",
+                what, nanos / 1_000_000, count * 1e9 / Math.max(1, nanos));
+    }
+}
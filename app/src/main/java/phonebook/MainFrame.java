@@ -1,6 +1,10 @@
 package phonebook;
 
+import phonebook.model.AutoSaver;
 import phonebook.model.PhoneBookModel;
+import phonebook.storage.MappedContactList;
+import phonebook.storage.ShardedStorage;
+import phonebook.storage.StorageLayout;
 import phonebook.ui.PhoneBookFrame;
 
 import javax.swing.*;
@@ -12,7 +16,8 @@ import org.apache.logging.log4j.Logger;
  * Главный класс приложения телефонного справочника.
  * <p>
  * Запускает графический интерфейс в потоке Swing Event Dispatch Thread (EDT),
- * загружает сохранённую базу контактов и открывает основное окно {@link PhoneBookFrame}.
+ * сразу открывает основное окно {@link PhoneBookFrame} и загружает сохранённую базу
+ * контактов в фоне, показывая контакты по мере чтения.
  */
 public class MainFrame {
 
@@ -21,22 +26,47 @@ public class MainFrame {
     /**
      * Точка входа в программу.
      * <p>
-     * Создаёт модель телефонной книги, загружает данные из файла и открывает главное окно.
+     * Создаёт модель телефонной книги, открывает главное окно и запускает загрузку данных из файла.
+     * В лог пишется время до показа окна и до окончания загрузки.
      *
      * @param args аргументы командной строки (не используются)
      */
     public static void main(String[] args) {
+        long start = System.nanoTime();
         SwingUtilities.invokeLater(() -> {
             logger.info("Запуск приложения Телефонный справочник");
             PhoneBookModel model = new PhoneBookModel();
-            model.loadFromFile();
-            logger.info("База контактов загружена ({} контактов)", model.getContacts().size());
-            PhoneBookFrame frame = new PhoneBookFrame(model);
+            // -Dphonebook.lazy=true: файл базы отображается в память, контакты декодируются по мере показа
+            model.setLazyLoading(Boolean.getBoolean("phonebook.lazy"),
+                    Integer.getInteger("phonebook.lazy.cache", MappedContactList.DEFAULT_CACHE_SIZE));
+            // -Dphonebook.columnar=heap|offheap: контакты хранятся по столбцам, в куче или вне её
+            String columnar = System.getProperty("phonebook.columnar", "");
+            model.setColumnarStore(!columnar.isEmpty(), columnar.equals("offheap"));
+            // -Dphonebook.storage=records: изменённые контакты перезаписываются в файле на месте вместо журнала,
+            // -Dphonebook.storage=sharded: снимок разбит на шарды, которые читаются и пишутся параллельно
+            String storage = System.getProperty("phonebook.storage", "");
+            for (StorageLayout layout : StorageLayout.values()) {
+                if (layout.name().equalsIgnoreCase(storage)) model.setStorageLayout(layout);
+            }
+            // -Dphonebook.shards=N: количество шардов снимка
+            model.setShardCount(Integer.getInteger("phonebook.shards", ShardedStorage.DEFAULT_SHARDS));
+            // -Dphonebook.compress=true: базовый снимок записывается сжатыми блоками
+            model.setCompressedSnapshots(Boolean.getBoolean("phonebook.compress"));
+            // -Dphonebook.autosave=<мс>: пауза автосохранения после последней правки, 0 — отключено
+            long autosave = Long.getLong("phonebook.autosave", AutoSaver.DEFAULT_DELAY_MILLIS);
+            PhoneBookFrame frame = new PhoneBookFrame(model, autosave > 0 ? new AutoSaver(model, autosave) : null);
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             frame.setSize(900, 600);
             frame.setLocationRelativeTo(null);
             frame.setVisible(true);
-            logger.info("Главное окно отображено пользователю");
+            logger.info("Главное окно отображено через {} мс после запуска", millisSince(start));
+
+            frame.loadContacts().thenRun(() -> logger.info("База контактов загружена ({} контактов) через {} мс после запуска",
+                    model.getContacts().size(), millisSince(start)));
         });
     }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
 }
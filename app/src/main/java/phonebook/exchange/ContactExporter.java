@@ -0,0 +1,112 @@
+package phonebook.exchange;
+
+import phonebook.model.Contact;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Потоковый экспорт контактов в CSV и vCard.
+ * <p>
+ * Контакты форматируются порциями параллельно в общем пуле {@link ForkJoinPool}
+ * и записываются в файл в исходном порядке; в памяти одновременно находится лишь
+ * несколько готовых порций. Экспортируется неизменяемый список, обычно
+ * {@link phonebook.model.PhoneBookSnapshot#getContacts()}, поэтому книгу можно
+ * править во время выгрузки. Файл записывается во временный и заменяется целиком.
+ */
+public class ContactExporter {
+
+    private static final Logger logger = LogManager.getLogger(ContactExporter.class);
+
+    private final Executor executor = ForkJoinPool.commonPool();
+    private int batchSize = ContactImporter.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Задаёт количество контактов в порции, форматируемой одной задачей.
+     *
+     * @param batchSize контактов в порции
+     * @return этот экспорт
+     */
+    public ContactExporter setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Размер порции должен быть положительным");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Выгружает контакты в файл в кодировке UTF-8.
+     *
+     * @param contacts неизменяемый список контактов
+     * @param file файл; перезаписывается
+     * @param format формат файла
+     * @return итог экспорта
+     * @throws IOException если файл не удалось записать
+     */
+    public ExchangeStats export(List<Contact> contacts, Path file, ExchangeFormat format) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        ExchangeStats stats;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(tmp), StandardCharsets.UTF_8), 1 << 20)) {
+            stats = export(contacts, out, format);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Выгружено {} контактов в {} за {} мс ({} записей в секунду)",
+                stats.contacts(), file, stats.millis(), stats.recordsPerSecond());
+        return stats;
+    }
+
+    /**
+     * Выгружает контакты в поток.
+     *
+     * @param contacts неизменяемый список контактов
+     * @param out поток для текста; не закрывается
+     * @param format формат текста
+     * @return итог экспорта
+     * @throws IOException если поток не удалось записать
+     */
+    public ExchangeStats export(List<Contact> contacts, Writer out, ExchangeFormat format) throws IOException {
+        long start = System.nanoTime();
+        RecordCodec codec;
+        if (format == ExchangeFormat.CSV) {
+            int phones = Math.max(1, contacts.parallelStream().mapToInt(c -> c.getPhones().size()).max().orElse(0));
+            String header = CsvCodec.header(phones);
+            out.write(header);
+            codec = CsvCodec.fromHeader(header.strip());
+        } else {
+            codec = new VCardCodec(format);
+        }
+        OrderedPipeline<String> pipeline = new OrderedPipeline<>(executor,
+                2 * ForkJoinPool.getCommonPoolParallelism() + 1, out::write);
+        try {
+            for (int from = 0; from < contacts.size(); from += batchSize) {
+                int first = from, last = Math.min(contacts.size(), from + batchSize);
+                pipeline.submit(() -> {
+                    StringBuilder sb = new StringBuilder((last - first) * 96);
+                    for (int i = first; i < last; i++) codec.write(contacts.get(i), sb);
+                    return sb.toString();
+                });
+            }
+            pipeline.finish();
+        } catch (IOException | RuntimeException e) {
+            pipeline.cancel();
+            throw e;
+        }
+        out.flush();
+        return new ExchangeStats(contacts.size(), contacts.size(), 0, System.nanoTime() - start);
+    }
+}
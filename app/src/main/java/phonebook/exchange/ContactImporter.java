@@ -0,0 +1,169 @@
+package phonebook.exchange;
+
+import phonebook.model.Contact;
+import phonebook.model.ContactBatch;
+import phonebook.model.PhoneBookModel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Потоковый импорт контактов из CSV и vCard в {@link PhoneBookModel}.
+ * <p>
+ * Файл читается построчно и делится на порции по {@link #setBatchSize(int)} записей.
+ * Порции разбираются параллельно в общем пуле {@link ForkJoinPool}, а разобранные
+ * контакты добавляются в модель пакетами ({@link PhoneBookModel#apply(ContactBatch)})
+ * в порядке следования в файле, пока разбираются следующие порции. В памяти
+ * одновременно находится лишь несколько порций, поэтому размер файла не ограничен
+ * объёмом памяти (ограничен лишь объём самой книги).
+ * <p>
+ * Записи без ФИО и телефонов и повреждённые записи пропускаются; их количество
+ * возвращается в {@link ExchangeStats}. Файл читается в кодировке UTF-8, метка
+ * порядка байтов в начале файла допускается.
+ */
+public class ContactImporter {
+
+    private static final Logger logger = LogManager.getLogger(ContactImporter.class);
+
+    /** Размер порции по умолчанию */
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private final PhoneBookModel model;
+    private final Executor executor = ForkJoinPool.commonPool();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /** Разобранная порция */
+    private record Parsed(List<Contact> contacts, int records) {
+    }
+
+    /**
+     * Создаёт импорт в модель.
+     *
+     * @param model модель с загруженной книгой
+     */
+    public ContactImporter(PhoneBookModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Задаёт количество записей в порции: порция разбирается одной задачей
+     * и добавляется в модель одним пакетом.
+     *
+     * @param batchSize записей в порции
+     * @return этот импорт
+     */
+    public ContactImporter setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Размер порции должен быть положительным");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Импортирует файл, определяя формат по расширению (см. {@link ExchangeFormat#forFile(Path)}).
+     *
+     * @param file файл CSV или vCard
+     * @return итог импорта
+     * @throws IOException если файл не удалось прочитать или у CSV нет подходящего заголовка
+     * @throws IllegalStateException если книга ещё загружается
+     */
+    public ExchangeStats importFile(Path file) throws IOException {
+        return importFile(file, ExchangeFormat.forFile(file));
+    }
+
+    /**
+     * Импортирует файл в заданном формате.
+     *
+     * @param file файл
+     * @param format формат файла; версия vCard при чтении не важна
+     * @return итог импорта
+     * @throws IOException если файл не удалось прочитать или у CSV нет подходящего заголовка
+     * @throws IllegalStateException если книга ещё загружается
+     */
+    public ExchangeStats importFile(Path file, ExchangeFormat format) throws IOException {
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 20)) {
+            ExchangeStats stats = importFrom(in, format);
+            logger.info("Импортировано {} контактов из {} за {} мс ({} записей в секунду, пропущено {})",
+                    stats.contacts(), file, stats.millis(), stats.recordsPerSecond(), stats.skipped());
+            return stats;
+        }
+    }
+
+    /**
+     * Импортирует контакты из потока.
+     *
+     * @param in поток с текстом CSV или vCard
+     * @param format формат текста
+     * @return итог импорта
+     * @throws IOException если поток не удалось прочитать или у CSV нет подходящего заголовка
+     * @throws IllegalStateException если книга ещё загружается
+     */
+    public ExchangeStats importFrom(BufferedReader in, ExchangeFormat format) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[2]; // записи и добавленные контакты
+        RecordCodec.Splitter splitter = format == ExchangeFormat.CSV ? CsvCodec.splitter() : VCardCodec.splitter();
+        RecordCodec codec = format == ExchangeFormat.CSV ? null : new VCardCodec(format);
+
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        OrderedPipeline<Parsed> pipeline = new OrderedPipeline<>(executor, 2 * parallelism + 1, parsed -> {
+            if (!parsed.contacts().isEmpty()) model.addAll(parsed.contacts());
+            counts[1] += parsed.contacts().size();
+        });
+        try {
+            List<String> batch = new ArrayList<>(batchSize);
+            String line = in.readLine();
+            if (line != null && !line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1);
+            for (; line != null; line = in.readLine()) {
+                String record = splitter.offer(line);
+                if (record == null) continue;
+                if (codec == null) {
+                    codec = CsvCodec.fromHeader(record);
+                    continue;
+                }
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    submit(pipeline, codec, batch);
+                    counts[0] += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            String rest = splitter.finish();
+            if (rest != null && codec != null) batch.add(rest);
+            if (!batch.isEmpty()) {
+                submit(pipeline, codec, batch);
+                counts[0] += batch.size();
+            }
+            pipeline.finish();
+        } catch (IOException | RuntimeException e) {
+            pipeline.cancel();
+            throw e;
+        }
+        return new ExchangeStats(counts[0], counts[1], counts[0] - counts[1], System.nanoTime() - start);
+    }
+
+    private static void submit(OrderedPipeline<Parsed> pipeline, RecordCodec codec, List<String> records) throws IOException {
+        pipeline.submit(() -> {
+            List<Contact> contacts = new ArrayList<>(records.size());
+            for (String record : records) {
+                try {
+                    Contact c = codec.parse(record);
+                    if (c != null) contacts.add(c);
+                } catch (IllegalArgumentException e) {
+                    logger.debug("Пропущена повреждённая запись: {}", e.getMessage());
+                }
+            }
+            return new Parsed(contacts, records.size());
+        });
+    }
+}
@@ -0,0 +1,291 @@
+package phonebook.exchange;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Запись контакта в CSV (RFC 4180) с заголовком.
+ * <p>
+ * Столбцы определяются по заголовку без учёта регистра, поэтому читаются и выгрузки
+ * других программ: ФИО одним столбцом ("ФИО", "Name") или по частям ("Фамилия",
+ * "Имя", "Отчество"), любое количество столбцов телефона ("Телефон 1", "Рабочий
+ * телефон", "Mobile") со столбцом типа после каждого ("Тип 1", "Phone type")
+ * и заметка ("Заметка", "Note"). Тип телефона берётся из столбца типа, а если его нет —
+ * из названия столбца телефона (см. {@link PhoneType#fromString(String)}).
+ * Разделитель — запятая, точка с запятой или табуляция: выбирается тот, что чаще
+ * встречается в заголовке. Значения в кавычках могут содержать переводы строк.
+ */
+final class CsvCodec implements RecordCodec {
+
+    private static final Set<String> NAME = Set.of(
+            "фио", "полное имя", "контакт", "name", "full name", "fullname", "display name", "fn");
+    private static final Set<String> LAST_NAME = Set.of("фамилия", "last name", "surname", "family name");
+    private static final Set<String> FIRST_NAME = Set.of("имя", "first name", "given name");
+    private static final Set<String> MIDDLE_NAME = Set.of("отчество", "middle name", "patronymic");
+    private static final Set<String> NOTE = Set.of(
+            "заметка", "заметки", "примечание", "комментарий", "note", "notes", "comment", "comments");
+
+    private static final Set<String> PHONE = Set.of(
+            "number", "mobile", "cell", "fax", "мобильный", "сотовый", "факс");
+
+    private final char delimiter;
+    private final int width;
+
+    /** Столбец ФИО или -1, если ФИО собирается из {@link #nameParts} */
+    private final int nameColumn;
+    private final int[] nameParts;
+    private final int noteColumn;
+    private final int[] phoneColumns;
+
+    /** Столбец типа для каждого столбца телефона или -1 */
+    private final int[] typeColumns;
+
+    /** Тип по названию столбца телефона, если нет столбца типа */
+    private final PhoneType[] headerTypes;
+
+    private CsvCodec(char delimiter, int width, int nameColumn, int[] nameParts, int noteColumn,
+                     int[] phoneColumns, int[] typeColumns, PhoneType[] headerTypes) {
+        this.delimiter = delimiter;
+        this.width = width;
+        this.nameColumn = nameColumn;
+        this.nameParts = nameParts;
+        this.noteColumn = noteColumn;
+        this.phoneColumns = phoneColumns;
+        this.typeColumns = typeColumns;
+        this.headerTypes = headerTypes;
+    }
+
+    /**
+     * Создаёт кодек по строке заголовка.
+     *
+     * @param header первая запись файла
+     * @return кодек для остальных записей
+     * @throws IOException если в заголовке нет ни столбца ФИО, ни столбца телефона
+     */
+    static CsvCodec fromHeader(String header) throws IOException {
+        char delimiter = detectDelimiter(header);
+        List<String> columns = split(header, delimiter);
+
+        int nameColumn = -1, noteColumn = -1;
+        int last = -1, first = -1, middle = -1;
+        List<Integer> phones = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        List<PhoneType> headerTypes = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String h = columns.get(i).trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+            if (NAME.contains(h) && nameColumn < 0) nameColumn = i;
+            else if (LAST_NAME.contains(h) && last < 0) last = i;
+            else if (FIRST_NAME.contains(h) && first < 0) first = i;
+            else if (MIDDLE_NAME.contains(h) && middle < 0) middle = i;
+            else if (NOTE.contains(h) && noteColumn < 0) noteColumn = i;
+            else if (isTypeColumn(h)) {
+                // тип относится к ближайшему столбцу телефона слева
+                if (!phones.isEmpty() && types.get(types.size() - 1) < 0) types.set(types.size() - 1, i);
+            } else if (isPhoneColumn(h)) {
+                phones.add(i);
+                types.add(-1);
+                headerTypes.add(PhoneType.fromString(h));
+            }
+        }
+        // "Имя" без "Фамилии" — это полное имя
+        if (nameColumn < 0 && last < 0 && middle < 0) {
+            nameColumn = first;
+            first = -1;
+        }
+        int[] nameParts = IntStream.of(last, first, middle).filter(c -> c >= 0).toArray();
+        if (nameColumn < 0 && nameParts.length == 0 && phones.isEmpty()) {
+            throw new IOException("В заголовке CSV нет столбцов ФИО и телефона: " + header);
+        }
+        return new CsvCodec(delimiter, columns.size(), nameColumn, nameParts, noteColumn,
+                phones.stream().mapToInt(Integer::intValue).toArray(),
+                types.stream().mapToInt(Integer::intValue).toArray(),
+                headerTypes.toArray(new PhoneType[0]));
+    }
+
+    /**
+     * Возвращает заголовок выгрузки: ФИО, пары "Телефон N", "Тип N" и заметка.
+     *
+     * @param phones количество пар столбцов телефона
+     * @return строка заголовка с концом строки
+     */
+    static String header(int phones) {
+        StringBuilder sb = new StringBuilder("ФИО");
+        for (int i = 1; i <= phones; i++) sb.append(",Телефон ").append(i).append(",Тип ").append(i);
+        return sb.append(",Заметка\r\n").toString();
+    }
+
+    /**
+     * Создаёт разделитель записей: запись заканчивается на строке, после которой
+     * не осталось открытых кавычек. Пустые строки между записями пропускаются.
+     *
+     * @return новый разделитель
+     */
+    static Splitter splitter() {
+        return new Splitter() {
+            private final StringBuilder record = new StringBuilder();
+            private boolean quoted;
+
+            @Override
+            public String offer(String line) {
+                if (!quoted && record.isEmpty() && line.isBlank()) return null;
+                if (quoted) record.append('\n');
+                record.append(line);
+                for (int i = 0; i < line.length(); i++) {
+                    if (line.charAt(i) == '"') quoted = !quoted;
+                }
+                if (quoted) return null;
+                String s = record.toString();
+                record.setLength(0);
+                return s;
+            }
+
+            @Override
+            public String finish() {
+                return record.isEmpty() ? null : record.toString();
+            }
+        };
+    }
+
+    @Override
+    public Contact parse(String record) {
+        List<String> fields = split(record, delimiter);
+        String name;
+        if (nameColumn >= 0) {
+            name = field(fields, nameColumn);
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int c : nameParts) {
+                String part = field(fields, c);
+                if (part.isEmpty()) continue;
+                if (!sb.isEmpty()) sb.append(' ');
+                sb.append(part);
+            }
+            name = sb.toString();
+        }
+        String note = noteColumn >= 0 ? field(fields, noteColumn) : "";
+
+        Contact c = Contact.restore(0, name, note.isEmpty() ? null : note);
+        for (int i = 0; i < phoneColumns.length; i++) {
+            String number = field(fields, phoneColumns[i]);
+            if (number.isEmpty()) continue;
+            String type = typeColumns[i] >= 0 ? field(fields, typeColumns[i]) : "";
+            c.addPhone(PhoneNumber.restore(number, type.isEmpty() ? headerTypes[i] : PhoneType.fromString(type)));
+        }
+        if (name.isEmpty()) {
+            if (c.getPhones().isEmpty()) return null;
+            c.fullName = c.getPhones().get(0).getNumber(); // безымянный номер из CRM всё равно нужен для определения
+        }
+        return c;
+    }
+
+    @Override
+    public void write(Contact c, StringBuilder out) {
+        String[] row = new String[width];
+        if (nameColumn >= 0) row[nameColumn] = c.fullName;
+        else if (nameParts.length > 0) row[nameParts[0]] = c.fullName;
+        if (noteColumn >= 0) row[noteColumn] = c.note;
+        for (int i = 0; i < phoneColumns.length && i < c.getPhones().size(); i++) {
+            PhoneNumber p = c.getPhones().get(i);
+            row[phoneColumns[i]] = p.getNumber();
+            if (typeColumns[i] >= 0) row[typeColumns[i]] = p.type.toString();
+        }
+        for (int i = 0; i < width; i++) {
+            if (i > 0) out.append(delimiter);
+            quote(out, row[i]);
+        }
+        out.append("\r\n");
+    }
+
+    private void quote(StringBuilder out, String s) {
+        if (s == null || s.isEmpty()) return;
+        boolean needed = s.charAt(0) == ' ' || s.charAt(s.length() - 1) == ' ';
+        for (int i = 0; i < s.length() && !needed; i++) {
+            char ch = s.charAt(i);
+            needed = ch == delimiter || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!needed) {
+            out.append(s);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') out.append('"');
+            out.append(ch);
+        }
+        out.append('"');
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < fields.size() ? fields.get(column).trim() : "";
+    }
+
+    private static boolean isTypeColumn(String h) {
+        return h.startsWith("тип") || h.startsWith("type") || h.contains("phone type");
+    }
+
+    private static boolean isPhoneColumn(String h) {
+        return h.contains("телефон") || h.contains("phone") || h.startsWith("тел") || h.startsWith("номер")
+                || PHONE.contains(h);
+    }
+
+    private static char detectDelimiter(String header) {
+        int commas = 0, semicolons = 0, tabs = 0;
+        boolean quoted = false;
+        for (int i = 0; i < header.length(); i++) {
+            char ch = header.charAt(i);
+            if (ch == '"') quoted = !quoted;
+            else if (!quoted && ch == ',') commas++;
+            else if (!quoted && ch == ';') semicolons++;
+            else if (!quoted && ch == '\t') tabs++;
+        }
+        if (tabs > commas && tabs > semicolons) return '\t';
+        return semicolons > commas ? ';' : ',';
+    }
+
+    /**
+     * Разбивает запись на поля, снимая кавычки. Поля без кавычек не копируются посимвольно.
+     */
+    private static List<String> split(String record, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        int i = 0, n = record.length();
+        while (true) {
+            if (i < n && record.charAt(i) == '"') {
+                StringBuilder field = new StringBuilder();
+                for (i++; ; i++) {
+                    if (i == n) throw new IllegalArgumentException("Незакрытая кавычка в записи CSV");
+                    char ch = record.charAt(i);
+                    if (ch != '"') {
+                        field.append(ch);
+                    } else if (i + 1 < n && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                // текст между закрывающей кавычкой и разделителем дописывается как есть
+                int end = record.indexOf(delimiter, ++i);
+                if (end < 0) end = n;
+                field.append(record, i, end);
+                fields.add(field.toString());
+                i = end;
+            } else {
+                int end = record.indexOf(delimiter, i);
+                if (end < 0) end = n;
+                fields.add(record.substring(i, end));
+                i = end;
+            }
+            if (i == n) return fields;
+            i++; // разделитель
+        }
+    }
+}
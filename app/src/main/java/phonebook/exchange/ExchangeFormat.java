@@ -0,0 +1,47 @@
+package phonebook.exchange;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Форматы обмена контактами с другими программами.
+ */
+public enum ExchangeFormat {
+    /** CSV с заголовком; разделитель — запятая или точка с запятой (определяется по заголовку) */
+    CSV("csv"),
+    /** vCard 3.0 (RFC 2426) */
+    VCARD_3("vcf"),
+    /** vCard 4.0 (RFC 6350) */
+    VCARD_4("vcf");
+
+    /** Расширение файла без точки */
+    private final String extension;
+
+    ExchangeFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Возвращает расширение файла формата.
+     *
+     * @return расширение без точки
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Определяет формат по расширению файла. Для чтения версия vCard не важна:
+     * импорт понимает и 3.0, и 4.0.
+     *
+     * @param file файл
+     * @return {@link #CSV} для ".csv", {@link #VCARD_3} для ".vcf" и ".vcard"
+     * @throws IllegalArgumentException если расширение не распознано
+     */
+    public static ExchangeFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv") || name.endsWith(".txt")) return CSV;
+        if (name.endsWith(".vcf") || name.endsWith(".vcard")) return VCARD_3;
+        throw new IllegalArgumentException("Неизвестный формат файла: " + file.getFileName());
+    }
+}
@@ -0,0 +1,30 @@
+package phonebook.exchange;
+
+/**
+ * Итог импорта или экспорта контактов.
+ *
+ * @param records прочитанных или записанных записей файла
+ * @param contacts импортированных или выгруженных контактов
+ * @param skipped пропущенных записей (без ФИО и телефонов или с ошибкой разбора)
+ * @param nanos длительность в наносекундах
+ */
+public record ExchangeStats(long records, long contacts, long skipped, long nanos) {
+
+    /**
+     * Возвращает длительность в миллисекундах.
+     *
+     * @return миллисекунды
+     */
+    public long millis() {
+        return nanos / 1_000_000;
+    }
+
+    /**
+     * Возвращает скорость обработки.
+     *
+     * @return записей в секунду
+     */
+    public long recordsPerSecond() {
+        return nanos <= 0 ? 0 : records * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,90 @@
+package phonebook.exchange;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Параллельная обработка порций с выдачей результатов в порядке поступления.
+ * <p>
+ * Порции обрабатываются в пуле потоков, а результаты передаются приёмнику в потоке,
+ * подающем порции. В обработке одновременно не больше заданного количества порций:
+ * подающий поток ждёт самую старую из них, поэтому память ограничена, каким бы
+ * большим ни был файл.
+ *
+ * @param <T> результат обработки порции
+ */
+final class OrderedPipeline<T> {
+
+    /**
+     * Приёмник результатов.
+     *
+     * @param <T> результат обработки порции
+     */
+    interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private final ArrayDeque<CompletableFuture<T>> inFlight = new ArrayDeque<>();
+    private final Executor executor;
+    private final int maxInFlight;
+    private final Sink<T> sink;
+
+    OrderedPipeline(Executor executor, int maxInFlight, Sink<T> sink) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.sink = sink;
+    }
+
+    /**
+     * Запускает обработку порции; если в обработке слишком много порций,
+     * дожидается самой старой и передаёт её результат приёмнику.
+     *
+     * @param task обработка порции
+     * @throws IOException если приёмник не смог принять результат
+     */
+    void submit(Supplier<T> task) throws IOException {
+        inFlight.add(CompletableFuture.supplyAsync(task, executor));
+        while (inFlight.size() > maxInFlight) drainOne();
+    }
+
+    /**
+     * Дожидается всех порций и передаёт их результаты приёмнику.
+     *
+     * @throws IOException если приёмник не смог принять результат
+     */
+    void finish() throws IOException {
+        while (!inFlight.isEmpty()) drainOne();
+    }
+
+    /**
+     * Отменяет необработанные порции после ошибки.
+     */
+    void cancel() {
+        for (CompletableFuture<T> f : inFlight) f.cancel(false);
+        inFlight.clear();
+    }
+
+    private void drainOne() throws IOException {
+        T result;
+        try {
+            result = inFlight.remove().join();
+        } catch (CompletionException e) {
+            cancel();
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+        try {
+            sink.accept(result);
+        } catch (IOException | RuntimeException e) {
+            cancel();
+            throw e;
+        }
+    }
+}
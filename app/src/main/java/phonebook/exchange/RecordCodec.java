@@ -0,0 +1,47 @@
+package phonebook.exchange;
+
+import phonebook.model.Contact;
+
+/**
+ * Преобразование контакта в запись текстового формата обмена и обратно.
+ * Методы вызываются параллельно из нескольких потоков и не должны менять состояние.
+ */
+interface RecordCodec {
+
+    /**
+     * Собирает записи из строк файла: запись может занимать несколько строк.
+     */
+    interface Splitter {
+        /**
+         * Принимает очередную строку файла.
+         *
+         * @param line строка без символа конца строки
+         * @return завершённая запись (строки через '\n') или null, если запись продолжается
+         */
+        String offer(String line);
+
+        /**
+         * Возвращает незавершённую запись в конце файла.
+         *
+         * @return текст записи или null
+         */
+        String finish();
+    }
+
+    /**
+     * Разбирает запись.
+     *
+     * @param record текст записи
+     * @return контакт без id или null, если в записи нет ни ФИО, ни телефонов
+     * @throws IllegalArgumentException если запись повреждена
+     */
+    Contact parse(String record);
+
+    /**
+     * Дописывает контакт как запись, включая конец строки.
+     *
+     * @param c контакт
+     * @param out буфер
+     */
+    void write(Contact c, StringBuilder out);
+}
@@ -0,0 +1,290 @@
+package phonebook.exchange;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Запись контакта в vCard 3.0 (RFC 2426) или 4.0 (RFC 6350).
+ * <p>
+ * При чтении используются свойства FN (или N, если FN нет), TEL и NOTE, остальные
+ * пропускаются. Понимаются перенесённые строки, экранирование, группы свойств
+ * ("item1.TEL"), параметры TYPE в любой записи ("TYPE=CELL,VOICE", "TYPE=\"work,voice\"",
+ * голые "CELL" из vCard 2.1) и номера-URI "tel:" из 4.0. Тип телефона определяется
+ * через {@link PhoneType#fromString(String)}.
+ * <p>
+ * При записи строки длиннее 75 байт переносятся, как требует стандарт.
+ */
+final class VCardCodec implements RecordCodec {
+
+    /** Наибольшая длина строки в байтах UTF-8 без перевода строки */
+    private static final int LINE_LIMIT = 75;
+
+    private final boolean version4;
+
+    /**
+     * Создаёт кодек.
+     *
+     * @param format {@link ExchangeFormat#VCARD_3} или {@link ExchangeFormat#VCARD_4} — версия для записи
+     */
+    VCardCodec(ExchangeFormat format) {
+        this.version4 = format == ExchangeFormat.VCARD_4;
+    }
+
+    /**
+     * Создаёт разделитель записей: от BEGIN:VCARD до END:VCARD. Строки вне карточек пропускаются.
+     *
+     * @return новый разделитель
+     */
+    static Splitter splitter() {
+        return new Splitter() {
+            private final StringBuilder record = new StringBuilder();
+            private boolean inside;
+
+            @Override
+            public String offer(String line) {
+                if (!inside) {
+                    if (!isMarker(line, "BEGIN:VCARD")) return null;
+                    inside = true;
+                } else {
+                    record.append('\n');
+                }
+                record.append(line);
+                if (!isMarker(line, "END:VCARD")) return null;
+                inside = false;
+                String s = record.toString();
+                record.setLength(0);
+                return s;
+            }
+
+            @Override
+            public String finish() {
+                return record.isEmpty() ? null : record.toString();
+            }
+        };
+    }
+
+    private static boolean isMarker(String line, String marker) {
+        String s = line.strip();
+        return s.length() == marker.length() && s.regionMatches(true, 0, marker, 0, marker.length());
+    }
+
+    @Override
+    public Contact parse(String record) {
+        String fn = null, n = null;
+        StringBuilder note = null;
+        List<PhoneNumber> phones = new ArrayList<>();
+        for (String line : unfold(record)) {
+            int colon = valueStart(line);
+            if (colon < 0) continue;
+            List<String> params = params(line.substring(0, colon));
+            String name = params.get(0);
+            int dot = name.indexOf('.');
+            if (dot >= 0) name = name.substring(dot + 1);
+            String value = line.substring(colon + 1);
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "FN" -> fn = unescape(value).strip();
+                case "N" -> n = structuredName(value);
+                case "TEL" -> {
+                    if (value.regionMatches(true, 0, "tel:", 0, 4)) value = value.substring(4);
+                    value = unescape(value).strip();
+                    if (!value.isEmpty()) phones.add(PhoneNumber.restore(value, PhoneType.fromString(typeOf(params))));
+                }
+                case "NOTE" -> {
+                    if (note == null) note = new StringBuilder();
+                    else note.append('\n');
+                    note.append(unescape(value));
+                }
+                default -> {
+                }
+            }
+        }
+        String fullName = fn != null && !fn.isEmpty() ? fn : n != null ? n : "";
+        if (fullName.isEmpty()) {
+            if (phones.isEmpty()) return null;
+            fullName = phones.get(0).getNumber();
+        }
+        Contact c = Contact.restore(0, fullName, note == null || note.isEmpty() ? null : note.toString());
+        c.setPhones(phones);
+        return c;
+    }
+
+    @Override
+    public void write(Contact c, StringBuilder out) {
+        out.append("BEGIN:VCARD\r\n");
+        out.append(version4 ? "VERSION:4.0\r\n" : "VERSION:3.0\r\n");
+        line(out, "FN:" + escape(c.fullName));
+        // в 3.0 свойство N обязательно; ФИО не разбирается на части
+        if (!version4) line(out, "N:" + escape(c.fullName) + ";;;;");
+        for (PhoneNumber p : c.getPhones()) {
+            String type = switch (p.type) {
+                case MOBILE -> "CELL";
+                case HOME -> "HOME";
+                case WORK -> "WORK";
+                case FAX -> "FAX";
+                case OTHER -> "VOICE";
+            };
+            line(out, "TEL;TYPE=" + (version4 ? type.toLowerCase(Locale.ROOT) : type) + ":" + escape(p.getNumber()));
+        }
+        if (c.note != null && !c.note.isEmpty()) line(out, "NOTE:" + escape(c.note));
+        out.append("END:VCARD\r\n");
+    }
+
+    /**
+     * Дописывает строку свойства, перенося её по {@link #LINE_LIMIT} байт
+     * и не разрывая символы.
+     */
+    private static void line(StringBuilder out, String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            int size = ch < 0x80 ? 1 : ch < 0x800 ? 2 : Character.isHighSurrogate(ch) ? 4 : Character.isLowSurrogate(ch) ? 0 : 3;
+            if (bytes + size > LINE_LIMIT) {
+                out.append("\r\n ");
+                bytes = 1;
+            }
+            out.append(ch);
+            bytes += size;
+        }
+        out.append("\r\n");
+    }
+
+    /**
+     * Склеивает перенесённые строки: строка, начинающаяся с пробела или табуляции,
+     * продолжает предыдущую.
+     */
+    private static List<String> unfold(String record) {
+        List<String> lines = new ArrayList<>();
+        int start = 0, n = record.length();
+        while (start < n) {
+            int end = record.indexOf('\n', start);
+            if (end < 0) end = n;
+            int next = end + 1;
+            if (next < n && (record.charAt(next) == ' ' || record.charAt(next) == '\t')) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(record, start, trimCr(record, start, end));
+                while (next < n && (record.charAt(next) == ' ' || record.charAt(next) == '\t')) {
+                    end = record.indexOf('\n', next);
+                    if (end < 0) end = n;
+                    sb.append(record, next + 1, trimCr(record, next + 1, end));
+                    next = end + 1;
+                }
+                lines.add(sb.toString());
+            } else {
+                lines.add(record.substring(start, trimCr(record, start, end)));
+            }
+            start = next;
+        }
+        return lines;
+    }
+
+    private static int trimCr(String s, int start, int end) {
+        return end > start && s.charAt(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Возвращает позицию двоеточия перед значением (вне кавычек в параметрах) или -1.
+     */
+    private static int valueStart(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') quoted = !quoted;
+            else if (ch == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Разбивает имя свойства с параметрами по ";" вне кавычек.
+     */
+    private static List<String> params(String s) {
+        List<String> parts = new ArrayList<>(4);
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') quoted = !quoted;
+            else if (ch == ';' && !quoted) {
+                parts.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(s.substring(start));
+        return parts;
+    }
+
+    /**
+     * Собирает значения TYPE (и голые параметры vCard 2.1) в одну строку для {@link PhoneType#fromString(String)}.
+     */
+    private static String typeOf(List<String> params) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < params.size(); i++) {
+            String p = params.get(i);
+            int eq = p.indexOf('=');
+            if (eq < 0) sb.append(p).append(',');
+            else if (p.substring(0, eq).strip().equalsIgnoreCase("TYPE")) sb.append(p, eq + 1, p.length()).append(',');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Собирает ФИО из свойства N: фамилия;имя;отчество;префикс;суффикс.
+     */
+    private static String structuredName(String value) {
+        StringBuilder sb = new StringBuilder();
+        int start = 0, part = 0;
+        for (int i = 0; i <= value.length() && part < 3; i++) {
+            if (i < value.length() && value.charAt(i) == '\\') {
+                i++;
+                continue;
+            }
+            if (i == value.length() || value.charAt(i) == ';') {
+                String s = unescape(value.substring(start, i)).strip();
+                if (!s.isEmpty()) {
+                    if (!sb.isEmpty()) sb.append(' ');
+                    sb.append(s.replace(',', ' '));
+                }
+                start = i + 1;
+                part++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '\\' -> sb.append("\\\\");
+                case ',' -> sb.append("\\,");
+                case ';' -> sb.append("\\;");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> {
+                }
+                default -> sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+}
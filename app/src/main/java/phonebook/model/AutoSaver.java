@@ -0,0 +1,134 @@
+package phonebook.model;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Автосохранение телефонной книги.
+ * <p>
+ * Подписывается на изменения {@link PhoneBookModel} и запускает
+ * {@link PhoneBookModel#saveInBackground()} после паузы {@code delayMillis}
+ * с момента последнего изменения, так что серия правок записывается одним сохранением.
+ * Чтобы при непрерывной работе данные всё же попадали на диск, сохранение
+ * выполняется не позже чем через {@code maxDelayMillis} после первого несохранённого изменения.
+ */
+public class AutoSaver implements PhoneBookListener, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AutoSaver.class);
+
+    /** Пауза после последнего изменения по умолчанию */
+    public static final long DEFAULT_DELAY_MILLIS = 2000;
+
+    private final PhoneBookModel model;
+
+    /** Пауза после последнего изменения */
+    private final long delayNanos;
+
+    /** Наибольшая задержка сохранения после первого несохранённого изменения */
+    private final long maxDelayNanos;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "phonebook-autosave");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Запланированное сохранение */
+    private ScheduledFuture<?> scheduled;
+
+    /** Номер последнего планирования; устаревшие задачи не сохраняют */
+    private long ticket;
+
+    /** Момент первого изменения в текущей серии */
+    private long firstChangeNanos;
+
+    /** Количество изменений в текущей серии */
+    private int changes;
+
+    private boolean closed;
+
+    /**
+     * Создаёт автосохранение с наибольшей задержкой, равной десяти паузам.
+     *
+     * @param model модель телефонной книги
+     * @param delayMillis пауза после последнего изменения в миллисекундах
+     */
+    public AutoSaver(PhoneBookModel model, long delayMillis) {
+        this(model, delayMillis, delayMillis * 10);
+    }
+
+    /**
+     * Создаёт автосохранение.
+     *
+     * @param model модель телефонной книги
+     * @param delayMillis пауза после последнего изменения в миллисекундах
+     * @param maxDelayMillis наибольшая задержка после первого несохранённого изменения
+     */
+    public AutoSaver(PhoneBookModel model, long delayMillis, long maxDelayMillis) {
+        this.model = model;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, maxDelayMillis));
+        model.addPhoneBookListener(this);
+        logger.debug("Автосохранение включено: пауза {} мс, не позже {} мс", delayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Откладывает сохранение после очередного изменения.
+     * Замена списка целиком при загрузке сохранения не требует; событие
+     * {@link PhoneBookEvent.Type#CHANGED} от пакета изменений несёт несохранённые изменения.
+     *
+     * @param e описание изменения
+     */
+    @Override
+    public synchronized void phoneBookChanged(PhoneBookEvent e) {
+        if (closed || e.getType() == PhoneBookEvent.Type.CHANGED && !model.hasUnsavedChanges()) return;
+
+        long now = System.nanoTime();
+        if (scheduled == null) {
+            firstChangeNanos = now;
+        } else {
+            scheduled.cancel(false);
+        }
+        changes++;
+        long delay = Math.min(delayNanos, Math.max(0, firstChangeNanos + maxDelayNanos - now));
+        long t = ++ticket;
+        scheduled = scheduler.schedule(() -> save(t), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void save(long t) {
+        int n;
+        synchronized (this) {
+            if (t != ticket || closed) return;
+            scheduled = null;
+            n = changes;
+            changes = 0;
+        }
+        logger.debug("Автосохранение: {} изменений", n);
+        model.saveInBackground();
+    }
+
+    /**
+     * Отключает автосохранение и записывает оставшиеся изменения,
+     * дожидаясь окончания записи.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (scheduled != null) scheduled.cancel(false);
+            scheduled = null;
+        }
+        model.removePhoneBookListener(this);
+        scheduler.shutdownNow();
+        // ждём и уже начатую запись: потоки сохранения не держат приложение при выходе
+        if (model.hasUnsavedChanges() || model.getSaveState().status() == SaveState.Status.IN_FLIGHT) {
+            model.saveToFile();
+        }
+    }
+}
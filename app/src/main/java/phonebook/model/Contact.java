@@ -3,8 +3,10 @@ package phonebook.model;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import phonebook.search.SearchKey;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,21 +20,40 @@ import org.apache.logging.log4j.Logger;
  *     <li>Список телефонных номеров {@link PhoneNumber}</li>
  *     <li>Заметку (опционально)</li>
  * </ul>
+ * Контакт, добавленный в книгу, опубликован в снимках {@link PhoneBookModel} и читается
+ * из других потоков, поэтому на месте не изменяется: правки вносятся в копию
+ * ({@link #copy()}), которая передаётся в {@link PhoneBookModel#updateContact(Contact)}.
+ * Копия не разделяет с исходным контактом ничего изменяемого: список телефонов у неё свой,
+ * а сами номера {@link PhoneNumber} неизменяемы. Телефоны меняются только через
+ * {@link #addPhone(String, PhoneType)} и {@link #setPhones(List)}, которые сбрасывают
+ * кэш строки телефонов.
  */
 public class Contact implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
     private static final Logger logger = LogManager.getLogger(Contact.class);
 
+    /** Идентификатор контакта в книге (0 — контакт ещё не добавлен в модель) */
+    public int id;
+
     /** Полное имя контакта */
     public String fullName;
 
     /** Список телефонов контакта */
-    public List<PhoneNumber> phones = new ArrayList<>();
+    private List<PhoneNumber> phones = new ArrayList<>();
 
     /** Заметка к контакту */
     public String note = "";
 
+    /** Кэш строки телефонов для отображения; null — требует пересчёта */
+    private transient String phonesText;
+
+    /** Кэш ключа сортировки по телефонам; null — требует пересчёта */
+    private transient String phonesKey;
+
+    /** Кэш ключа поиска по ФИО вместе с ФИО, по которому он вычислен */
+    private transient NameKey nameKey;
+
     /**
      * Конструктор контакта с указанием полного имени.
      *
@@ -43,8 +64,33 @@ public class Contact implements Serializable {
         logger.debug("Создан новый контакт: {}", fullName);
     }
 
+    private Contact(int id, String fullName, String note) {
+        this.id = id;
+        this.fullName = fullName;
+        this.note = note;
+    }
+
+    /**
+     * Восстанавливает контакт, прочитанный из хранилища.
+     * <p>
+     * В отличие от конструктора не пишет в лог: при загрузке большой базы
+     * это была бы отдельная строка на каждый контакт.
+     *
+     * @param id идентификатор контакта
+     * @param fullName полное имя контакта
+     * @param note заметка к контакту
+     * @return восстановленный контакт без телефонов
+     */
+    public static Contact restore(int id, String fullName, String note) {
+        return new Contact(id, fullName, note);
+    }
+
     /**
      * Добавляет новый телефон к контакту.
+     * <p>
+     * Контакт, уже добавленный в книгу, не изменяется на месте: телефон добавляется к копии
+     * ({@link #copy()}), которая сохраняется через {@link PhoneBookModel#updateContact(Contact)}, —
+     * так обновляются индексы поиска и определения номера.
      *
      * @param number номер телефона
      * @param type тип телефона {@link PhoneType}
@@ -52,18 +98,139 @@ public class Contact implements Serializable {
     public void addPhone(String number, PhoneType type) {
         PhoneNumber pn = new PhoneNumber(number, type);
         phones.add(pn);
-        logger.info("Добавлен телефон '{}' к контакту '{}'", pn, fullName);
+        invalidatePhones();
+        logger.debug("Добавлен телефон '{}' к контакту '{}'", pn, fullName);
+    }
+
+    /**
+     * Добавляет готовый телефон без записи в лог: используется при чтении контактов
+     * из хранилища и при импорте.
+     *
+     * @param phone телефонный номер
+     */
+    public void addPhone(PhoneNumber phone) {
+        phones.add(phone);
+        invalidatePhones();
+    }
+
+    /**
+     * Возвращает телефоны контакта.
+     *
+     * @return неизменяемый список телефонов
+     */
+    public List<PhoneNumber> getPhones() {
+        return Collections.unmodifiableList(phones);
+    }
+
+    /**
+     * Создаёт копию контакта с тем же идентификатором.
+     * <p>
+     * Используется при редактировании: изменения вносятся в копию и передаются
+     * в модель целиком, а опубликованный в модели контакт остаётся неизменным.
+     * Список телефонов копируется; номера неизменяемы и разделяются.
+     *
+     * @return копия контакта
+     */
+    public Contact copy() {
+        Contact c = new Contact(fullName);
+        c.id = id;
+        c.phones.addAll(phones);
+        c.note = note;
+        return c;
+    }
+
+    /**
+     * Заменяет список телефонов контакта.
+     *
+     * @param newPhones новые телефоны
+     */
+    public void setPhones(List<PhoneNumber> newPhones) {
+        List<PhoneNumber> copy = new ArrayList<>(newPhones); // newPhones может быть getPhones() этого же контакта
+        phones.clear();
+        phones.addAll(copy);
+        invalidatePhones();
+    }
+
+    /**
+     * Сбрасывает кэш строки телефонов.
+     * <p>
+     * Вызывается при изменении телефонов через {@link #addPhone(String, PhoneType)}
+     * и {@link #setPhones(List)}.
+     */
+    public void invalidatePhones() {
+        phonesText = null;
+        phonesKey = null;
     }
 
     /**
      * Возвращает все телефоны контакта в виде строки,
      * разделённой точкой с запятой.
+     * <p>
+     * Строка кэшируется: таблица запрашивает её при каждой перерисовке и прокрутке.
      *
      * @return строка со всеми телефонами
      */
     public String phonesAsString() {
-        return phones.stream()
-                .map(PhoneNumber::toString)
-                .collect(Collectors.joining("; "));
+        String s = phonesText;
+        if (s == null) {
+            StringBuilder sb = new StringBuilder();
+            for (PhoneNumber p : phones) {
+                if (sb.length() > 0) sb.append("; ");
+                sb.append(p);
+            }
+            phonesText = s = sb.toString();
+        }
+        return s;
+    }
+
+    /**
+     * Возвращает ключ поиска по ФИО ({@link SearchKey}): без учёта регистра, "ё"
+     * и алфавита, кириллица и латиница сводятся к одной записи.
+     * <p>
+     * Ключ вычисляется один раз на значение {@link #fullName}: индексы поиска по ФИО
+     * запрашивают его при добавлении и изменении контакта, а при вводе запроса
+     * нормализуется только сам запрос.
+     *
+     * @return ключ поиска
+     */
+    public String searchKey() {
+        NameKey k = nameKey;
+        String name = fullName;
+        if (k == null || k.name != name) {
+            nameKey = k = new NameKey(name, SearchKey.of(name));
+        }
+        return k.key;
+    }
+
+    /**
+     * Ключ поиска и ФИО, по которому он вычислен; читается одной ссылкой, поэтому
+     * ключ не разойдётся с ФИО при обращении из разных потоков.
+     */
+    private record NameKey(String name, String key) {
+    }
+
+    /**
+     * Возвращает ключ сортировки по телефонам: цифры номеров через пробел.
+     * <p>
+     * Так номера сравниваются по значению, а не по оформлению ("+7 (916)" и "7916" равны).
+     * Ключ кэшируется вместе со строкой телефонов.
+     *
+     * @return ключ сортировки
+     */
+    public String phonesSortKey() {
+        String k = phonesKey;
+        if (k == null) {
+            StringBuilder sb = new StringBuilder();
+            for (PhoneNumber p : phones) {
+                if (sb.length() > 0) sb.append(' ');
+                String n = p.getNumber();
+                for (int i = 0; i < n.length(); i++) {
+                    char ch = n.charAt(i);
+                    if (ch >= '0' && ch <= '9') sb.append(ch);
+                }
+            }
+            phonesKey = k = sb.toString();
+        }
+        return k;
     }
 }
@@ -0,0 +1,99 @@
+package phonebook.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Пакет изменений телефонной книги для {@link PhoneBookModel#apply(ContactBatch)}.
+ * <p>
+ * Изменения применяются в порядке добавления в пакет, под одной блокировкой модели,
+ * с одним событием {@link PhoneBookListener} и одной строкой в логе.
+ * Изменяемые и удаляемые контакты указываются по id, а не по номеру строки:
+ * номера строк сдвигаются по мере удаления.
+ */
+public class ContactBatch {
+
+    /**
+     * Вид изменения.
+     */
+    enum Kind { ADD, UPDATE, REMOVE }
+
+    /**
+     * Отдельное изменение пакета.
+     *
+     * @param kind вид изменения
+     * @param contact добавляемый или новая версия контакта (для удаления — null)
+     * @param id id изменяемого или удаляемого контакта
+     */
+    record Change(Kind kind, Contact contact, int id) {
+    }
+
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Добавляет в пакет новый контакт.
+     *
+     * @param c контакт; id назначается моделью, если равен 0
+     * @return этот пакет
+     */
+    public ContactBatch add(Contact c) {
+        changes.add(new Change(Kind.ADD, c, c.id));
+        return this;
+    }
+
+    /**
+     * Добавляет в пакет новые контакты.
+     *
+     * @param contacts контакты
+     * @return этот пакет
+     */
+    public ContactBatch addAll(Collection<Contact> contacts) {
+        for (Contact c : contacts) add(c);
+        return this;
+    }
+
+    /**
+     * Добавляет в пакет замену контакта его изменённой копией (см. {@link Contact#copy()}).
+     *
+     * @param c новая версия контакта с id заменяемого
+     * @return этот пакет
+     */
+    public ContactBatch update(Contact c) {
+        changes.add(new Change(Kind.UPDATE, c, c.id));
+        return this;
+    }
+
+    /**
+     * Добавляет в пакет удаление контакта.
+     *
+     * @param id id контакта
+     * @return этот пакет
+     */
+    public ContactBatch remove(int id) {
+        changes.add(new Change(Kind.REMOVE, null, id));
+        return this;
+    }
+
+    /**
+     * Возвращает количество изменений в пакете.
+     *
+     * @return количество изменений
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Проверяет, пуст ли пакет.
+     *
+     * @return true, если изменений нет
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    List<Change> changes() {
+        return changes;
+    }
+}
@@ -0,0 +1,80 @@
+package phonebook.model;
+
+import java.util.List;
+
+/**
+ * Построчный доступ к списку контактов для отображения.
+ * <p>
+ * Позволяет хранилищу отдавать значения столбцов таблицы, не создавая объект
+ * {@link Contact} на каждую строку (см. {@link phonebook.storage.ColumnarContactList}).
+ * Для обычного списка значения берутся из контактов.
+ */
+public interface ContactRows {
+
+    /**
+     * Возвращает количество строк.
+     *
+     * @return количество контактов
+     */
+    int size();
+
+    /**
+     * Возвращает контакт строки целиком.
+     *
+     * @param row индекс строки
+     * @return контакт
+     */
+    Contact get(int row);
+
+    /**
+     * Возвращает ФИО контакта строки.
+     *
+     * @param row индекс строки
+     * @return ФИО
+     */
+    default String fullNameAt(int row) {
+        return get(row).fullName;
+    }
+
+    /**
+     * Возвращает телефоны контакта строки в виде строки (см. {@link Contact#phonesAsString()}).
+     *
+     * @param row индекс строки
+     * @return строка телефонов
+     */
+    default String phonesAt(int row) {
+        return get(row).phonesAsString();
+    }
+
+    /**
+     * Возвращает заметку контакта строки.
+     *
+     * @param row индекс строки
+     * @return заметка
+     */
+    default String noteAt(int row) {
+        return get(row).note;
+    }
+
+    /**
+     * Возвращает построчный доступ к списку: сам список, если он его поддерживает,
+     * иначе обёртку над ним.
+     *
+     * @param list список контактов
+     * @return построчный доступ
+     */
+    static ContactRows of(List<Contact> list) {
+        if (list instanceof ContactRows rows) return rows;
+        return new ContactRows() {
+            @Override
+            public int size() {
+                return list.size();
+            }
+
+            @Override
+            public Contact get(int row) {
+                return list.get(row);
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package phonebook.model;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Изменяемый список контактов модели, умеющий отдавать неизменяемые снимки без копирования.
+ * <p>
+ * Снимок разделяет данные со списком; при следующем изменении список копирует только
+ * ту часть данных, которую меняет (копирование при записи). Снимок можно читать из любого
+ * потока без блокировки, а сам список изменяется только под блокировкой модели.
+ */
+public interface ContactStore extends List<Contact> {
+
+    /**
+     * Возвращает неизменяемый снимок текущего состояния списка.
+     * Последующие изменения списка на снимок не влияют.
+     *
+     * @return неизменяемый список контактов
+     */
+    List<Contact> snapshot();
+
+    /**
+     * Удаляет отмеченные строки за один проход.
+     *
+     * @param rows номера удаляемых строк
+     */
+    void removeRows(BitSet rows);
+
+    /**
+     * Возвращает id контакта строки. Хранилища, которые держат контакты не объектами,
+     * отдают его, не собирая контакт.
+     *
+     * @param row индекс строки
+     * @return id контакта
+     */
+    default int idAt(int row) {
+        return get(row).id;
+    }
+}
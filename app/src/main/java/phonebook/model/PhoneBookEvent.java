@@ -0,0 +1,79 @@
+package phonebook.model;
+
+import java.util.EventObject;
+
+/**
+ * Событие изменения списка контактов {@link PhoneBookModel}.
+ * <p>
+ * Описывает непрерывный диапазон строк, которые были добавлены, изменены или удалены.
+ * Для удаления номера строк указаны до удаления. Тип {@link Type#CHANGED}
+ * означает, что список заменён целиком (например, после загрузки) или изменён
+ * пакетом в разных местах (см. {@link PhoneBookModel#apply(ContactBatch)}).
+ */
+public class PhoneBookEvent extends EventObject {
+
+    /**
+     * Тип изменения.
+     */
+    public enum Type {
+        /** Строки добавлены */
+        INSERTED,
+        /** Строки изменены */
+        UPDATED,
+        /** Строки удалены */
+        REMOVED,
+        /** Список заменён или изменён в разных местах; строки нужно перечитать */
+        CHANGED
+    }
+
+    private final Type type;
+    private final int firstRow;
+    private final int lastRow;
+
+    /**
+     * Конструктор события.
+     *
+     * @param source модель, в которой произошло изменение
+     * @param type тип изменения
+     * @param firstRow первая затронутая строка
+     * @param lastRow последняя затронутая строка (включительно)
+     */
+    public PhoneBookEvent(PhoneBookModel source, Type type, int firstRow, int lastRow) {
+        super(source);
+        this.type = type;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+    }
+
+    /**
+     * Возвращает тип изменения.
+     *
+     * @return тип изменения
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Возвращает первую затронутую строку.
+     *
+     * @return индекс строки
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Возвращает последнюю затронутую строку (включительно).
+     *
+     * @return индекс строки
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    @Override
+    public String toString() {
+        return type + " [" + firstRow + ".." + lastRow + "]";
+    }
+}
@@ -0,0 +1,18 @@
+package phonebook.model;
+
+import java.util.EventListener;
+
+/**
+ * Слушатель изменений списка контактов {@link PhoneBookModel}.
+ * <p>
+ * Уведомления приходят синхронно, в том потоке, который изменил модель.
+ */
+public interface PhoneBookListener extends EventListener {
+
+    /**
+     * Вызывается после изменения списка контактов.
+     *
+     * @param e описание изменения
+     */
+    void phoneBookChanged(PhoneBookEvent e);
+}
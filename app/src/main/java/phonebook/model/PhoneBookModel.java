@@ -1,9 +1,48 @@
 package phonebook.model;
 
+import phonebook.search.CallerIdIndex;
+import phonebook.search.FuzzyNameIndex;
+import phonebook.search.NameIndex;
+import phonebook.search.PhoneIndex;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.BlockStorage;
+import phonebook.storage.ChunkedContactList;
+import phonebook.storage.ColumnarContactList;
+import phonebook.storage.ContactJournal;
+import phonebook.storage.LegacyStorage;
+import phonebook.storage.MappedContactList;
+import phonebook.storage.RecordStorage;
+import phonebook.storage.ShardedStorage;
+import phonebook.storage.Snapshot;
+import phonebook.storage.StorageLayout;
+
 import javax.swing.*;
-import java.io.*;
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,29 +52,323 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * Предоставляет методы для работы со списком контактов:
  * <ul>
- *     <li>Добавление и удаление контактов</li>
+ *     <li>Добавление, изменение и удаление контактов</li>
  *     <li>Сохранение списка контактов в файл</li>
  *     <li>Загрузка списка контактов из файла</li>
  * </ul>
- * Используется сериализация для хранения данных в бинарном файле "phonebook.dat".
+ * Данные хранятся в базовом снимке "phonebook.dat" (формат {@link BinaryStorage} или сжатый
+ * {@link BlockStorage}) и журнале изменений {@link ContactJournal}. При сохранении в журнал дописываются только изменения,
+ * сделанные с прошлого сохранения; когда журнал разрастается, он в фоне
+ * сворачивается в новый базовый снимок. Вместо снимка с журналом можно хранить базу
+ * в файле записей {@link RecordStorage}, где изменённые контакты перезаписываются на месте
+ * (см. {@link #setStorageLayout(StorageLayout)}), а базовый снимок — разбить на шарды
+ * {@link ShardedStorage}, которые пишутся и читаются параллельно. Несохранённые изменения учитываются
+ * по id контакта: повторные правки одного контакта между сохранениями записываются один раз.
+ * <p>
+ * Сохранение выполняется в фоновом потоке ({@link #saveInBackground()}), а его состояние
+ * доступно через {@link #getSaveState()}; сама модель не показывает сообщений пользователю.
+ * <p>
+ * Об изменениях списка модель уведомляет {@link PhoneBookListener} с номерами строк.
+ * <p>
+ * Изменения выполняются по очереди под блокировкой модели; после каждого изменения
+ * публикуется неизменяемый снимок списка {@link PhoneBookSnapshot}. Чтение через
+ * {@link #snapshot()}, {@link #getContacts()} и {@link #getRows()} не блокируется и не
+ * копирует список, поэтому сохранение, построение индексов и другие фоновые задачи
+ * работают со снимком параллельно с изменениями в EDT. Поиск по индексам блокирует
+ * модель только на время самого запроса: индексы строятся по снимку вне блокировки.
  */
 public class PhoneBookModel {
 
     private static final Logger logger = LogManager.getLogger(PhoneBookModel.class);
 
-    /** Список контактов */
-    private List<Contact> contacts = new ArrayList<>();
+    /** Минимальный размер журнала, после которого запускается свёртка */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    /** Доля свободного места в файле записей, после которой он переписывается заново */
+    private static final double MAX_FRAGMENTATION = 0.3;
+
+    /** Список контактов; изменяется только под блокировкой модели */
+    private ContactStore contacts = new ChunkedContactList();
+
+    /** Последний опубликованный снимок {@link #contacts} */
+    private volatile PhoneBookSnapshot snapshot = new PhoneBookSnapshot(0, contacts.snapshot());
 
     /** Файл для хранения контактов */
-    private final File storageFile = new File("phonebook.dat");
+    private final File storageFile;
+
+    /** Журнал изменений, относящийся к {@link #storageFile} */
+    private final ContactJournal journal;
+
+    /** Подписчики на изменения списка */
+    private final List<PhoneBookListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Изменения, сделанные с момента последнего сохранения: последнее по каждому id в порядке первого изменения */
+    private final Map<Integer, PendingChange> dirty = new LinkedHashMap<>();
+
+    /** Поток фоновой свёртки журнала */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "phonebook-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Поток фоновой записи изменений; сохранения выполняются строго по очереди */
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "phonebook-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Подписчики на смену состояния сохранения */
+    private final List<Consumer<SaveState>> saveListeners = new CopyOnWriteArrayList<>();
+
+    /** Состояние последнего сохранения */
+    private volatile SaveState saveState = SaveState.IDLE;
+
+    /** Идёт загрузка порциями (см. {@link #loadInBackground}); изменение и сохранение недоступны */
+    private volatile boolean loading;
+
+    /** Количество запущенных и ещё не завершённых сохранений */
+    private int savesInFlight;
+
+    /** Блокировка, упорядочивающая запись журнала и его пересоздание при свёртке */
+    private final Object journalLock = new Object();
+
+    /** Поколение текущего базового снимка (0 — снимка ещё нет) */
+    private volatile long generation;
+
+    /** Номер версии списка контактов; увеличивается при каждом изменении */
+    private volatile long version;
+
+    /** Следующий свободный идентификатор контакта */
+    private int nextId = 1;
+
+    /** Текущая фоновая свёртка или null */
+    private CompletableFuture<Void> compaction;
+
+    /** Индекс номеров телефонов; строится при первом поиске по номеру */
+    private PhoneIndex phoneIndex;
+
+    /** Индекс триграмм ФИО; строится при первом поиске по ФИО */
+    private NameIndex nameIndex;
+
+    /** Словарь слов ФИО для нечёткого поиска; строится при первом нечётком поиске */
+    private FuzzyNameIndex fuzzyIndex;
+
+    /** Индекс определения абонента по номеру; строится при первом запросе и читается без блокировки */
+    private volatile CallerIdIndex callerIdIndex;
+
+    /** Номер строки по id контакта; null — требует перестроения (после удаления или загрузки) */
+    private int[] rowsById;
+
+    /** id контактов, изменённых во время каждого идущего построения индекса */
+    private final Set<BitSet> indexBuilds = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** Номер замены списка при загрузке: индекс, построенный по прежнему списку, отбрасывается */
+    private int listEpoch;
+
+    /** Загружать ли базу лениво, через отображение файла в память */
+    private boolean lazyLoading;
+
+    /** Размер кэша декодированных строк при ленивой загрузке */
+    private int lazyCacheSize = MappedContactList.DEFAULT_CACHE_SIZE;
+
+    /** Хранить ли загруженные контакты по столбцам (см. {@link ColumnarContactList}) */
+    private boolean columnarStore;
+
+    /** Хранить ли столбцы вне кучи */
+    private boolean offHeap;
+
+    /** Способ сохранения изменений */
+    private StorageLayout storageLayout = StorageLayout.JOURNAL;
+
+    /** Записывать ли базовый снимок сжатыми блоками (см. {@link BlockStorage}) */
+    private volatile boolean compressedSnapshots;
+
+    /** Каталог шардов базового снимка (см. {@link StorageLayout#SHARDED}) */
+    private final Path shardDir;
+
+    /** Количество шардов при записи снимка */
+    private volatile int shardCount = ShardedStorage.DEFAULT_SHARDS;
+
+    /** Открытый файл записей (только в {@link StorageLayout#RECORDS}) или null, если его нужно записать целиком */
+    private volatile RecordStorage records;
+
+    /**
+     * Создаёт модель, хранящую данные в файле "phonebook.dat" текущего каталога.
+     */
+    public PhoneBookModel() {
+        this(new File("phonebook.dat"));
+    }
 
     /**
-     * Возвращает список всех контактов.
+     * Создаёт модель, хранящую данные в указанном файле.
+     *
+     * @param storageFile файл базового снимка; журнал хранится рядом с ним
+     */
+    public PhoneBookModel(File storageFile) {
+        this.storageFile = storageFile;
+        this.journal = new ContactJournal(new File(storageFile.getPath() + ".journal"));
+        this.shardDir = ShardedStorage.directoryFor(storageFile.toPath());
+    }
+
+    /**
+     * Включает ленивую загрузку: файл базы отображается в память, а контакты
+     * декодируются при первом обращении к строке (см. {@link MappedContactList}).
+     *
+     * @param lazyLoading true — ленивая загрузка, false — чтение всей базы в память
+     * @param cacheSize максимальное количество декодированных строк в кэше
+     */
+    public void setLazyLoading(boolean lazyLoading, int cacheSize) {
+        this.lazyLoading = lazyLoading;
+        this.lazyCacheSize = cacheSize;
+    }
+
+    /**
+     * Включает хранение контактов по столбцам (см. {@link ColumnarContactList}) вместо
+     * списка объектов. Действует на следующую загрузку; ленивая загрузка имеет приоритет.
+     *
+     * @param columnarStore true — хранение по столбцам
+     * @param offHeap хранить столбцы вне кучи
+     */
+    public synchronized void setColumnarStore(boolean columnarStore, boolean offHeap) {
+        this.columnarStore = columnarStore;
+        this.offHeap = offHeap;
+        if (contacts.isEmpty()) {
+            contacts = newContactList(0);
+            publish();
+        }
+    }
+
+    /**
+     * Выбирает способ сохранения изменений. Файл базы другого формата загружается
+     * как обычно и при следующем сохранении записывается заново в выбранном формате,
+     * после чего прежний файл или каталог шардов удаляется.
+     *
+     * @param storageLayout {@link StorageLayout#JOURNAL} — снимок и журнал,
+     *                      {@link StorageLayout#RECORDS} — файл записей с обновлением на месте,
+     *                      {@link StorageLayout#SHARDED} — снимок из шардов и журнал
+     */
+    public synchronized void setStorageLayout(StorageLayout storageLayout) {
+        this.storageLayout = storageLayout;
+    }
+
+    /**
+     * Возвращает способ сохранения изменений.
+     *
+     * @return способ сохранения
+     */
+    public synchronized StorageLayout getStorageLayout() {
+        return storageLayout;
+    }
+
+    /**
+     * Задаёт количество шардов снимка в {@link StorageLayout#SHARDED}. Действует на следующую
+     * запись снимка; при чтении количество берётся из манифеста. Шардов должно быть не меньше,
+     * чем ядер, иначе часть ядер при загрузке простаивает.
+     *
+     * @param shardCount количество шардов, от 1 до {@link ShardedStorage#MAX_SHARDS}
+     */
+    public void setShardCount(int shardCount) {
+        if (shardCount < 1 || shardCount > ShardedStorage.MAX_SHARDS) {
+            throw new IllegalArgumentException("Количество шардов должно быть от 1 до "
+                    + ShardedStorage.MAX_SHARDS + ": " + shardCount);
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Включает запись базового снимка сжатыми блоками (см. {@link BlockStorage}):
+     * файл меньше в 2–3 раза, а при ленивой загрузке распаковываются только показанные блоки.
+     * Действует на следующую запись снимка; читаются снимки обоих форматов.
+     * В {@link StorageLayout#SHARDED} сжатыми блоками пишется каждый шард.
+     * Файл записей ({@link StorageLayout#RECORDS}) не сжимается.
+     *
+     * @param compressedSnapshots true — сжатый снимок, false — {@link BinaryStorage}
+     */
+    public void setCompressedSnapshots(boolean compressedSnapshots) {
+        this.compressedSnapshots = compressedSnapshots;
+    }
+
+    /**
+     * Возвращает последний опубликованный снимок списка контактов. Не блокирует вызывающий поток.
+     *
+     * @return неизменяемый снимок текущей версии
+     */
+    public PhoneBookSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Возвращает построчный доступ к текущему снимку списка для отображения.
+     * Для хранения по столбцам значения отдаются без создания объектов {@link Contact}.
+     *
+     * @return построчный доступ к снимку (см. {@link #snapshot()})
+     */
+    public ContactRows getRows() {
+        return snapshot;
+    }
+
+    /**
+     * Возвращает неизменяемый список всех контактов текущего снимка (см. {@link #snapshot()}).
      *
      * @return список контактов
      */
     public List<Contact> getContacts() {
-        return contacts;
+        return snapshot.getContacts();
+    }
+
+    /**
+     * Подписывает слушателя на изменения списка контактов.
+     *
+     * @param l слушатель
+     */
+    public void addPhoneBookListener(PhoneBookListener l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Отписывает слушателя от изменений списка контактов.
+     *
+     * @param l слушатель
+     */
+    public void removePhoneBookListener(PhoneBookListener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Публикует снимок списка после изменения; вызывается под блокировкой модели до уведомления слушателей.
+     */
+    private void publish() {
+        snapshot = new PhoneBookSnapshot(version, contacts.snapshot());
+    }
+
+    /**
+     * Отмечает изменённый контакт для идущих построений индексов.
+     */
+    private void touched(int id) {
+        for (BitSet changed : indexBuilds) changed.set(id);
+    }
+
+    /**
+     * Уведомляет слушателей об изменении строк.
+     */
+    private void fire(PhoneBookEvent.Type type, int firstRow, int lastRow) {
+        if (listeners.isEmpty()) return;
+        PhoneBookEvent e = new PhoneBookEvent(this, type, firstRow, lastRow);
+        for (PhoneBookListener l : listeners) l.phoneBookChanged(e);
+    }
+
+    /**
+     * Возвращает номер версии списка контактов.
+     * <p>
+     * Позволяет понять, не изменился ли список, пока в фоне считался результат поиска:
+     * номера строк в таком результате могут быть уже неактуальны.
+     *
+     * @return номер версии, увеличивающийся при каждом изменении
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -43,9 +376,97 @@ public class PhoneBookModel {
      *
      * @param c контакт для добавления
      */
-    public void addContact(Contact c) {
-        contacts.add(c);
+    public synchronized void addContact(Contact c) {
+        checkNotLoading();
+        append(c);
+        markDirty(ContactJournal.OP_ADD, c);
+        version++;
+        publish();
         logger.info("Добавлен контакт: {}", c.fullName);
+        fire(PhoneBookEvent.Type.INSERTED, contacts.size() - 1, contacts.size() - 1);
+    }
+
+    /**
+     * Добавляет контакт в конец списка и в построенные индексы, назначая id при необходимости.
+     */
+    private void append(Contact c) {
+        if (c.id == 0) c.id = nextId++;
+        nextId = Math.max(nextId, c.id + 1);
+        contacts.add(c);
+        if (rowsById != null) {
+            if (c.id >= rowsById.length) rowsById = Arrays.copyOf(rowsById, Math.max(c.id + 1, rowsById.length * 2));
+            rowsById[c.id] = contacts.size() - 1;
+        }
+        if (phoneIndex != null) phoneIndex.add(c);
+        if (nameIndex != null) nameIndex.add(c);
+        if (fuzzyIndex != null) fuzzyIndex.add(c);
+        if (callerIdIndex != null) callerIdIndex.add(c);
+        touched(c.id);
+    }
+
+    private void checkNotLoading() {
+        if (loading) throw new IllegalStateException("База ещё загружается");
+    }
+
+    /**
+     * Заменяет контакт по индексу изменённой копией.
+     *
+     * @param index индекс контакта в списке
+     * @param c новая версия контакта (с тем же id)
+     * @throws IllegalArgumentException если id копии не совпадает с id контакта в строке
+     */
+    public synchronized void updateContact(int index, Contact c) {
+        checkNotLoading();
+        if (index >= 0 && index < contacts.size()) {
+            int id = contacts.idAt(index);
+            if (c.id != id) {
+                throw new IllegalArgumentException("Контакт с id " + c.id + " не может заменить контакт с id " + id);
+            }
+            contacts.set(index, c);
+            if (phoneIndex != null) phoneIndex.update(c);
+            if (nameIndex != null) nameIndex.update(c);
+            if (fuzzyIndex != null) fuzzyIndex.update(c);
+            if (callerIdIndex != null) callerIdIndex.update(c);
+            touched(c.id);
+            markDirty(ContactJournal.OP_UPDATE, c);
+            version++;
+            publish();
+            logger.info("Изменён контакт: {}", c.fullName);
+            fire(PhoneBookEvent.Type.UPDATED, index, index);
+        }
+    }
+
+    /**
+     * Заменяет контакт с тем же id изменённой копией.
+     * <p>
+     * В отличие от {@link #updateContact(int, Contact)} не зависит от номеров строк,
+     * которые могли сдвинуться, пока контакт редактировался.
+     *
+     * @param c новая версия контакта
+     * @return false, если контакта с таким id уже нет в книге
+     */
+    public synchronized boolean updateContact(Contact c) {
+        checkNotLoading();
+        buildRowsById();
+        int row = rowOf(c.id);
+        if (row < 0) return false;
+        updateContact(row, c);
+        return true;
+    }
+
+    /**
+     * Удаляет контакт по id.
+     *
+     * @param id id контакта
+     * @return false, если контакта с таким id уже нет в книге
+     */
+    public synchronized boolean removeContactById(int id) {
+        checkNotLoading();
+        buildRowsById();
+        int row = rowOf(id);
+        if (row < 0) return false;
+        removeContact(row);
+        return true;
     }
 
     /**
@@ -53,44 +474,1092 @@ public class PhoneBookModel {
      *
      * @param index индекс контакта в списке
      */
-    public void removeContact(int index) {
+    public synchronized void removeContact(int index) {
+        checkNotLoading();
         if (index >= 0 && index < contacts.size()) {
             Contact removed = contacts.remove(index); // сохраняем удалённый контакт
+            rowsById = null; // строки после удалённой сдвинулись
+            if (phoneIndex != null) phoneIndex.remove(removed.id);
+            if (nameIndex != null) nameIndex.remove(removed.id);
+            if (fuzzyIndex != null) fuzzyIndex.remove(removed.id);
+            if (callerIdIndex != null) callerIdIndex.remove(removed.id);
+            touched(removed.id);
+            markDirty(ContactJournal.OP_REMOVE, removed);
+            version++;
+            publish();
             logger.info("Удалён контакт: {}", removed.fullName);
+            fire(PhoneBookEvent.Type.REMOVED, index, index);
+        }
+    }
+
+    /**
+     * Добавляет контакты одним пакетом (см. {@link #apply(ContactBatch)}).
+     *
+     * @param added новые контакты
+     */
+    public void addAll(Collection<Contact> added) {
+        apply(new ContactBatch().addAll(added));
+    }
+
+    /**
+     * Удаляет контакты по id одним пакетом (см. {@link #apply(ContactBatch)}).
+     *
+     * @param ids id удаляемых контактов; отсутствующие в книге пропускаются
+     * @return количество удалённых контактов
+     */
+    public int removeAll(Collection<Integer> ids) {
+        ContactBatch batch = new ContactBatch();
+        for (int id : ids) batch.remove(id);
+        return apply(batch);
+    }
+
+    /**
+     * Применяет пакет изменений.
+     * <p>
+     * Все изменения выполняются под одной блокировкой, удалённые строки убираются
+     * из списка за один проход, построенные индексы поиска обновляются один раз
+     * в конце пакета, а в лог пишется одна итоговая строка. Подписчики получают
+     * одно событие: добавление, изменение или удаление непрерывного диапазона строк,
+     * а если затронуты строки вразнобой — {@link PhoneBookEvent.Type#CHANGED}.
+     * Изменения и удаления контактов, которых нет в книге, пропускаются.
+     *
+     * @param batch пакет изменений
+     * @return количество применённых изменений
+     */
+    public synchronized int apply(ContactBatch batch) {
+        checkNotLoading();
+        if (batch.isEmpty()) return 0;
+        long start = System.nanoTime();
+        int before = contacts.size();
+        buildRowsById();
+
+        BitSet updatedRows = new BitSet();
+        BitSet removedRows = new BitSet();
+        BitSet staleIds = new BitSet(); // id, чьи прежние версии нужно убрать из индексов
+        Map<Integer, Contact> indexed = new LinkedHashMap<>(); // итоговые версии для индексов
+        int added = 0;
+        for (ContactBatch.Change ch : batch.changes()) {
+            switch (ch.kind()) {
+                case ADD -> {
+                    Contact c = ch.contact();
+                    int row = contacts.size();
+                    if (c.id == 0) c.id = nextId++;
+                    nextId = Math.max(nextId, c.id + 1);
+                    contacts.add(c);
+                    if (c.id >= rowsById.length) rowsById = Arrays.copyOf(rowsById, Math.max(c.id + 1, rowsById.length * 2));
+                    rowsById[c.id] = row;
+                    indexed.put(c.id, c);
+                    markDirty(ContactJournal.OP_ADD, c);
+                    added++;
+                }
+                case UPDATE -> {
+                    int row = rowOf(ch.id());
+                    if (row < 0 || removedRows.get(row)) continue;
+                    Contact c = ch.contact();
+                    contacts.set(row, c);
+                    staleIds.set(c.id);
+                    indexed.put(c.id, c);
+                    markDirty(ContactJournal.OP_UPDATE, c);
+                    if (row < before) updatedRows.set(row);
+                }
+                case REMOVE -> {
+                    int row = rowOf(ch.id());
+                    if (row < 0 || removedRows.get(row)) continue;
+                    Contact removed = contacts.get(row);
+                    removedRows.set(row);
+                    updatedRows.clear(row);
+                    staleIds.set(removed.id);
+                    indexed.remove(removed.id);
+                    markDirty(ContactJournal.OP_REMOVE, removed);
+                }
+            }
+        }
+        int updated = updatedRows.cardinality();
+        int removed = removedRows.cardinality();
+        if (removed > 0) {
+            contacts.removeRows(removedRows);
+            indexRowsFrom(removedRows.nextSetBit(0)); // строки после удалённых сдвинулись
+        }
+        if (phoneIndex != null) {
+            phoneIndex.removeAll(staleIds);
+            for (Contact c : indexed.values()) phoneIndex.add(c);
+        }
+        if (nameIndex != null) {
+            nameIndex.removeAll(staleIds);
+            for (Contact c : indexed.values()) nameIndex.add(c);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.removeAll(staleIds);
+            for (Contact c : indexed.values()) fuzzyIndex.add(c);
+        }
+        if (callerIdIndex != null) {
+            callerIdIndex.removeAll(staleIds);
+            for (Contact c : indexed.values()) callerIdIndex.add(c);
+        }
+        if (!indexBuilds.isEmpty()) {
+            BitSet changed = (BitSet) staleIds.clone();
+            for (int id : indexed.keySet()) changed.set(id);
+            for (BitSet b : indexBuilds) b.or(changed);
+        }
+        int applied = added + updated + removed;
+        if (applied == 0) return 0;
+        version++;
+        publish();
+        logger.info("Применён пакет изменений: добавлено {}, изменено {}, удалено {} за {} мс",
+                added, updated, removed, (System.nanoTime() - start) / 1_000_000);
+
+        if (updated == 0 && removed == 0) {
+            fire(PhoneBookEvent.Type.INSERTED, before, contacts.size() - 1);
+        } else if (added == 0 && removed == 0) {
+            fire(PhoneBookEvent.Type.UPDATED, updatedRows.nextSetBit(0), updatedRows.length() - 1);
+        } else if (added == 0 && updated == 0 && removedRows.length() - removedRows.nextSetBit(0) == removed) {
+            fire(PhoneBookEvent.Type.REMOVED, removedRows.nextSetBit(0), removedRows.length() - 1);
+        } else {
+            fire(PhoneBookEvent.Type.CHANGED, 0, Math.max(0, contacts.size() - 1));
+        }
+        return applied;
+    }
+
+    /**
+     * Возвращает номер строки контакта по id или -1, если его нет в книге.
+     * Требует построенного {@link #rowsById}.
+     */
+    private int rowOf(int id) {
+        if (id <= 0 || id >= rowsById.length) return -1;
+        int row = rowsById[id];
+        return row < contacts.size() && contacts.idAt(row) == id ? row : -1;
+    }
+
+    /**
+     * Ищет контакты по подстроке ФИО без учёта регистра и различия "ё"/"е" через {@link NameIndex}.
+     *
+     * @param query текст запроса
+     * @return номера строк подходящих контактов
+     */
+    public BitSet findRowsByName(String query) {
+        while (true) {
+            NameIndex index = nameIndex();
+            synchronized (this) {
+                // индекс мог быть сброшен загрузкой, пока блокировка была свободна
+                if (index == nameIndex) return toRows(index.search(query));
+            }
+        }
+    }
+
+    /**
+     * Возвращает индекс ФИО, при необходимости строя его по снимку вне блокировки модели.
+     * Изменения, сделанные во время построения, переносятся в индекс под блокировкой;
+     * если список за это время заменён загрузкой, индекс строится заново.
+     */
+    private NameIndex nameIndex() {
+        while (true) {
+            IndexBuild build;
+            synchronized (this) {
+                if (nameIndex != null) return nameIndex;
+                build = startIndexBuild();
+            }
+            try {
+                long start = System.nanoTime();
+                NameIndex index = new NameIndex();
+                for (Contact c : build.base()) index.add(c);
+                synchronized (this) {
+                    if (nameIndex != null) return nameIndex;
+                    if (build.epoch() != listEpoch) continue;
+                    catchUp(build.changed(), index::removeAll, index::add);
+                    nameIndex = index;
+                }
+                logger.info("Индекс ФИО построен за {} мс", (System.nanoTime() - start) / 1_000_000);
+                return index;
+            } finally {
+                finishIndexBuild(build);
+            }
+        }
+    }
+
+    /**
+     * Ищет контакты по ФИО с допуском опечаток через {@link FuzzyNameIndex}: каждое слово запроса
+     * должно найтись среди слов ФИО ("Иванв Петр" найдёт "Иванов Пётр").
+     *
+     * @param query текст запроса
+     * @param limit наибольшее количество результатов
+     * @return номера строк найденных контактов, от лучшего совпадения к худшему
+     */
+    public int[] findRowsFuzzy(String query, int limit) {
+        while (true) {
+            FuzzyNameIndex index = fuzzyIndex();
+            List<FuzzyNameIndex.Match> matches = index.search(query, limit);
+            synchronized (this) {
+                // индекс мог быть сброшен загрузкой, а строки сдвинуться, пока блокировка была свободна
+                if (index != fuzzyIndex) continue;
+                buildRowsById();
+                int[] rows = new int[matches.size()];
+                int n = 0;
+                for (FuzzyNameIndex.Match m : matches) {
+                    int row = rowOf(m.id());
+                    if (row >= 0) rows[n++] = row;
+                }
+                return Arrays.copyOf(rows, n);
+            }
+        }
+    }
+
+    /**
+     * Возвращает индекс нечёткого поиска, при необходимости строя его по снимку вне блокировки модели.
+     */
+    private FuzzyNameIndex fuzzyIndex() {
+        while (true) {
+            IndexBuild build;
+            synchronized (this) {
+                if (fuzzyIndex != null) return fuzzyIndex;
+                build = startIndexBuild();
+            }
+            try {
+                long start = System.nanoTime();
+                FuzzyNameIndex index = new FuzzyNameIndex();
+                for (Contact c : build.base()) index.add(c);
+                synchronized (this) {
+                    if (fuzzyIndex != null) return fuzzyIndex;
+                    if (build.epoch() != listEpoch) continue;
+                    catchUp(build.changed(), index::removeAll, index::add);
+                    fuzzyIndex = index;
+                }
+                logger.info("Индекс нечёткого поиска построен за {} мс ({} слов)",
+                        (System.nanoTime() - start) / 1_000_000, index.termCount());
+                return index;
+            } finally {
+                finishIndexBuild(build);
+            }
+        }
+    }
+
+    /**
+     * Ищет контакты по номеру телефона.
+     * <p>
+     * Если в запросе есть цифры, сравниваются только цифры номеров через {@link PhoneIndex}
+     * ("916 123" найдёт "+7 (916) 123-45-67"). Запрос без цифр ищется как подстрока
+     * в строке телефонов снимка без блокировки модели (например, по названию типа).
+     *
+     * @param query текст запроса
+     * @return номера строк подходящих контактов
+     */
+    public BitSet findRowsByNumber(String query) {
+        if (PhoneIndex.digits(query).isEmpty()) {
+            List<Contact> list = snapshot.getContacts();
+            BitSet rows = new BitSet(list.size());
+            int row = 0;
+            for (Contact c : list) {
+                if (c.phonesAsString().contains(query)) rows.set(row);
+                row++;
+            }
+            return rows;
+        }
+        while (true) {
+            PhoneIndex index = phoneIndex();
+            synchronized (this) {
+                // индекс мог быть сброшен загрузкой, пока блокировка была свободна
+                if (index == phoneIndex) return toRows(index.search(query));
+            }
+        }
+    }
+
+    /**
+     * Возвращает индекс номеров, при необходимости строя его по снимку вне блокировки модели.
+     * Изменения, сделанные во время построения, переносятся в индекс под блокировкой;
+     * если список за это время заменён загрузкой, индекс строится заново.
+     */
+    private PhoneIndex phoneIndex() {
+        while (true) {
+            IndexBuild build;
+            synchronized (this) {
+                if (phoneIndex != null) return phoneIndex;
+                build = startIndexBuild();
+            }
+            try {
+                long start = System.nanoTime();
+                PhoneIndex index = new PhoneIndex();
+                for (Contact c : build.base()) index.add(c);
+                synchronized (this) {
+                    if (phoneIndex != null) return phoneIndex;
+                    if (build.epoch() != listEpoch) continue;
+                    catchUp(build.changed(), index::removeAll, index::add);
+                    phoneIndex = index;
+                }
+                logger.info("Индекс номеров построен за {} мс", (System.nanoTime() - start) / 1_000_000);
+                return index;
+            } finally {
+                finishIndexBuild(build);
+            }
+        }
+    }
+
+    /**
+     * Определяет абонента по номеру телефона через {@link CallerIdIndex}.
+     * <p>
+     * Номер сравнивается в канонической форме ("8 (916) 123-45-67" найдёт "+79161234567").
+     * После первого вызова, строящего индекс, не блокирует вызывающий поток даже во время
+     * изменения книги.
+     *
+     * @param number номер в произвольном оформлении
+     * @return контакты с этим номером; пустой список, если номер не найден или некорректен
+     */
+    public List<Contact> findContactsByNumber(String number) {
+        long packed = PhoneNumber.normalize(number);
+        if (packed == 0) return List.of();
+        return List.of(callerIdIndex().lookup(packed));
+    }
+
+    /**
+     * Возвращает индекс определения абонента, при необходимости строя его по снимку вне блокировки модели.
+     */
+    private CallerIdIndex callerIdIndex() {
+        CallerIdIndex built = callerIdIndex;
+        if (built != null) return built;
+        while (true) {
+            IndexBuild build;
+            synchronized (this) {
+                if (callerIdIndex != null) return callerIdIndex;
+                build = startIndexBuild();
+            }
+            try {
+                long start = System.nanoTime();
+                CallerIdIndex index = new CallerIdIndex();
+                for (Contact c : build.base()) index.add(c);
+                synchronized (this) {
+                    if (callerIdIndex != null) return callerIdIndex;
+                    if (build.epoch() != listEpoch) continue;
+                    catchUp(build.changed(), index::removeAll, index::add);
+                    callerIdIndex = index;
+                }
+                logger.info("Индекс определения номеров построен за {} мс ({} номеров)",
+                        (System.nanoTime() - start) / 1_000_000, index.size());
+                return index;
+            } finally {
+                finishIndexBuild(build);
+            }
         }
     }
 
     /**
-     * Сохраняет текущий список контактов в файл {@link #storageFile}.
-     * В случае ошибки выводит сообщение через JOptionPane.
+     * Построение индекса по снимку: снимок, id контактов, изменённых после него, и номер замены списка.
+     */
+    private record IndexBuild(List<Contact> base, BitSet changed, int epoch) {
+    }
+
+    private IndexBuild startIndexBuild() {
+        IndexBuild build = new IndexBuild(snapshot.getContacts(), new BitSet(), listEpoch);
+        indexBuilds.add(build.changed());
+        return build;
+    }
+
+    private synchronized void finishIndexBuild(IndexBuild build) {
+        indexBuilds.remove(build.changed());
+    }
+
+    /**
+     * Переносит в построенный по снимку индекс изменения, сделанные во время построения.
+     * Вызывается под блокировкой модели.
      */
-    public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(storageFile))) {
-            oos.writeObject(contacts);
-            logger.info("База успешно сохранена в файл: {}", storageFile.getAbsolutePath());
+    private void catchUp(BitSet changed, Consumer<BitSet> removeAll, Consumer<Contact> add) {
+        if (changed.isEmpty()) return;
+        removeAll.accept(changed);
+        buildRowsById();
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            int row = rowOf(id);
+            if (row >= 0) add.accept(contacts.get(row));
+        }
+    }
+
+    /**
+     * Переводит множество id контактов в множество номеров строк.
+     */
+    private BitSet toRows(BitSet ids) {
+        buildRowsById();
+        BitSet rows = new BitSet(contacts.size());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) rows.set(rowsById[id]);
+        return rows;
+    }
+
+    private void buildRowsById() {
+        if (rowsById == null) {
+            rowsById = new int[nextId];
+            indexRowsFrom(0);
+        }
+    }
+
+    /**
+     * Записывает в {@link #rowsById} номера строк, начиная с {@code from}.
+     */
+    private void indexRowsFrom(int from) {
+        for (int i = from; i < contacts.size(); i++) rowsById[contacts.idAt(i)] = i;
+    }
+
+    /**
+     * Запускает сохранение изменений в файл {@link #storageFile} в фоновом потоке.
+     * <p>
+     * В вызывающем потоке под блокировкой модели берётся только список несохранённых
+     * изменений (а если базового снимка ещё нет — снимок списка, см. {@link #snapshot()});
+     * кодирование и запись выполняются в потоке сохранения. Сохранения выполняются
+     * строго по очереди. Если базового снимка ещё нет, он записывается целиком; иначе
+     * в журнал дописываются только изменения с прошлого сохранения, а в
+     * {@link StorageLayout#RECORDS} перезаписываются записи изменённых контактов.
+     * При ошибке изменения возвращаются в очередь и будут записаны при следующем сохранении.
+     * Ход сохранения отражается в {@link #getSaveState()}.
+     *
+     * @return задача сохранения; завершается с ошибкой, если запись не удалась
+     */
+    public synchronized CompletableFuture<Void> saveInBackground() {
+        if (loading) {
+            // снимок недогруженного списка затёр бы базу
+            return CompletableFuture.failedFuture(new IllegalStateException("База ещё загружается"));
+        }
+        StorageLayout layout = storageLayout;
+        boolean full = layout == StorageLayout.RECORDS ? records == null : generation == 0;
+        boolean baseExists = layout == StorageLayout.SHARDED ? ShardedStorage.exists(shardDir) : storageFile.exists();
+        List<Contact> snapshot = full || !baseExists ? this.snapshot.getContacts() : null;
+        List<PendingChange> changes = new ArrayList<>(dirty.values());
+        dirty.clear();
+        savesInFlight++;
+        setSaveState(SaveState.of(SaveState.Status.IN_FLIGHT));
+        return CompletableFuture.runAsync(() -> write(snapshot, changes, layout), saver)
+                .whenComplete((r, e) -> saveFinished(changes, e));
+    }
+
+    /**
+     * Сохраняет изменения и дожидается окончания записи (см. {@link #saveInBackground()}).
+     *
+     * @return true, если сохранение прошло успешно
+     */
+    public boolean saveToFile() {
+        try {
+            saveInBackground().join();
+            return true;
+        } catch (CompletionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Проверяет, есть ли изменения, ещё не переданные на сохранение.
+     *
+     * @return true, если есть несохранённые изменения
+     */
+    public synchronized boolean hasUnsavedChanges() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Возвращает количество контактов, изменённых с момента последнего сохранения.
+     * Контакт, изменённый несколько раз, учитывается один раз.
+     *
+     * @return количество несохранённых контактов
+     */
+    public synchronized int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Запоминает несохранённое изменение, сворачивая его с прежним изменением того же контакта:
+     * добавление с последующим изменением остаётся добавлением последней версии,
+     * а добавление с последующим удалением не сохраняется вовсе.
+     */
+    private void markDirty(byte op, Contact c) {
+        PendingChange previous = dirty.get(c.id);
+        if (previous != null && previous.op == ContactJournal.OP_ADD) {
+            if (op == ContactJournal.OP_REMOVE) dirty.remove(c.id);
+            else dirty.put(c.id, new PendingChange(ContactJournal.OP_ADD, c));
+            return;
+        }
+        dirty.put(c.id, new PendingChange(op, c));
+    }
+
+    /**
+     * Возвращает состояние последнего сохранения. Не блокирует вызывающий поток.
+     *
+     * @return состояние сохранения
+     */
+    public SaveState getSaveState() {
+        return saveState;
+    }
+
+    /**
+     * Подписывает слушателя на смену состояния сохранения.
+     * Слушатель вызывается в потоке, сменившем состояние (EDT или потоке сохранения).
+     *
+     * @param l слушатель
+     */
+    public void addSaveListener(Consumer<SaveState> l) {
+        saveListeners.add(l);
+    }
+
+    /**
+     * Отписывает слушателя от смены состояния сохранения.
+     *
+     * @param l слушатель
+     */
+    public void removeSaveListener(Consumer<SaveState> l) {
+        saveListeners.remove(l);
+    }
+
+    /**
+     * Записывает снимок или изменения на диск (в потоке сохранения).
+     */
+    private void write(List<Contact> snapshot, List<PendingChange> changes, StorageLayout layout) {
+        try {
+            long start = System.nanoTime();
+            if (snapshot != null) {
+                writeSnapshot(snapshot, layout);
+                logger.info("База успешно сохранена в файл: {} ({} контактов, {} мс)", storageFile.getAbsolutePath(),
+                        snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+                return;
+            }
+            if (changes.isEmpty()) return;
+            if (layout == StorageLayout.RECORDS) {
+                writeRecords(changes, start);
+                return;
+            }
+
+            List<byte[]> records = new ArrayList<>(changes.size());
+            for (PendingChange ch : changes) records.add(ContactJournal.encode(ch.op, ch.contact));
+            synchronized (journalLock) {
+                journal.append(records);
+            }
+            logger.info("В журнал сохранено {} изменений за {} мс: {}", records.size(),
+                    (System.nanoTime() - start) / 1_000_000, journal.getFile().getAbsolutePath());
+
+            if (journal.size() > Math.max(MIN_COMPACTION_BYTES, baseSize(layout) / 2)) {
+                compactInBackground();
+            }
         } catch (IOException e) {
-            logger.error("Ошибка при сохранении базы: {}", e.getMessage(), e);
-            JOptionPane.showMessageDialog(null, "Ошибка при сохранении: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Перезаписывает в файле записей контакты из {@code changes} (в потоке сохранения).
+     */
+    private void writeRecords(List<PendingChange> changes, long start) throws IOException {
+        RecordStorage file = records;
+        Map<Integer, Contact> latest = new LinkedHashMap<>();
+        for (PendingChange ch : changes) {
+            latest.put(ch.contact.id, ch.op == ContactJournal.OP_REMOVE ? null : ch.contact);
         }
+        RecordStorage.WriteStats stats = file.write(latest);
+        logger.info("Сохранено {} изменённых контактов за {} мс (на месте {}, перенесено {}, дописано {}, удалено {}): {}",
+                latest.size(), (System.nanoTime() - start) / 1_000_000, stats.inPlace(), stats.relocated(),
+                stats.appended(), stats.removed(), storageFile.getAbsolutePath());
+
+        if (file.fragmentation() > MAX_FRAGMENTATION && file.freeBytes() > MIN_COMPACTION_BYTES) {
+            compactInBackground();
+        }
+    }
+
+    /**
+     * Завершает сохранение: обновляет состояние, а при ошибке возвращает изменения в очередь.
+     */
+    private synchronized void saveFinished(List<PendingChange> changes, Throwable error) {
+        savesInFlight--;
+        if (error == null) {
+            if (savesInFlight == 0) setSaveState(SaveState.of(SaveState.Status.SUCCEEDED));
+            return;
+        }
+        while ((error instanceof CompletionException || error instanceof UncheckedIOException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        // неудавшиеся изменения старше сделанных после них
+        List<PendingChange> newer = new ArrayList<>(dirty.values());
+        dirty.clear();
+        for (PendingChange ch : changes) markDirty(ch.op, ch.contact);
+        for (PendingChange ch : newer) markDirty(ch.op, ch.contact);
+        logger.error("Ошибка при сохранении базы: {}", error.getMessage(), error);
+        setSaveState(SaveState.failed(error));
+    }
+
+    private void setSaveState(SaveState state) {
+        saveState = state;
+        for (Consumer<SaveState> l : saveListeners) l.accept(state);
+    }
+
+    /**
+     * Запускает фоновую свёртку журнала в новый базовый снимок.
+     * <p>
+     * Снимок списка контактов берётся в вызывающем потоке; запись файла
+     * выполняется в отдельном потоке. Изменения, сохранённые в журнал во время
+     * свёртки, переносятся в новый журнал.
+     * <p>
+     * В {@link StorageLayout#RECORDS} файл записей переписывается заново без свободных
+     * слотов. Запись идёт в очереди потока сохранения, поэтому сохранения, запущенные
+     * позже, пишут уже в новый файл; изменения, попавшие в снимок до своего сохранения,
+     * просто записываются повторно.
+     *
+     * @return задача свёртки (уже идущая, если свёртка запущена ранее)
+     */
+    public synchronized CompletableFuture<Void> compactInBackground() {
+        if (compaction != null && !compaction.isDone()) return compaction;
+
+        List<Contact> snapshot = this.snapshot.getContacts();
+        StorageLayout layout = storageLayout;
+        if (layout == StorageLayout.RECORDS) {
+            compaction = CompletableFuture.runAsync(() -> {
+                try {
+                    long start = System.nanoTime();
+                    long before = records != null ? records.size() : 0;
+                    records = RecordStorage.create(storageFile.toPath(), snapshot);
+                    deleteOtherBase(layout);
+                    logger.info("Файл записей переписан ({} контактов, {} -> {} байт) за {} мс", snapshot.size(),
+                            before, records.size(), (System.nanoTime() - start) / 1_000_000);
+                } catch (IOException e) {
+                    logger.error("Ошибка при свёртке файла записей: {}", e.getMessage(), e);
+                    throw new UncheckedIOException(e);
+                }
+            }, saver);
+            return compaction;
+        }
+        long mark;
+        synchronized (journalLock) {
+            mark = journal.size();
+        }
+        compaction = CompletableFuture.runAsync(() -> {
+            try {
+                long start = System.nanoTime();
+                long previous = generation;
+                long next = newGeneration();
+                writeBase(snapshot, next, previous, layout);
+                synchronized (journalLock) {
+                    journal.reset(next, journal.readFrom(mark));
+                    generation = next;
+                }
+                deleteOtherBase(layout);
+                logger.info("Журнал свёрнут в новый снимок ({} контактов) за {} мс",
+                        snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (IOException e) {
+                logger.error("Ошибка при свёртке журнала: {}", e.getMessage(), e);
+                throw new UncheckedIOException(e);
+            }
+        }, compactor);
+        return compaction;
     }
 
     /**
-     * Загружает список контактов из файла {@link #storageFile}.
-     * Если файл отсутствует, список остаётся пустым.
-     * В случае ошибки выводит сообщение через JOptionPane.
+     * Загружает список контактов из файла {@link #storageFile} и применяет журнал изменений.
+     * Снимок из шардов читается из каталога шардов, если выбран {@link StorageLayout#SHARDED}
+     * или файла базы нет. Если нет ни того, ни другого, список остаётся пустым.
+     * Файл старого формата (Java-сериализация) однократно переводится в двоичный формат
+     * {@link BinaryStorage}; исходный файл сохраняется рядом с расширением ".bak".
+     * В случае ошибки пишет её в лог и, если доступен графический интерфейс, выводит сообщение через JOptionPane.
      */
-    @SuppressWarnings("unchecked")
-    public void loadFromFile() {
-        if (!storageFile.exists()) {
+    public synchronized void loadFromFile() {
+        boolean sharded = shardedBase(storageLayout);
+        if (!sharded && !storageFile.exists()) {
             logger.warn("Файл базы не найден: {}", storageFile.getAbsolutePath());
             return;
         }
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(storageFile))) {
-            contacts = (List<Contact>) ois.readObject();
-            logger.info("База успешно загружена из файла: {}", storageFile.getAbsolutePath());
+        try {
+            Path path = storageFile.toPath();
+            if (!sharded && RecordStorage.isRecordFile(path)) {
+                loadRecords(path);
+                return;
+            }
+            records = null;
+            boolean compressed = !sharded && BlockStorage.isBlockFile(path);
+            boolean legacy = !sharded && !compressed && LegacyStorage.isLegacy(path);
+            if (lazyLoading && sharded) logger.info("Снимок из шардов читается целиком, ленивая загрузка недоступна");
+            if (lazyLoading && !sharded && !legacy && loadMapped(path)) return;
+
+            Snapshot base = sharded ? ShardedStorage.read(shardDir) : legacy ? LegacyStorage.read(path)
+                    : compressed ? BlockStorage.read(path) : BinaryStorage.read(path);
+            generation = base.generation();
+
+            Map<Integer, Contact> state = new LinkedHashMap<>();
+            for (Contact c : base.contacts()) {
+                if (c.id == 0) c.id = nextId++;
+                state.put(c.id, c);
+            }
+            if (generation != 0) {
+                journal.replay(generation, base.previousGeneration(), state);
+            }
+
+            contacts = newContactList(state.size());
+            contacts.addAll(state.values());
+            for (Contact c : contacts) nextId = Math.max(nextId, c.id + 1);
+            contactsReplaced();
+            logger.info("База успешно загружена из {}: {}", sharded ? "шардов" : "файла",
+                    (sharded ? shardDir.toFile() : storageFile).getAbsolutePath());
+
+            if (legacy) migrate(path, snapshot.getContacts());
         } catch (Exception e) {
             logger.error("Ошибка при загрузке базы: {}", e.getMessage(), e);
-            JOptionPane.showMessageDialog(null, "Ошибка при загрузке: " + e.getMessage());
+            if (!GraphicsEnvironment.isHeadless()) {
+                JOptionPane.showMessageDialog(null, "Ошибка при загрузке: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Возвращает признак незавершённой загрузки порциями.
+     *
+     * @return true, пока идёт {@link #loadInBackground}
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Загружает базу в фоновом потоке, добавляя контакты в список порциями.
+     * <p>
+     * Файл и журнал читаются и декодируются в фоне, а порции добавляются в список
+     * через {@code apply} (для интерфейса — EDT), каждая одним событием
+     * {@link PhoneBookEvent.Type#INSERTED}. Пока идёт загрузка, изменение списка
+     * и сохранение недоступны (см. {@link #isLoading()}).
+     * В ленивом режиме файл отображается в память и список заменяется за один шаг.
+     *
+     * @param chunkSize количество контактов в порции
+     * @param apply исполнитель, в котором изменяется список
+     * @param progress вызывается в {@code apply} после каждой порции: загружено и всего контактов
+     * @return задача загрузки; завершается в {@code apply} после добавления последней порции
+     */
+    public CompletableFuture<Void> loadInBackground(int chunkSize, Executor apply,
+                                                    BiConsumer<Integer, Integer> progress) {
+        synchronized (this) {
+            if (loading) throw new IllegalStateException("База уже загружается");
+            loading = true;
         }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread.ofVirtual().name("phonebook-loader").start(() -> {
+            long start = System.nanoTime();
+            try {
+                readInChunks(chunkSize, apply, progress);
+                apply.execute(() -> {
+                    loading = false;
+                    logger.info("База загружена порциями ({} контактов) за {} мс: {}", contacts.size(),
+                            (System.nanoTime() - start) / 1_000_000, storageFile.getAbsolutePath());
+                    done.complete(null);
+                });
+            } catch (Exception e) {
+                logger.error("Ошибка при загрузке базы: {}", e.getMessage(), e);
+                apply.execute(() -> {
+                    loading = false;
+                    done.completeExceptionally(e);
+                });
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Читает базу и журнал в фоновом потоке и передаёт порции в {@code apply}.
+     */
+    private void readInChunks(int chunkSize, Executor apply, BiConsumer<Integer, Integer> progress)
+            throws IOException {
+        boolean sharded = shardedBase(getStorageLayout());
+        if (!sharded && !storageFile.exists()) {
+            logger.warn("Файл базы не найден: {}", storageFile.getAbsolutePath());
+            return;
+        }
+        Path path = storageFile.toPath();
+        if (sharded) {
+            // шарды читаются параллельно целиком, журнал применяется к порциям
+            records = null;
+            Snapshot base = ShardedStorage.read(shardDir);
+            ChunkLoader loader = new ChunkLoader(apply, progress, false);
+            loader.start(base.generation(), base.previousGeneration(), base.contacts().size());
+            loader.chunks(base.contacts(), chunkSize);
+            loader.finish();
+            return;
+        }
+        if (RecordStorage.isRecordFile(path)) {
+            // файл записей читается целиком и передаётся порциями без журнала
+            RecordStorage.Loaded loaded = RecordStorage.open(path);
+            records = loaded.storage();
+            List<Contact> all = loaded.contacts();
+            ChunkLoader loader = new ChunkLoader(apply, progress, false);
+            loader.start(0, 0, all.size());
+            loader.chunks(all, chunkSize);
+            loader.finish();
+            return;
+        }
+        records = null;
+        boolean compressed = BlockStorage.isBlockFile(path);
+        boolean legacy = !compressed && LegacyStorage.isLegacy(path);
+        if (lazyLoading && !legacy) {
+            MappedContactList mapped = MappedContactList.open(path, lazyCacheSize);
+            if (mapped != null) {
+                generation = mapped.generation();
+                mapped.applyChanges(journal.readChanges(generation, mapped.previousGeneration()));
+                apply.execute(() -> {
+                    replaceContacts(mapped, mapped.maxId() + 1);
+                    progress.accept(mapped.size(), mapped.size());
+                });
+                logger.info("База открыта лениво ({} контактов): {}", mapped.size(), path.toAbsolutePath());
+                return;
+            }
+        }
+
+        ChunkLoader loader = new ChunkLoader(apply, progress, legacy);
+        if (!legacy) {
+            if (compressed) BlockStorage.read(path, chunkSize, loader);
+            else BinaryStorage.read(path, chunkSize, loader);
+            loader.finish();
+            return;
+        }
+        Snapshot base = LegacyStorage.read(path);
+        List<Contact> all = base.contacts();
+        int id = 1;
+        for (Contact c : all) id = Math.max(id, c.id + 1);
+        for (Contact c : all) {
+            if (c.id == 0) c.id = id++;
+        }
+        loader.start(base.generation(), base.previousGeneration(), all.size());
+        loader.chunks(all, chunkSize);
+        loader.finish();
+        migrate(path, loader.loaded);
+    }
+
+    /**
+     * Заменяет список контактов при загрузке.
+     */
+    private synchronized void replaceContacts(ContactStore list, int nextId) {
+        contacts = list;
+        this.nextId = nextId;
+        contactsReplaced();
+    }
+
+    /**
+     * Добавляет в список порцию загруженных контактов одним событием.
+     */
+    private synchronized void appendLoaded(List<Contact> chunk) {
+        if (chunk.isEmpty()) return;
+        int first = contacts.size();
+        for (Contact c : chunk) append(c);
+        version++;
+        publish();
+        fire(PhoneBookEvent.Type.INSERTED, first, contacts.size() - 1);
+    }
+
+    /**
+     * Применяет к порциям снимка изменения из журнала и передаёт их в список модели.
+     * Контакты, добавленные журналом, передаются последней порцией в {@link #finish()}.
+     */
+    private class ChunkLoader implements BinaryStorage.ChunkReader {
+
+        private final Executor apply;
+        private final BiConsumer<Integer, Integer> progress;
+
+        /** Все загруженные контакты (только если нужен полный список, например для перевода формата) */
+        private final List<Contact> loaded;
+
+        private Map<Integer, Contact> changes = Map.of();
+        private int total;
+        private int count;
+
+        ChunkLoader(Executor apply, BiConsumer<Integer, Integer> progress, boolean collect) {
+            this.apply = apply;
+            this.progress = progress;
+            this.loaded = collect ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public void start(long generation, long previousGeneration, int count) throws IOException {
+            PhoneBookModel.this.generation = generation;
+            if (generation != 0) changes = journal.readChanges(generation, previousGeneration);
+            total = count;
+            apply.execute(() -> replaceContacts(newContactList(count), 1));
+        }
+
+        @Override
+        public void chunk(List<Contact> chunk) {
+            if (!changes.isEmpty()) {
+                List<Contact> merged = new ArrayList<>(chunk.size());
+                for (Contact c : chunk) {
+                    if (!changes.containsKey(c.id)) {
+                        merged.add(c);
+                    } else {
+                        Contact changed = changes.remove(c.id);
+                        if (changed != null) merged.add(changed);
+                    }
+                }
+                chunk = merged;
+            }
+            publish(chunk);
+        }
+
+        /**
+         * Передаёт прочитанный целиком список порциями по {@code chunkSize}.
+         */
+        void chunks(List<Contact> all, int chunkSize) {
+            for (int from = 0; from < all.size(); from += chunkSize) {
+                chunk(new ArrayList<>(all.subList(from, Math.min(all.size(), from + chunkSize))));
+            }
+        }
+
+        void finish() {
+            List<Contact> added = new ArrayList<>();
+            for (Contact c : changes.values()) {
+                if (c != null) added.add(c);
+            }
+            total += added.size();
+            publish(added);
+        }
+
+        private void publish(List<Contact> chunk) {
+            if (loaded != null) loaded.addAll(chunk);
+            count += chunk.size();
+            int n = count, t = Math.max(total, count);
+            apply.execute(() -> {
+                appendLoaded(chunk);
+                progress.accept(n, t);
+            });
+        }
+    }
+
+    /**
+     * Отображает файл базы в память и применяет к нему изменения из журнала.
+     *
+     * @return false, если в файле нет индекса записей и его нужно читать целиком
+     */
+    private boolean loadMapped(Path path) throws IOException {
+        MappedContactList mapped = MappedContactList.open(path, lazyCacheSize);
+        if (mapped == null) {
+            logger.info("В файле базы нет индекса записей, ленивая загрузка недоступна");
+            return false;
+        }
+        generation = mapped.generation();
+        mapped.applyChanges(journal.readChanges(generation, mapped.previousGeneration()));
+        contacts = mapped;
+        nextId = mapped.maxId() + 1;
+        contactsReplaced();
+        logger.info("База открыта лениво ({} контактов): {}", mapped.size(), storageFile.getAbsolutePath());
+        return true;
+    }
+
+    /**
+     * Читает файл записей целиком; ленивая загрузка для него не поддерживается.
+     */
+    private void loadRecords(Path path) throws IOException {
+        RecordStorage.Loaded loaded = RecordStorage.open(path);
+        records = loaded.storage();
+        generation = 0;
+        contacts = newContactList(loaded.contacts().size());
+        contacts.addAll(loaded.contacts());
+        for (Contact c : contacts) nextId = Math.max(nextId, c.id + 1);
+        contactsReplaced();
+        logger.info("База успешно загружена из файла записей: {}", storageFile.getAbsolutePath());
+    }
+
+    /**
+     * Сбрасывает состояние, производное от списка контактов, после его замены при загрузке.
+     */
+    private void contactsReplaced() {
+        dirty.clear();
+        phoneIndex = null;
+        nameIndex = null;
+        fuzzyIndex = null;
+        callerIdIndex = null;
+        rowsById = null;
+        listEpoch++;
+        version++;
+        publish();
+        fire(PhoneBookEvent.Type.CHANGED, 0, Math.max(0, contacts.size() - 1));
+    }
+
+    /**
+     * Создаёт пустой список для загружаемых контактов.
+     */
+    private ContactStore newContactList(int capacity) {
+        return columnarStore ? new ColumnarContactList(offHeap, capacity) : new ChunkedContactList();
+    }
+
+    /**
+     * Переводит файл старого формата в двоичный, сохраняя копию исходного файла.
+     */
+    private void migrate(Path path, List<Contact> snapshot) throws IOException {
+        Path backup = path.resolveSibling(storageFile.getName() + ".bak");
+        Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING);
+        writeSnapshot(snapshot, storageLayout);
+        logger.info("База переведена в двоичный формат, копия старого файла: {}", backup.toAbsolutePath());
+    }
+
+    /**
+     * Записывает полный снимок базы и начинает новый пустой журнал,
+     * а в {@link StorageLayout#RECORDS} — новый файл записей без журнала.
+     * Снимок прежнего вида (файл или каталог шардов) удаляется после записи нового.
+     */
+    private void writeSnapshot(List<Contact> snapshot, StorageLayout layout) throws IOException {
+        if (layout == StorageLayout.RECORDS) {
+            records = RecordStorage.create(storageFile.toPath(), snapshot);
+            synchronized (journalLock) {
+                Files.deleteIfExists(journal.getFile().toPath());
+                generation = 0;
+            }
+            deleteOtherBase(layout);
+            return;
+        }
+        records = null;
+        long next = newGeneration();
+        writeBase(snapshot, next, generation, layout);
+        synchronized (journalLock) {
+            journal.reset(next, new byte[0]);
+            generation = next;
+        }
+        deleteOtherBase(layout);
+    }
+
+    /**
+     * Удаляет снимок другого вида, оставшийся от прежнего способа сохранения:
+     * в {@link StorageLayout#SHARDED} — файл базы, в остальных — каталог шардов.
+     */
+    private void deleteOtherBase(StorageLayout layout) throws IOException {
+        if (layout == StorageLayout.SHARDED) Files.deleteIfExists(storageFile.toPath());
+        else ShardedStorage.delete(shardDir);
+    }
+
+    /**
+     * Записывает базовый снимок в выбранном формате.
+     */
+    private void writeBase(List<Contact> snapshot, long generation, long previousGeneration, StorageLayout layout)
+            throws IOException {
+        if (layout == StorageLayout.SHARDED) {
+            ShardedStorage.write(shardDir, snapshot, generation, previousGeneration, shardCount, compressedSnapshots);
+        } else if (compressedSnapshots) {
+            BlockStorage.write(storageFile.toPath(), snapshot, generation, previousGeneration);
+        } else {
+            BinaryStorage.write(storageFile.toPath(), snapshot, generation, previousGeneration);
+        }
+    }
+
+    /**
+     * Проверяет, читать ли базу из каталога шардов: в {@link StorageLayout#SHARDED} — если
+     * снимок из шардов есть, в остальных способах — только если нет файла базы.
+     */
+    private boolean shardedBase(StorageLayout layout) {
+        if (!ShardedStorage.exists(shardDir)) return false;
+        return layout == StorageLayout.SHARDED || !storageFile.exists();
+    }
+
+    /**
+     * Возвращает размер базового снимка, с которым сравнивается размер журнала.
+     */
+    private long baseSize(StorageLayout layout) {
+        if (layout != StorageLayout.SHARDED) return storageFile.length();
+        try {
+            return ShardedStorage.readManifest(shardDir).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long newGeneration() {
+        long g;
+        do {
+            g = ThreadLocalRandom.current().nextLong();
+        } while (g == 0);
+        return g;
+    }
+
+    /**
+     * Несохранённое изменение: операция журнала и контакт, к которому она относится.
+     * Кодируется в запись журнала в момент сохранения.
+     */
+    private record PendingChange(byte op, Contact contact) {
     }
 }
@@ -0,0 +1,68 @@
+package phonebook.model;
+
+import java.util.List;
+
+/**
+ * Неизменяемый снимок списка контактов {@link PhoneBookModel} определённой версии.
+ * <p>
+ * Снимок публикуется моделью после каждого изменения (см. {@link PhoneBookModel#snapshot()})
+ * и читается из любого потока без блокировки: последующие изменения модели на него
+ * не влияют. Данные снимка разделяются со списком модели, поэтому снимок не копирует
+ * список (см. {@link ContactStore#snapshot()}). Контакты в снимке изменять нельзя:
+ * модель заменяет контакт изменённой копией (см. {@link Contact#copy()}).
+ */
+public final class PhoneBookSnapshot implements ContactRows {
+
+    private final long version;
+    private final List<Contact> contacts;
+    private final ContactRows rows;
+
+    PhoneBookSnapshot(long version, List<Contact> contacts) {
+        this.version = version;
+        this.contacts = contacts;
+        this.rows = ContactRows.of(contacts);
+    }
+
+    /**
+     * Возвращает версию модели, которой соответствует снимок (см. {@link PhoneBookModel#getVersion()}).
+     *
+     * @return номер версии
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Возвращает неизменяемый список контактов снимка.
+     *
+     * @return список контактов
+     */
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    @Override
+    public int size() {
+        return contacts.size();
+    }
+
+    @Override
+    public Contact get(int row) {
+        return contacts.get(row);
+    }
+
+    @Override
+    public String fullNameAt(int row) {
+        return rows.fullNameAt(row);
+    }
+
+    @Override
+    public String phonesAt(int row) {
+        return rows.phonesAt(row);
+    }
+
+    @Override
+    public String noteAt(int row) {
+        return rows.noteAt(row);
+    }
+}
@@ -1,5 +1,9 @@
 package phonebook.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
 
@@ -9,19 +13,50 @@ import org.apache.logging.log4j.Logger;
 /**
  * Класс, представляющий один телефонный номер контакта.
  * <p>
- * Содержит сам номер и его тип {@link PhoneType}.
+ * Содержит сам номер и его тип {@link PhoneType}. При создании номер приводится
+ * к канонической форме в духе E.164 (необязательный "+" и до {@value #MAX_DIGITS} цифр),
+ * упакованной в одно число {@code long} (см. {@link #normalize(String)}); российский
+ * префикс "8" у 11-значных номеров заменяется на "+7". Исходная запись номера хранится
+ * только тогда, когда она отличается от канонической. Сравнение и хеширование номеров
+ * выполняются по упакованному значению, без создания объектов.
+ * <p>
+ * Номер, который нельзя привести к канонической форме (например, с добавочным "доб. 12"),
+ * хранится строкой как есть.
+ * <p>
+ * Номер неизменяем, поэтому копии контакта ({@link Contact#copy()}) разделяют номера
+ * с исходным контактом.
  */
 public class PhoneNumber implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /** Сериализуемая форма совпадает с прежней: номер строкой и тип */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("number", String.class),
+            new ObjectStreamField("type", PhoneType.class)
+    };
+
     private static final Logger logger = LogManager.getLogger(PhoneNumber.class);
 
-    /** Номер телефона в виде строки */
-    public String number;
+    /** Наибольшее количество цифр в канонической форме */
+    public static final int MAX_DIGITS = 15;
+
+    private static final int COUNT_SHIFT = 50;
+    private static final long VALUE_MASK = (1L << COUNT_SHIFT) - 1;
+    private static final long PLUS = 1L << 54;
 
     /** Тип телефона */
-    public PhoneType type;
+    public final PhoneType type;
+
+    /** Номер в канонической форме, 0 — номер к ней не приводится */
+    private long packed;
+
+    /** Номер в том виде, как он введён; null, если совпадает с канонической записью */
+    private String text;
+
+    /** Поля, прочитанные из потока сериализации, до замены в {@link #readResolve()} */
+    private transient SerialForm serialForm;
 
     /**
      * Конструктор телефонного номера.
@@ -30,11 +65,162 @@ public class PhoneNumber implements Serializable {
      * @param type тип телефона {@link PhoneType}
      */
     public PhoneNumber(String number, PhoneType type) {
-        this.number = number;
         this.type = type;
+        setNumber(number);
         logger.debug("Создан PhoneNumber: {} ({})", number, type);
     }
 
+    private PhoneNumber(PhoneType type, String number) {
+        this.type = type;
+        setNumber(number);
+    }
+
+    /**
+     * Восстанавливает телефонный номер, прочитанный из хранилища, без записи в лог.
+     *
+     * @param number номер телефона
+     * @param type тип телефона {@link PhoneType}
+     * @return телефонный номер
+     */
+    public static PhoneNumber restore(String number, PhoneType type) {
+        return new PhoneNumber(type, number);
+    }
+
+    /**
+     * Восстанавливает номер в канонической форме без исходной записи и без записи в лог.
+     *
+     * @param packed значение {@link #normalize(String)}, не 0
+     * @param type тип телефона {@link PhoneType}
+     * @return телефонный номер
+     */
+    public static PhoneNumber restore(long packed, PhoneType type) {
+        PhoneNumber p = new PhoneNumber(type, null);
+        p.packed = packed;
+        return p;
+    }
+
+    /**
+     * Приводит номер к канонической форме и упаковывает её в {@code long}.
+     * <p>
+     * Допускаются цифры, "+" перед первой цифрой, пробелы, скобки, дефисы и точки.
+     * Упакованное значение: биты 0–49 — номер как число, 50–53 — количество цифр
+     * (ведущие нули сохраняются), 54 — признак "+".
+     *
+     * @param number номер в произвольном оформлении
+     * @return упакованный номер или 0, если номер не приводится к канонической форме
+     */
+    public static long normalize(String number) {
+        if (number == null) return 0;
+        boolean plus = false;
+        long value = 0;
+        int count = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char ch = number.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                if (count == MAX_DIGITS) return 0;
+                value = value * 10 + (ch - '0');
+                count++;
+            } else if (ch == '+' && !plus && count == 0) {
+                plus = true;
+            } else if (ch != ' ' && ch != '-' && ch != '(' && ch != ')' && ch != '.' && ch != '\u00A0') {
+                return 0;
+            }
+        }
+        if (count == 0) return 0;
+        if (!plus && count == 11 && value / 10_000_000_000L == 8) {
+            value -= 10_000_000_000L; // 8 XXX ... -> +7 XXX ...
+            plus = true;
+        }
+        return (plus ? PLUS : 0) | (long) count << COUNT_SHIFT | value;
+    }
+
+    /**
+     * Возвращает запись упакованного номера: "+" (если есть) и цифры подряд.
+     *
+     * @param packed значение {@link #normalize(String)}, не 0
+     * @return каноническая запись номера
+     */
+    public static String format(long packed) {
+        int count = (int) (packed >>> COUNT_SHIFT & 0xF);
+        int start = (packed & PLUS) != 0 ? 1 : 0;
+        char[] out = new char[start + count];
+        if (start == 1) out[0] = '+';
+        long value = packed & VALUE_MASK;
+        for (int i = out.length - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Возвращает номер в том виде, как он был введён.
+     *
+     * @return номер телефона (пустая строка, если номер не задан)
+     */
+    public String getNumber() {
+        if (text != null) return text;
+        return packed != 0 ? format(packed) : "";
+    }
+
+    /**
+     * Возвращает номер в канонической упакованной форме (см. {@link #normalize(String)}).
+     *
+     * @return упакованный номер или 0, если номер к ней не приводится
+     */
+    public long getPacked() {
+        return packed;
+    }
+
+    /**
+     * Проверяет, записан ли номер в канонической форме (исходная запись не хранится).
+     *
+     * @return true, если номер полностью описывается {@link #getPacked()}
+     */
+    public boolean isCanonical() {
+        return packed != 0 && text == null;
+    }
+
+    private void setNumber(String number) {
+        packed = normalize(number);
+        text = packed != 0 && isCanonical(number, packed) ? null : number;
+    }
+
+    /**
+     * Проверяет, совпадает ли запись номера с канонической, не создавая строку.
+     */
+    private static boolean isCanonical(String number, long packed) {
+        int count = (int) (packed >>> COUNT_SHIFT & 0xF);
+        int start = (packed & PLUS) != 0 ? 1 : 0;
+        if (number.length() != start + count || (start == 1 && number.charAt(0) != '+')) return false;
+        long value = packed & VALUE_MASK;
+        for (int i = number.length() - 1; i >= start; i--) {
+            if (number.charAt(i) != '0' + value % 10) return false;
+            value /= 10;
+        }
+        return true;
+    }
+
+    /**
+     * Номера равны, если совпадают тип и каноническая форма
+     * (а для номеров без канонической формы — запись).
+     *
+     * @param o другой объект
+     * @return true, если номера равны
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PhoneNumber p) || type != p.type || packed != p.packed) return false;
+        return packed != 0 || getNumber().equals(p.getNumber());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = packed != 0 ? Long.hashCode(packed) : getNumber().hashCode();
+        return 31 * h + (type == null ? 0 : type.ordinal());
+    }
+
     /**
      * Возвращает строковое представление телефонного номера
      * в формате "номер (тип)".
@@ -43,6 +229,31 @@ public class PhoneNumber implements Serializable {
      */
     @Override
     public String toString() {
-        return number + " (" + type.toString() + ")";
+        return getNumber() + " (" + type.toString() + ")";
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("number", getNumber());
+        fields.put("type", type);
+        out.writeFields();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        serialForm = new SerialForm((String) fields.get("number", null), (PhoneType) fields.get("type", null));
+    }
+
+    /**
+     * Заменяет прочитанный объект новым: тип задаётся только конструктором.
+     */
+    @Serial
+    private Object readResolve() {
+        return new PhoneNumber(serialForm.type(), serialForm.number());
+    }
+
+    private record SerialForm(String number, PhoneType type) {
     }
 }
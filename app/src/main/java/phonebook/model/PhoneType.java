@@ -1,5 +1,7 @@
 package phonebook.model;
 
+import java.util.Locale;
+
 /**
  * Перечисление типов телефонных номеров.
  * <p>
@@ -13,7 +15,16 @@ package phonebook.model;
  * </ul>
  */
 public enum PhoneType {
-    MOBILE, HOME, WORK, FAX, OTHER;
+    MOBILE("Сотовый"), HOME("Домашний"), WORK("Рабочий"), FAX("Факс"), OTHER("Другое");
+
+    private static final PhoneType[] VALUES = values();
+
+    /** Название типа на русском языке */
+    private final String label;
+
+    PhoneType(String label) {
+        this.label = label;
+    }
 
     /**
      * Возвращает строковое представление типа телефона на русском языке.
@@ -22,31 +33,60 @@ public enum PhoneType {
      */
     @Override
     public String toString() {
-        switch (this) {
-            case MOBILE: return "Сотовый";
-            case HOME:   return "Домашний";
-            case WORK:   return "Рабочий";
-            case FAX:    return "Факс";
-            default:     return "Другое";
-        }
+        return label;
     }
 
     /**
      * Создаёт тип телефона из строки.
      * <p>
-     * Поддерживаются как русские, так и английские варианты.
+     * Поддерживаются русские и английские названия и сокращения ("сот.", "моб."),
+     * подписи столбцов вроде "Рабочий телефон" и параметры TYPE из vCard, в том числе
+     * списки ("CELL,VOICE", "work;fax"). Если в строке указано несколько типов,
+     * выбирается более точный: факс, затем сотовый, рабочий и домашний.
      *
      * @param s строка с типом телефона
      * @return соответствующий {@link PhoneType}, по умолчанию {@link #OTHER}
      */
     public static PhoneType fromString(String s) {
         if (s == null) return OTHER;
-        switch (s.toLowerCase()) {
-            case "сотовый": case "mobile": return MOBILE;
-            case "домашний": case "home": return HOME;
-            case "рабочий": case "work": return WORK;
-            case "факс": case "fax": return FAX;
-            default: return OTHER;
+        for (PhoneType t : VALUES) {
+            if (t.label.equalsIgnoreCase(s) || t.name().equalsIgnoreCase(s)) return t;
+        }
+        String lower = s.toLowerCase(Locale.ROOT);
+        PhoneType type = ofWord(lower);
+        if (type != OTHER) return type;
+        int i = 0;
+        while (i < lower.length()) {
+            while (i < lower.length() && !Character.isLetter(lower.charAt(i))) i++;
+            int start = i;
+            while (i < lower.length() && Character.isLetter(lower.charAt(i))) i++;
+            if (i == start) break;
+            PhoneType t = ofWord(lower.substring(start, i));
+            if (t.precedence() > type.precedence()) type = t;
         }
+        return type;
+    }
+
+    private static PhoneType ofWord(String word) {
+        return switch (word) {
+            case "сотовый", "сот", "мобильный", "моб", "mobile", "cell", "cellular" -> MOBILE;
+            case "домашний", "дом", "home" -> HOME;
+            case "рабочий", "раб", "work" -> WORK;
+            case "факс", "fax" -> FAX;
+            default -> OTHER;
+        };
+    }
+
+    /**
+     * Насколько точно тип описывает номер, если указано несколько типов сразу.
+     */
+    private int precedence() {
+        return switch (this) {
+            case FAX -> 4;
+            case MOBILE -> 3;
+            case WORK -> 2;
+            case HOME -> 1;
+            case OTHER -> 0;
+        };
     }
 }
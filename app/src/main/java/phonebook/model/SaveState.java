@@ -0,0 +1,38 @@
+package phonebook.model;
+
+import java.time.Instant;
+
+/**
+ * Состояние последнего сохранения базы (см. {@link PhoneBookModel#saveInBackground()}).
+ *
+ * @param status состояние сохранения
+ * @param time момент последней смены состояния
+ * @param error текст ошибки, если сохранение не удалось, иначе null
+ */
+public record SaveState(Status status, Instant time, String error) {
+
+    /** Сохранений ещё не было */
+    public static final SaveState IDLE = new SaveState(Status.IDLE, null, null);
+
+    /**
+     * Состояние сохранения.
+     */
+    public enum Status {
+        /** Сохранений ещё не было */
+        IDLE,
+        /** Идёт запись */
+        IN_FLIGHT,
+        /** Последнее сохранение завершилось успешно */
+        SUCCEEDED,
+        /** Последнее сохранение завершилось ошибкой */
+        FAILED
+    }
+
+    static SaveState of(Status status) {
+        return new SaveState(status, Instant.now(), null);
+    }
+
+    static SaveState failed(Throwable error) {
+        return new SaveState(Status.FAILED, Instant.now(), error.getMessage());
+    }
+}
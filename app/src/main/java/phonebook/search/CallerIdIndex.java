@@ -0,0 +1,209 @@
+package phonebook.search;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Обратный индекс для определения абонента по номеру: канонический номер → контакты с этим номером.
+ * <p>
+ * Номера хранятся в упакованной канонической форме ({@link PhoneNumber#getPacked()}),
+ * поэтому "8 (916) 123-45-67" и "+79161234567" — один ключ. Номера, не приводимые
+ * к канонической форме (например, с добавочным), в индекс не попадают.
+ * <p>
+ * Индекс — таблица с открытой адресацией и линейным пробированием по ключам {@code long}
+ * без упаковки в объекты: массив ключей и параллельный массив владельцев. Заполненность
+ * таблицы не превышает половины, удалённые номера остаются в таблице пустыми до её
+ * перестроения. Владельцы номера хранятся в неизменяемом массиве, который при изменении
+ * заменяется целиком, а ячейки публикуются с семантикой release/acquire, поэтому
+ * {@link #lookup(long)} не блокируется и видит либо прежний, либо новый список владельцев.
+ * Изменения синхронизированы между собой.
+ */
+public class CallerIdIndex {
+
+    private static final Contact[] NONE = new Contact[0];
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle OWNERS = MethodHandles.arrayElementVarHandle(Contact[][].class);
+
+    /**
+     * Таблица открытой адресации; ключ 0 — пустая ячейка (упакованный номер не бывает нулём).
+     */
+    private static final class Table {
+        final long[] keys;
+        final Contact[][] owners;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            owners = new Contact[capacity][];
+            mask = capacity - 1;
+        }
+    }
+
+    /** Текущая таблица; при росте или перестроении заменяется новой */
+    private volatile Table table = new Table(16);
+
+    /** Занятые ячейки, включая номера без владельцев */
+    private int used;
+
+    /** Номера, у которых есть владельцы */
+    private int live;
+
+    /** Проиндексированные номера по id контакта */
+    private long[][] numbersById = new long[1024][];
+
+    /**
+     * Добавляет номера контакта в индекс.
+     *
+     * @param c контакт с назначенным id
+     */
+    public synchronized void add(Contact c) {
+        long[] numbers = c.getPhones().stream().mapToLong(PhoneNumber::getPacked).filter(p -> p != 0).distinct().toArray();
+        if (c.id >= numbersById.length) numbersById = Arrays.copyOf(numbersById, Math.max(c.id + 1, numbersById.length * 2));
+        numbersById[c.id] = numbers;
+        for (long number : numbers) {
+            Contact[] was = get(number);
+            Contact[] next = Arrays.copyOf(was, was.length + 1);
+            next[was.length] = c;
+            put(number, next);
+        }
+    }
+
+    /**
+     * Удаляет контакт из индекса.
+     *
+     * @param id id контакта
+     */
+    public synchronized void remove(int id) {
+        if (id >= numbersById.length || numbersById[id] == null) return;
+        for (long number : numbersById[id]) {
+            put(number, without(get(number), id));
+        }
+        numbersById[id] = null;
+    }
+
+    /**
+     * Удаляет контакты из индекса.
+     *
+     * @param ids id удаляемых контактов
+     */
+    public synchronized void removeAll(BitSet ids) {
+        for (int id = ids.nextSetBit(0); id >= 0 && id < numbersById.length; id = ids.nextSetBit(id + 1)) {
+            remove(id);
+        }
+    }
+
+    /**
+     * Обновляет номера контакта.
+     *
+     * @param c новая версия контакта
+     */
+    public synchronized void update(Contact c) {
+        remove(c.id);
+        add(c);
+    }
+
+    /**
+     * Возвращает контакты с номером. Не блокирует вызывающий поток.
+     *
+     * @param packed упакованный номер (см. {@link PhoneNumber#normalize(String)})
+     * @return контакты в порядке добавления в индекс; пустой массив, если номер не найден.
+     *         Массив не изменяется индексом и не должен изменяться вызывающим
+     */
+    public Contact[] lookup(long packed) {
+        if (packed == 0) return NONE;
+        Table t = table;
+        for (int i = slot(packed, t.mask); ; i = (i + 1) & t.mask) {
+            long key = (long) KEYS.getAcquire(t.keys, i);
+            if (key == packed) {
+                Contact[] owners = (Contact[]) OWNERS.getAcquire(t.owners, i);
+                return owners != null ? owners : NONE;
+            }
+            if (key == 0) return NONE;
+        }
+    }
+
+    /**
+     * Возвращает количество различных номеров в индексе.
+     *
+     * @return количество номеров
+     */
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * Возвращает владельцев номера для изменения (под блокировкой индекса).
+     */
+    private Contact[] get(long key) {
+        Table t = table;
+        for (int i = slot(key, t.mask); ; i = (i + 1) & t.mask) {
+            if (t.keys[i] == key) return t.owners[i] != null ? t.owners[i] : NONE;
+            if (t.keys[i] == 0) return NONE;
+        }
+    }
+
+    /**
+     * Записывает владельцев номера; null — у номера больше нет владельцев.
+     */
+    private void put(long key, Contact[] owners) {
+        Table t = table;
+        int i = slot(key, t.mask);
+        while (t.keys[i] != key && t.keys[i] != 0) i = (i + 1) & t.mask;
+        if (t.keys[i] == key) {
+            if (t.owners[i] == null && owners != null) live++;
+            if (t.owners[i] != null && owners == null) live--;
+            OWNERS.setRelease(t.owners, i, owners);
+            return;
+        }
+        if (owners == null) return;
+        if ((used + 1) * 2 > t.keys.length) {
+            rehash();
+            put(key, owners);
+            return;
+        }
+        // сначала владельцы, затем ключ: читатель, увидевший ключ, увидит и владельцев
+        OWNERS.setRelease(t.owners, i, owners);
+        KEYS.setRelease(t.keys, i, key);
+        used++;
+        live++;
+    }
+
+    /**
+     * Переносит номера с владельцами в новую таблицу, отбрасывая пустые, и публикует её.
+     * Старая таблица больше не изменяется, поэтому читатели могут дочитать её.
+     */
+    private void rehash() {
+        Table old = table;
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, live) * 4 - 1) << 1);
+        Table t = new Table(capacity);
+        for (int j = 0; j < old.keys.length; j++) {
+            if (old.keys[j] == 0 || old.owners[j] == null) continue;
+            int i = slot(old.keys[j], t.mask);
+            while (t.keys[i] != 0) i = (i + 1) & t.mask;
+            t.keys[i] = old.keys[j];
+            t.owners[i] = old.owners[j];
+        }
+        used = live;
+        table = t;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32) & mask;
+    }
+
+    private static Contact[] without(Contact[] was, int id) {
+        int n = 0;
+        Contact[] next = new Contact[was.length];
+        for (Contact c : was) {
+            if (c.id != id) next[n++] = c;
+        }
+        return n == 0 ? null : Arrays.copyOf(next, n);
+    }
+}
@@ -0,0 +1,328 @@
+package phonebook.search;
+
+import phonebook.model.Contact;
+
+import java.util.*;
+
+/**
+ * Нечёткий поиск по словам ФИО с допуском опечаток ("Иванв" найдёт "Иванов").
+ * <p>
+ * ФИО приводится к ключу поиска {@link SearchKey} (поэтому "Ivanv" тоже найдёт "Иванов")
+ * и разбивается на слова. Различные слова
+ * образуют словарь, уложенный в BK-дерево по расстоянию Левенштейна: при поиске слова
+ * с допуском {@code d} обходятся только ветви, ребро которых отличается от расстояния
+ * до узла не более чем на {@code d}, поэтому проверяется малая часть словаря.
+ * Для каждого слова хранится список вхождений: id контакта и номер слова в его ФИО.
+ * <p>
+ * Каждое слово запроса должно найтись в ФИО с допуском, зависящим от длины слова
+ * (см. {@link #maxDistance(int)}). Контакты ранжируются по сумме расстояний, затем по сумме
+ * номеров найденных слов (совпадение фамилии выше совпадения отчества), затем по id.
+ * <p>
+ * Индекс обновляется при каждом изменении контакта. Слова, вхождений которых не осталось,
+ * остаются в дереве и пропускаются при поиске: удаление из BK-дерева потребовало бы
+ * перестроить поддерево, а словарь имён растёт медленно.
+ * <p>
+ * Методы синхронизированы: индекс обновляется из потока модели, а читаться может из фона.
+ */
+public class FuzzyNameIndex {
+
+    /** Наибольший учитываемый номер слова в ФИО; более далёкие слова получают этот номер */
+    private static final int MAX_POSITION = 15;
+
+    /**
+     * Найденный контакт.
+     *
+     * @param id id контакта
+     * @param distance сумма расстояний Левенштейна по словам запроса
+     * @param position сумма номеров слов ФИО, совпавших со словами запроса
+     */
+    public record Match(int id, int distance, int position) {
+    }
+
+    /** Номер слова в словаре */
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    /** Слова словаря по номеру */
+    private String[] terms = new String[1024];
+
+    /** BK-дерево: первый потомок, следующий брат и расстояние до родителя; -1 — нет */
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int[] edge = new int[1024];
+
+    /** Вхождения слова: id контакта, сдвинутый на 4 бита, и номер слова в ФИО */
+    private int[][] postings = new int[1024][];
+    private int[] postingCount = new int[1024];
+
+    private int termCount;
+
+    /** Номера слов ФИО по id контакта */
+    private int[][] termsById = new int[1024][];
+
+    /** Строки динамического программирования расстояния Левенштейна */
+    private int[] prevRow = new int[32];
+    private int[] row = new int[32];
+
+    /**
+     * Возвращает допуск для слова запроса: короткие слова должны совпасть точно,
+     * в словах до пяти букв допускается одна ошибка, в более длинных — две.
+     *
+     * @param length длина слова
+     * @return наибольшее расстояние Левенштейна
+     */
+    public static int maxDistance(int length) {
+        if (length <= 2) return 0;
+        return length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Разбивает нормализованную строку на слова: последовательности букв и цифр.
+     *
+     * @param key нормализованная строка
+     * @return слова в порядке следования
+     */
+    static List<String> words(String key) {
+        List<String> words = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= key.length(); i++) {
+            boolean letter = i < key.length() && Character.isLetterOrDigit(key.charAt(i));
+            if (letter && start < 0) start = i;
+            if (!letter && start >= 0) {
+                words.add(key.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Добавляет ФИО контакта в индекс.
+     *
+     * @param c контакт с назначенным id
+     */
+    public synchronized void add(Contact c) {
+        List<String> words = words(c.searchKey());
+        int[] ids = new int[words.size()];
+        for (int pos = 0; pos < ids.length; pos++) {
+            int term = termId(words.get(pos));
+            ids[pos] = term;
+            addPosting(term, c.id << 4 | Math.min(pos, MAX_POSITION));
+        }
+        if (c.id >= termsById.length) termsById = Arrays.copyOf(termsById, Math.max(c.id + 1, termsById.length * 2));
+        termsById[c.id] = ids;
+    }
+
+    /**
+     * Удаляет контакт из индекса.
+     *
+     * @param id id контакта
+     */
+    public synchronized void remove(int id) {
+        if (id >= termsById.length || termsById[id] == null) return;
+        for (int term : termsById[id]) {
+            int[] list = postings[term];
+            int n = postingCount[term];
+            for (int i = n - 1; i >= 0; i--) {
+                if (list[i] >>> 4 == id) list[i] = list[--n]; // порядок вхождений не важен
+            }
+            postingCount[term] = n;
+        }
+        termsById[id] = null;
+    }
+
+    /**
+     * Удаляет несколько контактов из индекса.
+     * <p>
+     * Каждый затронутый список вхождений просматривается один раз, сколько бы контактов
+     * из него ни удалялось.
+     *
+     * @param ids id удаляемых контактов
+     */
+    public synchronized void removeAll(BitSet ids) {
+        BitSet touched = new BitSet(termCount);
+        for (int id = ids.nextSetBit(0); id >= 0 && id < termsById.length; id = ids.nextSetBit(id + 1)) {
+            if (termsById[id] == null) continue;
+            for (int term : termsById[id]) touched.set(term);
+            termsById[id] = null;
+        }
+        for (int term = touched.nextSetBit(0); term >= 0; term = touched.nextSetBit(term + 1)) {
+            int[] list = postings[term];
+            int w = 0;
+            for (int i = 0; i < postingCount[term]; i++) {
+                if (!ids.get(list[i] >>> 4)) list[w++] = list[i];
+            }
+            postingCount[term] = w;
+        }
+    }
+
+    /**
+     * Обновляет ФИО контакта в индексе.
+     *
+     * @param c новая версия контакта
+     */
+    public synchronized void update(Contact c) {
+        remove(c.id);
+        add(c);
+    }
+
+    /**
+     * Возвращает количество различных слов в словаре.
+     *
+     * @return размер словаря
+     */
+    public synchronized int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Ищет контакты, в ФИО которых каждое слово запроса встречается с допуском опечаток.
+     *
+     * @param query строка запроса
+     * @param limit наибольшее количество результатов
+     * @return лучшие совпадения, от лучшего к худшему
+     */
+    public synchronized List<Match> search(String query, int limit) {
+        List<String> words = words(SearchKey.of(query));
+        if (words.isEmpty() || limit <= 0 || termCount == 0) return List.of();
+        if (words.size() > 8) words = words.subList(0, 8);
+
+        // вхождения всех найденных слов: id | номер слова запроса | расстояние | номер слова ФИО
+        long[] hits = new long[64];
+        int n = 0;
+        for (int q = 0; q < words.size(); q++) {
+            String word = words.get(q);
+            int max = maxDistance(word.length());
+            List<int[]> found = new ArrayList<>();
+            collect(word, max, found);
+            if (found.isEmpty()) return List.of();
+            for (int[] f : found) {
+                int term = f[0];
+                int[] list = postings[term];
+                for (int i = 0; i < postingCount[term]; i++) {
+                    if (n == hits.length) hits = Arrays.copyOf(hits, n * 2);
+                    hits[n++] = (long) (list[i] >>> 4) << 32 | (long) q << 16 | f[1] << 8 | list[i] & 0xF;
+                }
+            }
+        }
+        Arrays.sort(hits, 0, n);
+
+        // для каждого контакта — лучшее вхождение каждого слова запроса; нужны все слова
+        long[] ranked = new long[Math.min(n, 1024)];
+        int found = 0;
+        for (int i = 0; i < n; ) {
+            int id = (int) (hits[i] >>> 32);
+            int distance = 0, position = 0, matched = 0, lastWord = -1;
+            for (; i < n && (int) (hits[i] >>> 32) == id; i++) {
+                int q = (int) (hits[i] >>> 16) & 0xFF;
+                if (q == lastWord) continue; // вхождения отсортированы: первое — лучшее
+                lastWord = q;
+                matched++;
+                distance += (int) (hits[i] >>> 8) & 0xFF;
+                position += (int) hits[i] & 0xFF;
+            }
+            if (matched < words.size()) continue;
+            if (found == ranked.length) ranked = Arrays.copyOf(ranked, found * 2);
+            ranked[found++] = (long) distance << 48 | (long) position << 32 | id;
+        }
+        Arrays.sort(ranked, 0, found);
+
+        List<Match> result = new ArrayList<>(Math.min(found, limit));
+        for (int i = 0; i < found && i < limit; i++) {
+            long r = ranked[i];
+            result.add(new Match((int) r, (int) (r >>> 48), (int) (r >>> 32) & 0xFFFF));
+        }
+        return result;
+    }
+
+    /**
+     * Собирает слова словаря на расстоянии не больше {@code max} от {@code word}: пары
+     * (номер слова, расстояние). Слова без вхождений пропускаются.
+     */
+    private void collect(String word, int max, List<int[]> found) {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int d = distance(word, terms[node]);
+            if (d <= max && postingCount[node] > 0) found.add(new int[]{node, d});
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(edge[child] - d) <= max) {
+                    if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает номер слова, добавляя его в словарь и BK-дерево при первой встрече.
+     */
+    private int termId(String word) {
+        Integer known = termIds.get(word);
+        if (known != null) return known;
+
+        int term = termCount++;
+        if (term == terms.length) {
+            int size = term * 2;
+            terms = Arrays.copyOf(terms, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            edge = Arrays.copyOf(edge, size);
+            postings = Arrays.copyOf(postings, size);
+            postingCount = Arrays.copyOf(postingCount, size);
+        }
+        terms[term] = word;
+        firstChild[term] = -1;
+        nextSibling[term] = -1;
+        postings[term] = new int[2];
+        termIds.put(word, term);
+        if (term == 0) return term;
+
+        int node = 0;
+        while (true) {
+            int d = distance(word, terms[node]);
+            int child = firstChild[node];
+            while (child >= 0 && edge[child] != d) child = nextSibling[child];
+            if (child < 0) {
+                edge[term] = d;
+                nextSibling[term] = firstChild[node];
+                firstChild[node] = term;
+                return term;
+            }
+            node = child;
+        }
+    }
+
+    private void addPosting(int term, int entry) {
+        int n = postingCount[term];
+        if (n == postings[term].length) postings[term] = Arrays.copyOf(postings[term], n * 2);
+        postings[term][n] = entry;
+        postingCount[term] = n + 1;
+    }
+
+    /**
+     * Расстояние Левенштейна: наименьшее число вставок, удалений и замен символов.
+     */
+    int distance(String a, String b) {
+        int m = b.length();
+        if (m + 1 > row.length) {
+            row = new int[m + 1];
+            prevRow = new int[m + 1];
+        }
+        int[] prev = prevRow, cur = row;
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            char ca = a.charAt(i - 1);
+            cur[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[m];
+    }
+}
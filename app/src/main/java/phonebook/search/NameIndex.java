@@ -0,0 +1,189 @@
+package phonebook.search;
+
+import phonebook.model.Contact;
+
+import java.util.*;
+
+/**
+ * Инвертированный индекс триграмм для поиска по подстроке ФИО без учёта регистра.
+ * <p>
+ * ФИО нормализуется в ключ поиска ({@link SearchKey}): нижний регистр, "ё" → "е", кириллица
+ * и латиница сводятся к одной записи, поэтому "ivanov" найдёт "Иванов" и наоборот. Ключ контакта
+ * вычисляется один раз на его версию ({@link Contact#searchKey()}) и хранится в индексе.
+ * Для каждой триграммы нормализованной строки хранится отсортированный список id
+ * контактов. Запрос разбивается на триграммы, их списки пересекаются, начиная
+ * с самого короткого, и только оставшиеся кандидаты проверяются по подстроке.
+ * Запросы короче трёх символов проверяются по сохранённым нормализованным строкам.
+ * <p>
+ * Методы синхронизированы: индекс обновляется из потока модели, а читаться может из фона.
+ */
+public class NameIndex {
+
+    /** Списки id по упакованной триграмме (три символа по 16 бит) */
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /** Ключ поиска ФИО по id контакта */
+    private String[] keyById = new String[1024];
+
+    /**
+     * Нормализует строку для поиска (см. {@link SearchKey}).
+     *
+     * @param s исходная строка
+     * @return нормализованная строка
+     */
+    public static String normalize(String s) {
+        return SearchKey.of(s);
+    }
+
+    /**
+     * Добавляет ФИО контакта в индекс.
+     *
+     * @param c контакт с назначенным id
+     */
+    public synchronized void add(Contact c) {
+        String key = c.searchKey();
+        if (c.id >= keyById.length) keyById = Arrays.copyOf(keyById, Math.max(c.id + 1, keyById.length * 2));
+        keyById[c.id] = key;
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            postings.computeIfAbsent(trigram(key, i), k -> new Postings()).add(c.id);
+        }
+    }
+
+    /**
+     * Удаляет контакт из индекса.
+     *
+     * @param id id контакта
+     */
+    public synchronized void remove(int id) {
+        if (id >= keyById.length || keyById[id] == null) return;
+        String key = keyById[id];
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            Long t = trigram(key, i);
+            Postings p = postings.get(t);
+            if (p != null && p.remove(id) && p.size == 0) postings.remove(t);
+        }
+        keyById[id] = null;
+    }
+
+    /**
+     * Удаляет несколько контактов из индекса.
+     * <p>
+     * Каждый затронутый список id просматривается один раз, сколько бы контактов
+     * из него ни удалялось.
+     *
+     * @param ids id удаляемых контактов
+     */
+    public synchronized void removeAll(BitSet ids) {
+        Set<Long> grams = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0 && id < keyById.length; id = ids.nextSetBit(id + 1)) {
+            String key = keyById[id];
+            if (key == null) continue;
+            for (int i = 0; i + 3 <= key.length(); i++) grams.add(trigram(key, i));
+            keyById[id] = null;
+        }
+        for (Long t : grams) {
+            Postings p = postings.get(t);
+            if (p != null && p.removeAll(ids) == 0) postings.remove(t);
+        }
+    }
+
+    /**
+     * Обновляет ФИО контакта в индексе.
+     *
+     * @param c новая версия контакта
+     */
+    public synchronized void update(Contact c) {
+        remove(c.id);
+        add(c);
+    }
+
+    /**
+     * Ищет контакты, ФИО которых содержит строку запроса без учёта регистра, различия "ё"/"е"
+     * и алфавита (кириллица или латиница).
+     *
+     * @param query строка запроса
+     * @return множество id найденных контактов
+     */
+    public synchronized BitSet search(String query) {
+        String q = normalize(query);
+        BitSet ids = new BitSet();
+        if (q.length() < 3) {
+            for (int id = 0; id < keyById.length; id++) {
+                if (keyById[id] != null && keyById[id].contains(q)) ids.set(id);
+            }
+            return ids;
+        }
+
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) grams.add(trigram(q, i));
+        List<Postings> lists = new ArrayList<>(grams.size());
+        for (Long g : grams) {
+            Postings p = postings.get(g);
+            if (p == null) return ids;
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        Postings smallest = lists.get(0);
+        candidates:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            for (int l = 1; l < lists.size(); l++) {
+                if (!lists.get(l).contains(id)) continue candidates;
+            }
+            if (keyById[id].contains(q)) ids.set(id); // триграммы есть, но могут стоять не подряд
+        }
+        return ids;
+    }
+
+    private static long trigram(String s, int i) {
+        return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+    }
+
+    /**
+     * Отсортированный по возрастанию список id без повторов.
+     */
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            // id новых контактов растут, поэтому обычно это дописывание в конец
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) return;
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        int removeAll(BitSet removed) {
+            int w = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.get(ids[i])) ids[w++] = ids[i];
+            }
+            size = w;
+            return size;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+}
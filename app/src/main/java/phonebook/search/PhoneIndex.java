@@ -0,0 +1,260 @@
+package phonebook.search;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Индекс телефонных номеров для поиска по подстроке цифр.
+ * <p>
+ * Номера нормализуются до одних цифр ("+7 (916) 123-45-67" → "79161234567"),
+ * и все суффиксы каждого номера, обрезанные до {@link #depth} цифр, вставляются
+ * в префиксное дерево. Подстрока номера — это префикс одного из его суффиксов,
+ * поэтому поиск сводится к спуску по дереву и обходу поддерева:
+ * <ul>
+ *     <li>запрос не длиннее {@code depth} — все id в поддереве подходят без проверки</li>
+ *     <li>запрос длиннее — id из поддерева первых {@code depth} цифр проверяются
+ *     по сохранённым цифрам контакта</li>
+ * </ul>
+ * Дерево хранится в плоских массивах: 10 потомков на узел и список id на узел.
+ * Методы синхронизированы: индекс обновляется из потока модели, а читаться может из фона.
+ */
+public class PhoneIndex {
+
+    /** Глубина дерева по умолчанию */
+    public static final int DEFAULT_DEPTH = 6;
+
+    /** Разделитель номеров в сохранённых цифрах контакта (не цифра, поэтому не совпадёт с запросом) */
+    private static final char SEPARATOR = ';';
+
+    private final int depth;
+
+    /** Потомки узлов: children[node * 10 + digit], 0 — нет потомка (корень не бывает потомком) */
+    private int[] children = new int[10 * 1024];
+
+    /** id контактов, суффикс номера которых заканчивается в узле */
+    private int[][] postings = new int[1024][];
+
+    /** Количество id в списке узла */
+    private int[] postingSizes = new int[1024];
+
+    /** Количество узлов (узел 0 — корень) */
+    private int nodeCount = 1;
+
+    /** Цифры номеров контакта по id, через {@link #SEPARATOR} */
+    private String[] digitsById = new String[1024];
+
+    /**
+     * Создаёт индекс с глубиной дерева по умолчанию.
+     */
+    public PhoneIndex() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Создаёт индекс с заданной глубиной дерева.
+     *
+     * @param depth сколько цифр каждого суффикса хранится в дереве
+     */
+    public PhoneIndex(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Оставляет в строке только цифры.
+     *
+     * @param s исходная строка
+     * @return строка из цифр (возможно, пустая)
+     */
+    public static String digits(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Добавляет номера контакта в индекс.
+     *
+     * @param c контакт с назначенным id
+     */
+    public synchronized void add(Contact c) {
+        StringBuilder all = new StringBuilder();
+        for (PhoneNumber p : c.getPhones()) {
+            String d = digits(p.getNumber());
+            if (d.isEmpty()) continue;
+            if (all.length() > 0) all.append(SEPARATOR);
+            all.append(d);
+            for (int s = 0; s < d.length(); s++) {
+                addPosting(insert(d, s), c.id);
+            }
+        }
+        if (c.id >= digitsById.length) digitsById = Arrays.copyOf(digitsById, Math.max(c.id + 1, digitsById.length * 2));
+        digitsById[c.id] = all.toString();
+    }
+
+    /**
+     * Удаляет номера контакта из индекса.
+     *
+     * @param id id контакта
+     */
+    public synchronized void remove(int id) {
+        if (id >= digitsById.length || digitsById[id] == null) return;
+        for (String d : digitsById[id].split(String.valueOf(SEPARATOR))) {
+            for (int s = 0; s < d.length(); s++) {
+                int node = find(d, s, Math.min(depth, d.length() - s));
+                if (node > 0) removePosting(node, id);
+            }
+        }
+        digitsById[id] = null;
+    }
+
+    /**
+     * Удаляет номера нескольких контактов из индекса.
+     * <p>
+     * Каждый затронутый список id просматривается один раз, сколько бы контактов
+     * из него ни удалялось.
+     *
+     * @param ids id удаляемых контактов
+     */
+    public synchronized void removeAll(BitSet ids) {
+        BitSet nodes = new BitSet();
+        for (int id = ids.nextSetBit(0); id >= 0 && id < digitsById.length; id = ids.nextSetBit(id + 1)) {
+            if (digitsById[id] == null) continue;
+            for (String d : digitsById[id].split(String.valueOf(SEPARATOR))) {
+                for (int s = 0; s < d.length(); s++) {
+                    int node = find(d, s, Math.min(depth, d.length() - s));
+                    if (node > 0) nodes.set(node);
+                }
+            }
+            digitsById[id] = null;
+        }
+        for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+            int[] post = postings[node];
+            int size = postingSizes[node];
+            int w = 0;
+            for (int i = 0; i < size; i++) {
+                if (!ids.get(post[i])) post[w++] = post[i];
+            }
+            postingSizes[node] = w;
+        }
+    }
+
+    /**
+     * Обновляет номера контакта в индексе.
+     *
+     * @param c новая версия контакта
+     */
+    public synchronized void update(Contact c) {
+        remove(c.id);
+        add(c);
+    }
+
+    /**
+     * Ищет контакты, в одном из номеров которых есть заданная последовательность цифр.
+     *
+     * @param query цифры запроса (нецифровые символы игнорируются)
+     * @return множество id найденных контактов
+     */
+    public synchronized BitSet search(String query) {
+        String q = digits(query);
+        BitSet ids = new BitSet();
+        if (q.isEmpty()) return ids;
+        int node = find(q, 0, Math.min(depth, q.length()));
+        if (node < 0) return ids;
+
+        boolean verify = q.length() > depth;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int n = stack[--top];
+            int[] post = postings[n];
+            for (int i = 0; i < postingSizes[n]; i++) {
+                int id = post[i];
+                if (!ids.get(id) && (!verify || digitsById[id].contains(q))) ids.set(id);
+            }
+            for (int d = 0; d < 10; d++) {
+                int child = children[n * 10 + d];
+                if (child == 0) continue;
+                if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = child;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Спускается по дереву по цифрам {@code d[from, from + len)}.
+     *
+     * @return узел или -1, если пути нет
+     */
+    private int find(String d, int from, int len) {
+        int node = 0;
+        for (int i = from; i < from + len; i++) {
+            node = children[node * 10 + d.charAt(i) - '0'];
+            if (node == 0) return -1;
+        }
+        return node;
+    }
+
+    /**
+     * Вставляет суффикс {@code d[from..]}, обрезанный до {@link #depth} цифр, создавая недостающие узлы.
+     *
+     * @return конечный узел суффикса
+     */
+    private int insert(String d, int from) {
+        int node = 0;
+        int end = Math.min(d.length(), from + depth);
+        for (int i = from; i < end; i++) {
+            int slot = node * 10 + d.charAt(i) - '0';
+            int child = children[slot];
+            if (child == 0) {
+                child = newNode();
+                children[slot] = child;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private int newNode() {
+        if (nodeCount == postingSizes.length) {
+            int cap = nodeCount * 2;
+            children = Arrays.copyOf(children, cap * 10);
+            postings = Arrays.copyOf(postings, cap);
+            postingSizes = Arrays.copyOf(postingSizes, cap);
+        }
+        return nodeCount++;
+    }
+
+    private void addPosting(int node, int id) {
+        int[] post = postings[node];
+        int size = postingSizes[node];
+        if (size > 0 && post[size - 1] == id) return; // повтор суффикса в том же номере
+        if (post == null) {
+            post = postings[node] = new int[2];
+        } else if (size == post.length) {
+            post = postings[node] = Arrays.copyOf(post, size * 2);
+        }
+        post[size] = id;
+        postingSizes[node] = size + 1;
+    }
+
+    private void removePosting(int node, int id) {
+        int[] post = postings[node];
+        int size = postingSizes[node];
+        for (int i = 0; i < size; i++) {
+            if (post[i] == id) {
+                post[i] = post[size - 1];
+                postingSizes[node] = size - 1;
+                return;
+            }
+        }
+    }
+}
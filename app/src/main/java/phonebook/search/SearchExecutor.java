@@ -0,0 +1,143 @@
+package phonebook.search;
+
+import phonebook.util.LatencyStats;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Фоновое выполнение поиска для строки поиска в интерфейсе.
+ * <p>
+ * Каждый запрос выполняется в виртуальном потоке после паузы {@link #debounceMillis}:
+ * если за это время пришёл новый запрос (пользователь продолжает печатать),
+ * предыдущий отменяется и не выполняется вовсе. Результат передаётся в EDT
+ * только для последнего запроса; устаревшие результаты отбрасываются.
+ * Задержка от ввода до применения результата учитывается в {@link #getLatency()}.
+ * <p>
+ * Методы {@link #submit} и {@link #cancel()} вызываются из EDT.
+ */
+public class SearchExecutor implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SearchExecutor.class);
+
+    /** Пауза после последнего ввода по умолчанию */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Пауза после последнего ввода перед выполнением запроса */
+    private final long debounceMillis;
+
+    /** Номер последнего запроса; результаты более ранних запросов отбрасываются */
+    private final AtomicLong latest = new AtomicLong();
+
+    /** Задержки от ввода до применения результата */
+    private final LatencyStats latency = new LatencyStats();
+
+    /** Текущая задача поиска */
+    private Future<?> current;
+
+    /**
+     * Создаёт исполнитель с паузой по умолчанию.
+     */
+    public SearchExecutor() {
+        this(DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Создаёт исполнитель с заданной паузой.
+     *
+     * @param debounceMillis пауза после последнего ввода в миллисекундах
+     */
+    public SearchExecutor(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Запускает поиск, отменяя предыдущий незавершённый запрос.
+     *
+     * @param search вычисление результата (выполняется в фоне)
+     * @param apply применение результата (выполняется в EDT, только для последнего запроса)
+     * @param <R> тип результата
+     */
+    public <R> void submit(Supplier<R> search, Consumer<R> apply) {
+        submit(search, apply, debounceMillis);
+    }
+
+    /**
+     * Запускает поиск с заданной паузой, отменяя предыдущий незавершённый запрос.
+     *
+     * @param search вычисление результата (выполняется в фоне)
+     * @param apply применение результата (выполняется в EDT, только для последнего запроса)
+     * @param delayMillis пауза перед выполнением (0 — сразу, например после изменения данных)
+     * @param <R> тип результата
+     */
+    public <R> void submit(Supplier<R> search, Consumer<R> apply, long delayMillis) {
+        long id = latest.incrementAndGet();
+        if (current != null) current.cancel(true);
+        long submitted = System.nanoTime();
+
+        current = executor.submit(() -> {
+            try {
+                if (delayMillis > 0) Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                return; // пришёл новый запрос
+            }
+            if (latest.get() != id) return;
+
+            long start = System.nanoTime();
+            R result;
+            try {
+                result = search.get();
+            } catch (RuntimeException e) {
+                logger.warn("Ошибка при выполнении поиска", e);
+                return;
+            }
+            long computed = System.nanoTime() - start;
+            if (latest.get() != id) return;
+
+            SwingUtilities.invokeLater(() -> {
+                if (latest.get() != id) return;
+                apply.accept(result);
+                long total = System.nanoTime() - submitted;
+                latency.record(total);
+                logger.debug("Поиск #{}: вычисление {} мкс, от ввода до показа {} мс", id,
+                        computed / 1_000, total / 1_000_000);
+            });
+        });
+    }
+
+    /**
+     * Отменяет текущий запрос; его результат не будет применён.
+     */
+    public void cancel() {
+        latest.incrementAndGet();
+        if (current != null) current.cancel(true);
+    }
+
+    /**
+     * Возвращает статистику задержек от ввода до показа результата.
+     *
+     * @return статистика задержек
+     */
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    /**
+     * Останавливает фоновые потоки поиска.
+     */
+    @Override
+    public void close() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
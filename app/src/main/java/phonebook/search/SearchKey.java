@@ -0,0 +1,50 @@
+package phonebook.search;
+
+/**
+ * Ключ поиска по ФИО, не зависящий от регистра, "ё" и алфавита.
+ * <p>
+ * Строка приводится к нижнему регистру, а кириллица посимвольно переводится в латиницу
+ * по распространённой записи ("ё" — как "е", "х" — "kh", "ц" — "ts", "щ" — "shch").
+ * Так "Иванов", "ИВАНОВ" и "Ivanov" дают один ключ "ivanov", а "Хабаров" и "Khabarov" —
+ * ключ "khabarov". Латинские буквы, цифры, пробелы и дефисы не меняются, поэтому
+ * начало и любая подстрока ФИО дают подстроку ключа ("Мат" найдёт "Матсон", "K" — "Khabarov").
+ * <p>
+ * Ключ вычисляется один раз на версию контакта (см. {@link phonebook.model.Contact#searchKey()})
+ * и хранится в индексах; при вводе запроса нормализуется только сам запрос.
+ */
+public final class SearchKey {
+
+    /** Латинская запись букв от "а" до "я" */
+    private static final String[] CYRILLIC = {
+            "a", "b", "v", "g", "d", "e", "zh", "z", "i", "y", "k", "l", "m", "n", "o", "p",
+            "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "shch", "", "y", "", "e", "yu", "ya"
+    };
+
+    private SearchKey() {
+    }
+
+    /**
+     * Возвращает ключ поиска строки.
+     *
+     * @param s исходная строка; null — пустая строка
+     * @return ключ поиска
+     */
+    public static String of(String s) {
+        if (s == null || s.isEmpty()) return "";
+        StringBuilder key = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char ch = Character.toLowerCase(s.charAt(i));
+            if (ch >= 'а' && ch <= 'я') {
+                key.append(CYRILLIC[ch - 'а']);
+            } else {
+                switch (ch) {
+                    case 'ё', 'є' -> key.append('e');
+                    case 'і', 'ї' -> key.append('i');
+                    case 'ґ' -> key.append('g');
+                    default -> key.append(ch);
+                }
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,274 @@
+package phonebook.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+import phonebook.util.LatencyStats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HTTP-сервер определения абонента по номеру для АТС.
+ * <p>
+ * Запросы:
+ * <ul>
+ *     <li>{@code GET /lookup?number=+79161234567} — контакты с номером:
+ *     {@code {"number":"+79161234567","contacts":[{"id":1,"name":"Иванов Иван","type":"MOBILE","typeName":"Сотовый"}]}};
+ *     404 с пустым списком, если номер не найден, и 400, если номер некорректен.
+ *     "+" в номере можно не кодировать: в параметре он не считается пробелом;</li>
+ *     <li>{@code GET /stats} — пропускная способность и задержки обработки запросов.</li>
+ * </ul>
+ * Номер ищется в канонической форме через {@link PhoneBookModel#findContactsByNumber(String)}:
+ * поиск не блокируется изменениями книги. Каждый запрос обрабатывается в отдельном
+ * виртуальном потоке.
+ * <p>
+ * Заголовки и тело ответа уходят отдельными пакетами, поэтому без TCP_NODELAY клиент
+ * с постоянным соединением ждёт задержанного подтверждения (~40 мс на запрос). HTTP-сервер
+ * JDK читает свойство {@code sun.net.httpserver.nodelay} один раз, при создании первого
+ * сервера в процессе, поэтому его задаёт при запуске {@link phonebook.HeadlessServer}
+ * (или флаг {@code -Dsun.net.httpserver.nodelay=true}), а не этот класс.
+ */
+public class CallerIdServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(CallerIdServer.class);
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final PhoneBookModel model;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Задержки обработки запросов /lookup */
+    private final LatencyStats latency = new LatencyStats();
+
+    private long startedNanos;
+    private Thread reporter;
+
+    /**
+     * Создаёт сервер; прослушивание начинается в {@link #start()}.
+     *
+     * @param model модель с загруженной книгой
+     * @param address адрес и порт (0 — любой свободный)
+     * @throws IOException если адрес занят
+     */
+    public CallerIdServer(PhoneBookModel model, InetSocketAddress address) throws IOException {
+        this.model = model;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/lookup", this::lookup);
+        server.createContext("/stats", this::stats);
+    }
+
+    /**
+     * Строит индекс номеров и начинает принимать запросы.
+     */
+    public void start() {
+        long t = System.nanoTime();
+        model.findContactsByNumber("0"); // индекс строится заранее, а не на первом звонке
+        startedNanos = System.nanoTime();
+        server.start();
+        logger.info("Сервер определения номера запущен на {} (книга {} контактов, индекс за {} мс)",
+                server.getAddress(), model.getContacts().size(), (startedNanos - t) / 1_000_000);
+    }
+
+    /**
+     * Периодически пишет в лог пропускную способность и задержки за прошедший интервал.
+     *
+     * @param interval интервал между отчётами
+     */
+    public synchronized void startReporting(Duration interval) {
+        if (reporter != null) return;
+        reporter = Thread.ofVirtual().name("caller-id-report").start(() -> {
+            long lastCount = latency.count();
+            long lastTime = System.nanoTime();
+            try {
+                while (true) {
+                    Thread.sleep(interval);
+                    long count = latency.count(), now = System.nanoTime();
+                    logger.info("Запросов за {} с: {} ({} в секунду), p99 {} мкс", interval.toSeconds(),
+                            count - lastCount, rate(count - lastCount, now - lastTime),
+                            latency.percentileNanos(99) / 1_000);
+                    lastCount = count;
+                    lastTime = now;
+                }
+            } catch (InterruptedException e) {
+                // сервер остановлен
+            }
+        });
+    }
+
+    /**
+     * Возвращает порт, на котором сервер принимает запросы.
+     *
+     * @return номер порта
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Возвращает задержки обработки запросов определения номера.
+     *
+     * @return счётчик задержек
+     */
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    /**
+     * Возвращает среднюю пропускную способность с момента запуска.
+     *
+     * @return запросов в секунду
+     */
+    public long getThroughput() {
+        return rate(latency.count(), System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Останавливает сервер и пишет в лог итоговую статистику.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+        synchronized (this) {
+            if (reporter != null) reporter.interrupt();
+        }
+        logger.info("Сервер определения номера остановлен: {} запросов, {} в секунду, {}",
+                latency.count(), getThroughput(), latency);
+    }
+
+    private void lookup(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "{\"error\":\"Поддерживается только GET\"}");
+                return;
+            }
+            String number;
+            try {
+                number = parameter(exchange.getRequestURI().getRawQuery(), "number");
+            } catch (IllegalArgumentException e) {
+                // неверная %-последовательность в параметре
+                send(exchange, 400, "{\"error\":\"Некорректный номер\"}");
+                return;
+            }
+            long packed = PhoneNumber.normalize(number);
+            if (packed == 0) {
+                send(exchange, 400, "{\"error\":\"Некорректный номер\"}");
+                return;
+            }
+            List<Contact> found = model.findContactsByNumber(number);
+            send(exchange, found.isEmpty() ? 404 : 200, toJson(packed, found));
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            String body = String.format(Locale.ROOT,
+                    "{\"requests\":%d,\"uptimeSeconds\":%d,\"requestsPerSecond\":%d,"
+                            + "\"meanMicros\":%d,\"p50Micros\":%d,\"p99Micros\":%d,\"maxMicros\":%d,\"contacts\":%d}",
+                    latency.count(), (System.nanoTime() - startedNanos) / 1_000_000_000L, getThroughput(),
+                    latency.meanNanos() / 1_000, latency.percentileNanos(50) / 1_000,
+                    latency.percentileNanos(99) / 1_000, latency.percentileNanos(100) / 1_000,
+                    model.getContacts().size());
+            send(exchange, 200, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Возвращает значение параметра запроса или null.
+     *
+     * @throws IllegalArgumentException если значение содержит неверную %-последовательность
+     */
+    private static String parameter(String rawQuery, String name) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0 || !pair.substring(0, eq).equals(name)) continue;
+            // "+" оставляем плюсом: АТС передаёт номера в международном формате без кодирования
+            return URLDecoder.decode(pair.substring(eq + 1).replace("+", "%2B"), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    /**
+     * Собирает ответ на запрос определения номера.
+     */
+    private static String toJson(long packed, List<Contact> contacts) {
+        StringBuilder sb = new StringBuilder(64 + contacts.size() * 96);
+        sb.append("{\"number\":\"").append(PhoneNumber.format(packed)).append("\",\"contacts\":[");
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact c = contacts.get(i);
+            PhoneType type = typeOf(c, packed);
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":").append(c.id).append(",\"name\":");
+            quote(sb, c.fullName);
+            sb.append(",\"type\":\"").append(type.name()).append("\",\"typeName\":");
+            quote(sb, type.toString());
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static PhoneType typeOf(Contact c, long packed) {
+        for (PhoneNumber p : c.getPhones()) {
+            if (p.getPacked() == packed) return p.type;
+        }
+        return PhoneType.OTHER;
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                switch (ch) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+                        else sb.append(ch);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static long rate(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * 1_000_000_000L / nanos;
+    }
+}
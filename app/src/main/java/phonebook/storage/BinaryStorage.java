@@ -0,0 +1,261 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Двоичный формат базового снимка телефонной книги.
+ * <p>
+ * Файл состоит из заголовка фиксированного размера и последовательности записей:
+ * <ul>
+ *     <li>заголовок ({@value #HEADER_SIZE} байт): сигнатура, версия формата, флаги,
+ *     поколение снимка и предыдущее поколение, количество контактов</li>
+ *     <li>запись: длина тела (4 байта) и тело в формате {@link ContactCodec}</li>
+ *     <li>индекс (с версии 2): смещения всех записей (по 8 байт), id контактов (по 4 байта)
+ *     и трейлер — смещение индекса, флаги индекса и сигнатура</li>
+ * </ul>
+ * Индекс позволяет открыть файл через {@link MappedContactList}, не читая сами записи.
+ * Длина перед каждой записью позволяет пропускать записи без декодирования
+ * и читать файлы, в которых новая версия добавила поля в конец тела.
+ * Чтение и запись идут через {@link FileChannel} блоками по {@value #BUFFER_SIZE} байт.
+ */
+public final class BinaryStorage {
+
+    private static final Logger logger = LogManager.getLogger(BinaryStorage.class);
+
+    /** Сигнатура файла ("PBKB") */
+    public static final int MAGIC = 0x50424B42;
+
+    /** Текущая версия формата (2 — добавлен индекс записей в конце файла) */
+    public static final short VERSION = 2;
+
+    /** Размер заголовка файла */
+    public static final int HEADER_SIZE = 32;
+
+    /** Флаг заголовка: в конце файла есть индекс записей */
+    public static final short FLAG_INDEX = 1;
+
+    /** Флаг трейлера: id контактов в индексе строго возрастают */
+    public static final int INDEX_IDS_SORTED = 1;
+
+    /** Размер трейлера: смещение индекса, флаги индекса, сигнатура */
+    public static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /** Размер буфера ввода-вывода */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private BinaryStorage() {
+    }
+
+    /**
+     * Проверяет, записан ли файл в двоичном формате.
+     *
+     * @param file файл базы
+     * @return true, если файл начинается с сигнатуры {@link #MAGIC}
+     * @throws IOException при ошибке чтения
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
+            return ch.read(buf, 0) == Integer.BYTES && buf.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Атомарно записывает снимок: сначала во временный файл, затем переименованием.
+     *
+     * @param file файл базы
+     * @param contacts контакты в порядке списка
+     * @param generation поколение снимка
+     * @param previousGeneration поколение предыдущего снимка
+     * @throws IOException при ошибке записи
+     */
+    public static void write(Path file, List<Contact> contacts, long generation, long previousGeneration)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = contacts.size();
+        long[] offsets = new long[count];
+        int[] ids = new int[count];
+        boolean sorted = true;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buf.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort(FLAG_INDEX)
+                    .putLong(generation)
+                    .putLong(previousGeneration)
+                    .putInt(count)
+                    .putInt(0);
+
+            long written = 0;
+            for (int i = 0; i < count; i++) {
+                Contact c = contacts.get(i);
+                int need = Integer.BYTES + ContactCodec.maxSize(c);
+                if (buf.remaining() < need) {
+                    written += drain(ch, buf);
+                    if (buf.capacity() < need) buf = ByteBuffer.allocate(need);
+                }
+                int start = buf.position();
+                buf.putInt(0);
+                ContactCodec.write(buf, c);
+                buf.putInt(start, buf.position() - start - Integer.BYTES);
+                offsets[i] = written + start;
+                ids[i] = c.id;
+                sorted &= i == 0 || ids[i - 1] < c.id;
+            }
+
+            // индекс записей в конце файла: смещения, id и трейлер
+            long indexOffset = written + buf.position();
+            for (int i = 0; i < count; i++) {
+                if (buf.remaining() < Long.BYTES) written += drain(ch, buf);
+                buf.putLong(offsets[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                if (buf.remaining() < Integer.BYTES) written += drain(ch, buf);
+                buf.putInt(ids[i]);
+            }
+            if (buf.remaining() < TRAILER_SIZE) drain(ch, buf);
+            buf.putLong(indexOffset).putInt(sorted ? INDEX_IDS_SORTED : 0).putInt(MAGIC);
+            drain(ch, buf);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Записан двоичный снимок: {} контактов, {} байт", contacts.size(), Files.size(file));
+    }
+
+    /**
+     * Читает снимок целиком.
+     *
+     * @param file файл базы
+     * @return прочитанный снимок
+     * @throws IOException при ошибке чтения, неизвестной сигнатуре или версии
+     */
+    public static Snapshot read(Path file) throws IOException {
+        long[] header = new long[2];
+        ArrayList<Contact> contacts = new ArrayList<>();
+        read(file, Integer.MAX_VALUE, new ChunkReader() {
+            @Override
+            public void start(long generation, long previousGeneration, int count) {
+                header[0] = generation;
+                header[1] = previousGeneration;
+                contacts.ensureCapacity(count);
+            }
+
+            @Override
+            public void chunk(List<Contact> chunk) {
+                contacts.addAll(chunk);
+            }
+        });
+        return new Snapshot(header[0], header[1], contacts);
+    }
+
+    /**
+     * Читает файл базы потоком, передавая контакты порциями по мере декодирования.
+     *
+     * @param file файл базы
+     * @param chunkSize количество контактов в порции
+     * @param reader получатель заголовка и порций
+     * @throws IOException при ошибке чтения, неизвестном формате или повреждённом файле
+     */
+    public static void read(Path file, int chunkSize, ChunkReader reader) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE).flip();
+            buf = fill(ch, buf, HEADER_SIZE);
+            if (buf.getInt() != MAGIC) throw new IOException("Файл не является двоичной базой: " + file);
+            short version = buf.getShort();
+            if (version > VERSION) throw new IOException("Неподдерживаемая версия формата базы: " + version);
+            buf.getShort();
+            long generation = buf.getLong();
+            long previous = buf.getLong();
+            int count = buf.getInt();
+            buf.getInt();
+            reader.start(generation, previous, count);
+
+            List<Contact> chunk = new ArrayList<>(Math.min(chunkSize, count));
+            for (int i = 0; i < count; i++) {
+                buf = fill(ch, buf, Integer.BYTES);
+                int len = buf.getInt();
+                buf = fill(ch, buf, len);
+                int end = buf.position() + len;
+                chunk.add(ContactCodec.read(buf));
+                buf.position(end);
+                if (chunk.size() == chunkSize) {
+                    reader.chunk(chunk);
+                    chunk = new ArrayList<>(Math.min(chunkSize, count - i - 1));
+                }
+            }
+            if (!chunk.isEmpty()) reader.chunk(chunk);
+        }
+    }
+
+    /**
+     * Получатель содержимого файла базы при потоковом чтении.
+     */
+    public interface ChunkReader {
+
+        /**
+         * Вызывается после чтения заголовка, до первой порции.
+         *
+         * @param generation поколение снимка
+         * @param previousGeneration предыдущее поколение
+         * @param count количество контактов в файле
+         * @throws IOException если чтение нужно прервать
+         */
+        void start(long generation, long previousGeneration, int count) throws IOException;
+
+        /**
+         * Вызывается для каждой очередной порции контактов.
+         * Список передаётся во владение получателю.
+         *
+         * @param contacts контакты в порядке файла
+         * @throws IOException если чтение нужно прервать
+         */
+        void chunk(List<Contact> contacts) throws IOException;
+    }
+
+    /**
+     * Записывает содержимое буфера в канал и очищает буфер.
+     *
+     * @return количество записанных байт
+     */
+    private static int drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        int n = buf.remaining();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+        return n;
+    }
+
+    /**
+     * Гарантирует, что в буфере (в режиме чтения) доступно не меньше {@code need} байт,
+     * при необходимости дочитывая канал и увеличивая буфер.
+     *
+     * @return буфер в режиме чтения (может быть новым, если пришлось увеличить)
+     */
+    private static ByteBuffer fill(FileChannel ch, ByteBuffer buf, int need) throws IOException {
+        if (buf.remaining() >= need) return buf;
+        if (buf.capacity() < need) {
+            buf = ByteBuffer.allocate(need).put(buf);
+        } else {
+            buf.compact();
+        }
+        while (buf.position() < need) {
+            if (ch.read(buf) < 0) throw new EOFException("Файл базы обрезан");
+        }
+        return buf.flip();
+    }
+}
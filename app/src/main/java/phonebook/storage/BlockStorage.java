@@ -0,0 +1,346 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Сжатый формат базового снимка: контакты упакованы в независимо сжатые блоки.
+ * <p>
+ * Файл устроен так же, как {@link BinaryStorage}, но записи сгруппированы в блоки
+ * по {@value #DEFAULT_BLOCK_CONTACTS} контактов, и каждый блок сжат Deflate (zlib,
+ * с контрольной суммой Adler-32):
+ * <ul>
+ *     <li>заголовок ({@value #HEADER_SIZE} байт): сигнатура, версия формата, флаги,
+ *     поколение снимка и предыдущее поколение, количество контактов, контактов в блоке</li>
+ *     <li>блоки: сжатая последовательность записей вида "длина тела (4 байта), тело
+ *     в формате {@link ContactCodec}"</li>
+ *     <li>индекс: для каждого блока смещение, сжатая и исходная длина
+ *     ({@value #BLOCK_ENTRY_SIZE} байт), затем id всех контактов (по 4 байта)
+ *     и трейлер {@link BinaryStorage#TRAILER_SIZE} байт — смещение индекса, флаги индекса и сигнатура</li>
+ * </ul>
+ * Номер блока контакта — номер строки, делённый на размер блока, поэтому для чтения
+ * одного контакта достаточно распаковать один блок (см. {@link MappedContactList}).
+ * Блоки сжимаются и распаковываются параллельно в общем пуле потоков.
+ * ФИО и заметки хорошо сжимаются, и файл получается в 2–3 раза меньше двоичного.
+ */
+public final class BlockStorage {
+
+    private static final Logger logger = LogManager.getLogger(BlockStorage.class);
+
+    /** Сигнатура файла ("PBKZ") */
+    public static final int MAGIC = 0x50424B5A;
+
+    /** Текущая версия формата */
+    public static final short VERSION = 1;
+
+    /** Размер заголовка файла */
+    public static final int HEADER_SIZE = 32;
+
+    /** Размер описания блока в индексе: смещение, сжатая длина, исходная длина */
+    public static final int BLOCK_ENTRY_SIZE = Long.BYTES + 2 * Integer.BYTES;
+
+    /** Количество контактов в блоке по умолчанию: около 20 КиБ до сжатия */
+    public static final int DEFAULT_BLOCK_CONTACTS = 256;
+
+    /** Уровень сжатия: файл на 8% больше, чем при уровне 6, но сжатие почти вдвое быстрее */
+    private static final int LEVEL = 3;
+
+    /** Количество блоков, сжимаемых или распаковываемых за один параллельный шаг */
+    private static final int BATCH_BLOCKS = 64;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private BlockStorage() {
+    }
+
+    /**
+     * Сжатый блок, готовый к записи.
+     */
+    private record Packed(byte[] data, int length, int rawLength) {
+    }
+
+    /**
+     * Проверяет, записан ли файл в сжатом формате.
+     *
+     * @param file файл базы
+     * @return true, если файл начинается с сигнатуры {@link #MAGIC}
+     * @throws IOException при ошибке чтения
+     */
+    public static boolean isBlockFile(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
+            return ch.read(buf, 0) == Integer.BYTES && buf.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Атомарно записывает снимок блоками по {@value #DEFAULT_BLOCK_CONTACTS} контактов.
+     *
+     * @param file файл базы
+     * @param contacts контакты в порядке списка
+     * @param generation поколение снимка
+     * @param previousGeneration поколение предыдущего снимка
+     * @throws IOException при ошибке записи
+     */
+    public static void write(Path file, List<Contact> contacts, long generation, long previousGeneration)
+            throws IOException {
+        write(file, contacts, generation, previousGeneration, DEFAULT_BLOCK_CONTACTS);
+    }
+
+    /**
+     * Атомарно записывает снимок: сначала во временный файл, затем переименованием.
+     *
+     * @param file файл базы
+     * @param contacts контакты в порядке списка
+     * @param generation поколение снимка
+     * @param previousGeneration поколение предыдущего снимка
+     * @param blockContacts количество контактов в блоке
+     * @throws IOException при ошибке записи
+     */
+    public static void write(Path file, List<Contact> contacts, long generation, long previousGeneration,
+                             int blockContacts) throws IOException {
+        if (blockContacts <= 0) throw new IllegalArgumentException("Размер блока должен быть положительным");
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = contacts.size();
+        int blocks = blockCount(count, blockContacts);
+        ByteBuffer index = ByteBuffer.allocate(blocks * BLOCK_ENTRY_SIZE + count * Integer.BYTES
+                + BinaryStorage.TRAILER_SIZE);
+        boolean sorted = true;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putLong(generation)
+                    .putLong(previousGeneration)
+                    .putInt(count)
+                    .putInt(blockContacts)
+                    .flip();
+            long offset = write(ch, header);
+
+            for (int from = 0; from < blocks; from += BATCH_BLOCKS) {
+                List<Packed> packed = IntStream.range(from, Math.min(blocks, from + BATCH_BLOCKS)).parallel()
+                        .mapToObj(b -> pack(contacts, b * blockContacts, Math.min(count, (b + 1) * blockContacts)))
+                        .toList();
+                for (Packed p : packed) {
+                    index.putLong(offset).putInt(p.length()).putInt(p.rawLength());
+                    offset += write(ch, ByteBuffer.wrap(p.data(), 0, p.length()));
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int id = contacts.get(i).id;
+                sorted &= i == 0 || index.getInt(index.position() - Integer.BYTES) < id;
+                index.putInt(id);
+            }
+            index.putLong(offset).putInt(sorted ? BinaryStorage.INDEX_IDS_SORTED : 0).putInt(MAGIC);
+            write(ch, index.flip());
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Записан сжатый снимок: {} контактов в {} блоках, {} байт", count, blocks, Files.size(file));
+    }
+
+    /**
+     * Читает снимок целиком, распаковывая блоки параллельно.
+     *
+     * @param file файл базы
+     * @return прочитанный снимок
+     * @throws IOException при ошибке чтения, неизвестной сигнатуре или версии, повреждённом блоке
+     */
+    public static Snapshot read(Path file) throws IOException {
+        long[] header = new long[2];
+        ArrayList<Contact> contacts = new ArrayList<>();
+        read(file, Integer.MAX_VALUE, new BinaryStorage.ChunkReader() {
+            @Override
+            public void start(long generation, long previousGeneration, int count) {
+                header[0] = generation;
+                header[1] = previousGeneration;
+                contacts.ensureCapacity(count);
+            }
+
+            @Override
+            public void chunk(List<Contact> chunk) {
+                contacts.addAll(chunk);
+            }
+        });
+        return new Snapshot(header[0], header[1], contacts);
+    }
+
+    /**
+     * Читает файл базы, передавая контакты порциями в порядке файла.
+     * Блоки распаковываются параллельно по {@value #BATCH_BLOCKS} за шаг.
+     *
+     * @param file файл базы
+     * @param chunkSize количество контактов в порции
+     * @param reader получатель заголовка и порций
+     * @throws IOException при ошибке чтения, неизвестном формате или повреждённом файле
+     */
+    public static void read(Path file, int chunkSize, BinaryStorage.ChunkReader reader) throws IOException {
+        try (Arena arena = Arena.ofShared();
+             FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment segment = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size(), arena);
+            long indexOffset = checkHeader(segment, file);
+            int count = segment.get(INT, 24);
+            int blockContacts = segment.get(INT, 28);
+            reader.start(segment.get(LONG, 8), segment.get(LONG, 16), count);
+
+            int blocks = blockCount(count, blockContacts);
+            List<Contact> chunk = new ArrayList<>(Math.min(chunkSize, count));
+            for (int from = 0; from < blocks; from += BATCH_BLOCKS) {
+                List<List<Contact>> decoded;
+                try {
+                    decoded = IntStream.range(from, Math.min(blocks, from + BATCH_BLOCKS)).parallel()
+                            .mapToObj(b -> {
+                                try {
+                                    return decodeBlock(segment, indexOffset, b, Math.min(blockContacts, count - b * blockContacts));
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            })
+                            .toList();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (List<Contact> block : decoded) {
+                    for (Contact c : block) {
+                        chunk.add(c);
+                        if (chunk.size() == chunkSize) {
+                            reader.chunk(chunk);
+                            chunk = new ArrayList<>(Math.min(chunkSize, count));
+                        }
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) reader.chunk(chunk);
+        }
+    }
+
+    /**
+     * Проверяет заголовок и трейлер отображённого файла.
+     *
+     * @return смещение индекса
+     */
+    static long checkHeader(MemorySegment segment, Path file) throws IOException {
+        if (segment.byteSize() < HEADER_SIZE + BinaryStorage.TRAILER_SIZE || segment.get(INT, 0) != MAGIC) {
+            throw new IOException("Файл не является сжатой базой: " + file);
+        }
+        short version = segment.get(ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN), 4);
+        if (version > VERSION) throw new IOException("Неподдерживаемая версия формата базы: " + version);
+        long trailer = segment.byteSize() - BinaryStorage.TRAILER_SIZE;
+        if (segment.get(INT, trailer + Long.BYTES + Integer.BYTES) != MAGIC) {
+            throw new IOException("Индекс блоков в файле базы повреждён: " + file);
+        }
+        return segment.get(LONG, trailer);
+    }
+
+    /**
+     * Распаковывает блок отображённого файла.
+     *
+     * @param segment отображённый файл
+     * @param indexOffset смещение индекса
+     * @param block номер блока
+     * @param count количество контактов в блоке
+     * @return контакты блока в порядке файла
+     * @throws IOException если блок повреждён
+     */
+    static List<Contact> decodeBlock(MemorySegment segment, long indexOffset, int block, int count)
+            throws IOException {
+        long entry = indexOffset + (long) block * BLOCK_ENTRY_SIZE;
+        long offset = segment.get(LONG, entry);
+        int length = segment.get(INT, entry + Long.BYTES);
+        int rawLength = segment.get(INT, entry + Long.BYTES + Integer.BYTES);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            // буфер над отображением закрываемой арены Inflater не принимает: сжатый блок копируется
+            inflater.setInput(segment.asSlice(offset, length).toArray(ValueLayout.JAVA_BYTE));
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int k = inflater.inflate(raw, n, rawLength - n);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += k;
+            }
+            if (n != rawLength || !inflater.finished()) throw new IOException("Блок " + block + " базы обрезан");
+        } catch (DataFormatException e) {
+            throw new IOException("Блок " + block + " базы повреждён: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        List<Contact> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int len = buf.getInt();
+            int end = buf.position() + len;
+            contacts.add(ContactCodec.read(buf));
+            buf.position(end);
+        }
+        return contacts;
+    }
+
+    /**
+     * Возвращает количество блоков для {@code count} контактов.
+     */
+    static int blockCount(int count, int blockContacts) {
+        return (int) (((long) count + blockContacts - 1) / blockContacts);
+    }
+
+    /**
+     * Кодирует и сжимает контакты с {@code from} по {@code to} (не включая).
+     */
+    private static Packed pack(List<Contact> contacts, int from, int to) {
+        int size = 0;
+        for (int i = from; i < to; i++) size += Integer.BYTES + ContactCodec.maxSize(contacts.get(i));
+        ByteBuffer raw = ByteBuffer.allocate(size);
+        for (int i = from; i < to; i++) {
+            int start = raw.position();
+            raw.putInt(0);
+            ContactCodec.write(raw, contacts.get(i));
+            raw.putInt(start, raw.position() - start - Integer.BYTES);
+        }
+        int rawLength = raw.position();
+        Deflater deflater = new Deflater(LEVEL);
+        try {
+            deflater.setInput(raw.array(), 0, rawLength);
+            deflater.finish();
+            byte[] out = new byte[rawLength / 2 + 64];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return new Packed(out, n, rawLength);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int write(FileChannel ch, ByteBuffer buf) throws IOException {
+        int n = buf.remaining();
+        while (buf.hasRemaining()) ch.write(buf);
+        return n;
+    }
+}
@@ -0,0 +1,338 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+import phonebook.model.ContactStore;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Список контактов порциями с неизменяемыми снимками без копирования.
+ * <p>
+ * Контакты хранятся в массивах-порциях до {@link #CHUNK} ссылок (при вставке в середину
+ * порция может вырасти вдвое и тогда делится), а каталог порций хранит номер первой
+ * строки каждой порции. {@link #snapshot()} отдаёт неизменяемое представление, которое
+ * разделяет со списком каталог и все порции. Следующее изменение копирует каталог
+ * (одна ссылка на {@value #CHUNK} контактов) и только изменяемую порцию, поэтому правка
+ * книги из миллиона контактов после снимка стоит копирования нескольких тысяч ссылок,
+ * а не всего списка. Дописывание в конец не копирует ничего.
+ * <p>
+ * Список изменяется только под блокировкой владельца; снимки можно читать из любого потока.
+ */
+public class ChunkedContactList extends AbstractList<Contact> implements RandomAccess, ContactStore {
+
+    /** Размер порции, до которого дописываются контакты в конец списка */
+    static final int CHUNK = 1024;
+
+    /** Порции; заполнены первые {@link #chunkCount} */
+    private Contact[][] chunks;
+
+    /** Номер первой строки каждой порции */
+    private int[] starts;
+
+    /** Метка владельца порции: порция принадлежит только этому списку, если метка равна {@link #epoch} */
+    private int[] owners;
+
+    private int chunkCount;
+    private int size;
+
+    /** Текущая эпоха; увеличивается при каждом снимке, после чего все порции считаются общими */
+    private int epoch = 1;
+
+    /** Разделяется ли каталог со снимком */
+    private boolean directoryShared;
+
+    /** Снимок: изменение запрещено */
+    private final boolean readOnly;
+
+    /**
+     * Создаёт пустой список.
+     */
+    public ChunkedContactList() {
+        chunks = new Contact[4][];
+        starts = new int[4];
+        owners = new int[4];
+        readOnly = false;
+    }
+
+    private ChunkedContactList(Contact[][] chunks, int[] starts, int chunkCount, int size) {
+        this.chunks = chunks;
+        this.starts = starts;
+        this.chunkCount = chunkCount;
+        this.size = size;
+        this.readOnly = true;
+    }
+
+    @Override
+    public List<Contact> snapshot() {
+        if (readOnly) return this;
+        directoryShared = true;
+        epoch++;
+        return new ChunkedContactList(chunks, starts, chunkCount, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Contact get(int row) {
+        Objects.checkIndex(row, size);
+        int k = chunkOf(row);
+        return chunks[k][row - starts[k]];
+    }
+
+    @Override
+    public Iterator<Contact> iterator() {
+        return new Iterator<>() {
+            private final int expected = modCount;
+            private int row;
+            private int k;
+            private int at;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Contact next() {
+                if (modCount != expected) throw new ConcurrentModificationException();
+                if (row >= size) throw new NoSuchElementException();
+                while (at >= chunkSize(k)) {
+                    k++;
+                    at = 0;
+                }
+                row++;
+                return chunks[k][at++];
+            }
+        };
+    }
+
+    @Override
+    public Contact set(int row, Contact c) {
+        checkWritable();
+        Objects.checkIndex(row, size);
+        int k = chunkOf(row);
+        Contact[] chunk = own(k, chunkSize(k));
+        int at = row - starts[k];
+        Contact old = chunk[at];
+        chunk[at] = c;
+        return old;
+    }
+
+    @Override
+    public void add(int row, Contact c) {
+        checkWritable();
+        Objects.checkIndex(row, size + 1);
+        if (row == size) {
+            append(c);
+            modCount++;
+            return;
+        }
+        int k = chunkOf(row);
+        int n = chunkSize(k);
+        Contact[] chunk = own(k, n + 1);
+        int at = row - starts[k];
+        System.arraycopy(chunk, at, chunk, at + 1, n - at);
+        chunk[at] = c;
+        size++;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]++;
+        if (n + 1 >= 2 * CHUNK) split(k);
+        modCount++;
+    }
+
+    @Override
+    public Contact remove(int row) {
+        checkWritable();
+        Objects.checkIndex(row, size);
+        int k = chunkOf(row);
+        int n = chunkSize(k);
+        Contact[] chunk = own(k, n);
+        int at = row - starts[k];
+        Contact old = chunk[at];
+        System.arraycopy(chunk, at + 1, chunk, at, n - at - 1);
+        chunk[n - 1] = null;
+        size--;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]--;
+        if (n == 1) deleteChunk(k);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void removeRows(BitSet rows) {
+        checkWritable();
+        int first = rows.nextSetBit(0);
+        if (first < 0 || first >= size) return;
+        ownDirectory();
+        int w = chunkOf(first);
+        int newSize = starts[w];
+        int oldCount = chunkCount;
+        for (int k = w; k < oldCount; k++) {
+            int start = starts[k];
+            int n = chunkSize(k); // каталог до k ещё не переписан дальше позиции w <= k
+            Contact[] src = chunks[k];
+            int owner = owners[k];
+            int next = rows.nextSetBit(start);
+            if (next < 0 || next >= start + n) {
+                chunks[w] = src;
+                owners[w] = owner;
+                starts[w++] = newSize;
+                newSize += n;
+                continue;
+            }
+            Contact[] dst = owner == epoch ? src : new Contact[src.length];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (!rows.get(start + i)) dst[m++] = src[i];
+            }
+            if (dst == src) Arrays.fill(src, m, n, null);
+            if (m == 0) continue;
+            chunks[w] = dst;
+            owners[w] = epoch;
+            starts[w++] = newSize;
+            newSize += m;
+        }
+        Arrays.fill(chunks, w, oldCount, null);
+        chunkCount = w;
+        size = newSize;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        chunks = new Contact[4][];
+        starts = new int[4];
+        owners = new int[4];
+        chunkCount = 0;
+        size = 0;
+        directoryShared = false;
+        modCount++;
+    }
+
+    /**
+     * Дописывает контакт в конец списка.
+     * <p>
+     * Снимки не читают строки за своим концом, а место за концом каталога и последней
+     * порции изменяется только дописыванием, поэтому запись туда не требует копирования.
+     */
+    private void append(Contact c) {
+        int k = chunkCount - 1;
+        int n = k < 0 ? CHUNK : chunkSize(k);
+        if (n >= CHUNK || n >= chunks[k].length) {
+            if (chunkCount == chunks.length) {
+                int cap = chunkCount * 2;
+                chunks = Arrays.copyOf(chunks, cap);
+                starts = Arrays.copyOf(starts, cap);
+                owners = Arrays.copyOf(owners, cap);
+                directoryShared = false;
+            }
+            k = chunkCount++;
+            chunks[k] = new Contact[CHUNK];
+            starts[k] = size;
+            owners[k] = epoch;
+            n = 0;
+        }
+        chunks[k][n] = c;
+        size++;
+    }
+
+    /**
+     * Ищет порцию, содержащую строку.
+     */
+    private int chunkOf(int row) {
+        int lo = 0, hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= row) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private int chunkSize(int k) {
+        return (k + 1 < chunkCount ? starts[k + 1] : size) - starts[k];
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Снимок списка контактов нельзя изменять");
+    }
+
+    /**
+     * Копирует каталог, если он разделяется со снимком.
+     */
+    private void ownDirectory() {
+        if (!directoryShared) return;
+        chunks = chunks.clone();
+        starts = starts.clone();
+        owners = owners.clone();
+        directoryShared = false;
+    }
+
+    /**
+     * Возвращает порцию для изменения: копирует её, если она разделяется со снимком
+     * или в ней меньше {@code capacity} мест.
+     */
+    private Contact[] own(int k, int capacity) {
+        ownDirectory();
+        Contact[] chunk = chunks[k];
+        if (owners[k] != epoch || chunk.length < capacity) {
+            int length = chunk.length >= capacity ? chunk.length : Math.max(capacity, Math.min(chunk.length * 2, 2 * CHUNK));
+            chunk = Arrays.copyOf(chunk, length);
+            chunks[k] = chunk;
+            owners[k] = epoch;
+        }
+        return chunk;
+    }
+
+    /**
+     * Вставляет в каталог порцию на позицию {@code k}.
+     */
+    private void newChunk(int k, Contact[] chunk, int start) {
+        ownDirectory();
+        if (chunkCount == chunks.length) {
+            int cap = chunkCount * 2;
+            chunks = Arrays.copyOf(chunks, cap);
+            starts = Arrays.copyOf(starts, cap);
+            owners = Arrays.copyOf(owners, cap);
+        }
+        System.arraycopy(chunks, k, chunks, k + 1, chunkCount - k);
+        System.arraycopy(starts, k, starts, k + 1, chunkCount - k);
+        System.arraycopy(owners, k, owners, k + 1, chunkCount - k);
+        chunks[k] = chunk;
+        starts[k] = start;
+        owners[k] = epoch;
+        chunkCount++;
+    }
+
+    private void deleteChunk(int k) {
+        ownDirectory();
+        System.arraycopy(chunks, k + 1, chunks, k, chunkCount - k - 1);
+        System.arraycopy(starts, k + 1, starts, k, chunkCount - k - 1);
+        System.arraycopy(owners, k + 1, owners, k, chunkCount - k - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    /**
+     * Делит переполненную порцию пополам.
+     */
+    private void split(int k) {
+        int n = chunkSize(k);
+        int half = n / 2;
+        Contact[] chunk = chunks[k];
+        Contact[] upper = new Contact[CHUNK * 2];
+        System.arraycopy(chunk, half, upper, 0, n - half);
+        Arrays.fill(chunk, half, n, null);
+        newChunk(k + 1, upper, starts[k] + half);
+    }
+}
@@ -0,0 +1,266 @@
+package phonebook.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Последовательность {@code int} порциями с неизменяемыми снимками без копирования.
+ * <p>
+ * Устроена как {@link ChunkedContactList}: порции до {@link #CHUNK} значений (при вставке
+ * в середину порция может вырасти вдвое и тогда делится), каталог хранит номер первого
+ * значения каждой порции. После {@link #snapshot()} изменение копирует каталог и только
+ * изменяемую порцию. Снимок изменять нельзя.
+ */
+final class ChunkedIntList {
+
+    /** Размер порции, до которого дописываются значения в конец */
+    static final int CHUNK = 1024;
+
+    /** Порции; заполнены первые {@link #chunkCount} */
+    private int[][] chunks;
+
+    /** Номер первого значения каждой порции */
+    private int[] starts;
+
+    /** Метка владельца порции: порция принадлежит только этой последовательности, если метка равна {@link #epoch} */
+    private int[] owners;
+
+    private int chunkCount;
+    private int size;
+
+    /** Текущая эпоха; увеличивается при каждом снимке, после чего все порции считаются общими */
+    private int epoch = 1;
+
+    /** Разделяется ли каталог со снимком */
+    private boolean directoryShared;
+
+    ChunkedIntList() {
+        chunks = new int[4][];
+        starts = new int[4];
+        owners = new int[4];
+    }
+
+    private ChunkedIntList(int[][] chunks, int[] starts, int chunkCount, int size) {
+        this.chunks = chunks;
+        this.starts = starts;
+        this.chunkCount = chunkCount;
+        this.size = size;
+    }
+
+    /**
+     * Создаёт последовательность 0, 1, ..., {@code n - 1}.
+     */
+    static ChunkedIntList range(int n) {
+        ChunkedIntList list = new ChunkedIntList();
+        for (int i = 0; i < n; i++) list.append(i);
+        return list;
+    }
+
+    /**
+     * Возвращает неизменяемое представление, разделяющее порции с последовательностью.
+     */
+    ChunkedIntList snapshot() {
+        directoryShared = true;
+        epoch++;
+        return new ChunkedIntList(chunks, starts, chunkCount, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        Objects.checkIndex(index, size);
+        int k = chunkOf(index);
+        return chunks[k][index - starts[k]];
+    }
+
+    void set(int index, int value) {
+        Objects.checkIndex(index, size);
+        int k = chunkOf(index);
+        own(k, chunkSize(k))[index - starts[k]] = value;
+    }
+
+    void add(int index, int value) {
+        Objects.checkIndex(index, size + 1);
+        if (index == size) {
+            append(value);
+            return;
+        }
+        int k = chunkOf(index);
+        int n = chunkSize(k);
+        int[] chunk = own(k, n + 1);
+        int at = index - starts[k];
+        System.arraycopy(chunk, at, chunk, at + 1, n - at);
+        chunk[at] = value;
+        size++;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]++;
+        if (n + 1 >= 2 * CHUNK) split(k);
+    }
+
+    /**
+     * Удаляет значение и возвращает его.
+     */
+    int remove(int index) {
+        Objects.checkIndex(index, size);
+        int k = chunkOf(index);
+        int n = chunkSize(k);
+        int[] chunk = own(k, n);
+        int at = index - starts[k];
+        int old = chunk[at];
+        System.arraycopy(chunk, at + 1, chunk, at, n - at - 1);
+        size--;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]--;
+        if (n == 1) deleteChunk(k);
+        return old;
+    }
+
+    /**
+     * Удаляет отмеченные позиции за один проход: порции без удалённых позиций
+     * только переносятся в каталоге.
+     */
+    void removeRows(BitSet rows) {
+        int first = rows.nextSetBit(0);
+        if (first < 0 || first >= size) return;
+        ownDirectory();
+        int w = chunkOf(first);
+        int newSize = starts[w];
+        int oldCount = chunkCount;
+        for (int k = w; k < oldCount; k++) {
+            int start = starts[k];
+            int n = chunkSize(k); // каталог до k ещё не переписан дальше позиции w <= k
+            int[] src = chunks[k];
+            int owner = owners[k];
+            int next = rows.nextSetBit(start);
+            if (next < 0 || next >= start + n) {
+                chunks[w] = src;
+                owners[w] = owner;
+                starts[w++] = newSize;
+                newSize += n;
+                continue;
+            }
+            int[] dst = owner == epoch ? src : new int[src.length];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (!rows.get(start + i)) dst[m++] = src[i];
+            }
+            if (m == 0) continue;
+            chunks[w] = dst;
+            owners[w] = epoch;
+            starts[w++] = newSize;
+            newSize += m;
+        }
+        Arrays.fill(chunks, w, oldCount, null);
+        chunkCount = w;
+        size = newSize;
+    }
+
+    /**
+     * Заменяет каждое значение результатом функции, по порядку.
+     */
+    void replaceAll(IntUnaryOperator f) {
+        for (int k = 0; k < chunkCount; k++) {
+            int n = chunkSize(k);
+            int[] chunk = own(k, n);
+            for (int i = 0; i < n; i++) chunk[i] = f.applyAsInt(chunk[i]);
+        }
+    }
+
+    /**
+     * Дописывает значение в конец. Снимки не читают значения за своим концом,
+     * поэтому запись туда не требует копирования.
+     */
+    private void append(int value) {
+        int k = chunkCount - 1;
+        int n = k < 0 ? CHUNK : chunkSize(k);
+        if (n >= CHUNK || n >= chunks[k].length) {
+            if (chunkCount == chunks.length) {
+                int cap = chunkCount * 2;
+                chunks = Arrays.copyOf(chunks, cap);
+                starts = Arrays.copyOf(starts, cap);
+                owners = Arrays.copyOf(owners, cap);
+                directoryShared = false;
+            }
+            k = chunkCount++;
+            chunks[k] = new int[CHUNK];
+            starts[k] = size;
+            owners[k] = epoch;
+            n = 0;
+        }
+        chunks[k][n] = value;
+        size++;
+    }
+
+    private int chunkOf(int index) {
+        int lo = 0, hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= index) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private int chunkSize(int k) {
+        return (k + 1 < chunkCount ? starts[k + 1] : size) - starts[k];
+    }
+
+    private void ownDirectory() {
+        if (!directoryShared) return;
+        chunks = chunks.clone();
+        starts = starts.clone();
+        owners = owners.clone();
+        directoryShared = false;
+    }
+
+    /**
+     * Возвращает порцию для изменения: копирует её, если она разделяется со снимком
+     * или в ней меньше {@code capacity} мест.
+     */
+    private int[] own(int k, int capacity) {
+        ownDirectory();
+        int[] chunk = chunks[k];
+        if (owners[k] != epoch || chunk.length < capacity) {
+            int length = chunk.length >= capacity ? chunk.length : Math.max(capacity, Math.min(chunk.length * 2, 2 * CHUNK));
+            chunk = Arrays.copyOf(chunk, length);
+            chunks[k] = chunk;
+            owners[k] = epoch;
+        }
+        return chunk;
+    }
+
+    private void newChunk(int k, int[] chunk, int start) {
+        ownDirectory();
+        if (chunkCount == chunks.length) {
+            int cap = chunkCount * 2;
+            chunks = Arrays.copyOf(chunks, cap);
+            starts = Arrays.copyOf(starts, cap);
+            owners = Arrays.copyOf(owners, cap);
+        }
+        System.arraycopy(chunks, k, chunks, k + 1, chunkCount - k);
+        System.arraycopy(starts, k, starts, k + 1, chunkCount - k);
+        System.arraycopy(owners, k, owners, k + 1, chunkCount - k);
+        chunks[k] = chunk;
+        starts[k] = start;
+        owners[k] = epoch;
+        chunkCount++;
+    }
+
+    private void deleteChunk(int k) {
+        ownDirectory();
+        System.arraycopy(chunks, k + 1, chunks, k, chunkCount - k - 1);
+        System.arraycopy(starts, k + 1, starts, k, chunkCount - k - 1);
+        System.arraycopy(owners, k + 1, owners, k, chunkCount - k - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    private void split(int k) {
+        int n = chunkSize(k);
+        int half = n / 2;
+        int[] upper = new int[CHUNK * 2];
+        System.arraycopy(chunks[k], half, upper, 0, n - half);
+        newChunk(k + 1, upper, starts[k] + half);
+    }
+}
@@ -0,0 +1,645 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+import phonebook.model.ContactRows;
+import phonebook.model.ContactStore;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Список контактов, хранящийся по столбцам (struct-of-arrays).
+ * <p>
+ * Вместо объектов {@link Contact} со строками и списками телефонов хранятся плоские столбцы:
+ * <ul>
+ *     <li>строки по {@value #ROW_BYTES} байт: id контакта ({@code int}), ссылки на ФИО и заметку
+ *     в общей области текста UTF-8 (смещение и длина в одном {@code long}) и диапазон телефонов
+ *     строки в общем столбце телефонов ({@code long});</li>
+ *     <li>телефоны ({@code long} на номер: каноническая форма {@link PhoneNumber#getPacked()}
+ *     или ссылка на исходную запись в области текста) и их типы ({@code byte} на номер).</li>
+ * </ul>
+ * Столбцы — сегменты памяти {@link MemorySegment}: в куче (поверх массивов {@code long[]})
+ * или вне кучи. Во втором случае данные книги почти не нагружают сборщик мусора.
+ * Строки хранятся порциями до {@value #CHUNK} строк с каталогом первых строк порций,
+ * как в {@link ChunkedContactList}.
+ * <p>
+ * {@link #get(int)} каждый раз собирает новый {@link Contact}; для таблицы значения
+ * столбцов отдаются напрямую через {@link ContactRows}. При изменении и удалении старые
+ * строки и телефоны остаются в областях как мусор; когда мусора становится больше половины,
+ * области переписываются заново.
+ * <p>
+ * {@link #snapshot()} отдаёт неизменяемое представление, разделяющее столбцы со списком.
+ * Области текста и телефонов только дописываются (уплотнение пишет в новые области),
+ * поэтому их снимок разделяет без копирования. Из строк первое после снимка изменение
+ * копирует каталог и только изменяемую порцию, поэтому правка не зависит от размера книги.
+ * Дописывание в конец ничего не копирует.
+ */
+public class ColumnarContactList extends AbstractList<Contact> implements RandomAccess, ContactRows, ContactStore {
+
+    private static final Logger logger = LogManager.getLogger(ColumnarContactList.class);
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private static final PhoneType[] TYPES = PhoneType.values();
+
+    /** Размер порции строк, до которого дописываются контакты в конец списка */
+    static final int CHUNK = 1024;
+
+    /** Строка порции: id, ссылки на ФИО и заметку, диапазон телефонов */
+    static final long ROW_BYTES = Integer.BYTES + 3L * Long.BYTES;
+    private static final long ID = 0;
+    private static final long NAME = Integer.BYTES;
+    private static final long NOTE = NAME + Long.BYTES;
+    /** Диапазон телефонов строки: начало в старших битах, количество в младших */
+    private static final long RANGE = NOTE + Long.BYTES;
+
+    /** Ссылка на строку: смещение в области текста в старших битах, длина в младших */
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+
+    /** Ссылка на отсутствующую строку (null) */
+    private static final long NULL_REF = -1;
+
+    /** Размер области, после которого имеет смысл переписывать её ради мусора */
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    /** Хранить ли столбцы вне кучи */
+    private final boolean offHeap;
+
+    /** Порции строк по {@link #ROW_BYTES} байт; заполнены первые {@link #chunkCount} */
+    private MemorySegment[] chunks;
+    /** Номер первой строки каждой порции */
+    private int[] starts;
+    /** Метка владельца порции: порция принадлежит только этому списку, если метка равна {@link #epoch} */
+    private int[] owners;
+    private int chunkCount;
+    private int size;
+
+    /** Текущая эпоха; увеличивается при каждом снимке, после чего все порции считаются общими */
+    private int epoch = 1;
+
+    /** Разделяется ли каталог порций со снимком */
+    private boolean directoryShared;
+
+    /** Телефоны: каноническая форма (больше 0) или инвертированная ссылка на запись в области текста */
+    private MemorySegment phones;
+    /** Типы телефонов */
+    private MemorySegment types;
+    private long phoneCapacity;
+    private long phoneCount;
+    private long phoneGarbage;
+
+    /** Область текста UTF-8 */
+    private MemorySegment text;
+    private long textCapacity;
+    private long textSize;
+    private long textGarbage;
+
+    /** Снимок: изменение запрещено */
+    private final boolean readOnly;
+
+    /**
+     * Создаёт пустой список.
+     *
+     * @param offHeap хранить столбцы вне кучи
+     */
+    public ColumnarContactList(boolean offHeap) {
+        this(offHeap, 16);
+    }
+
+    /**
+     * Создаёт пустой список с заданной начальной ёмкостью.
+     *
+     * @param offHeap хранить столбцы вне кучи
+     * @param capacity ожидаемое количество контактов
+     */
+    public ColumnarContactList(boolean offHeap, int capacity) {
+        this.offHeap = offHeap;
+        this.readOnly = false;
+        allocateAll(capacity);
+    }
+
+    /**
+     * Создаёт неизменяемое представление списка (см. {@link #snapshot()}).
+     */
+    private ColumnarContactList(ColumnarContactList from) {
+        offHeap = from.offHeap;
+        readOnly = true;
+        chunks = from.chunks;
+        starts = from.starts;
+        chunkCount = from.chunkCount;
+        size = from.size;
+        phones = from.phones;
+        types = from.types;
+        phoneCapacity = from.phoneCapacity;
+        phoneCount = from.phoneCount;
+        text = from.text;
+        textCapacity = from.textCapacity;
+        textSize = from.textSize;
+    }
+
+    private void allocateAll(int capacity) {
+        capacity = Math.max(16, capacity);
+        int directory = Math.max(4, capacity / CHUNK + 1);
+        chunks = new MemorySegment[directory];
+        starts = new int[directory];
+        owners = new int[directory];
+        chunkCount = 0;
+        directoryShared = false;
+        phoneCapacity = capacity;
+        phones = allocate(phoneCapacity * Long.BYTES);
+        types = allocate(phoneCapacity);
+        textCapacity = capacity * 32L;
+        text = allocate(textCapacity);
+    }
+
+    /**
+     * Проверяет, хранятся ли столбцы вне кучи.
+     *
+     * @return true для хранения вне кучи
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Возвращает объём памяти, выделенной под столбцы (вместе с запасом и мусором).
+     *
+     * @return количество байт
+     */
+    public long allocatedBytes() {
+        long bytes = phones.byteSize() + types.byteSize() + text.byteSize();
+        for (int k = 0; k < chunkCount; k++) bytes += chunks[k].byteSize();
+        return bytes;
+    }
+
+    @Override
+    public List<Contact> snapshot() {
+        if (readOnly) return this;
+        directoryShared = true;
+        epoch++;
+        return new ColumnarContactList(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Contact get(int row) {
+        MemorySegment r = row(row);
+        Contact c = Contact.restore(r.get(INT, ID), string(r.get(LONG, NAME)), string(r.get(LONG, NOTE)));
+        long range = r.get(LONG, RANGE);
+        long start = range >>> LENGTH_BITS;
+        int count = (int) (range & LENGTH_MASK);
+        for (int i = 0; i < count; i++) c.addPhone(phone(start + i));
+        return c;
+    }
+
+    @Override
+    public String fullNameAt(int row) {
+        return string(row(row).get(LONG, NAME));
+    }
+
+    @Override
+    public String noteAt(int row) {
+        return string(row(row).get(LONG, NOTE));
+    }
+
+    @Override
+    public String phonesAt(int row) {
+        long range = row(row).get(LONG, RANGE);
+        long start = range >>> LENGTH_BITS;
+        int count = (int) (range & LENGTH_MASK);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append("; ");
+            sb.append(phone(start + i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Возвращает id контакта строки, не собирая контакт.
+     *
+     * @param row индекс строки
+     * @return id контакта
+     */
+    @Override
+    public int idAt(int row) {
+        return row(row).get(INT, ID);
+    }
+
+    @Override
+    public Contact set(int row, Contact c) {
+        checkWritable();
+        Contact old = get(row);
+        int k = chunkOf(row);
+        MemorySegment r = record(own(k, chunkSize(k)), row - starts[k]);
+        release(r);
+        writeRow(r, c);
+        compactIfNeeded();
+        return old;
+    }
+
+    @Override
+    public void add(int row, Contact c) {
+        checkWritable();
+        Objects.checkIndex(row, size + 1);
+        if (row == size) {
+            append(c);
+            modCount++;
+            return;
+        }
+        int k = chunkOf(row);
+        int n = chunkSize(k);
+        MemorySegment chunk = own(k, n + 1);
+        int at = row - starts[k];
+        shift(chunk, at, at + 1, n - at);
+        writeRow(record(chunk, at), c);
+        size++;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]++;
+        if (n + 1 >= 2 * CHUNK) split(k);
+        modCount++;
+    }
+
+    @Override
+    public Contact remove(int row) {
+        checkWritable();
+        Contact old = get(row);
+        int k = chunkOf(row);
+        int n = chunkSize(k);
+        MemorySegment chunk = own(k, n);
+        int at = row - starts[k];
+        release(record(chunk, at));
+        shift(chunk, at + 1, at, n - at - 1);
+        size--;
+        for (int j = k + 1; j < chunkCount; j++) starts[j]--;
+        if (n == 1) deleteChunk(k);
+        modCount++;
+        compactIfNeeded();
+        return old;
+    }
+
+    /**
+     * Удаляет отмеченные строки за один проход: порции без удалённых строк
+     * только переносятся в каталоге, остальные переписываются.
+     *
+     * @param rows номера удаляемых строк
+     */
+    @Override
+    public void removeRows(BitSet rows) {
+        checkWritable();
+        int first = rows.nextSetBit(0);
+        if (first < 0 || first >= size) return;
+        ownDirectory();
+        int w = chunkOf(first);
+        int newSize = starts[w];
+        int oldCount = chunkCount;
+        for (int k = w; k < oldCount; k++) {
+            int start = starts[k];
+            int n = chunkSize(k); // каталог до k ещё не переписан дальше позиции w <= k
+            MemorySegment src = chunks[k];
+            int owner = owners[k];
+            int next = rows.nextSetBit(start);
+            if (next < 0 || next >= start + n) {
+                chunks[w] = src;
+                owners[w] = owner;
+                starts[w++] = newSize;
+                newSize += n;
+                continue;
+            }
+            MemorySegment dst = owner == epoch ? src : allocate(src.byteSize());
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (rows.get(start + i)) {
+                    release(record(src, i));
+                } else {
+                    if (dst != src || m != i) shift(src, dst, i, m, 1);
+                    m++;
+                }
+            }
+            if (m == 0) continue;
+            chunks[w] = dst;
+            owners[w] = epoch;
+            starts[w++] = newSize;
+            newSize += m;
+        }
+        Arrays.fill(chunks, w, oldCount, null);
+        chunkCount = w;
+        size = newSize;
+        modCount++;
+        compactIfNeeded();
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        // области могут разделяться со снимком, поэтому не переиспользуются
+        allocateAll(16);
+        size = 0;
+        phoneCount = phoneGarbage = 0;
+        textSize = textGarbage = 0;
+        modCount++;
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Снимок списка контактов нельзя изменять");
+    }
+
+    /**
+     * Возвращает запись строки для чтения.
+     */
+    private MemorySegment row(int row) {
+        Objects.checkIndex(row, size);
+        int k = chunkOf(row);
+        return record(chunks[k], row - starts[k]);
+    }
+
+    private static MemorySegment record(MemorySegment chunk, int at) {
+        return chunk.asSlice(at * ROW_BYTES, ROW_BYTES);
+    }
+
+    /**
+     * Дописывает контакт в конец списка.
+     * <p>
+     * Снимки не читают строки за своим концом, а место за концом каталога и последней
+     * порции изменяется только дописыванием, поэтому запись туда не требует копирования.
+     */
+    private void append(Contact c) {
+        int k = chunkCount - 1;
+        int n = k < 0 ? CHUNK : chunkSize(k);
+        if (n >= CHUNK || n >= capacityOf(chunks[k])) {
+            if (chunkCount == chunks.length) {
+                int cap = chunkCount * 2;
+                chunks = Arrays.copyOf(chunks, cap);
+                starts = Arrays.copyOf(starts, cap);
+                owners = Arrays.copyOf(owners, cap);
+                directoryShared = false;
+            }
+            k = chunkCount++;
+            chunks[k] = allocate(CHUNK * ROW_BYTES);
+            starts[k] = size;
+            owners[k] = epoch;
+            n = 0;
+        }
+        writeRow(record(chunks[k], n), c);
+        size++;
+    }
+
+    /**
+     * Ищет порцию, содержащую строку.
+     */
+    private int chunkOf(int row) {
+        int lo = 0, hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= row) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private int chunkSize(int k) {
+        return (k + 1 < chunkCount ? starts[k + 1] : size) - starts[k];
+    }
+
+    private static int capacityOf(MemorySegment chunk) {
+        return (int) (chunk.byteSize() / ROW_BYTES);
+    }
+
+    /**
+     * Копирует каталог порций, если он разделяется со снимком.
+     */
+    private void ownDirectory() {
+        if (!directoryShared) return;
+        chunks = chunks.clone();
+        starts = starts.clone();
+        owners = owners.clone();
+        directoryShared = false;
+    }
+
+    /**
+     * Возвращает порцию для изменения: копирует её, если она разделяется со снимком
+     * или в ней меньше {@code capacity} строк.
+     */
+    private MemorySegment own(int k, int capacity) {
+        ownDirectory();
+        MemorySegment chunk = chunks[k];
+        int length = capacityOf(chunk);
+        if (owners[k] != epoch || length < capacity) {
+            if (length < capacity) length = Math.max(capacity, Math.min(length * 2, 2 * CHUNK));
+            chunk = grow(chunk, length * ROW_BYTES, chunkSize(k) * ROW_BYTES);
+            chunks[k] = chunk;
+            owners[k] = epoch;
+        }
+        return chunk;
+    }
+
+    /**
+     * Вставляет в каталог порцию на позицию {@code k}.
+     */
+    private void newChunk(int k, MemorySegment chunk, int start) {
+        ownDirectory();
+        if (chunkCount == chunks.length) {
+            int cap = chunkCount * 2;
+            chunks = Arrays.copyOf(chunks, cap);
+            starts = Arrays.copyOf(starts, cap);
+            owners = Arrays.copyOf(owners, cap);
+        }
+        System.arraycopy(chunks, k, chunks, k + 1, chunkCount - k);
+        System.arraycopy(starts, k, starts, k + 1, chunkCount - k);
+        System.arraycopy(owners, k, owners, k + 1, chunkCount - k);
+        chunks[k] = chunk;
+        starts[k] = start;
+        owners[k] = epoch;
+        chunkCount++;
+    }
+
+    private void deleteChunk(int k) {
+        ownDirectory();
+        System.arraycopy(chunks, k + 1, chunks, k, chunkCount - k - 1);
+        System.arraycopy(starts, k + 1, starts, k, chunkCount - k - 1);
+        System.arraycopy(owners, k + 1, owners, k, chunkCount - k - 1);
+        chunks[--chunkCount] = null;
+    }
+
+    /**
+     * Делит переполненную порцию пополам.
+     */
+    private void split(int k) {
+        int n = chunkSize(k);
+        int half = n / 2;
+        MemorySegment upper = allocate(2 * CHUNK * ROW_BYTES);
+        shift(chunks[k], upper, half, 0, n - half);
+        newChunk(k + 1, upper, starts[k] + half);
+    }
+
+    private void writeRow(MemorySegment r, Contact c) {
+        r.set(INT, ID, c.id);
+        r.set(LONG, NAME, putString(c.fullName));
+        r.set(LONG, NOTE, putString(c.note));
+        int count = c.getPhones().size();
+        ensurePhones(phoneCount + count);
+        long start = phoneCount;
+        for (PhoneNumber p : c.getPhones()) {
+            phones.setAtIndex(LONG, phoneCount, p.isCanonical() ? p.getPacked() : ~putString(p.getNumber()));
+            types.set(BYTE, phoneCount, (byte) p.type.ordinal());
+            phoneCount++;
+        }
+        r.set(LONG, RANGE, start << LENGTH_BITS | count);
+    }
+
+    /**
+     * Учитывает строки и телефоны строки как мусор перед её заменой или удалением.
+     */
+    private void release(MemorySegment r) {
+        textGarbage += length(r.get(LONG, NAME)) + length(r.get(LONG, NOTE));
+        long range = r.get(LONG, RANGE);
+        long start = range >>> LENGTH_BITS;
+        int count = (int) (range & LENGTH_MASK);
+        for (int i = 0; i < count; i++) {
+            long v = phones.getAtIndex(LONG, start + i);
+            if (v < 0) textGarbage += length(~v);
+        }
+        phoneGarbage += count;
+    }
+
+    private PhoneNumber phone(long index) {
+        long v = phones.getAtIndex(LONG, index);
+        PhoneType type = TYPES[types.get(BYTE, index)];
+        return v > 0 ? PhoneNumber.restore(v, type) : PhoneNumber.restore(string(~v), type);
+    }
+
+    private long putString(String s) {
+        if (s == null) return NULL_REF;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > LENGTH_MASK) throw new IllegalArgumentException("Слишком длинная строка: " + bytes.length + " байт");
+        ensureText(textSize + bytes.length);
+        MemorySegment.copy(bytes, 0, text, BYTE, textSize, bytes.length);
+        long ref = textSize << LENGTH_BITS | bytes.length;
+        textSize += bytes.length;
+        return ref;
+    }
+
+    private String string(long ref) {
+        if (ref == NULL_REF) return null;
+        int len = (int) (ref & LENGTH_MASK);
+        if (len == 0) return "";
+        byte[] bytes = new byte[len];
+        MemorySegment.copy(text, BYTE, ref >>> LENGTH_BITS, bytes, 0, len);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long length(long ref) {
+        return ref == NULL_REF ? 0 : ref & LENGTH_MASK;
+    }
+
+    private static void shift(MemorySegment chunk, int from, int to, int count) {
+        shift(chunk, chunk, from, to, count);
+    }
+
+    private static void shift(MemorySegment src, MemorySegment dst, int from, int to, int count) {
+        if (count <= 0) return;
+        MemorySegment.copy(src, from * ROW_BYTES, dst, to * ROW_BYTES, count * ROW_BYTES);
+    }
+
+    private void ensurePhones(long need) {
+        if (need <= phoneCapacity) return;
+        long next = Math.max(need, phoneCapacity + (phoneCapacity >> 1));
+        phones = grow(phones, next * Long.BYTES, phoneCount * Long.BYTES);
+        types = grow(types, next, phoneCount);
+        phoneCapacity = next;
+    }
+
+    private void ensureText(long need) {
+        if (need <= textCapacity) return;
+        long next = Math.max(need, textCapacity + (textCapacity >> 1));
+        text = grow(text, next, textSize);
+        textCapacity = next;
+    }
+
+    private MemorySegment grow(MemorySegment old, long bytes, long used) {
+        MemorySegment next = allocate(bytes);
+        MemorySegment.copy(old, 0, next, 0, used);
+        return next;
+    }
+
+    /**
+     * Выделяет сегмент: вне кучи (освобождается сборщиком вместе с последней ссылкой)
+     * или в куче поверх массива {@code long[]}.
+     */
+    private MemorySegment allocate(long bytes) {
+        if (offHeap) return Arena.ofAuto().allocate(Math.max(bytes, 1), Long.BYTES);
+        long words = (bytes + Long.BYTES - 1) / Long.BYTES;
+        if (words > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("Столбец не помещается в массив: " + bytes + " байт");
+        return MemorySegment.ofArray(new long[(int) Math.max(words, 1)]);
+    }
+
+    /**
+     * Переписывает область текста и столбец телефонов, если в них больше половины мусора.
+     */
+    private void compactIfNeeded() {
+        boolean textFull = textSize > MIN_COMPACTION_BYTES && textGarbage > textSize / 2;
+        boolean phonesFull = phoneCount * Long.BYTES > MIN_COMPACTION_BYTES && phoneGarbage > phoneCount / 2;
+        if (!textFull && !phonesFull) return;
+
+        long start = System.nanoTime();
+        MemorySegment oldText = text, oldPhones = phones, oldTypes = types;
+        long liveText = textSize - textGarbage, livePhones = phoneCount - phoneGarbage;
+        textCapacity = Math.max(liveText + (liveText >> 2), 1024);
+        phoneCapacity = Math.max(livePhones + (livePhones >> 2), 16);
+        text = allocate(textCapacity);
+        phones = allocate(phoneCapacity * Long.BYTES);
+        types = allocate(phoneCapacity);
+        textSize = textGarbage = phoneCount = phoneGarbage = 0;
+
+        for (int k = 0; k < chunkCount; k++) {
+            int n = chunkSize(k);
+            MemorySegment chunk = own(k, n);
+            for (int at = 0; at < n; at++) {
+                MemorySegment r = record(chunk, at);
+                r.set(LONG, NAME, moveString(oldText, r.get(LONG, NAME)));
+                r.set(LONG, NOTE, moveString(oldText, r.get(LONG, NOTE)));
+                long range = r.get(LONG, RANGE);
+                long from = range >>> LENGTH_BITS;
+                int count = (int) (range & LENGTH_MASK);
+                long to = phoneCount;
+                for (int i = 0; i < count; i++) {
+                    long v = oldPhones.getAtIndex(LONG, from + i);
+                    phones.setAtIndex(LONG, phoneCount, v > 0 ? v : ~moveString(oldText, ~v));
+                    types.set(BYTE, phoneCount, oldTypes.get(BYTE, from + i));
+                    phoneCount++;
+                }
+                r.set(LONG, RANGE, to << LENGTH_BITS | count);
+            }
+        }
+        logger.debug("Столбцы контактов уплотнены за {} мс: текст {} байт, телефонов {}",
+                (System.nanoTime() - start) / 1_000_000, textSize, phoneCount);
+    }
+
+    private long moveString(MemorySegment from, long ref) {
+        if (ref == NULL_REF) return ref;
+        int len = (int) (ref & LENGTH_MASK);
+        MemorySegment.copy(from, ref >>> LENGTH_BITS, text, textSize, len);
+        long moved = textSize << LENGTH_BITS | len;
+        textSize += len;
+        return moved;
+    }
+}
@@ -0,0 +1,170 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Компактное двоичное представление контакта.
+ * <p>
+ * Формат тела записи:
+ * <ul>
+ *     <li>id контакта (4 байта)</li>
+ *     <li>ФИО и заметка: длина (varint) и байты UTF-8</li>
+ *     <li>количество телефонов (varint)</li>
+ *     <li>для каждого телефона: тип (ordinal, 1 байт), заголовок номера (varint)
+ *     и сам номер — упакованные по две цифры в байт (BCD), если номер состоит только
+ *     из цифр и, возможно, ведущего '+', иначе байты UTF-8</li>
+ * </ul>
+ * Используется и базовым снимком {@link BinaryStorage}, и журналом {@link ContactJournal}.
+ */
+public final class ContactCodec {
+
+    /** Флаг заголовка номера: цифры упакованы BCD */
+    private static final int PACKED = 1;
+
+    /** Флаг заголовка номера: номер начинается с '+' */
+    private static final int PLUS = 2;
+
+    private static final PhoneType[] TYPES = PhoneType.values();
+
+    private ContactCodec() {
+    }
+
+    /**
+     * Оценивает сверху размер закодированного контакта.
+     *
+     * @param c контакт
+     * @return максимальное количество байт, которое займёт запись
+     */
+    public static int maxSize(Contact c) {
+        int size = Integer.BYTES + 2 * 5 + 5 + utf8Bound(c.fullName) + utf8Bound(c.note);
+        for (PhoneNumber p : c.getPhones()) size += 1 + 5 + utf8Bound(p.getNumber());
+        return size;
+    }
+
+    /**
+     * Записывает контакт в буфер.
+     *
+     * @param buf буфер с достаточным свободным местом (см. {@link #maxSize(Contact)})
+     * @param c контакт
+     * @throws BufferOverflowException если места недостаточно
+     */
+    public static void write(ByteBuffer buf, Contact c) {
+        buf.putInt(c.id);
+        writeString(buf, c.fullName);
+        writeString(buf, c.note);
+        writeVarInt(buf, c.getPhones().size());
+        for (PhoneNumber p : c.getPhones()) {
+            buf.put((byte) p.type.ordinal());
+            writeNumber(buf, p.getNumber());
+        }
+    }
+
+    /**
+     * Читает контакт из буфера с текущей позиции.
+     *
+     * @param buf буфер
+     * @return декодированный контакт
+     */
+    public static Contact read(ByteBuffer buf) {
+        int id = buf.getInt();
+        String fullName = readString(buf);
+        Contact c = Contact.restore(id, fullName, readString(buf));
+        int phones = readVarInt(buf);
+        for (int i = 0; i < phones; i++) {
+            PhoneType type = TYPES[buf.get()];
+            c.addPhone(PhoneNumber.restore(readNumber(buf), type));
+        }
+        return c;
+    }
+
+    private static void writeNumber(ByteBuffer buf, String number) {
+        int start = number.startsWith("+") ? 1 : 0;
+        int digits = number.length() - start;
+        boolean packable = digits > 0;
+        for (int i = start; i < number.length() && packable; i++) {
+            char ch = number.charAt(i);
+            packable = ch >= '0' && ch <= '9';
+        }
+        if (!packable) {
+            writeString(buf, number);
+            return;
+        }
+
+        writeVarInt(buf, digits << 2 | PACKED | (start == 1 ? PLUS : 0));
+        for (int i = start; i < number.length(); i += 2) {
+            int hi = number.charAt(i) - '0';
+            int lo = i + 1 < number.length() ? number.charAt(i + 1) - '0' : 0;
+            buf.put((byte) (hi << 4 | lo));
+        }
+    }
+
+    private static String readNumber(ByteBuffer buf) {
+        int header = readVarInt(buf);
+        if ((header & PACKED) == 0) return readUtf8(buf, header >>> 2);
+
+        int digits = header >>> 2;
+        char[] out = new char[digits + ((header & PLUS) != 0 ? 1 : 0)];
+        int pos = 0;
+        if ((header & PLUS) != 0) out[pos++] = '+';
+        for (int i = 0; i < digits; i += 2) {
+            int b = buf.get() & 0xFF;
+            out[pos++] = (char) ('0' + (b >>> 4));
+            if (i + 1 < digits) out[pos++] = (char) ('0' + (b & 0x0F));
+        }
+        return new String(out);
+    }
+
+    /**
+     * Строки пишутся как заголовок (длина &lt;&lt; 2) и байты UTF-8; младшие биты
+     * заголовка нулевые, что отличает их от упакованных номеров.
+     */
+    private static void writeString(ByteBuffer buf, String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buf, b.length << 2);
+        buf.put(b);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        return readUtf8(buf, readVarInt(buf) >>> 2);
+    }
+
+    private static String readUtf8(ByteBuffer buf, int len) {
+        String s;
+        if (buf.hasArray()) {
+            s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+            buf.position(buf.position() + len);
+        } else {
+            byte[] b = new byte[len];
+            buf.get(b);
+            s = new String(b, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    static void writeVarInt(ByteBuffer buf, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    static int readVarInt(ByteBuffer buf) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    private static int utf8Bound(String s) {
+        return s == null ? 0 : s.length() * 3;
+    }
+}
@@ -0,0 +1,246 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Журнал изменений телефонной книги (write-ahead log).
+ * <p>
+ * Вместо полной перезаписи базы при каждом сохранении в журнал дописываются
+ * только записи о добавлении, изменении и удалении контактов. Формат файла:
+ * <ul>
+ *     <li>заголовок: сигнатура и поколение базового снимка, к которому относится журнал</li>
+ *     <li>записи: длина, CRC32 и тело (операция и контакт в формате {@link ContactCodec})</li>
+ * </ul>
+ * Повреждённая или недописанная последняя запись (например, после сбоя питания)
+ * отбрасывается при воспроизведении. Записи идемпотентны: добавление и изменение
+ * заменяют контакт целиком, поэтому повторное применение журнала к более новому
+ * снимку даёт то же состояние.
+ */
+public class ContactJournal {
+
+    private static final Logger logger = LogManager.getLogger(ContactJournal.class);
+
+    /** Операция добавления контакта */
+    public static final byte OP_ADD = 1;
+
+    /** Операция изменения контакта */
+    public static final byte OP_UPDATE = 2;
+
+    /** Операция удаления контакта */
+    public static final byte OP_REMOVE = 3;
+
+    /** Сигнатура файла журнала ("PBJ2") */
+    private static final int MAGIC = 0x50424A32;
+
+    /** Размер заголовка: сигнатура + поколение */
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    /** Размер служебной части записи: длина + CRC32 */
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Integer.BYTES;
+
+    /** Файл журнала */
+    private final File file;
+
+    /**
+     * Конструктор журнала.
+     *
+     * @param file файл журнала
+     */
+    public ContactJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Возвращает файл журнала.
+     *
+     * @return файл журнала
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Возвращает текущий размер журнала в байтах.
+     *
+     * @return размер файла или 0, если журнала нет
+     */
+    public long size() {
+        return file.length();
+    }
+
+    /**
+     * Кодирует одну запись журнала.
+     *
+     * @param op операция ({@link #OP_ADD}, {@link #OP_UPDATE}, {@link #OP_REMOVE})
+     * @param c контакт, к которому относится операция
+     * @return тело записи
+     */
+    public static byte[] encode(byte op, Contact c) {
+        if (op == OP_REMOVE) {
+            return ByteBuffer.allocate(1 + Integer.BYTES).put(op).putInt(c.id).array();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(1 + ContactCodec.maxSize(c));
+        buf.put(op);
+        ContactCodec.write(buf, c);
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    /**
+     * Дописывает записи в конец журнала и сбрасывает их на диск.
+     *
+     * @param records тела записей, полученные через {@link #encode(byte, Contact)}
+     * @throws IOException при ошибке записи
+     */
+    public void append(List<byte[]> records) throws IOException {
+        if (records.isEmpty()) return;
+        int total = 0;
+        for (byte[] r : records) total += RECORD_OVERHEAD + r.length;
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] r : records) {
+            crc.reset();
+            crc.update(r);
+            buf.putInt(r.length).putInt((int) crc.getValue()).put(r);
+        }
+        buf.flip();
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        logger.debug("В журнал дописано {} записей ({} байт)", records.size(), total);
+    }
+
+    /**
+     * Атомарно пересоздаёт журнал для нового поколения базового снимка.
+     *
+     * @param generation поколение снимка
+     * @param tail записи, которые нужно сохранить в новом журнале (уже с длиной и CRC)
+     * @throws IOException при ошибке записи
+     */
+    public void reset(long generation, byte[] tail) throws IOException {
+        Path target = file.toPath();
+        Path tmp = target.resolveSibling(file.getName() + ".tmp");
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + tail.length);
+        buf.putInt(MAGIC).putLong(generation).put(tail).flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Журнал пересоздан для поколения {} ({} байт перенесено)", generation, tail.length);
+    }
+
+    /**
+     * Читает сырые записи журнала начиная с заданной позиции.
+     *
+     * @param position смещение в файле (не меньше размера заголовка)
+     * @return байты записей от позиции до конца файла
+     * @throws IOException при ошибке чтения
+     */
+    public byte[] readFrom(long position) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long from = Math.max(position, HEADER_SIZE);
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.max(0, ch.size() - from));
+            while (buf.hasRemaining() && ch.read(buf, from + buf.position()) >= 0) { }
+            return buf.array();
+        }
+    }
+
+    /**
+     * Воспроизводит журнал поверх состояния, загруженного из базового снимка.
+     * <p>
+     * Журнал применяется, только если он относится к поколению снимка
+     * или к предыдущему поколению (сбой между заменой снимка и журнала).
+     *
+     * @param generation поколение снимка
+     * @param previousGeneration предыдущее поколение снимка
+     * @param state контакты по id в порядке списка; изменяется на месте
+     * @return количество применённых записей
+     * @throws IOException при ошибке чтения
+     */
+    public int replay(long generation, long previousGeneration, Map<Integer, Contact> state) throws IOException {
+        return replay(generation, previousGeneration, state, false);
+    }
+
+    /**
+     * Читает итоговые изменения из журнала, не применяя их к снимку.
+     * <p>
+     * Используется при ленивой загрузке, когда контакты снимка не декодируются целиком.
+     *
+     * @param generation поколение снимка
+     * @param previousGeneration предыдущее поколение снимка
+     * @return последняя версия каждого затронутого контакта по id в порядке первого упоминания;
+     *         для удалённых контактов значение null
+     * @throws IOException при ошибке чтения
+     */
+    public Map<Integer, Contact> readChanges(long generation, long previousGeneration) throws IOException {
+        Map<Integer, Contact> changes = new LinkedHashMap<>();
+        replay(generation, previousGeneration, changes, true);
+        return changes;
+    }
+
+    private int replay(long generation, long previousGeneration, Map<Integer, Contact> state, boolean keepRemoved)
+            throws IOException {
+        if (!file.exists()) return 0;
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC) {
+            logger.warn("Файл журнала повреждён и будет проигнорирован: {}", file.getAbsolutePath());
+            return 0;
+        }
+        long journalGeneration = buf.getLong();
+        if (journalGeneration != generation && journalGeneration != previousGeneration) {
+            logger.warn("Журнал относится к другому снимку базы и будет проигнорирован: {}", file.getAbsolutePath());
+            return 0;
+        }
+
+        int applied = 0;
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= RECORD_OVERHEAD) {
+            int len = buf.getInt();
+            int sum = buf.getInt();
+            if (len < 0 || len > buf.remaining()) break;
+            crc.reset();
+            crc.update(data, buf.position(), len);
+            if ((int) crc.getValue() != sum) break;
+            apply(ByteBuffer.wrap(data, buf.position(), len), state, keepRemoved);
+            buf.position(buf.position() + len);
+            applied++;
+        }
+        if (buf.hasRemaining()) {
+            logger.warn("Хвост журнала повреждён, отброшено {} байт", buf.remaining());
+        }
+        logger.info("Из журнала применено {} записей", applied);
+        return applied;
+    }
+
+    private static void apply(ByteBuffer rec, Map<Integer, Contact> state, boolean keepRemoved) {
+        byte op = rec.get();
+        if (op == OP_REMOVE) {
+            int id = rec.getInt();
+            if (keepRemoved) state.put(id, null);
+            else state.remove(id);
+            return;
+        }
+        Contact c = ContactCodec.read(rec);
+        state.put(c.id, c); // замена существующего ключа сохраняет позицию контакта
+    }
+}
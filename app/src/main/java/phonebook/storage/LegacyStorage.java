@@ -0,0 +1,59 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Чтение базы в старом формате Java-сериализации.
+ * <p>
+ * Оставлено только для однократной миграции: после загрузки такой файл
+ * перезаписывается в формате {@link BinaryStorage}.
+ */
+public final class LegacyStorage {
+
+    /** Сигнатура потока {@link ObjectOutputStream} */
+    private static final short STREAM_MAGIC = (short) 0xACED;
+
+    private LegacyStorage() {
+    }
+
+    /**
+     * Проверяет, записан ли файл через {@link ObjectOutputStream}.
+     *
+     * @param file файл базы
+     * @return true, если файл в старом формате
+     * @throws IOException при ошибке чтения
+     */
+    public static boolean isLegacy(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return file.toFile().length() >= 2 && in.readShort() == STREAM_MAGIC;
+        }
+    }
+
+    /**
+     * Читает сериализованный список контактов.
+     * <p>
+     * Поддерживает как исходный формат (только список), так и формат
+     * с заголовком поколений перед списком.
+     *
+     * @param file файл базы
+     * @return прочитанный снимок
+     * @throws IOException при ошибке чтения или неизвестном содержимом
+     */
+    @SuppressWarnings("unchecked")
+    public static Snapshot read(Path file) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Object head = ois.readObject();
+            if (head instanceof long[] header) {
+                return new Snapshot(header[0], header[1], (List<Contact>) ois.readObject());
+            }
+            return new Snapshot(0, 0, (List<Contact>) head);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Неизвестный формат файла базы: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+import phonebook.model.ContactStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Список контактов поверх отображённого в память файла {@link BinaryStorage} или {@link BlockStorage}.
+ * <p>
+ * При открытии читаются только заголовок и трейлер файла; сами записи декодируются
+ * при первом обращении к строке через {@link #get(int)} и хранятся в ограниченном
+ * кэше последних прочитанных строк. Поэтому время открытия не зависит от размера книги.
+ * В сжатом файле при обращении к строке распаковывается только её блок, и в кэш
+ * попадают все контакты блока: соседние строки при прокрутке уже декодированы.
+ * <p>
+ * Список изменяемый: добавленные и изменённые контакты хранятся в памяти отдельно,
+ * а порядок строк описывается ссылками {@link ChunkedIntList}, которые создаются
+ * при первом изменении.
+ * <p>
+ * {@link #snapshot()} разделяет со списком отображение, кэш, контакты в памяти
+ * (видимые снимку не перезаписываются) и ссылки; изменение после снимка копирует
+ * только порцию ссылок, в которую попадает строка. Контакт, ещё не попавший в снимок, при повторном изменении
+ * заменяется на месте; вытесненные версии убираются, когда их становится больше живых,
+ * поэтому память растёт с количеством изменённых контактов, а не правок.
+ */
+public class MappedContactList extends AbstractList<Contact> implements RandomAccess, ContactStore {
+
+    private static final Logger logger = LogManager.getLogger(MappedContactList.class);
+
+    /** Размер кэша декодированных строк по умолчанию */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Отображённый в память файл снимка */
+    private final MemorySegment file;
+
+    /** Смещение индекса записей в файле */
+    private final long indexOffset;
+
+    /** Смещение массива id контактов в индексе */
+    private final long idsOffset;
+
+    /** Контактов в блоке сжатого файла; 0 — файл не сжат */
+    private final int blockContacts;
+
+    /** Количество записей в снимке */
+    private final int baseCount;
+
+    /** Возрастают ли id в индексе (тогда поиск по id — двоичный) */
+    private final boolean idsSorted;
+
+    private final long generation;
+    private final long previousGeneration;
+
+    /**
+     * Строки списка: неотрицательное значение — номер записи снимка,
+     * отрицательное -(i + 1) — контакт {@code overlay[i]}.
+     * null, пока строки совпадают с записями снимка.
+     */
+    private ChunkedIntList refs;
+
+    /** Количество строк */
+    private int size;
+
+    /** Контакты, добавленные или изменённые после открытия; заполнены первые {@link #overlayCount} */
+    private Contact[] overlay = new Contact[16];
+    private int overlayCount;
+
+    /** Сколько первых контактов {@link #overlay} видно снимкам; их нельзя перезаписывать */
+    private int overlayPublished;
+
+    /** Сколько контактов {@link #overlay} ещё входит в список; остальные — вытесненные версии */
+    private int overlayLive;
+
+    /** Вытесненных версий, при которых {@link #overlay} уплотняется, не меньше */
+    private static final int MIN_COMPACT = 1024;
+
+    /** Снимок: изменение запрещено */
+    private final boolean readOnly;
+
+    /** Кэш декодированных записей снимка по номеру записи */
+    private final Map<Integer, Contact> cache;
+
+    private MappedContactList(MemorySegment file, long indexOffset, int blockContacts, int baseCount,
+                              boolean idsSorted, long generation, long previousGeneration, int cacheSize) {
+        this.file = file;
+        this.indexOffset = indexOffset;
+        this.blockContacts = blockContacts;
+        this.idsOffset = indexOffset + (blockContacts > 0
+                ? (long) BlockStorage.blockCount(baseCount, blockContacts) * BlockStorage.BLOCK_ENTRY_SIZE
+                : (long) baseCount * Long.BYTES);
+        this.baseCount = baseCount;
+        this.idsSorted = idsSorted;
+        this.generation = generation;
+        this.previousGeneration = previousGeneration;
+        this.size = baseCount;
+        this.readOnly = false;
+        this.cache = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Contact> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Создаёт неизменяемое представление списка (см. {@link #snapshot()}).
+     */
+    private MappedContactList(MappedContactList from, ChunkedIntList refs) {
+        file = from.file;
+        indexOffset = from.indexOffset;
+        idsOffset = from.idsOffset;
+        blockContacts = from.blockContacts;
+        baseCount = from.baseCount;
+        idsSorted = from.idsSorted;
+        generation = from.generation;
+        previousGeneration = from.previousGeneration;
+        cache = from.cache;
+        this.refs = refs;
+        size = from.size;
+        overlay = from.overlay;
+        overlayCount = from.overlayCount;
+        readOnly = true;
+    }
+
+    /**
+     * Отображает файл снимка в память.
+     *
+     * @param path файл в формате {@link BinaryStorage} или {@link BlockStorage}
+     * @param cacheSize максимальное количество декодированных строк в кэше
+     * @return список или null, если в файле нет индекса записей (файл версии 1)
+     * @throws IOException при ошибке чтения или неизвестном формате
+     */
+    public static MappedContactList open(Path path, int cacheSize) throws IOException {
+        MemorySegment file;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Arena.ofAuto: отображение освобождается сборщиком мусора вместе со списком
+            file = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size(), Arena.ofAuto());
+        }
+        if (file.byteSize() >= Integer.BYTES && file.get(INT, 0) == BlockStorage.MAGIC) {
+            long indexOffset = BlockStorage.checkHeader(file, path);
+            long trailer = file.byteSize() - BinaryStorage.TRAILER_SIZE;
+            MappedContactList list = new MappedContactList(file, indexOffset,
+                    file.get(INT, 28),
+                    file.get(INT, 24),
+                    (file.get(INT, trailer + Long.BYTES) & BinaryStorage.INDEX_IDS_SORTED) != 0,
+                    file.get(LONG, 8),
+                    file.get(LONG, 16),
+                    cacheSize);
+            logger.debug("Сжатый файл базы отображён в память: {} записей, {} байт", list.baseCount, file.byteSize());
+            return list;
+        }
+        if (file.byteSize() < BinaryStorage.HEADER_SIZE || file.get(INT, 0) != BinaryStorage.MAGIC) {
+            throw new IOException("Файл не является двоичной базой: " + path);
+        }
+        short flags = file.get(ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN), 6);
+        if ((flags & BinaryStorage.FLAG_INDEX) == 0) return null;
+
+        long trailer = file.byteSize() - BinaryStorage.TRAILER_SIZE;
+        if (file.get(INT, trailer + Long.BYTES + Integer.BYTES) != BinaryStorage.MAGIC) {
+            throw new IOException("Индекс записей в файле базы повреждён: " + path);
+        }
+        MappedContactList list = new MappedContactList(file,
+                file.get(LONG, trailer),
+                0,
+                file.get(INT, 24),
+                (file.get(INT, trailer + Long.BYTES) & BinaryStorage.INDEX_IDS_SORTED) != 0,
+                file.get(LONG, 8),
+                file.get(LONG, 16),
+                cacheSize);
+        logger.debug("Файл базы отображён в память: {} записей, {} байт", list.baseCount, file.byteSize());
+        return list;
+    }
+
+    /**
+     * Возвращает поколение снимка.
+     *
+     * @return поколение из заголовка файла
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Возвращает предыдущее поколение снимка.
+     *
+     * @return предыдущее поколение из заголовка файла
+     */
+    public long previousGeneration() {
+        return previousGeneration;
+    }
+
+    /**
+     * Применяет изменения из журнала (см. {@link ContactJournal#readChanges(long, long)}).
+     * Вызывается сразу после {@link #open(Path, int)}, до любых других изменений списка.
+     *
+     * @param changes последние версии контактов по id; null — контакт удалён
+     */
+    public void applyChanges(Map<Integer, Contact> changes) {
+        checkWritable();
+        if (changes.isEmpty()) return;
+        materialize();
+        List<Contact> appended = new ArrayList<>();
+        BitSet removed = new BitSet(); // строки ещё совпадают с записями снимка
+        for (Map.Entry<Integer, Contact> e : changes.entrySet()) {
+            int rec = findRecord(e.getKey());
+            Contact c = e.getValue();
+            if (rec >= 0) {
+                if (c == null) removed.set(rec);
+                else refs.set(rec, pin(c, refs.get(rec)));
+            } else if (c != null) {
+                appended.add(c);
+            }
+        }
+        refs.removeRows(removed);
+        size = refs.size();
+        for (Contact c : appended) add(c);
+        modCount++;
+    }
+
+    /**
+     * Возвращает наибольший id среди контактов списка.
+     *
+     * @return наибольший id или 0, если список пуст
+     */
+    public int maxId() {
+        int max = 0;
+        if (idsSorted) {
+            if (baseCount > 0) max = recordId(baseCount - 1);
+        } else {
+            for (int rec = 0; rec < baseCount; rec++) max = Math.max(max, recordId(rec));
+        }
+        for (int i = 0; i < overlayCount; i++) max = Math.max(max, overlay[i].id);
+        return max;
+    }
+
+    /**
+     * Возвращает количество контактов, хранимых в памяти, включая вытесненные версии,
+     * которые ещё не убраны.
+     *
+     * @return размер массива контактов в памяти
+     */
+    public int overlaySize() {
+        return overlayCount;
+    }
+
+    @Override
+    public List<Contact> snapshot() {
+        if (readOnly) return this;
+        if (overlayCount - overlayLive >= Math.max(MIN_COMPACT, overlayLive)) compactOverlay();
+        overlayPublished = overlayCount;
+        return new MappedContactList(this, refs == null ? null : refs.snapshot());
+    }
+
+    @Override
+    public Contact get(int index) {
+        Objects.checkIndex(index, size);
+        int ref = refs == null ? index : refs.get(index);
+        return ref < 0 ? overlay[-ref - 1] : decode(ref);
+    }
+
+    /**
+     * Возвращает id контакта строки; для записи снимка берётся из индекса файла без декодирования.
+     *
+     * @param index индекс строки
+     * @return id контакта
+     */
+    @Override
+    public int idAt(int index) {
+        Objects.checkIndex(index, size);
+        int ref = refs == null ? index : refs.get(index);
+        return ref < 0 ? overlay[-ref - 1].id : recordId(ref);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Contact set(int index, Contact c) {
+        checkWritable();
+        Contact old = get(index);
+        materialize();
+        refs.set(index, pin(c, refs.get(index)));
+        return old;
+    }
+
+    @Override
+    public void add(int index, Contact c) {
+        checkWritable();
+        Objects.checkIndex(index, size + 1);
+        materialize();
+        refs.add(index, pin(c, 0));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Contact remove(int index) {
+        checkWritable();
+        Contact old = get(index);
+        materialize();
+        if (refs.remove(index) < 0) overlayLive--;
+        size--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Удаляет отмеченные строки за один проход.
+     *
+     * @param rows номера удаляемых строк
+     */
+    @Override
+    public void removeRows(BitSet rows) {
+        checkWritable();
+        int first = rows.nextSetBit(0);
+        if (first < 0 || first >= size) return;
+        materialize();
+        for (int r = first; r >= 0 && r < size; r = rows.nextSetBit(r + 1)) {
+            if (refs.get(r) < 0) overlayLive--;
+        }
+        refs.removeRows(rows);
+        size = refs.size();
+        modCount++;
+    }
+
+    /**
+     * Декодирует запись снимка, используя кэш.
+     */
+    private Contact decode(int rec) {
+        synchronized (cache) {
+            Contact c = cache.get(rec);
+            if (c == null && blockContacts > 0) return decodeBlock(rec);
+            if (c == null) {
+                long offset = file.get(LONG, indexOffset + (long) rec * Long.BYTES);
+                int len = file.get(INT, offset);
+                c = ContactCodec.read(file.asSlice(offset + Integer.BYTES, len).asByteBuffer());
+                cache.put(rec, c);
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Распаковывает блок сжатого файла с записью {@code rec} и кладёт все его контакты в кэш.
+     * Вызывается под блокировкой кэша.
+     */
+    private Contact decodeBlock(int rec) {
+        int block = rec / blockContacts;
+        int first = block * blockContacts;
+        List<Contact> decoded;
+        try {
+            decoded = BlockStorage.decodeBlock(file, indexOffset, block, Math.min(blockContacts, baseCount - first));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < decoded.size(); i++) {
+            if (first + i != rec) cache.put(first + i, decoded.get(i));
+        }
+        // запрошенная запись кладётся последней, чтобы не вытесниться при маленьком кэше
+        Contact c = decoded.get(rec - first);
+        cache.put(rec, c);
+        return c;
+    }
+
+    private int recordId(int rec) {
+        return file.get(INT, idsOffset + (long) rec * Integer.BYTES);
+    }
+
+    /**
+     * Ищет запись снимка по id контакта.
+     *
+     * @return номер записи или -1
+     */
+    private int findRecord(int id) {
+        if (idsSorted) {
+            int lo = 0, hi = baseCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int midId = recordId(mid);
+                if (midId < id) lo = mid + 1;
+                else if (midId > id) hi = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+        for (int rec = 0; rec < baseCount; rec++) {
+            if (recordId(rec) == id) return rec;
+        }
+        return -1;
+    }
+
+    /**
+     * Сохраняет контакт в памяти и возвращает ссылку на него.
+     *
+     * @param c контакт
+     * @param replaced прежняя ссылка строки; неотрицательная — строка не ссылалась на контакт в памяти
+     */
+    private int pin(Contact c, int replaced) {
+        if (replaced < 0) {
+            int i = -replaced - 1;
+            // снимки читают только первые overlayPublished элементов: более поздний можно заменить
+            if (i >= overlayPublished) {
+                overlay[i] = c;
+                return replaced;
+            }
+            overlayLive--;
+        }
+        if (overlayCount == overlay.length) overlay = Arrays.copyOf(overlay, overlayCount * 2);
+        overlay[overlayCount++] = c;
+        overlayLive++;
+        return -overlayCount;
+    }
+
+    /**
+     * Переносит контакты в памяти, на которые ссылаются строки, в новый массив без вытесненных
+     * версий. Прежние массивы остаются у снимков.
+     */
+    private void compactOverlay() {
+        Contact[] live = new Contact[Math.max(16, overlayLive * 2)];
+        int[] n = {0};
+        refs.replaceAll(ref -> {
+            if (ref >= 0) return ref;
+            live[n[0]] = overlay[-ref - 1];
+            return -++n[0];
+        });
+        logger.debug("Уплотнены контакты в памяти: {} -> {}", overlayCount, n[0]);
+        overlay = live;
+        overlayCount = n[0];
+        overlayLive = n[0];
+        overlayPublished = 0;
+    }
+
+    /**
+     * Создаёт ссылки на строки перед первым изменением.
+     */
+    private void materialize() {
+        if (refs == null) refs = ChunkedIntList.range(size);
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Снимок списка контактов нельзя изменять");
+    }
+}
@@ -0,0 +1,506 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Файл базы из записей фиксированного заголовка с обновлением на месте.
+ * <p>
+ * В отличие от пары {@link BinaryStorage} + {@link ContactJournal}, где изменения
+ * дописываются в журнал, здесь каждый контакт занимает собственный слот файла,
+ * и сохранение перезаписывает только изменённые контакты:
+ * <ul>
+ *     <li>заголовок файла ({@value #HEADER_SIZE} байт): сигнатура, версия формата, флаги</li>
+ *     <li>слот: заголовок записи ({@value #RECORD_HEADER_SIZE} байт) — вместимость тела,
+ *     длина тела (0 — слот свободен), id, CRC32 тела, порядковый номер контакта в списке
+ *     и номер сохранения — и тело в формате {@link ContactCodec} с запасом для роста</li>
+ * </ul>
+ * Изменённый контакт, который помещается в свой слот, перезаписывается на месте;
+ * иначе он переносится в подходящий свободный слот или в конец файла. Новые контакты
+ * занимают свободные слоты или дописываются в конец, удалённые освобождают слот.
+ * Свободные слоты учитываются в памяти (по вместимости) и восстанавливаются при открытии
+ * файла; доля свободного места — {@link #fragmentation()} — показывает, когда файл
+ * пора переписать заново через {@link #create(Path, List)}.
+ * <p>
+ * Запись, повреждённая сбоем посреди сохранения, распознаётся по CRC и пропускается
+ * при открытии. Прежний слот перенесённого контакта освобождается только после того, как
+ * новая копия сброшена на диск, и не занимается тем же сохранением; если сбой случился
+ * между этими шагами, побеждает копия с бо́льшим номером сохранения. Методы не потокобезопасны:
+ * модель вызывает их из одного потока сохранения.
+ */
+public final class RecordStorage {
+
+    private static final Logger logger = LogManager.getLogger(RecordStorage.class);
+
+    /** Сигнатура файла ("PBKR") */
+    public static final int MAGIC = 0x50424B52;
+
+    /** Текущая версия формата */
+    public static final short VERSION = 1;
+
+    /** Размер заголовка файла */
+    public static final int HEADER_SIZE = 16;
+
+    /** Размер заголовка записи: вместимость, длина, id, CRC32, порядковый номер, номер сохранения */
+    public static final int RECORD_HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+    /** Выравнивание вместимости слота */
+    private static final int ALIGN = 16;
+
+    /** Размер буфера ввода-вывода */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** Файл базы */
+    private final Path file;
+
+    /** Смещение слота по id контакта (0 — контакта нет в файле) */
+    private long[] offsetById = new long[1024];
+
+    /** Вместимость тела слота по id контакта */
+    private int[] capacityById = new int[1024];
+
+    /** Порядковый номер контакта в списке по id */
+    private long[] orderById = new long[1024];
+
+    /** Свободные слоты: вместимость → смещения */
+    private final TreeMap<Integer, ArrayDeque<Long>> free = new TreeMap<>();
+
+    /** Суммарный размер свободных слотов вместе с заголовками */
+    private long freeBytes;
+
+    /** Конец файла: сюда дописываются новые слоты */
+    private long end = HEADER_SIZE;
+
+    /** Порядковый номер для следующего нового контакта */
+    private long nextOrder;
+
+    /** Номер следующего сохранения */
+    private long nextStamp = 1;
+
+    /**
+     * Итог сохранения изменений.
+     *
+     * @param inPlace контактов, перезаписанных в своём слоте
+     * @param relocated контактов, перенесённых в другой слот (не поместились или новые в свободном слоте)
+     * @param appended слотов, дописанных в конец файла
+     * @param removed освобождённых слотов
+     * @param bytes записано байт
+     */
+    public record WriteStats(int inPlace, int relocated, int appended, int removed, long bytes) {
+    }
+
+    /**
+     * Открытый файл и прочитанные из него контакты.
+     *
+     * @param storage файл для последующих сохранений
+     * @param contacts контакты в порядке списка
+     */
+    public record Loaded(RecordStorage storage, List<Contact> contacts) {
+    }
+
+    private RecordStorage(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Проверяет, записан ли файл в этом формате.
+     *
+     * @param file файл базы
+     * @return true, если файл начинается с сигнатуры {@link #MAGIC}
+     * @throws IOException при ошибке чтения
+     */
+    public static boolean isRecordFile(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
+            return ch.read(buf, 0) == Integer.BYTES && buf.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Атомарно записывает файл заново: каждый контакт — в слот с запасом, без свободных слотов.
+     *
+     * @param file файл базы
+     * @param contacts контакты в порядке списка
+     * @return файл для последующих сохранений
+     * @throws IOException при ошибке записи
+     */
+    public static RecordStorage create(Path file, List<Contact> contacts) throws IOException {
+        RecordStorage storage = new RecordStorage(file);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            buf.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(0);
+            long written = 0;
+            for (Contact c : contacts) {
+                int need = RECORD_HEADER_SIZE + slack(ContactCodec.maxSize(c));
+                if (buf.remaining() < need) {
+                    written += drain(ch, buf);
+                    if (buf.capacity() < need) buf = ByteBuffer.allocate(need);
+                }
+                int start = buf.position();
+                buf.position(start + RECORD_HEADER_SIZE);
+                ContactCodec.write(buf, c);
+                int length = buf.position() - start - RECORD_HEADER_SIZE;
+                int capacity = slack(length);
+                crc.reset();
+                crc.update(buf.array(), start + RECORD_HEADER_SIZE, length);
+                putHeader(buf, start, capacity, length, c.id, (int) crc.getValue(), storage.nextOrder++, 0);
+                Arrays.fill(buf.array(), buf.position(), start + RECORD_HEADER_SIZE + capacity, (byte) 0);
+                buf.position(start + RECORD_HEADER_SIZE + capacity);
+                storage.place(c.id, written + start, capacity, storage.nextOrder - 1);
+            }
+            written += drain(ch, buf);
+            storage.end = written;
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Записан файл записей: {} контактов, {} байт", contacts.size(), storage.end);
+        return storage;
+    }
+
+    /**
+     * Читает файл целиком и восстанавливает учёт свободных слотов.
+     *
+     * @param file файл базы
+     * @return файл для последующих сохранений и контакты в порядке списка
+     * @throws IOException при ошибке чтения, неизвестной сигнатуре или версии
+     */
+    public static Loaded open(Path file) throws IOException {
+        RecordStorage storage = new RecordStorage(file);
+        List<Contact> contacts = new ArrayList<>();
+        long[] orders = new long[1024];
+        long[] stamps = new long[1024];
+        int[] rowById = new int[1024];
+        int skipped = 0;
+        CRC32 crc = new CRC32();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = fill(ch, ByteBuffer.allocate(BUFFER_SIZE).flip(), HEADER_SIZE);
+            if (buf.getInt() != MAGIC) throw new IOException("Файл не является файлом записей: " + file);
+            short version = buf.getShort();
+            if (version > VERSION) throw new IOException("Неподдерживаемая версия формата базы: " + version);
+            buf.position(HEADER_SIZE);
+
+            long offset = HEADER_SIZE;
+            long size = ch.size();
+            while (offset + RECORD_HEADER_SIZE <= size) {
+                buf = fill(ch, buf, RECORD_HEADER_SIZE);
+                int capacity = buf.getInt();
+                int length = buf.getInt();
+                int id = buf.getInt();
+                int sum = buf.getInt();
+                long order = buf.getLong();
+                long stamp = buf.getLong();
+                if (capacity < 0 || length < 0 || length > capacity || offset + RECORD_HEADER_SIZE + capacity > size) {
+                    logger.warn("Хвост файла записей повреждён, отброшено {} байт", size - offset);
+                    break;
+                }
+                buf = fill(ch, buf, capacity);
+                int bodyStart = buf.position();
+                long slot = offset;
+                offset += RECORD_HEADER_SIZE + capacity;
+                storage.nextStamp = Math.max(storage.nextStamp, stamp + 1);
+                storage.nextOrder = Math.max(storage.nextOrder, order + 1);
+                if (length == 0) {
+                    storage.release(slot, capacity);
+                    buf.position(bodyStart + capacity);
+                    continue;
+                }
+                crc.reset();
+                crc.update(buf.array(), buf.arrayOffset() + bodyStart, length);
+                if ((int) crc.getValue() != sum || id <= 0) {
+                    skipped++;
+                    storage.release(slot, capacity);
+                    buf.position(bodyStart + capacity);
+                    continue;
+                }
+                int limit = buf.limit();
+                Contact c = ContactCodec.read(buf.limit(bodyStart + length));
+                buf.limit(limit).position(bodyStart + capacity);
+                if (id >= rowById.length) rowById = Arrays.copyOf(rowById, Math.max(id + 1, rowById.length * 2));
+                if (storage.offsetOf(id) != 0) {
+                    // копия из недосохранённого переноса: остаётся более поздняя
+                    int row = rowById[id];
+                    if (stamps[row] >= stamp) {
+                        storage.release(slot, capacity);
+                        continue;
+                    }
+                    storage.release(storage.offsetById[id], storage.capacityById[id]);
+                    contacts.set(row, c);
+                    stamps[row] = stamp;
+                    storage.place(id, slot, capacity, order);
+                    continue;
+                }
+                int row = contacts.size();
+                if (row == orders.length) {
+                    orders = Arrays.copyOf(orders, row * 2);
+                    stamps = Arrays.copyOf(stamps, row * 2);
+                }
+                orders[row] = order;
+                stamps[row] = stamp;
+                rowById[id] = row;
+                contacts.add(c);
+                storage.place(id, slot, capacity, order);
+            }
+            storage.end = offset;
+        }
+        if (skipped > 0) logger.warn("В файле записей пропущено {} повреждённых записей: {}", skipped, file);
+        return new Loaded(storage, inOrder(contacts, orders));
+    }
+
+    /**
+     * Сохраняет изменения: перезаписывает на месте, переносит или дописывает изменённые
+     * контакты и освобождает слоты удалённых, затем сбрасывает файл на диск.
+     *
+     * @param changes последняя версия каждого изменённого контакта по id в порядке первого
+     *                изменения; для удалённых — null (см. {@link ContactJournal#readChanges})
+     * @return итог сохранения
+     * @throws IOException при ошибке записи
+     */
+    public WriteStats write(Map<Integer, Contact> changes) throws IOException {
+        long stamp = nextStamp++;
+        int inPlace = 0, relocated = 0, appended = 0, removed = 0;
+        long bytes = 0;
+        CRC32 crc = new CRC32();
+        // прежние слоты перенесённых контактов (смещение, вместимость)
+        List<long[]> moved = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // записи внутри файла разбросаны: через отображение в память они пишутся без системного
+            // вызова на каждую, а на диск сбрасываются одним force
+            MappedByteBuffer map = end <= Integer.MAX_VALUE ? ch.map(FileChannel.MapMode.READ_WRITE, 0, end) : null;
+            // дописываемые в конец слоты идут подряд и записываются одним блоком
+            ByteBuffer tail = ByteBuffer.allocate(BUFFER_SIZE);
+            long tailStart = end;
+            ByteBuffer single = ByteBuffer.allocate(4096);
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            for (Map.Entry<Integer, Contact> e : changes.entrySet()) {
+                int id = e.getKey();
+                Contact c = e.getValue();
+                long slot = offsetOf(id);
+                if (c == null) {
+                    if (slot == 0) continue;
+                    // освобождённый слот: длина 0
+                    header.clear().putInt(capacityById[id]).putInt(0).flip();
+                    write(ch, map, header, slot);
+                    release(slot, capacityById[id]);
+                    offsetById[id] = 0;
+                    removed++;
+                    bytes += Integer.BYTES * 2;
+                    continue;
+                }
+                int need = RECORD_HEADER_SIZE + ContactCodec.maxSize(c);
+                if (single.capacity() < need) single = ByteBuffer.allocate(need);
+                single.clear().position(RECORD_HEADER_SIZE);
+                ContactCodec.write(single, c);
+                int length = single.position() - RECORD_HEADER_SIZE;
+                crc.reset();
+                crc.update(single.array(), RECORD_HEADER_SIZE, length);
+                int sum = (int) crc.getValue();
+
+                if (slot != 0 && length <= capacityById[id]) {
+                    putHeader(single, 0, capacityById[id], length, id, sum, orderById[id], stamp);
+                    single.flip();
+                    bytes += write(ch, map, single, slot);
+                    inPlace++;
+                    continue;
+                }
+                long order = slot != 0 ? orderById[id] : nextOrder++;
+                Map.Entry<Integer, ArrayDeque<Long>> fit = free.ceilingEntry(length);
+                long target;
+                int capacity;
+                if (fit != null && fit.getKey() <= 2 * slack(length)) {
+                    capacity = fit.getKey();
+                    target = fit.getValue().poll();
+                    if (fit.getValue().isEmpty()) free.remove(capacity);
+                    freeBytes -= RECORD_HEADER_SIZE + capacity;
+                    putHeader(single, 0, capacity, length, id, sum, order, stamp);
+                    single.flip();
+                    bytes += write(ch, map, single, target);
+                    relocated++;
+                } else {
+                    capacity = slack(length);
+                    int total = RECORD_HEADER_SIZE + capacity;
+                    if (tail.remaining() < total) {
+                        bytes += flushTail(ch, tail, tailStart);
+                        tailStart = end;
+                        if (tail.capacity() < total) tail = ByteBuffer.allocate(total);
+                    }
+                    target = end;
+                    int start = tail.position();
+                    tail.put(single.array(), 0, RECORD_HEADER_SIZE + length);
+                    putHeader(tail, start, capacity, length, id, sum, order, stamp);
+                    Arrays.fill(tail.array(), tail.position(), start + total, (byte) 0);
+                    tail.position(start + total);
+                    end += total;
+                    appended++;
+                }
+                // старый слот освобождается, когда новая копия уже на диске
+                if (slot != 0) moved.add(new long[]{slot, capacityById[id]});
+                place(id, target, capacity, order);
+            }
+            bytes += flushTail(ch, tail, tailStart);
+            if (map != null) map.force();
+            ch.force(false);
+            if (!moved.isEmpty()) {
+                for (long[] m : moved) {
+                    header.clear().putInt((int) m[1]).putInt(0).flip();
+                    write(ch, map, header, m[0]);
+                }
+                if (map != null) map.force();
+                ch.force(false);
+            }
+        }
+        // прежние слоты не занимаются этим же сохранением: иначе при сбое до force перезапись
+        // через отображение могла бы уничтожить единственную сохранённую копию контакта;
+        // слот удалённого контакта можно занять сразу — его копия больше не нужна
+        for (long[] m : moved) release(m[0], (int) m[1]);
+        return new WriteStats(inPlace, relocated, appended, removed, bytes);
+    }
+
+    /**
+     * Возвращает долю свободного места в файле.
+     *
+     * @return от 0 (свободных слотов нет) до 1
+     */
+    public double fragmentation() {
+        long data = end - HEADER_SIZE;
+        return data <= 0 ? 0 : (double) freeBytes / data;
+    }
+
+    /**
+     * Возвращает суммарный размер свободных слотов.
+     *
+     * @return байт
+     */
+    public long freeBytes() {
+        return freeBytes;
+    }
+
+    /**
+     * Возвращает размер файла.
+     *
+     * @return байт
+     */
+    public long size() {
+        return end;
+    }
+
+    private long offsetOf(int id) {
+        return id > 0 && id < offsetById.length ? offsetById[id] : 0;
+    }
+
+    private void place(int id, long offset, int capacity, long order) {
+        if (id >= offsetById.length) {
+            int n = Math.max(id + 1, offsetById.length * 2);
+            offsetById = Arrays.copyOf(offsetById, n);
+            capacityById = Arrays.copyOf(capacityById, n);
+            orderById = Arrays.copyOf(orderById, n);
+        }
+        offsetById[id] = offset;
+        capacityById[id] = capacity;
+        orderById[id] = order;
+    }
+
+    private void release(long offset, int capacity) {
+        free.computeIfAbsent(capacity, k -> new ArrayDeque<>()).add(offset);
+        freeBytes += RECORD_HEADER_SIZE + capacity;
+    }
+
+    /**
+     * Вместимость слота для тела заданной длины: запас на четверть для правок на месте.
+     */
+    private static int slack(int length) {
+        int capacity = length + length / 4;
+        return (capacity + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    private static void putHeader(ByteBuffer buf, int at, int capacity, int length, int id, int crc,
+                                  long order, long stamp) {
+        buf.putInt(at, capacity).putInt(at + 4, length).putInt(at + 8, id).putInt(at + 12, crc)
+                .putLong(at + 16, order).putLong(at + 24, stamp);
+    }
+
+    /**
+     * Записывает буфер внутрь файла: через отображение, если оно есть, иначе через канал.
+     */
+    private static int write(FileChannel ch, MappedByteBuffer map, ByteBuffer buf, long position) throws IOException {
+        if (map == null) return write(ch, buf, position);
+        int n = buf.remaining();
+        map.put((int) position, buf, buf.position(), n);
+        return n;
+    }
+
+    private static int write(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        int n = buf.remaining();
+        while (buf.hasRemaining()) ch.write(buf, position + n - buf.remaining());
+        return n;
+    }
+
+    private static int flushTail(FileChannel ch, ByteBuffer tail, long position) throws IOException {
+        tail.flip();
+        int n = write(ch, tail, position);
+        tail.clear();
+        return n;
+    }
+
+    /**
+     * Упорядочивает контакты по порядковым номерам; обычно они уже упорядочены.
+     */
+    private static List<Contact> inOrder(List<Contact> contacts, long[] orders) {
+        int n = contacts.size();
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) sorted = orders[i - 1] < orders[i];
+        if (sorted) return contacts;
+        Integer[] rows = new Integer[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        long[] keys = orders;
+        Arrays.sort(rows, (a, b) -> Long.compare(keys[a], keys[b]));
+        List<Contact> ordered = new ArrayList<>(n);
+        for (Integer row : rows) ordered.add(contacts.get(row));
+        return ordered;
+    }
+
+    private static int drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        int n = buf.remaining();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+        return n;
+    }
+
+    /**
+     * Гарантирует, что в буфере (в режиме чтения) доступно не меньше {@code need} байт.
+     */
+    private static ByteBuffer fill(FileChannel ch, ByteBuffer buf, int need) throws IOException {
+        if (buf.remaining() >= need) return buf;
+        if (buf.capacity() < need) {
+            buf = ByteBuffer.allocate(need).put(buf);
+        } else {
+            buf.compact();
+        }
+        while (buf.position() < need) {
+            if (ch.read(buf) < 0) throw new EOFException("Файл записей обрезан");
+        }
+        return buf.flip();
+    }
+}
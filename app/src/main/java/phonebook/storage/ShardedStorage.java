@@ -0,0 +1,326 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Базовый снимок, разбитый на шарды по хешу id контакта.
+ * <p>
+ * Снимок хранится в каталоге: каждый шард — отдельный файл {@link BinaryStorage}
+ * (или сжатый {@link BlockStorage}) с контактами, для которых {@link #shardOf(int, int)}
+ * даёт его номер, а файл {@value #MANIFEST} перечисляет шарды текущего снимка:
+ * <ul>
+ *     <li>сигнатура, версия формата, поколение снимка и предыдущее поколение,
+ *     общее количество контактов, количество шардов</li>
+ *     <li>для каждого шарда: имя файла, количество контактов, размер файла</li>
+ *     <li>CRC32 всего предыдущего содержимого</li>
+ * </ul>
+ * Шарды пишутся и читаются параллельно в общем пуле {@link java.util.concurrent.ForkJoinPool},
+ * поэтому время загрузки сокращается почти пропорционально числу ядер.
+ * <p>
+ * Имена файлов шардов содержат поколение снимка, и новый снимок не перезаписывает
+ * файлы прежнего. Снимок становится текущим в момент атомарной замены манифеста,
+ * поэтому сбой посреди записи оставляет прежний снимок целым; файлы, на которые
+ * манифест не ссылается, удаляются после замены.
+ * <p>
+ * Порядок контактов между шардами не хранится: после чтения контакты упорядочиваются
+ * по id, то есть в порядке добавления в книгу.
+ */
+public final class ShardedStorage {
+
+    private static final Logger logger = LogManager.getLogger(ShardedStorage.class);
+
+    /** Сигнатура манифеста ("PBKM") */
+    public static final int MAGIC = 0x50424B4D;
+
+    /** Текущая версия формата манифеста */
+    public static final short VERSION = 1;
+
+    /** Имя файла манифеста в каталоге снимка */
+    public static final String MANIFEST = "manifest";
+
+    /** Количество шардов по умолчанию: с запасом на машины с десятками ядер */
+    public static final int DEFAULT_SHARDS = 32;
+
+    /** Наибольшее количество шардов */
+    public static final int MAX_SHARDS = 1024;
+
+    private ShardedStorage() {
+    }
+
+    /**
+     * Описание шарда в манифесте.
+     *
+     * @param file имя файла шарда в каталоге снимка
+     * @param count количество контактов
+     * @param size размер файла в байтах
+     */
+    public record Shard(String file, int count, long size) {
+    }
+
+    /**
+     * Содержимое манифеста.
+     *
+     * @param generation поколение снимка
+     * @param previousGeneration поколение предыдущего снимка
+     * @param count общее количество контактов
+     * @param shards шарды в порядке номеров
+     */
+    public record Manifest(long generation, long previousGeneration, int count, List<Shard> shards) {
+
+        /**
+         * Возвращает суммарный размер файлов шардов.
+         *
+         * @return байт
+         */
+        public long size() {
+            long size = 0;
+            for (Shard s : shards) size += s.size();
+            return size;
+        }
+    }
+
+    /**
+     * Возвращает каталог шардов для файла базы: рядом с ним, с расширением ".shards".
+     *
+     * @param file файл базы
+     * @return каталог снимка
+     */
+    public static Path directoryFor(Path file) {
+        return file.resolveSibling(file.getFileName() + ".shards");
+    }
+
+    /**
+     * Проверяет, есть ли в каталоге снимок.
+     *
+     * @param dir каталог снимка
+     * @return true, если в каталоге есть манифест
+     */
+    public static boolean exists(Path dir) {
+        return Files.isRegularFile(dir.resolve(MANIFEST));
+    }
+
+    /**
+     * Возвращает номер шарда контакта. Хеш перемешивает биты id, поэтому
+     * последовательные id расходятся по шардам равномерно.
+     *
+     * @param id id контакта
+     * @param shards количество шардов
+     * @return номер шарда от 0 до {@code shards - 1}
+     */
+    public static int shardOf(int id, int shards) {
+        int h = id * 0x9E3779B9;
+        h ^= h >>> 16;
+        return (int) ((h & 0xFFFFFFFFL) % shards);
+    }
+
+    /**
+     * Записывает снимок в каталог: шарды параллельно, затем манифест атомарной заменой.
+     *
+     * @param dir каталог снимка; создаётся при необходимости
+     * @param contacts контакты
+     * @param generation поколение снимка
+     * @param previousGeneration поколение предыдущего снимка
+     * @param shards количество шардов
+     * @param compressed записывать шарды сжатыми блоками
+     * @return манифест записанного снимка
+     * @throws IOException при ошибке записи
+     */
+    public static Manifest write(Path dir, List<Contact> contacts, long generation, long previousGeneration,
+                                 int shards, boolean compressed) throws IOException {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("Количество шардов должно быть от 1 до " + MAX_SHARDS + ": " + shards);
+        }
+        Files.createDirectories(dir);
+        List<List<Contact>> parts = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) parts.add(new ArrayList<>(contacts.size() / shards + 16));
+        for (Contact c : contacts) parts.get(shardOf(c.id, shards)).add(c);
+
+        Shard[] written = new Shard[shards];
+        try {
+            IntStream.range(0, shards).parallel().forEach(i -> {
+                String name = String.format("shard-%016x-%04d.dat", generation, i);
+                Path file = dir.resolve(name);
+                try {
+                    if (compressed) BlockStorage.write(file, parts.get(i), generation, previousGeneration);
+                    else BinaryStorage.write(file, parts.get(i), generation, previousGeneration);
+                    written[i] = new Shard(name, parts.get(i).size(), Files.size(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Manifest manifest = new Manifest(generation, previousGeneration, contacts.size(), List.of(written));
+        writeManifest(dir, manifest);
+        deleteUnreferenced(dir, manifest);
+        logger.debug("Записан снимок из {} шардов: {} контактов, {} байт", shards, contacts.size(), manifest.size());
+        return manifest;
+    }
+
+    /**
+     * Читает снимок: манифест, затем все шарды параллельно.
+     *
+     * @param dir каталог снимка
+     * @return снимок с контактами в порядке id
+     * @throws IOException при ошибке чтения, повреждённом манифесте или шарде, не относящемся к снимку
+     */
+    public static Snapshot read(Path dir) throws IOException {
+        Manifest manifest = readManifest(dir);
+        List<Shard> shards = manifest.shards();
+        List<Snapshot> parts;
+        try {
+            parts = IntStream.range(0, shards.size()).parallel()
+                    .mapToObj(i -> {
+                        try {
+                            return readShard(dir, shards.get(i), manifest.generation());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Contact[] all = new Contact[manifest.count()];
+        int n = 0;
+        for (Snapshot part : parts) {
+            if (n + part.contacts().size() > all.length) throw new IOException("Шарды не совпадают с манифестом: " + dir);
+            for (Contact c : part.contacts()) all[n++] = c;
+        }
+        if (n != all.length) throw new IOException("Шарды не совпадают с манифестом: " + dir);
+        Arrays.parallelSort(all, Comparator.comparingInt(c -> c.id));
+        return new Snapshot(manifest.generation(), manifest.previousGeneration(), Arrays.asList(all));
+    }
+
+    /**
+     * Читает манифест снимка.
+     *
+     * @param dir каталог снимка
+     * @return манифест
+     * @throws IOException при ошибке чтения, неизвестной сигнатуре или версии, несовпадении CRC
+     */
+    public static Manifest readManifest(Path dir) throws IOException {
+        Path file = dir.resolve(MANIFEST);
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Integer.BYTES * 2) throw new IOException("Манифест снимка обрезан: " + file);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if ((int) crc.getValue() != ByteBuffer.wrap(bytes).getInt(bytes.length - Integer.BYTES)) {
+            throw new IOException("Манифест снимка повреждён: " + file);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC) throw new IOException("Файл не является манифестом снимка: " + file);
+            short version = in.readShort();
+            if (version > VERSION) throw new IOException("Неподдерживаемая версия манифеста: " + version);
+            long generation = in.readLong();
+            long previous = in.readLong();
+            int count = in.readInt();
+            int shards = in.readInt();
+            List<Shard> list = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) list.add(new Shard(in.readUTF(), in.readInt(), in.readLong()));
+            return new Manifest(generation, previous, count, List.copyOf(list));
+        }
+    }
+
+    /**
+     * Удаляет каталог снимка со всеми файлами.
+     *
+     * @param dir каталог снимка
+     * @throws IOException при ошибке удаления
+     */
+    public static void delete(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        // сначала манифест: недоудалённый каталог уже не считается снимком
+        Files.deleteIfExists(dir.resolve(MANIFEST));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    private static Snapshot readShard(Path dir, Shard shard, long generation) throws IOException {
+        Path file = dir.resolve(shard.file());
+        Snapshot s = BlockStorage.isBlockFile(file) ? BlockStorage.read(file) : BinaryStorage.read(file);
+        if (s.generation() != generation || s.contacts().size() != shard.count()) {
+            throw new IOException("Шард не относится к текущему снимку: " + file);
+        }
+        return s;
+    }
+
+    private static void writeManifest(Path dir, Manifest manifest) throws IOException {
+        int size = Integer.BYTES + Short.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES + Integer.BYTES;
+        List<byte[]> names = new ArrayList<>(manifest.shards().size());
+        for (Shard s : manifest.shards()) {
+            byte[] name = s.file().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += Short.BYTES + name.length + Integer.BYTES + Long.BYTES;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putLong(manifest.generation())
+                .putLong(manifest.previousGeneration())
+                .putInt(manifest.count())
+                .putInt(manifest.shards().size());
+        for (int i = 0; i < names.size(); i++) {
+            Shard s = manifest.shards().get(i);
+            // имена ASCII, поэтому совпадают с форматом DataOutput.writeUTF
+            buf.putShort((short) names.get(i).length).put(names.get(i)).putInt(s.count()).putLong(s.size());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue()).flip();
+
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Удаляет шарды прежних снимков и временные файлы недописанных.
+     */
+    private static void deleteUnreferenced(Path dir, Manifest manifest) {
+        Set<String> keep = new HashSet<>();
+        keep.add(MANIFEST);
+        for (Shard s : manifest.shards()) keep.add(s.file());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                if (!keep.contains(f.getFileName().toString())) Files.deleteIfExists(f);
+            }
+        } catch (IOException e) {
+            // снимок уже записан, лишние файлы будут удалены при следующей записи
+            logger.warn("Не удалось удалить файлы прежнего снимка: {}", e.getMessage());
+        }
+    }
+}
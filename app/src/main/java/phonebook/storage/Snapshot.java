@@ -0,0 +1,15 @@
+package phonebook.storage;
+
+import phonebook.model.Contact;
+
+import java.util.List;
+
+/**
+ * Базовый снимок телефонной книги, прочитанный с диска.
+ *
+ * @param generation поколение снимка, к которому привязан журнал изменений (0 — без журнала)
+ * @param previousGeneration поколение предыдущего снимка
+ * @param contacts контакты в порядке списка
+ */
+public record Snapshot(long generation, long previousGeneration, List<Contact> contacts) {
+}
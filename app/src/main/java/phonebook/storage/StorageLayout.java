@@ -0,0 +1,26 @@
+package phonebook.storage;
+
+/**
+ * Способ сохранения изменений в файл базы.
+ */
+public enum StorageLayout {
+
+    /**
+     * Базовый снимок {@link BinaryStorage} и журнал изменений {@link ContactJournal}:
+     * изменения дописываются в журнал, который периодически сворачивается в новый снимок.
+     */
+    JOURNAL,
+
+    /**
+     * Файл записей {@link RecordStorage}: изменённые контакты перезаписываются на месте,
+     * журнала нет.
+     */
+    RECORDS,
+
+    /**
+     * Базовый снимок разбит на шарды {@link ShardedStorage} по хешу id в каталоге рядом
+     * с файлом базы; шарды пишутся и читаются параллельно, изменения дописываются в журнал,
+     * как в {@link #JOURNAL}.
+     */
+    SHARDED
+}
@@ -0,0 +1,570 @@
+package phonebook.ui;
+
+import phonebook.model.Contact;
+
+import javax.swing.*;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Сортировщик строк таблицы контактов с кэшированными ключами сравнения.
+ * <p>
+ * Стандартный {@link javax.swing.table.TableRowSorter} при каждом сравнении заново получает
+ * значения ячеек и сравнивает строки через {@link Collator}. Здесь для каждого столбца, по которому
+ * сортируют, один раз на строку вычисляется ключ в виде массива байтов, побайтовый порядок
+ * которого совпадает с порядком строк:
+ * <ul>
+ *     <li>ФИО и Заметка — ключ {@link java.text.CollationKey} русского {@link Collator},
+ *     упакованный в байты (см. {@link #collationKey(Collator, String)})</li>
+ *     <li>Телефоны — {@link Contact#phonesSortKey()}: номера сравниваются по цифрам,
+ *     а не по оформлению</li>
+ * </ul>
+ * Ключи хранятся по номеру строки модели и обновляются только для строк, о вставке или
+ * изменении которых сообщила модель таблицы; при полной замене данных сбрасываются и
+ * вычисляются заново при следующей сортировке, параллельно.
+ * <p>
+ * Сортировка идёт по примитивным номерам строк: первые байты ключа и номер строки
+ * упаковываются в {@code long} и сортируются {@link Arrays#parallelSort(long[])}; строки
+ * с совпавшим началом ключа досортировываются по полным ключам всех столбцов сортировки,
+ * группы — параллельно. Равные строки остаются в порядке модели.
+ * <p>
+ * Вставленные и изменённые строки встают на место в текущем порядке без полной пересортировки
+ * (изменённые — если включено {@link #setSortsOnUpdates(boolean)}). Фильтры видят
+ * отображаемый текст ячеек. Вместо фильтра можно задать готовый порядок строк
+ * ({@link #setRowOrder(int[])}), например результаты поиска по релевантности.
+ * Все методы вызываются из EDT.
+ */
+public class ContactRowSorter extends RowSorter<ContactTableModel> {
+
+    /** Столбец телефонов */
+    private static final int PHONES = 1;
+
+    /** Наибольшее количество столбцов сортировки */
+    private static final int MAX_SORT_KEYS = 3;
+
+    /** Изменение не больше стольких строк вставляется в порядок двоичным поиском, иначе слиянием */
+    private static final int INSERT_LIMIT = 64;
+
+    /** Русский {@link Collator} на поток: экземпляр не потокобезопасен */
+    private static final ThreadLocal<Collator> COLLATOR =
+            ThreadLocal.withInitial(() -> Collator.getInstance(Locale.forLanguageTag("ru-RU")));
+
+    private final ContactTableModel model;
+
+    private List<SortKey> sortKeys = Collections.emptyList();
+
+    private RowFilter<? super ContactTableModel, ? super Integer> filter;
+
+    /** Показываемые строки модели в заданном порядке; null — все строки, прошедшие фильтр */
+    private int[] rowOrder;
+
+    private boolean sortsOnUpdates;
+
+    /** Строки модели в порядке показа; null — порядок модели без фильтра */
+    private int[] viewToModel;
+
+    /** Обратное отображение; строится по запросу, -1 — строка скрыта фильтром */
+    private int[] modelToView;
+
+    /** Количество строк модели, известное сортировщику */
+    private int modelRows;
+
+    /** Ключи сортировки по столбцу и строке модели; null — ещё не вычислены */
+    private final byte[][][] keys;
+
+    /**
+     * Конструктор сортировщика.
+     *
+     * @param model модель таблицы контактов
+     */
+    public ContactRowSorter(ContactTableModel model) {
+        this.model = model;
+        this.keys = new byte[model.getColumnCount()][][];
+        this.modelRows = model.getRowCount();
+    }
+
+    /**
+     * Упаковывает ключ {@link java.text.CollationKey} в байты с тем же порядком. Ключ состоит
+     * из 16-битных весов; веса до 0xFE записываются одним байтом, остальные — байтом 0xFF
+     * и двумя байтами веса. Для русских и латинских букв почти все веса однобайтные,
+     * поэтому ключ вдвое короче исходного, а первые байты различают больше букв.
+     *
+     * @param collator правила сравнения
+     * @param s строка; null — пустая строка
+     * @return ключ сравнения
+     */
+    public static byte[] collationKey(Collator collator, String s) {
+        byte[] raw = collator.getCollationKey(s == null ? "" : s).toByteArray();
+        byte[] key = new byte[raw.length + raw.length / 2];
+        int n = 0;
+        for (int i = 0; i + 1 < raw.length; i += 2) {
+            int w = (raw[i] & 0xFF) << 8 | raw[i + 1] & 0xFF;
+            if (w < 0xFF) {
+                key[n++] = (byte) w;
+            } else {
+                key[n++] = (byte) 0xFF;
+                key[n++] = raw[i];
+                key[n++] = raw[i + 1];
+            }
+        }
+        return Arrays.copyOf(key, n);
+    }
+
+    /**
+     * Задаёт, пересортировывать ли изменённые строки.
+     *
+     * @param sortsOnUpdates true — изменённая строка встаёт на место в текущем порядке
+     */
+    public void setSortsOnUpdates(boolean sortsOnUpdates) {
+        this.sortsOnUpdates = sortsOnUpdates;
+    }
+
+    /**
+     * Задаёт фильтр строк и сразу применяет его.
+     *
+     * @param filter фильтр; null — показывать все строки
+     */
+    public void setRowFilter(RowFilter<? super ContactTableModel, ? super Integer> filter) {
+        this.filter = filter;
+        this.rowOrder = null;
+        sort();
+    }
+
+    /**
+     * Показывает только заданные строки модели в заданном порядке, например от лучшего
+     * совпадения поиска к худшему. Фильтр снимается, сортировка по столбцам сбрасывается;
+     * если затем отсортировать по столбцу, сортируются эти же строки, а сброс сортировки
+     * возвращает заданный порядок.
+     *
+     * @param rows строки модели в порядке показа; null — показывать все строки
+     */
+    public void setRowOrder(int[] rows) {
+        this.filter = null;
+        this.rowOrder = rows == null ? null : rows.clone();
+        if (isSorted()) {
+            sortKeys = Collections.emptyList();
+            fireSortOrderChanged();
+        }
+        sort();
+    }
+
+    /**
+     * Возвращает текущий фильтр строк.
+     *
+     * @return фильтр или null
+     */
+    public RowFilter<? super ContactTableModel, ? super Integer> getRowFilter() {
+        return filter;
+    }
+
+    @Override
+    public ContactTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        SortKey first = keys.isEmpty() ? null : keys.get(0);
+        if (first != null && first.getColumn() == column) {
+            SortOrder order = first.getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, order));
+        } else {
+            keys.removeIf(k -> k.getColumn() == column);
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+            if (keys.size() > MAX_SORT_KEYS) keys = keys.subList(0, MAX_SORT_KEYS);
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> copy = keys == null ? List.of() : List.copyOf(keys);
+        for (SortKey k : copy) checkColumn(k.getColumn());
+        if (copy.equals(sortKeys)) return;
+        sortKeys = Collections.unmodifiableList(copy);
+        fireSortOrderChanged();
+        sort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= modelRows) throw new IndexOutOfBoundsException("Неверный индекс строки: " + index);
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= modelRows) throw new IndexOutOfBoundsException("Неверный индекс строки: " + index);
+            return index;
+        }
+        if (modelToView == null) {
+            modelToView = new int[modelRows];
+            Arrays.fill(modelToView, -1);
+            for (int v = 0; v < viewToModel.length; v++) modelToView[viewToModel[v]] = v;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? modelRows : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        Arrays.fill(keys, null);
+        modelRows = model.getRowCount();
+        sortKeys = Collections.emptyList();
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        Arrays.fill(keys, null);
+        modelRows = model.getRowCount();
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int first = Math.min(firstRow, endRow), count = Math.abs(endRow - firstRow) + 1;
+        if (first > modelRows) throw new IndexOutOfBoundsException("Неверный диапазон строк: " + firstRow + "-" + endRow);
+        for (int col = 0; col < keys.length; col++) {
+            byte[][] k = keys[col];
+            if (k == null) continue;
+            byte[][] shifted = new byte[modelRows + count][];
+            System.arraycopy(k, 0, shifted, 0, first);
+            System.arraycopy(k, first, shifted, first + count, modelRows - first);
+            keys[col] = shifted;
+            computeKeys(col, first, first + count);
+        }
+        modelRows += count;
+        if (rowOrder != null) {
+            // вставленных строк нет в заданном порядке
+            for (int i = 0; i < rowOrder.length; i++) {
+                if (rowOrder[i] >= first) rowOrder[i] += count;
+            }
+            sort();
+            return;
+        }
+        if (!isTransformed()) return;
+
+        int[] old = viewToModel;
+        int[] view = old.clone();
+        for (int i = 0; i < view.length; i++) {
+            if (view[i] >= first) view[i] += count;
+        }
+        viewToModel = place(view, first, first + count);
+        modelToView = null;
+        fireRowSorterChanged(old);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int first = Math.min(firstRow, endRow), end = Math.max(firstRow, endRow) + 1, count = end - first;
+        if (end > modelRows) throw new IndexOutOfBoundsException("Неверный диапазон строк: " + firstRow + "-" + endRow);
+        for (int col = 0; col < keys.length; col++) {
+            byte[][] k = keys[col];
+            if (k == null) continue;
+            byte[][] shifted = new byte[modelRows - count][];
+            System.arraycopy(k, 0, shifted, 0, first);
+            System.arraycopy(k, end, shifted, first, modelRows - end);
+            keys[col] = shifted;
+        }
+        modelRows -= count;
+        if (rowOrder != null) {
+            int n = 0;
+            for (int row : rowOrder) {
+                if (row < first) rowOrder[n++] = row;
+                else if (row >= end) rowOrder[n++] = row - count;
+            }
+            rowOrder = Arrays.copyOf(rowOrder, n);
+            sort();
+            return;
+        }
+        if (!isTransformed()) return;
+
+        int[] old = viewToModel;
+        int[] view = new int[old.length];
+        int n = 0;
+        for (int row : old) {
+            if (row < first) view[n++] = row;
+            else if (row >= end) view[n++] = row - count;
+        }
+        viewToModel = Arrays.copyOf(view, n);
+        modelToView = null;
+        fireRowSorterChanged(old);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        int first = Math.min(firstRow, endRow), end = Math.max(firstRow, endRow) + 1;
+        if (end > modelRows) throw new IndexOutOfBoundsException("Неверный диапазон строк: " + firstRow + "-" + endRow);
+        for (int col = 0; col < keys.length; col++) {
+            if (keys[col] != null) computeKeys(col, first, end);
+        }
+        if (!sortsOnUpdates || !isTransformed()) return;
+        if (rowOrder != null) {
+            if (isSorted()) sort();
+            return;
+        }
+
+        int[] old = viewToModel;
+        int[] view = new int[old.length];
+        int n = 0;
+        for (int row : old) {
+            if (row < first || row >= end) view[n++] = row;
+        }
+        viewToModel = place(Arrays.copyOf(view, n), first, end);
+        modelToView = null;
+        fireRowSorterChanged(old);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        checkColumn(column);
+        rowsUpdated(firstRow, endRow);
+    }
+
+    /**
+     * Пересчитывает порядок показа: фильтрует строки модели (или берёт заданный порядок)
+     * и сортирует оставшиеся.
+     */
+    public void sort() {
+        int[] old = viewToModel;
+        modelRows = model.getRowCount();
+        modelToView = null;
+        if (!isTransformed()) {
+            viewToModel = null;
+        } else {
+            int[] rows = rowOrder != null ? rowOrder.clone() : included(0, modelRows);
+            viewToModel = isSorted() ? sortRows(rows) : rows;
+        }
+        fireRowSorterChanged(old);
+    }
+
+    private boolean isSorted() {
+        for (SortKey k : sortKeys) {
+            if (k.getSortOrder() != SortOrder.UNSORTED) return true;
+        }
+        return false;
+    }
+
+    private boolean isTransformed() {
+        return filter != null || rowOrder != null || isSorted();
+    }
+
+    /**
+     * Ставит строки модели из диапазона [{@code first}, {@code end}), прошедшие фильтр,
+     * на их места в упорядоченном {@code view}.
+     */
+    private int[] place(int[] view, int first, int end) {
+        int[] added = included(first, end);
+        if (added.length == 0) return view;
+        if (isSorted()) added = sortRows(added);
+        if (added.length <= INSERT_LIMIT) {
+            int[] result = Arrays.copyOf(view, view.length + added.length);
+            int size = view.length;
+            for (int row : added) {
+                int pos = insertionPoint(result, size, row);
+                System.arraycopy(result, pos, result, pos + 1, size - pos);
+                result[pos] = row;
+                size++;
+            }
+            return result;
+        }
+        int[] result = new int[view.length + added.length];
+        int i = 0, j = 0, n = 0;
+        while (i < view.length && j < added.length) {
+            result[n++] = compareRows(view[i], added[j]) <= 0 ? view[i++] : added[j++];
+        }
+        while (i < view.length) result[n++] = view[i++];
+        while (j < added.length) result[n++] = added[j++];
+        return result;
+    }
+
+    private int insertionPoint(int[] view, int size, int row) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareRows(view[mid], row) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Возвращает строки модели из диапазона, прошедшие фильтр, по возрастанию.
+     */
+    private int[] included(int first, int end) {
+        int[] rows = new int[end - first];
+        int n = 0;
+        Entry entry = new Entry();
+        for (int row = first; row < end; row++) {
+            entry.row = row;
+            if (filter == null || filter.include(entry)) rows[n++] = row;
+        }
+        return n == rows.length ? rows : Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Сортирует строки модели: по упакованному началу ключа первого столбца сортировки,
+     * затем группы с одинаковым началом — по полным ключам.
+     */
+    private int[] sortRows(int[] rows) {
+        int n = rows.length;
+        int[] sorted = new int[n];
+        if (n == 0) return sorted;
+        for (SortKey k : sortKeys) {
+            if (k.getSortOrder() != SortOrder.UNSORTED) keys(k.getColumn());
+        }
+        SortKey primary = null;
+        for (SortKey k : sortKeys) {
+            if (k.getSortOrder() != SortOrder.UNSORTED) {
+                primary = k;
+                break;
+            }
+        }
+        byte[][] primaryKeys = keys[primary.getColumn()];
+        boolean descending = primary.getSortOrder() == SortOrder.DESCENDING;
+
+        // номер строки — в младших битах, начало ключа — в старших; знаковый бит не используется
+        int rowBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, modelRows - 1)));
+        int prefixBits = 63 - rowBits;
+        long prefixMask = (1L << prefixBits) - 1;
+        long[] packed = new long[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            long prefix = prefix(primaryKeys[rows[i]], prefixBits);
+            if (descending) prefix = ~prefix & prefixMask;
+            packed[i] = prefix << rowBits | rows[i];
+        });
+        Arrays.parallelSort(packed);
+
+        long rowMask = (1L << rowBits) - 1;
+        List<int[]> ties = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = (int) (packed[i] & rowMask);
+            if (i > 0 && packed[i] >>> rowBits != packed[i - 1] >>> rowBits) {
+                if (i - start > 1) ties.add(new int[]{start, i});
+                start = i;
+            }
+        }
+        if (n - start > 1) ties.add(new int[]{start, n});
+        ties.parallelStream().forEach(t -> sortRange(sorted, t[0], t[1]));
+        return sorted;
+    }
+
+    /**
+     * Досортировывает строки с одинаковым началом ключа по полным ключам.
+     */
+    private void sortRange(int[] rows, int from, int to) {
+        Integer[] boxed = new Integer[to - from];
+        for (int i = from; i < to; i++) boxed[i - from] = rows[i];
+        Arrays.sort(boxed, this::compareRows);
+        for (int i = from; i < to; i++) rows[i] = boxed[i - from];
+    }
+
+    /**
+     * Сравнивает строки модели по ключам всех столбцов сортировки, затем по номеру строки.
+     */
+    private int compareRows(int a, int b) {
+        for (SortKey k : sortKeys) {
+            if (k.getSortOrder() == SortOrder.UNSORTED) continue;
+            byte[][] column = keys(k.getColumn());
+            int c = Arrays.compareUnsigned(column[a], column[b]);
+            if (c != 0) return k.getSortOrder() == SortOrder.DESCENDING ? -c : c;
+        }
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * Возвращает первые {@code bits} бит ключа как беззнаковое число; короткий ключ дополняется нулями.
+     */
+    private static long prefix(byte[] key, int bits) {
+        long v = 0;
+        int bytes = (bits + 7) / 8;
+        for (int i = 0; i < bytes; i++) v = v << 8 | (i < key.length ? key[i] & 0xFF : 0);
+        return v >>> (bytes * 8 - bits);
+    }
+
+    /**
+     * Возвращает ключи столбца, при первом обращении вычисляя их для всех строк параллельно.
+     */
+    private byte[][] keys(int column) {
+        if (keys[column] == null) {
+            keys[column] = new byte[modelRows][];
+            computeKeys(column, 0, modelRows);
+        }
+        return keys[column];
+    }
+
+    private void computeKeys(int column, int first, int end) {
+        byte[][] k = keys[column];
+        IntStream range = IntStream.range(first, end);
+        if (end - first > INSERT_LIMIT) range = range.parallel();
+        range.forEach(row -> k[row] = key(column, row));
+    }
+
+    private byte[] key(int column, int row) {
+        if (column == PHONES) return model.getContact(row).phonesSortKey().getBytes(StandardCharsets.ISO_8859_1);
+        Object v = model.getValueAt(row, column);
+        return collationKey(COLLATOR.get(), v == null ? "" : v.toString());
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Неверный индекс столбца: " + column);
+        }
+    }
+
+    /**
+     * Строка модели для фильтра: отображаемые значения ячеек.
+     */
+    private final class Entry extends RowFilter.Entry<ContactTableModel, Integer> {
+
+        int row;
+
+        @Override
+        public ContactTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getValueCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return model.getValueAt(row, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return row;
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package phonebook.ui;
 
 import phonebook.model.Contact;
+import phonebook.model.ContactRows;
+import phonebook.model.PhoneBookEvent;
+import phonebook.model.PhoneBookListener;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneBookSnapshot;
 
+import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
@@ -13,15 +19,45 @@ import java.util.List;
  *     <li>Телефоны</li>
  *     <li>Заметка</li>
  * </ul>
- * Использует список объектов {@link Contact} в качестве источника данных.
+ * Значения ячеек берутся через построчный доступ {@link ContactRows}, поэтому
+ * хранилище по столбцам отдаёт их, не создавая объект {@link Contact} на строку.
+ * <p>
+ * Если модель таблицы создана поверх {@link PhoneBookModel}, она подписывается на её
+ * изменения и сообщает таблице только о затронутых строках, не перерисовывая
+ * и не пересортировывая таблицу целиком. Таблица показывает снимок книги
+ * ({@link PhoneBookModel#snapshot()}), который заменяется только в EDT вместе
+ * с уведомлением таблицы, поэтому изменения из других потоков не сдвигают строки
+ * под таблицей между уведомлениями.
+ * <p>
+ * Изменения из других потоков (импорт, загрузка) копятся и показываются одним заходом
+ * в EDT. Если они только дописывали строки в конец и меняли строки на месте, таблица
+ * получает события о вставке и изменении этих строк (и сортировщик обновляет только их),
+ * иначе — об изменении всех данных.
  */
-public class ContactTableModel extends AbstractTableModel {
+public class ContactTableModel extends AbstractTableModel implements PhoneBookListener {
 
     /** Названия столбцов таблицы */
     private final String[] cols = {"ФИО", "Телефоны", "Заметка"};
 
-    /** Список контактов, отображаемых в таблице */
-    private final List<Contact> data;
+    /** Контакты, отображаемые в таблице (если модель книги не задана) */
+    private final ContactRows data;
+
+    /** Модель телефонной книги, список которой отображается в таблице */
+    private final PhoneBookModel model;
+
+    /** Отображаемый снимок книги; заменяется только в EDT */
+    private PhoneBookSnapshot shown;
+
+    /** Последний снимок из изменений не в EDT, ещё не показанный таблицей; под блокировкой {@link #pendingLock} */
+    private PhoneBookSnapshot pending;
+
+    /** Накопленные изменения не сводятся к вставке в конец и изменению строк на месте */
+    private boolean pendingReplaced;
+
+    /** Диапазон строк, изменённых на месте; pendingFirst > pendingLast — таких нет */
+    private int pendingFirst = Integer.MAX_VALUE, pendingLast = -1;
+
+    private final Object pendingLock = new Object();
 
     /**
      * Конструктор модели таблицы.
@@ -29,7 +65,108 @@ public class ContactTableModel extends AbstractTableModel {
      * @param data список контактов для отображения
      */
     public ContactTableModel(List<Contact> data) {
-        this.data = data;
+        this.data = ContactRows.of(data);
+        this.model = null;
+    }
+
+    /**
+     * Конструктор модели таблицы поверх модели телефонной книги.
+     * Таблица показывает последний снимок книги, полученный в EDT (см. {@link PhoneBookModel#snapshot()}).
+     *
+     * @param model модель телефонной книги
+     */
+    public ContactTableModel(PhoneBookModel model) {
+        this.data = null;
+        this.model = model;
+        this.shown = model.snapshot();
+        model.addPhoneBookListener(this);
+    }
+
+    /**
+     * Пересылает изменения модели книги в таблицу.
+     * Изменения, сделанные не в EDT, копятся и показываются одним заходом в EDT
+     * (см. {@link #showPending()}).
+     *
+     * @param e описание изменения
+     */
+    @Override
+    public void phoneBookChanged(PhoneBookEvent e) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // модель уведомляет под своей блокировкой, поэтому снимок соответствует событию
+            PhoneBookSnapshot s = model.snapshot();
+            boolean schedule;
+            synchronized (pendingLock) {
+                schedule = pending == null;
+                pending = s;
+                switch (e.getType()) {
+                    case INSERTED -> pendingReplaced |= e.getLastRow() != s.size() - 1;
+                    case UPDATED -> {
+                        pendingFirst = Math.min(pendingFirst, e.getFirstRow());
+                        pendingLast = Math.max(pendingLast, e.getLastRow());
+                    }
+                    default -> pendingReplaced = true;
+                }
+            }
+            if (schedule) SwingUtilities.invokeLater(this::showPending);
+            return;
+        }
+        if (takePending() != null) {
+            // таблица ещё не знает об изменениях из других потоков: номера строк события к ней не относятся
+            shown = model.snapshot();
+            fireTableDataChanged();
+            return;
+        }
+        shown = model.snapshot();
+        switch (e.getType()) {
+            case INSERTED -> fireTableRowsInserted(e.getFirstRow(), e.getLastRow());
+            case UPDATED -> fireTableRowsUpdated(e.getFirstRow(), e.getLastRow());
+            case REMOVED -> fireTableRowsDeleted(e.getFirstRow(), e.getLastRow());
+            case CHANGED -> fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Показывает накопленные изменения из других потоков: вставку строк в конец и изменение
+     * строк на месте — событиями об этих строках, остальное — изменением всех данных.
+     */
+    private void showPending() {
+        int first, last;
+        boolean replaced;
+        PhoneBookSnapshot s;
+        synchronized (pendingLock) {
+            first = pendingFirst;
+            last = pendingLast;
+            replaced = pendingReplaced;
+            s = takePending();
+        }
+        if (s == null) return; // уже показаны вместе с изменением в EDT
+        int before = shown.size();
+        shown = s;
+        if (replaced || s.size() < before) {
+            fireTableDataChanged();
+            return;
+        }
+        if (s.size() > before) fireTableRowsInserted(before, s.size() - 1);
+        last = Math.min(last, before - 1); // изменения дописанных строк уже учтены вставкой
+        if (first <= last) fireTableRowsUpdated(first, last);
+    }
+
+    /**
+     * Забирает накопленный снимок и сбрасывает накопленные изменения.
+     */
+    private PhoneBookSnapshot takePending() {
+        synchronized (pendingLock) {
+            PhoneBookSnapshot s = pending;
+            pending = null;
+            pendingReplaced = false;
+            pendingFirst = Integer.MAX_VALUE;
+            pendingLast = -1;
+            return s;
+        }
+    }
+
+    private ContactRows rows() {
+        return model != null ? shown : data;
     }
 
     /**
@@ -39,7 +176,7 @@ public class ContactTableModel extends AbstractTableModel {
      */
     @Override
     public int getRowCount() {
-        return data.size();
+        return rows().size();
     }
 
     /**
@@ -63,6 +200,27 @@ public class ContactTableModel extends AbstractTableModel {
         return cols[col];
     }
 
+    /**
+     * Возвращает класс значений столбца: все столбцы строковые.
+     *
+     * @param col индекс столбца
+     * @return {@link String}
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        return String.class;
+    }
+
+    /**
+     * Возвращает контакт, отображаемый в строке.
+     *
+     * @param row индекс строки модели
+     * @return контакт
+     */
+    public Contact getContact(int row) {
+        return rows().get(row);
+    }
+
     /**
      * Возвращает значение ячейки в таблице.
      *
@@ -72,11 +230,11 @@ public class ContactTableModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int row, int col) {
-        Contact c = data.get(row);
+        ContactRows rows = rows();
         switch (col) {
-            case 0: return c.fullName;
-            case 1: return c.phonesAsString();
-            case 2: return c.note;
+            case 0: return rows.fullNameAt(row);
+            case 1: return rows.phonesAt(row);
+            case 2: return rows.noteAt(row);
             default: return "";
         }
     }
@@ -1,17 +1,37 @@
 package phonebook.ui;
 
+import phonebook.exchange.ContactExporter;
+import phonebook.exchange.ContactImporter;
+import phonebook.exchange.ExchangeFormat;
+import phonebook.exchange.ExchangeStats;
+import phonebook.model.AutoSaver;
 import phonebook.model.Contact;
 import phonebook.model.PhoneBookModel;
+import phonebook.model.SaveState;
+import phonebook.search.SearchExecutor;
 import phonebook.ui.dialogs.ContactFormDialog;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.regex.Pattern;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,15 +53,47 @@ public class PhoneBookFrame extends JFrame {
     private final PhoneBookModel model;
     private JTable table;
     private ContactTableModel tableModel;
-    private TableRowSorter<ContactTableModel> sorter;
+    private ContactRowSorter sorter;
     private JTextField searchField;
     private JComboBox<String> searchCombo;
     private JSlider zoomSlider;
+    private JLabel saveStatus;
+    private JProgressBar loadProgress;
+
+    /** Кнопки, изменяющие базу; недоступны, пока идёт загрузка */
+    private JButton[] editingButtons;
+
+    /** Количество контактов в одной порции при загрузке */
+    private static final int LOAD_CHUNK_SIZE = 5000;
+
+    /** Наибольшее количество контактов, показываемых нечётким поиском */
+    private static final int FUZZY_LIMIT = 100;
+
+    /** Фоновое выполнение поиска по мере ввода */
+    private final SearchExecutor search = new SearchExecutor();
+
+    /** Автосохранение (null, если отключено) */
+    private final AutoSaver autoSaver;
+
+    /** Отображение состояния сохранения в строке состояния */
+    private final Consumer<SaveState> saveListener = state -> SwingUtilities.invokeLater(() -> showSaveState(state));
 
     public PhoneBookFrame(PhoneBookModel model) {
+        this(model, null);
+    }
+
+    /**
+     * Создаёт главное окно.
+     *
+     * @param model модель телефонной книги
+     * @param autoSaver автосохранение или null; закрывается вместе с окном
+     */
+    public PhoneBookFrame(PhoneBookModel model, AutoSaver autoSaver) {
         super("Телефонный справочник");
         this.model = model;
+        this.autoSaver = autoSaver;
         initUI();
+        model.addSaveListener(saveListener);
         logger.debug("Главное окно PhoneBookFrame создано и инициализировано");
     }
 
@@ -53,15 +105,21 @@ public class PhoneBookFrame extends JFrame {
         JButton editBtn = new JButton("Изменить");
         JButton delBtn = new JButton("Удалить");
         JButton saveBtn = new JButton("Сохранить");
+        JButton importBtn = new JButton("Импорт...");
+        JButton exportBtn = new JButton("Экспорт...");
+
+        editingButtons = new JButton[]{addBtn, editBtn, delBtn, saveBtn, importBtn, exportBtn};
 
         toolbar.add(addBtn);
         toolbar.add(editBtn);
         toolbar.add(delBtn);
         toolbar.addSeparator();
         toolbar.add(saveBtn);
+        toolbar.add(importBtn);
+        toolbar.add(exportBtn);
         toolbar.addSeparator();
 
-        searchCombo = new JComboBox<>(new String[]{"По ФИО", "По номеру"});
+        searchCombo = new JComboBox<>(new String[]{"По ФИО", "По номеру", "По ФИО с опечатками"});
         searchField = new JTextField(20);
         JButton clearSearch = new JButton("Очистить");
 
@@ -72,13 +130,15 @@ public class PhoneBookFrame extends JFrame {
 
         add(toolbar, BorderLayout.NORTH);
 
-        tableModel = new ContactTableModel(model.getContacts());
+        tableModel = new ContactTableModel(model);
         table = new JTable(tableModel);
 
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setAutoCreateRowSorter(true);
 
-        sorter = new TableRowSorter<>(tableModel);
+        sorter = new ContactRowSorter(tableModel);
+        // изменённая строка встаёт на своё место в текущем порядке сортировки
+        sorter.setSortsOnUpdates(true);
         table.setRowSorter(sorter);
 
         resizeTableColumns();
@@ -91,16 +151,33 @@ public class PhoneBookFrame extends JFrame {
         bottom.add(new JLabel("Масштаб:"), BorderLayout.WEST);
         bottom.add(zoomSlider, BorderLayout.CENTER);
 
+        saveStatus = new JLabel(" ");
+        saveStatus.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
+        loadProgress = new JProgressBar();
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
+
+        JPanel status = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        status.add(loadProgress);
+        status.add(saveStatus);
+        bottom.add(status, BorderLayout.EAST);
+
         add(bottom, BorderLayout.SOUTH);
 
         addBtn.addActionListener(e -> onAdd());
         editBtn.addActionListener(e -> onEdit());
         delBtn.addActionListener(e -> onDelete());
 
-        saveBtn.addActionListener(e -> {
-            model.saveToFile();
-            JOptionPane.showMessageDialog(this, "База сохранена.", "OK", JOptionPane.INFORMATION_MESSAGE);
-            logger.info("Контакты сохранены в файл");
+        saveBtn.addActionListener(e -> onSave());
+        importBtn.addActionListener(e -> onImport());
+        exportBtn.addActionListener(e -> onExport());
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                // дописываем изменения до выхода из приложения
+                if (autoSaver != null) autoSaver.close();
+            }
         });
 
         clearSearch.addActionListener(e -> {
@@ -142,27 +219,197 @@ public class PhoneBookFrame extends JFrame {
         }
     }
 
+    /**
+     * Запускает фильтрацию с паузой после ввода (см. {@link SearchExecutor}).
+     */
     private void applyFilter() {
+        applyFilter(SearchExecutor.DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Пересчитывает фильтр сразу, без паузы (после изменения данных).
+     */
+    private void refreshFilter() {
+        if (!searchField.getText().trim().isEmpty()) applyFilter(0);
+    }
+
+    private void applyFilter(long delayMillis) {
         String text = searchField.getText().trim();
         int mode = searchCombo.getSelectedIndex();
 
         if (text.isEmpty()) {
+            search.cancel();
             sorter.setRowFilter(null);
             return;
         }
 
-        try {
-            if (mode == 0) {
-                sorter.setRowFilter(RowFilter.regexFilter("(?i)" + Pattern.quote(text), 0));
+        search.submit(() -> {
+            long version = model.getVersion();
+            return switch (mode) {
+                case 0 -> new FilterResult(version, model.findRowsByName(text), null);
+                case 1 -> new FilterResult(version, model.findRowsByNumber(text), null);
+                default -> new FilterResult(version, null, model.findRowsFuzzy(text, FUZZY_LIMIT));
+            };
+        }, result -> {
+            if (result.version() != model.getVersion()) {
+                applyFilter(0); // список изменился, пока шёл поиск: номера строк устарели
+                return;
+            }
+            if (result.ranked() != null) {
+                sorter.setRowOrder(result.ranked()); // от лучшего совпадения к худшему
+                return;
+            }
+            sorter.setRowFilter(new RowFilter<>() {
+                @Override
+                public boolean include(Entry<? extends ContactTableModel, ? extends Integer> entry) {
+                    return result.rows().get(entry.getIdentifier());
+                }
+            });
+        }, delayMillis);
+    }
+
+    /**
+     * Загружает базу в фоне, показывая контакты по мере чтения.
+     * Пока идёт загрузка, кнопки изменения базы недоступны.
+     *
+     * @return задача загрузки; завершается в EDT после показа последней порции
+     */
+    public CompletableFuture<Void> loadContacts() {
+        setEditingEnabled(false);
+        loadProgress.setIndeterminate(true);
+        loadProgress.setString("Загрузка...");
+        loadProgress.setVisible(true);
+        return model.loadInBackground(LOAD_CHUNK_SIZE, SwingUtilities::invokeLater, this::showLoadProgress)
+                .whenComplete((r, e) -> {
+                    loadProgress.setVisible(false);
+                    setEditingEnabled(true);
+                    refreshFilter();
+                    if (e != null) {
+                        JOptionPane.showMessageDialog(this, "Ошибка при загрузке: " + e.getMessage(),
+                                "Ошибка", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+    }
+
+    private void showLoadProgress(int loaded, int total) {
+        loadProgress.setIndeterminate(false);
+        loadProgress.setMaximum(Math.max(1, total));
+        loadProgress.setValue(loaded);
+        loadProgress.setString("Загружено " + loaded + " из " + total);
+        // строка поиска могла быть заполнена до окончания загрузки
+        refreshFilter();
+    }
+
+    private void setEditingEnabled(boolean enabled) {
+        for (JButton b : editingButtons) b.setEnabled(enabled);
+    }
+
+    /**
+     * Сохраняет базу в фоне; о результате сообщает, когда запись завершится.
+     */
+    private void onSave() {
+        model.saveInBackground().whenComplete((r, e) -> SwingUtilities.invokeLater(() -> {
+            if (e == null) {
+                JOptionPane.showMessageDialog(this, "База сохранена.", "OK", JOptionPane.INFORMATION_MESSAGE);
+                logger.info("Контакты сохранены в файл");
             } else {
-                sorter.setRowFilter(RowFilter.regexFilter(Pattern.quote(text), 1));
+                JOptionPane.showMessageDialog(this, "Ошибка при сохранении: " + model.getSaveState().error(),
+                        "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (Exception ex) {
-            sorter.setRowFilter(null);
-            logger.warn("Ошибка при применении фильтра поиска", ex);
+        }));
+    }
+
+    private void showSaveState(SaveState state) {
+        String time = state.time() == null ? ""
+                : LocalTime.ofInstant(state.time(), ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        saveStatus.setForeground(state.status() == SaveState.Status.FAILED ? Color.RED : UIManager.getColor("Label.foreground"));
+        saveStatus.setToolTipText(state.error());
+        switch (state.status()) {
+            case IN_FLIGHT -> saveStatus.setText("Сохранение...");
+            case SUCCEEDED -> saveStatus.setText("Сохранено в " + time);
+            case FAILED -> saveStatus.setText("Ошибка сохранения в " + time);
+            default -> saveStatus.setText(" ");
         }
     }
 
+    private void onImport() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Импорт контактов");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV и vCard", "csv", "txt", "vcf", "vcard"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        ExchangeFormat format;
+        try {
+            format = ExchangeFormat.forFile(file);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        runExchange("Импорт...", () -> new ContactImporter(model).importFile(file, format), stats -> {
+            refreshFilter();
+            JOptionPane.showMessageDialog(this, String.format("Импортировано контактов: %,d за %,d мс (%,d записей в секунду)."
+                            + "%nПропущено записей: %,d.", stats.contacts(), stats.millis(), stats.recordsPerSecond(), stats.skipped()),
+                    "Импорт", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+
+    private void onExport() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Экспорт контактов");
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV", "csv");
+        FileNameExtensionFilter vcard3 = new FileNameExtensionFilter("vCard 3.0", "vcf");
+        FileNameExtensionFilter vcard4 = new FileNameExtensionFilter("vCard 4.0", "vcf");
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.addChoosableFileFilter(csv);
+        chooser.addChoosableFileFilter(vcard3);
+        chooser.addChoosableFileFilter(vcard4);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        ExchangeFormat format = chooser.getFileFilter() == vcard4 ? ExchangeFormat.VCARD_4
+                : chooser.getFileFilter() == vcard3 ? ExchangeFormat.VCARD_3 : ExchangeFormat.CSV;
+        Path file = chooser.getSelectedFile().toPath();
+        if (!file.getFileName().toString().contains(".")) file = file.resolveSibling(file.getFileName() + "." + format.getExtension());
+        Path target = file;
+        // выгружается снимок: книгу можно править, пока идёт запись
+        List<Contact> contacts = model.snapshot().getContacts();
+        runExchange("Экспорт...", () -> new ContactExporter().export(contacts, target, format), stats ->
+                JOptionPane.showMessageDialog(this, String.format("Выгружено контактов: %,d за %,d мс.", stats.contacts(), stats.millis()),
+                        "Экспорт", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    /** Импорт или экспорт, выполняемый в фоне */
+    private interface ExchangeTask {
+        ExchangeStats run() throws IOException;
+    }
+
+    /**
+     * Выполняет импорт или экспорт в фоне; кнопки изменения базы на это время недоступны.
+     */
+    private void runExchange(String progress, ExchangeTask task, Consumer<ExchangeStats> done) {
+        setEditingEnabled(false);
+        loadProgress.setIndeterminate(true);
+        loadProgress.setString(progress);
+        loadProgress.setVisible(true);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((stats, e) -> SwingUtilities.invokeLater(() -> {
+            loadProgress.setVisible(false);
+            setEditingEnabled(true);
+            if (e == null) {
+                done.accept(stats);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException io) cause = io.getCause();
+            logger.error("Ошибка импорта или экспорта: {}", cause.getMessage());
+            refreshFilter();
+            JOptionPane.showMessageDialog(this, "Ошибка: " + cause.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }));
+    }
+
     private void onAdd() {
         ContactFormDialog dlg = new ContactFormDialog(this, null);
         dlg.setVisible(true);
@@ -170,39 +417,44 @@ public class PhoneBookFrame extends JFrame {
         if (dlg.isOk()) {
             Contact c = dlg.getContact();
             model.addContact(c);
-            tableModel.fireTableDataChanged();
+            refreshFilter();
             logger.info("Добавлен контакт: {}", c.fullName);
         }
     }
 
     private void onEdit() {
+        if (model.isLoading()) return;
         int viewRow = table.getSelectedRow();
         if (viewRow < 0) {
             JOptionPane.showMessageDialog(this, "Выберите контакт для редактирования.", "Инфо", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
 
-        int modelRow = table.convertRowIndexToModel(viewRow);
-        Contact c = model.getContacts().get(modelRow);
+        // строка выбрана в показанном таблицей снимке, который может отставать от модели
+        Contact c = tableModel.getContact(table.convertRowIndexToModel(viewRow));
 
         ContactFormDialog dlg = new ContactFormDialog(this, c);
         dlg.setVisible(true);
 
         if (dlg.isOk()) {
-            tableModel.fireTableDataChanged();
-            logger.info("Изменен контакт: {}", c.fullName);
+            if (model.updateContact(dlg.getContact())) {
+                logger.info("Изменен контакт: {}", dlg.getContact().fullName);
+            } else {
+                logger.warn("Контакт удалён, пока редактировался: {}", c.fullName);
+            }
+            refreshFilter();
         }
     }
 
     private void onDelete() {
+        if (model.isLoading()) return;
         int viewRow = table.getSelectedRow();
         if (viewRow < 0) {
             JOptionPane.showMessageDialog(this, "Выберите контакт для удаления.", "Инфо", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
 
-        int modelRow = table.convertRowIndexToModel(viewRow);
-        Contact c = model.getContacts().get(modelRow);
+        Contact c = tableModel.getContact(table.convertRowIndexToModel(viewRow));
 
         int ans = JOptionPane.showConfirmDialog(
                 this,
@@ -212,12 +464,27 @@ public class PhoneBookFrame extends JFrame {
         );
 
         if (ans == JOptionPane.YES_OPTION) {
-            model.removeContact(modelRow);
-            tableModel.fireTableDataChanged();
-            logger.info("Удален контакт: {}", c.fullName);
+            if (model.removeContactById(c.id)) logger.info("Удален контакт: {}", c.fullName);
+            refreshFilter();
         }
     }
 
+    @Override
+    public void dispose() {
+        model.removeSaveListener(saveListener);
+        if (autoSaver != null) autoSaver.close();
+        search.close();
+        logger.info("Задержка поиска за сеанс: {}", search.getLatency());
+        super.dispose();
+    }
+
+    /**
+     * Результат фонового поиска: номера строк и версия списка, по которой они посчитаны.
+     * Нечёткий поиск возвращает строки по убыванию релевантности ({@code ranked}), остальные — множество ({@code rows}).
+     */
+    private record FilterResult(long version, BitSet rows, int[] ranked) {
+    }
+
     private void setComponentsFontSize(Component comp, int size) {
         Font f = comp.getFont();
         if (f != null)
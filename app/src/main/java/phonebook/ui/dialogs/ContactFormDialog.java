@@ -6,6 +6,8 @@ import phonebook.model.PhoneType;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -119,7 +121,7 @@ public class ContactFormDialog extends JDialog {
         if (contact != null) {
             nameField.setText(contact.fullName);
             noteArea.setText(contact.note);
-            for (PhoneNumber p : contact.phones) phoneListModel.addElement(p);
+            for (PhoneNumber p : contact.getPhones()) phoneListModel.addElement(p);
             logger.debug("Загружены данные контакта для редактирования: {}", contact.fullName);
         }
 
@@ -130,7 +132,7 @@ public class ContactFormDialog extends JDialog {
             ped.setVisible(true);
             if (ped.isOk()) {
                 phoneListModel.addElement(ped.getPhone());
-                logger.info("Телефон добавлен: {}", ped.getPhone().number);
+                logger.info("Телефон добавлен: {}", ped.getPhone().getNumber());
             }
         });
 
@@ -146,7 +148,7 @@ public class ContactFormDialog extends JDialog {
             ped.setVisible(true);
             if (ped.isOk()) {
                 phoneListModel.set(idx, ped.getPhone());
-                logger.info("Телефон изменён: {} -> {}", pn.number, ped.getPhone().number);
+                logger.info("Телефон изменён: {} -> {}", pn.getNumber(), ped.getPhone().getNumber());
             }
         });
 
@@ -155,7 +157,7 @@ public class ContactFormDialog extends JDialog {
             if (idx >= 0) {
                 PhoneNumber pn = phoneListModel.get(idx);
                 phoneListModel.remove(idx);
-                logger.info("Телефон удалён: {}", pn.number);
+                logger.info("Телефон удалён: {}", pn.getNumber());
             }
         });
 
@@ -179,14 +181,17 @@ public class ContactFormDialog extends JDialog {
             logger.info("Создан новый контакт: {}", name);
         } else {
             logger.info("Редактируется контакт: {}", contact.fullName);
+            // изменения вносятся в копию, исходный контакт заменяется в модели целиком
+            contact = contact.copy();
             contact.fullName = name;
         }
 
         // Сохраняем телефоны
-        contact.phones.clear();
+        List<PhoneNumber> phones = new ArrayList<>(phoneListModel.size());
         for (int i = 0; i < phoneListModel.size(); i++) {
-            contact.phones.add(phoneListModel.get(i));
+            phones.add(phoneListModel.get(i));
         }
+        contact.setPhones(phones);
 
         // Сохраняем заметку
         contact.note = noteArea.getText().trim();
@@ -217,6 +222,9 @@ public class ContactFormDialog extends JDialog {
 
     /**
      * Возвращает контакт с введёнными данными.
+     * <p>
+     * При редактировании это новая копия исходного контакта с тем же id,
+     * которую нужно передать в {@link phonebook.model.PhoneBookModel#updateContact(Contact)}.
      *
      * @return объект Contact, заполненный из формы
      */
@@ -47,7 +47,7 @@ public class PhoneEditDialog extends JDialog {
         init(existing);
         pack();
         setLocationRelativeTo(owner);
-        logger.debug("Открыт PhoneEditDialog для {}", existing == null ? "нового номера" : existing.number);
+        logger.debug("Открыт PhoneEditDialog для {}", existing == null ? "нового номера" : existing.getNumber());
     }
 
     /**
@@ -78,9 +78,9 @@ public class PhoneEditDialog extends JDialog {
         add(bottom, BorderLayout.SOUTH);
 
         if (existing != null) {
-            numberField.setText(existing.number);
+            numberField.setText(existing.getNumber());
             typeCombo.setSelectedItem(existing.type);
-            logger.debug("Загружен существующий номер для редактирования: {}", existing.number);
+            logger.debug("Загружен существующий номер для редактирования: {}", existing.getNumber());
         }
 
         okBtn.addActionListener(e -> saveAndClose());
@@ -88,7 +88,8 @@ public class PhoneEditDialog extends JDialog {
     }
 
     /**
-     * Сохраняет введённый номер и закрывает диалог с флагом OK.
+     * Проверяет и сохраняет введённый номер и закрывает диалог с флагом OK.
+     * Номер приводится к канонической форме (см. {@link PhoneNumber#normalize(String)}).
      */
     private void saveAndClose() {
         String num = numberField.getText().trim();
@@ -97,6 +98,14 @@ public class PhoneEditDialog extends JDialog {
             JOptionPane.showMessageDialog(this, "Номер не может быть пустым.", "Ошибка", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        if (PhoneNumber.normalize(num) == 0) {
+            logger.warn("Некорректный номер: {}", num);
+            JOptionPane.showMessageDialog(this,
+                    "Номер должен содержать от 1 до " + PhoneNumber.MAX_DIGITS + " цифр и может начинаться с \"+\".\n"
+                            + "Допустимы пробелы, скобки, дефисы и точки.",
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         PhoneType t = (PhoneType) typeCombo.getSelectedItem();
         phone = new PhoneNumber(num, t);
         ok = true;
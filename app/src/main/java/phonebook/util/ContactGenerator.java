@@ -0,0 +1,225 @@
+package phonebook.util;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Генератор синтетических контактов для нагрузочных испытаний.
+ * <p>
+ * Контакт с номером {@code i} зависит только от зерна и {@code i}, поэтому книга
+ * генерируется параллельно на всех ядрах и при этом воспроизводится от запуска к запуску.
+ * Настраиваются доля латинских имён, количество телефонов у контакта, распределение
+ * типов телефонов и заметки. Контакты создаются без id: его назначает модель.
+ */
+public class ContactGenerator {
+
+    private static final String[] SURNAMES = {
+            "Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров", "Соколов", "Михайлов",
+            "Новиков", "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семёнов", "Егоров",
+            "Павлов", "Козлов", "Степанов", "Николаев", "Орлов", "Андреев", "Макаров", "Никитин",
+            "Захаров", "Зайцев", "Соловьёв", "Борисов", "Яковлев", "Григорьев", "Романов", "Воробьёв"
+    };
+    private static final String[] MALE_NAMES = {
+            "Александр", "Сергей", "Дмитрий", "Андрей", "Алексей", "Максим", "Евгений", "Иван",
+            "Михаил", "Артём", "Николай", "Владимир", "Павел", "Роман", "Олег", "Юрий"
+    };
+    private static final String[] FEMALE_NAMES = {
+            "Анна", "Мария", "Елена", "Ольга", "Татьяна", "Наталья", "Ирина", "Екатерина",
+            "Светлана", "Юлия", "Анастасия", "Дарья", "Ксения", "Алина", "Виктория", "Полина"
+    };
+    private static final String[] PATRONYMICS = {
+            "Александров", "Сергеев", "Дмитриев", "Андреев", "Алексеев", "Михайлов", "Иванов",
+            "Николаев", "Владимиров", "Павлов", "Викторов", "Юрьев"
+    };
+    private static final String[] LATIN_FIRST = {
+            "John", "Michael", "David", "James", "Robert", "Anna", "Maria", "Laura", "Emma", "Olivia",
+            "Thomas", "Daniel", "Sophie", "Lucas", "Julia", "Peter"
+    };
+    private static final String[] LATIN_LAST = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Garcia", "Wilson",
+            "Anderson", "Taylor", "Moore", "Martin", "Lee", "Walker", "Young"
+    };
+    private static final String[] NOTE_WORDS = {
+            "коллега", "клиент", "поставщик", "сосед", "друг", "родственник", "звонить", "после",
+            "обеда", "только", "по", "будням", "день", "рождения", "офис", "склад", "бухгалтерия",
+            "договор", "встреча", "проект", "срочно", "call", "back", "email"
+    };
+    private static final String[] CITY_CODES = {"495", "499", "812", "343", "383", "846", "861", "863"};
+
+    private static final PhoneType[] TYPES = PhoneType.values();
+
+    private final long seed;
+
+    private double latinShare = 0.1;
+    private int minPhones = 1;
+    private int maxPhones = 3;
+    private double noteShare = 0.3;
+    private int maxNoteLength = 60;
+
+    /** Накопленные веса типов телефонов в порядке {@link PhoneType#values()} */
+    private int[] typeWeights = cumulative(new int[]{60, 20, 15, 2, 3});
+
+    /**
+     * Создаёт генератор.
+     *
+     * @param seed зерно случайных чисел
+     */
+    public ContactGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Задаёт долю контактов с латинскими именами.
+     *
+     * @param share доля от 0 до 1
+     * @return этот генератор
+     */
+    public ContactGenerator setLatinShare(double share) {
+        this.latinShare = share;
+        return this;
+    }
+
+    /**
+     * Задаёт количество телефонов у контакта (равномерно в диапазоне).
+     *
+     * @param min наименьшее количество
+     * @param max наибольшее количество
+     * @return этот генератор
+     */
+    public ContactGenerator setPhones(int min, int max) {
+        if (min < 0 || max < min) throw new IllegalArgumentException("Неверный диапазон телефонов: " + min + ".." + max);
+        this.minPhones = min;
+        this.maxPhones = max;
+        return this;
+    }
+
+    /**
+     * Задаёт веса типов телефонов в порядке {@link PhoneType#values()}.
+     *
+     * @param weights неотрицательные веса, хотя бы один положительный
+     * @return этот генератор
+     */
+    public ContactGenerator setTypeWeights(int... weights) {
+        if (weights.length != TYPES.length) {
+            throw new IllegalArgumentException("Нужно " + TYPES.length + " весов типов телефонов");
+        }
+        int[] c = cumulative(weights);
+        if (c[c.length - 1] <= 0) throw new IllegalArgumentException("Все веса типов телефонов равны нулю");
+        this.typeWeights = c;
+        return this;
+    }
+
+    /**
+     * Задаёт заметки: доля контактов с заметкой и наибольшая длина заметки.
+     *
+     * @param share доля от 0 до 1
+     * @param maxLength наибольшая длина в символах
+     * @return этот генератор
+     */
+    public ContactGenerator setNotes(double share, int maxLength) {
+        this.noteShare = share;
+        this.maxNoteLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Создаёт контакт с номером {@code index}.
+     *
+     * @param index номер контакта
+     * @return контакт без id
+     */
+    public Contact contact(long index) {
+        SplittableRandom rnd = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        Contact c = Contact.restore(0, rnd.nextDouble() < latinShare ? latinName(rnd) : cyrillicName(rnd), note(rnd));
+        int phones = minPhones + rnd.nextInt(maxPhones - minPhones + 1);
+        for (int i = 0; i < phones; i++) c.addPhone(phone(rnd));
+        return c;
+    }
+
+    /**
+     * Создаёт телефон по случайному источнику (например, для правки контакта).
+     *
+     * @param rnd источник случайных чисел
+     * @return телефон
+     */
+    public PhoneNumber phone(SplittableRandom rnd) {
+        int w = rnd.nextInt(typeWeights[typeWeights.length - 1]);
+        int t = 0;
+        while (typeWeights[t] <= w) t++;
+        PhoneType type = TYPES[t];
+
+        String code = type == PhoneType.MOBILE ? "9" + (10 + rnd.nextInt(90)) : CITY_CODES[rnd.nextInt(CITY_CODES.length)];
+        String a = digits(rnd.nextInt(1000), 3);
+        String b = digits(rnd.nextInt(100), 2);
+        String c = digits(rnd.nextInt(100), 2);
+        String number = switch (rnd.nextInt(4)) {
+            case 0 -> "+7" + code + a + b + c;
+            case 1 -> "+7 " + code + " " + a + "-" + b + "-" + c;
+            case 2 -> "8 (" + code + ") " + a + "-" + b + "-" + c;
+            default -> "8" + code + a + b + c;
+        };
+        if (type == PhoneType.WORK && rnd.nextInt(10) == 0) number += " доб. " + (100 + rnd.nextInt(900));
+        return PhoneNumber.restore(number, type);
+    }
+
+    /**
+     * Генерирует n контактов параллельно на всех ядрах.
+     *
+     * @param n количество контактов
+     * @return изменяемый список контактов без id
+     */
+    public List<Contact> generate(int n) {
+        Contact[] out = new Contact[n];
+        IntStream.range(0, n).parallel().forEach(i -> out[i] = contact(i));
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
+    private static String cyrillicName(SplittableRandom rnd) {
+        boolean female = rnd.nextBoolean();
+        String surname = SURNAMES[rnd.nextInt(SURNAMES.length)];
+        String name = (female ? FEMALE_NAMES : MALE_NAMES)[rnd.nextInt(female ? FEMALE_NAMES.length : MALE_NAMES.length)];
+        String patronymic = PATRONYMICS[rnd.nextInt(PATRONYMICS.length)];
+        return female
+                ? surname + "а " + name + " " + patronymic + "на"
+                : surname + " " + name + " " + patronymic + "ич";
+    }
+
+    private static String latinName(SplittableRandom rnd) {
+        return LATIN_FIRST[rnd.nextInt(LATIN_FIRST.length)] + " " + LATIN_LAST[rnd.nextInt(LATIN_LAST.length)];
+    }
+
+    private String note(SplittableRandom rnd) {
+        if (maxNoteLength <= 0 || rnd.nextDouble() >= noteShare) return "";
+        int length = 1 + rnd.nextInt(maxNoteLength);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(NOTE_WORDS[rnd.nextInt(NOTE_WORDS.length)]);
+        }
+        sb.setLength(length);
+        return sb.toString().trim();
+    }
+
+    private static String digits(int value, int width) {
+        String s = Integer.toString(value);
+        return s.length() >= width ? s : "0".repeat(width - s.length()) + s;
+    }
+
+    private static int[] cumulative(int[] weights) {
+        int[] c = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) throw new IllegalArgumentException("Отрицательный вес: " + weights[i]);
+            sum += weights[i];
+            c[i] = sum;
+        }
+        return c;
+    }
+}
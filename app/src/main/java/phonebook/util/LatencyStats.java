@@ -0,0 +1,75 @@
+package phonebook.util;
+
+import java.util.Arrays;
+
+/**
+ * Счётчик задержек операций.
+ * <p>
+ * Хранит общее количество замеров и последние {@link #WINDOW} значений,
+ * по которым считаются перцентили. Потокобезопасен.
+ */
+public class LatencyStats {
+
+    /** Сколько последних замеров учитывается в перцентилях */
+    public static final int WINDOW = 10_000;
+
+    private final long[] samples = new long[WINDOW];
+    private long count;
+    private long totalNanos;
+
+    /**
+     * Добавляет замер.
+     *
+     * @param nanos длительность операции в наносекундах
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count % WINDOW)] = nanos;
+        count++;
+        totalNanos += nanos;
+    }
+
+    /**
+     * Возвращает общее количество замеров.
+     *
+     * @return количество замеров с момента создания
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Возвращает среднюю длительность по всем замерам.
+     *
+     * @return среднее в наносекундах или 0, если замеров нет
+     */
+    public synchronized long meanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Возвращает перцентиль по последним замерам.
+     *
+     * @param p перцентиль от 0 до 100
+     * @return длительность в наносекундах или 0, если замеров нет
+     */
+    public synchronized long percentileNanos(double p) {
+        int n = (int) Math.min(count, WINDOW);
+        if (n == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, idx))];
+    }
+
+    /**
+     * Возвращает краткую сводку: количество, среднее, p50, p99 и максимум в миллисекундах.
+     *
+     * @return строка сводки
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2f ms p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                count(), meanNanos() / 1e6, percentileNanos(50) / 1e6,
+                percentileNanos(99) / 1e6, percentileNanos(100) / 1e6);
+    }
+}
@@ -0,0 +1,66 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.AutoSaver;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.SaveState;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoSaverTest {
+
+    @Test
+    void testBurstOfEditsIsSavedOnce(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel model = new PhoneBookModel(file);
+        AtomicInteger saves = new AtomicInteger();
+        model.addSaveListener(s -> {
+            if (s.status() == SaveState.Status.IN_FLIGHT) saves.incrementAndGet();
+        });
+
+        AutoSaver saver = new AutoSaver(model, 100, 5000);
+        try {
+            for (int i = 0; i < 5; i++) model.addContact(new Contact("Контакт " + i));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (model.getSaveState().status() != SaveState.Status.SUCCEEDED
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(SaveState.Status.SUCCEEDED, model.getSaveState().status());
+            assertEquals(1, saves.get());
+
+            model.addContact(new Contact("Последний"));
+        } finally {
+            saver.close();
+        }
+        assertFalse(model.hasUnsavedChanges(), "close() дописывает оставшиеся изменения");
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(6, loaded.getContacts().size());
+    }
+
+    @Test
+    void testMaxDelayLimitsPostponing(@TempDir Path dir) throws Exception {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        AutoSaver saver = new AutoSaver(model, 200, 300);
+        try {
+            long start = System.currentTimeMillis();
+            while (model.getSaveState().status() == SaveState.Status.IDLE
+                    && System.currentTimeMillis() - start < 3000) {
+                model.addContact(new Contact("Контакт"));
+                Thread.sleep(20);
+            }
+            assertNotEquals(SaveState.Status.IDLE, model.getSaveState().status());
+            assertTrue(System.currentTimeMillis() - start < 1500);
+        } finally {
+            saver.close();
+        }
+    }
+}
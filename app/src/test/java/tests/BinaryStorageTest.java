@@ -0,0 +1,98 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.LegacyStorage;
+import phonebook.storage.Snapshot;
+
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Contact c = new Contact("Иванов Иван Иванович");
+        c.id = 42;
+        c.note = "Заметка с юникодом — ✓";
+        c.addPhone("+79161234567", PhoneType.MOBILE);
+        c.addPhone("12345", PhoneType.HOME);
+        c.addPhone("8 (495) 123-45-67 доб. 12", PhoneType.WORK);
+        c.addPhone("+", PhoneType.OTHER);
+        Contact empty = new Contact("");
+        empty.id = 43;
+
+        Path file = dir.resolve("book.dat");
+        BinaryStorage.write(file, List.of(c, empty), 5, 4);
+        assertTrue(BinaryStorage.isBinary(file));
+
+        Snapshot s = BinaryStorage.read(file);
+        assertEquals(5, s.generation());
+        assertEquals(4, s.previousGeneration());
+        assertEquals(2, s.contacts().size());
+        Contact r = s.contacts().get(0);
+        assertEquals(42, r.id);
+        assertEquals(c.fullName, r.fullName);
+        assertEquals(c.note, r.note);
+        assertEquals(c.phonesAsString(), r.phonesAsString());
+        assertEquals("", s.contacts().get(1).fullName);
+    }
+
+    @Test
+    void testLargeRecordExceedsBuffer() throws Exception {
+        Contact c = new Contact("Петров");
+        c.id = 1;
+        c.note = "я".repeat(2_000_000);
+        Path file = dir.resolve("book.dat");
+        BinaryStorage.write(file, List.of(c), 1, 0);
+        assertEquals(c.note, BinaryStorage.read(file).contacts().get(0).note);
+    }
+
+    @Test
+    void testLegacyFileMigrated() throws Exception {
+        Path file = dir.resolve("book.dat");
+        List<Contact> legacy = new ArrayList<>();
+        Contact c = new Contact("Сидоров Сидор");
+        c.addPhone("111", PhoneType.FAX);
+        legacy.add(c);
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file))) {
+            oos.writeObject(legacy);
+        }
+
+        PhoneBookModel m = new PhoneBookModel(file.toFile());
+        m.loadFromFile();
+        assertEquals(1, m.getContacts().size());
+        assertTrue(BinaryStorage.isBinary(file));
+        assertTrue(Files.exists(dir.resolve("book.dat.bak")));
+
+        PhoneBookModel reloaded = new PhoneBookModel(file.toFile());
+        reloaded.loadFromFile();
+        assertEquals("111 (Факс)", reloaded.getContacts().get(0).phonesAsString());
+        assertNotEquals(0, reloaded.getContacts().get(0).id);
+    }
+
+    @Test
+    void testUnknownFileIsNotMigrated() throws Exception {
+        Path file = dir.resolve("book.dat");
+        Files.writeString(file, "не база телефонной книги");
+        assertFalse(LegacyStorage.isLegacy(file));
+
+        PhoneBookModel m = new PhoneBookModel(file.toFile());
+        m.loadFromFile();
+        assertEquals(0, m.getContacts().size());
+        assertFalse(Files.exists(dir.resolve("book.dat.bak")), "неизвестный файл не переводится в новый формат");
+        assertEquals("не база телефонной книги", Files.readString(file));
+    }
+}
@@ -0,0 +1,168 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.BlockStorage;
+import phonebook.storage.MappedContactList;
+import phonebook.storage.Snapshot;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Contact> book(int n) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            Contact c = new Contact("Контакт " + i);
+            c.id = i;
+            c.note = i % 3 == 0 ? "Позвонить после обеда, спросить про договор №" + i : "";
+            c.addPhone(String.valueOf(1000 + i), PhoneType.MOBILE);
+            contacts.add(c);
+        }
+        return contacts;
+    }
+
+    @Test
+    void testRoundTripAcrossBlocks() throws Exception {
+        Path file = dir.resolve("book.dat");
+        List<Contact> contacts = book(1000);
+        BlockStorage.write(file, contacts, 5, 4, 64);
+        assertTrue(BlockStorage.isBlockFile(file));
+        assertFalse(BinaryStorage.isBinary(file));
+
+        Snapshot s = BlockStorage.read(file);
+        assertEquals(5, s.generation());
+        assertEquals(4, s.previousGeneration());
+        assertEquals(1000, s.contacts().size());
+        for (int i = 0; i < 1000; i += 111) {
+            Contact r = s.contacts().get(i);
+            assertEquals(contacts.get(i).id, r.id);
+            assertEquals(contacts.get(i).fullName, r.fullName);
+            assertEquals(contacts.get(i).note, r.note);
+            assertEquals(contacts.get(i).phonesAsString(), r.phonesAsString());
+        }
+    }
+
+    @Test
+    void testEmptyBook() throws Exception {
+        Path file = dir.resolve("book.dat");
+        BlockStorage.write(file, List.of(), 1, 0);
+        assertTrue(BlockStorage.read(file).contacts().isEmpty());
+        assertEquals(0, MappedContactList.open(file, 16).size());
+    }
+
+    @Test
+    void testSmallerThanBinary() throws Exception {
+        Path binary = dir.resolve("book.bin");
+        Path blocks = dir.resolve("book.dat");
+        BinaryStorage.write(binary, book(5000), 1, 0);
+        BlockStorage.write(blocks, book(5000), 1, 0);
+        assertTrue(Files.size(blocks) * 2 < Files.size(binary),
+                Files.size(blocks) + " байт против " + Files.size(binary));
+    }
+
+    @Test
+    void testChunksKeepFileOrder() throws Exception {
+        Path file = dir.resolve("book.dat");
+        BlockStorage.write(file, book(1000), 1, 0, 10);
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        BlockStorage.read(file, 300, new BinaryStorage.ChunkReader() {
+            @Override
+            public void start(long generation, long previousGeneration, int count) {
+                assertEquals(1000, count);
+            }
+
+            @Override
+            public void chunk(List<Contact> contacts) {
+                sizes.add(contacts.size());
+                for (Contact c : contacts) ids.add(c.id);
+            }
+        });
+        assertEquals(List.of(300, 300, 300, 100), sizes);
+        for (int i = 0; i < 1000; i++) assertEquals(i + 1, (int) ids.get(i));
+    }
+
+    @Test
+    void testMappedListInflatesOnlyTouchedBlock() throws Exception {
+        Path file = dir.resolve("book.dat");
+        BlockStorage.write(file, book(1000), 3, 0, 100);
+
+        MappedContactList list = MappedContactList.open(file, 200);
+        assertEquals(1000, list.size());
+        assertEquals(3, list.generation());
+        assertEquals(1000, list.maxId());
+        Contact c = list.get(456);
+        assertEquals("Контакт 457", c.fullName);
+        assertSame(c, list.get(456));
+        assertEquals("Контакт 401", list.get(400).fullName);
+        assertEquals("Контакт 1000", list.get(999).fullName);
+
+        list.remove(0);
+        assertEquals("Контакт 2", list.get(0).fullName);
+    }
+
+    @Test
+    void testCorruptBlockDetected() throws Exception {
+        Path file = dir.resolve("book.dat");
+        BlockStorage.write(file, book(1000), 1, 0, 100);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long pos = BlockStorage.HEADER_SIZE + 40;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0x55);
+        }
+
+        assertThrows(IOException.class, () -> BlockStorage.read(file));
+        MappedContactList list = MappedContactList.open(file, 16);
+        assertThrows(UncheckedIOException.class, () -> list.get(0));
+        assertEquals("Контакт 101", list.get(100).fullName, "остальные блоки читаются");
+    }
+
+    @Test
+    void testModelCompressedSnapshotWithJournal() {
+        Path file = dir.resolve("book.dat");
+        PhoneBookModel m = new PhoneBookModel(file.toFile());
+        m.setCompressedSnapshots(true);
+        m.addAll(book(300));
+        m.saveToFile();
+        m.removeContact(0);
+        Contact edited = m.getContacts().get(10).copy();
+        edited.note = "Изменено";
+        m.updateContact(10, edited);
+        m.saveToFile();
+
+        PhoneBookModel loaded = new PhoneBookModel(file.toFile());
+        loaded.loadFromFile();
+        assertEquals(299, loaded.getContacts().size());
+        assertEquals("Изменено", loaded.getContacts().get(10).note);
+
+        PhoneBookModel lazy = new PhoneBookModel(file.toFile());
+        lazy.setLazyLoading(true, 16);
+        lazy.loadFromFile();
+        assertTrue(lazy.getContacts() instanceof MappedContactList);
+        assertEquals("Контакт 2", lazy.getContacts().get(0).fullName);
+        assertEquals("Изменено", lazy.getContacts().get(10).note);
+
+        PhoneBookModel chunked = new PhoneBookModel(file.toFile());
+        chunked.loadInBackground(64, Runnable::run, (n, total) -> { }).join();
+        assertEquals(299, chunked.getContacts().size());
+        assertEquals("Контакт 300", chunked.getContacts().get(298).fullName);
+    }
+}
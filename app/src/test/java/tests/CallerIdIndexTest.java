@@ -0,0 +1,82 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+import phonebook.search.CallerIdIndex;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallerIdIndexTest {
+
+    private static Contact contact(int id, String name, String... numbers) {
+        Contact c = Contact.restore(id, name, null);
+        for (String n : numbers) c.addPhone(n, PhoneType.MOBILE);
+        return c;
+    }
+
+    @Test
+    void testLookupByCanonicalNumber() {
+        CallerIdIndex index = new CallerIdIndex();
+        index.add(contact(1, "Иванов Иван", "+7 (916) 123-45-67", "12 доб. 3"));
+        index.add(contact(2, "Петров Пётр", "8 916 123 45 67", "8 916 123-45-67"));
+        index.add(contact(3, "Сидоров Сидор", "495-000"));
+
+        Contact[] owners = index.lookup(PhoneNumber.normalize("+79161234567"));
+        assertEquals(2, owners.length);
+        assertEquals(1, owners[0].id);
+        assertEquals(2, owners[1].id);
+        assertEquals(3, index.lookup(PhoneNumber.normalize("495000"))[0].id);
+        assertEquals(0, index.lookup(PhoneNumber.normalize("112")).length);
+        assertEquals(2, index.size(), "номер с добавочным не индексируется");
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        CallerIdIndex index = new CallerIdIndex();
+        index.add(contact(1, "Иванов Иван", "111"));
+        index.add(contact(2, "Петров Пётр", "111", "222"));
+        Contact[] before = index.lookup(PhoneNumber.normalize("111"));
+
+        index.update(contact(1, "Иванов Иван", "333"));
+        assertEquals(2, before.length, "выданный массив не изменяется");
+        assertEquals(2, index.lookup(PhoneNumber.normalize("111"))[0].id);
+        assertEquals(1, index.lookup(PhoneNumber.normalize("333"))[0].id);
+
+        index.remove(2);
+        assertEquals(0, index.lookup(PhoneNumber.normalize("111")).length);
+        assertEquals(0, index.lookup(PhoneNumber.normalize("222")).length);
+
+        BitSet ids = new BitSet();
+        ids.set(1);
+        index.removeAll(ids);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testGrowthAndReuseAfterRemoval() {
+        CallerIdIndex index = new CallerIdIndex();
+        for (int id = 1; id <= 5000; id++) {
+            index.add(contact(id, "Контакт " + id, "+7 900 " + String.format("%07d", id), "+7 800 000-00-00"));
+        }
+        assertEquals(5001, index.size());
+        assertEquals(5000, index.lookup(PhoneNumber.normalize("+78000000000")).length);
+        for (int id = 1; id <= 5000; id++) {
+            assertEquals(id, index.lookup(PhoneNumber.normalize("+7900" + String.format("%07d", id)))[0].id);
+        }
+
+        // многократное удаление и добавление не должно переполнять таблицу удалёнными номерами
+        for (int round = 0; round < 20; round++) {
+            for (int id = 1; id <= 5000; id++) {
+                index.update(contact(id, "Контакт " + id, "+7 901 " + String.format("%03d%04d", round, id)));
+            }
+        }
+        assertEquals(5000, index.size());
+        assertEquals(0, index.lookup(PhoneNumber.normalize("+78000000000")).length);
+        assertEquals(7, index.lookup(PhoneNumber.normalize("+79010190007"))[0].id);
+        assertEquals(0, index.lookup(PhoneNumber.normalize("+79010180007")).length);
+    }
+}
@@ -0,0 +1,134 @@
+package tests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.server.CallerIdServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallerIdServerTest {
+
+    @TempDir
+    Path dir;
+
+    private PhoneBookModel model;
+    private CallerIdServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        Contact ivanov = new Contact("Иванов \"Ваня\" Иван");
+        ivanov.addPhone("+7 (916) 123-45-67", PhoneType.MOBILE);
+        ivanov.addPhone("8 (495) 111-22-33", PhoneType.WORK);
+        model.addContact(ivanov);
+        Contact petrov = new Contact("Петров Пётр");
+        petrov.addPhone("84951112233", PhoneType.HOME);
+        model.addContact(petrov);
+
+        server = new CallerIdServer(model, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /** Ответ сервера: код и тело */
+    record Reply(int status, String body) {
+    }
+
+    static Reply get(int port, String pathAndQuery) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create("http://127.0.0.1:" + port + pathAndQuery).toURL().openConnection();
+        int status = conn.getResponseCode();
+        try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            return new Reply(status, in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testLookup() throws IOException {
+        Reply r = get(server.getPort(), "/lookup?number=+79161234567");
+        assertEquals(200, r.status());
+        assertEquals("{\"number\":\"+79161234567\",\"contacts\":[{\"id\":1,\"name\":\"Иванов \\\"Ваня\\\" Иван\","
+                + "\"type\":\"MOBILE\",\"typeName\":\"Сотовый\"}]}", r.body());
+
+        r = get(server.getPort(), "/lookup?number=%2B7%20495%20111-22-33");
+        assertEquals(200, r.status());
+        assertTrue(r.body().contains("\"type\":\"WORK\""), r.body());
+        assertTrue(r.body().contains("\"name\":\"Петров Пётр\",\"type\":\"HOME\""), r.body());
+
+        assertEquals(404, get(server.getPort(), "/lookup?number=112").status());
+        assertEquals(400, get(server.getPort(), "/lookup?number=abc").status());
+        assertEquals(400, get(server.getPort(), "/lookup").status());
+
+        r = get(server.getPort(), "/stats");
+        assertEquals(200, r.status());
+        assertTrue(r.body().startsWith("{\"requests\":5,"), r.body());
+        assertEquals(5, server.getLatency().count());
+    }
+
+    @Test
+    void testMalformedEscapeIsBadRequest() throws IOException {
+        // URI не пропустит такой запрос, поэтому он пишется в сокет как есть, как его шлёт АТС
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write("GET /lookup?number=%zz HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String reply = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            // такую строку запроса отклоняет уже разбор URI в HTTP-сервере JDK, остальное — обработчик
+            assertTrue(reply.startsWith("HTTP/1.1 400"), reply);
+        }
+        assertEquals(200, get(server.getPort(), "/lookup?number=%2B79161234567").status(), "сервер продолжает отвечать");
+    }
+
+    @Test
+    void testLookupsFollowConcurrentEdits() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 500; i++) {
+                Contact c = new Contact("Новый " + i);
+                c.addPhone("+7 900 000-" + String.format("%04d", i), PhoneType.MOBILE);
+                model.addContact(c);
+                if (i % 2 == 1) model.removeContact(model.getContacts().size() - 2);
+            }
+            done.set(true);
+        });
+        List<Future<Integer>> failures = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < 8; t++) {
+                failures.add(clients.submit(() -> {
+                    int failed = 0;
+                    for (int i = 0; !done.get() || i < 20; i++) {
+                        if (get(server.getPort(), "/lookup?number=+79161234567").status() != 200) failed++;
+                    }
+                    return failed;
+                }));
+            }
+        }
+        for (Future<Integer> f : failures) assertEquals(0, (int) f.get());
+        writer.join();
+
+        assertEquals(200, get(server.getPort(), "/lookup?number=+79000000499").status());
+        assertEquals(404, get(server.getPort(), "/lookup?number=+79000000498").status());
+    }
+}
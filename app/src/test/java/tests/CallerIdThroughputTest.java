@@ -0,0 +1,104 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.PhoneBookModel;
+import phonebook.server.CallerIdServer;
+import phonebook.util.ContactGenerator;
+import phonebook.util.LatencyStats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный генератор для сервера определения номера: клиенты в виртуальных потоках
+ * запрашивают номера синтетической книги по постоянным соединениям HTTP/1.1.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class CallerIdThroughputTest {
+
+    private static final int CLIENTS = 64;
+    private static final long SECONDS = 10;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void lookupThroughput() throws Exception {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        ContactGenerator generator = new ContactGenerator(1);
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addAll(generator.generate(n));
+        String[] numbers = new String[4096];
+        for (int i = 0; i < numbers.length; i++) {
+            String number = generator.contact(i * 7919L % n).getPhones().getFirst().getNumber();
+            numbers[i] = URLEncoder.encode(number, StandardCharsets.UTF_8);
+        }
+
+        LatencyStats client = new LatencyStats();
+        try (CallerIdServer server = new CallerIdServer(model, new InetSocketAddress("127.0.0.1", 0))) {
+            server.start();
+            long until = System.nanoTime() + SECONDS * 1_000_000_000L;
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int t = 0; t < CLIENTS; t++) {
+                    int first = t;
+                    pool.submit(() -> {
+                        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+                            socket.setTcpNoDelay(true);
+                            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                            for (int i = first; System.nanoTime() < until; i += CLIENTS) {
+                                long start = System.nanoTime();
+                                out.write(("GET /lookup?number=" + numbers[i % numbers.length]
+                                        + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                                out.flush();
+                                int status = readResponse(in);
+                                client.record(System.nanoTime() - start);
+                                assertTrue(status < 500, "код ответа " + status);
+                            }
+                        }
+                        return null;
+                    });
+                }
+            }
+            System.out.printf("contacts=%d clients=%d  server: %d req/s, %s%n  client: %s%n",
+                    n, CLIENTS, server.getThroughput(), server.getLatency(), client);
+        }
+    }
+
+    /**
+     * Читает ответ HTTP/1.1 с заголовком Content-Length и возвращает его код.
+     */
+    private static int readResponse(DataInputStream in) throws IOException {
+        int status = Integer.parseInt(readLine(in).split(" ")[1]);
+        int length = 0;
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(line.substring(15).trim());
+        }
+        in.readFully(new byte[length]);
+        return status;
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int ch = in.read(); ch != '\n'; ch = in.read()) {
+            if (ch < 0) throw new IOException("Соединение закрыто сервером");
+            if (ch != '\r') sb.append((char) ch);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.storage.ChunkedContactList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedContactListTest {
+
+    private static Contact contact(int id) {
+        return Contact.restore(id, "Контакт " + id, null);
+    }
+
+    private static List<Integer> ids(List<Contact> list) {
+        List<Integer> ids = new ArrayList<>(list.size());
+        for (Contact c : list) ids.add(c.id);
+        return ids;
+    }
+
+    @Test
+    void testMatchesArrayList() {
+        ChunkedContactList list = new ChunkedContactList();
+        List<Contact> expected = new ArrayList<>();
+        Random rnd = new Random(7);
+        int next = 1;
+        for (int step = 0; step < 20_000; step++) {
+            int op = rnd.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                // вставки в середину заставляют порции расти и делиться
+                int row = op < 2 ? expected.size() : rnd.nextInt(expected.size() + 1);
+                Contact c = contact(next++);
+                list.add(row, c);
+                expected.add(row, c);
+            } else if (op < 8) {
+                int row = rnd.nextInt(expected.size());
+                assertSame(expected.remove(row), list.remove(row));
+            } else {
+                int row = rnd.nextInt(expected.size());
+                Contact c = contact(next++);
+                list.set(row, c);
+                expected.set(row, c);
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        assertEquals(ids(expected), ids(list));
+        for (int i = 0; i < expected.size(); i += 97) assertSame(expected.get(i), list.get(i));
+    }
+
+    @Test
+    void testSnapshotIsolation() {
+        ChunkedContactList list = new ChunkedContactList();
+        for (int i = 1; i <= 5000; i++) list.add(contact(i));
+        List<Contact> before = list.snapshot();
+        List<Integer> beforeIds = ids(before);
+
+        list.set(10, contact(10_001));
+        list.add(2000, contact(10_002));
+        list.remove(4000);
+        list.add(contact(10_003));
+        BitSet rows = new BitSet();
+        rows.set(0, 1500);
+        list.removeRows(rows);
+
+        assertEquals(beforeIds, ids(before));
+        assertEquals(5000, before.size());
+        assertEquals(3501, list.size());
+        assertEquals(10_002, list.get(500).id);
+        assertEquals(10_003, list.get(list.size() - 1).id);
+
+        List<Contact> after = list.snapshot();
+        list.clear();
+        assertEquals(3501, after.size());
+        assertEquals(10_003, after.get(3500).id);
+        assertEquals(beforeIds, ids(before));
+    }
+
+    @Test
+    void testAppendAfterSnapshotDoesNotLeak() {
+        ChunkedContactList list = new ChunkedContactList();
+        for (int i = 1; i <= 10; i++) list.add(contact(i));
+        List<Contact> snapshot = list.snapshot();
+        for (int i = 11; i <= 3000; i++) list.add(contact(i));
+        list.remove(5);
+
+        assertEquals(10, snapshot.size());
+        assertEquals(6, snapshot.get(5).id);
+        assertEquals(2999, list.size());
+        assertEquals(7, list.get(5).id);
+    }
+
+    @Test
+    void testSnapshotIsReadOnly() {
+        ChunkedContactList list = new ChunkedContactList();
+        list.add(contact(1));
+        List<Contact> snapshot = list.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(contact(2)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.set(0, contact(2)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+    }
+}
@@ -0,0 +1,197 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.model.PhoneType;
+import phonebook.storage.ColumnarContactList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarContactListTest {
+
+    private static Contact contact(int id, String name, String note, String... numbers) {
+        Contact c = Contact.restore(id, name, note);
+        for (String n : numbers) c.addPhone(n, PhoneType.MOBILE);
+        return c;
+    }
+
+    @Test
+    void testRoundTripAndMutations() {
+        roundTripAndMutations(false);
+        roundTripAndMutations(true);
+    }
+
+    @Test
+    void testCompactionKeepsContents() {
+        compactionKeepsContents(false);
+        compactionKeepsContents(true);
+    }
+
+    @Test
+    void testRemoveRows() {
+        removeRows(false);
+        removeRows(true);
+    }
+
+    @Test
+    void testSnapshotIsolation() {
+        snapshotIsolation(false);
+        snapshotIsolation(true);
+    }
+
+    @Test
+    void testChunkedEditsMatchList() {
+        chunkedEditsMatchList(false);
+        chunkedEditsMatchList(true);
+    }
+
+    private static void roundTripAndMutations(boolean offHeap) {
+        ColumnarContactList list = new ColumnarContactList(offHeap);
+        list.add(contact(1, "Иванов Иван", "Заметка", "+79161234567", "8 (495) 123-45-67", "12 доб. 3"));
+        list.add(contact(2, "Smith John", null));
+        list.add(0, contact(3, "Петров", ""));
+
+        assertEquals(3, list.size());
+        assertEquals(3, list.idAt(0));
+        Contact c = list.get(1);
+        assertEquals(1, c.id);
+        assertEquals("Иванов Иван", c.fullName);
+        assertEquals("Заметка", c.note);
+        assertEquals("+79161234567 (Сотовый); 8 (495) 123-45-67 (Сотовый); 12 доб. 3 (Сотовый)", c.phonesAsString());
+        assertEquals(c.phonesAsString(), list.phonesAt(1));
+        assertNull(list.noteAt(2));
+        assertEquals("", list.phonesAt(2));
+
+        Contact edited = list.get(1).copy();
+        edited.fullName = "Иванов Иван Иванович";
+        edited.addPhone("111", PhoneType.HOME);
+        list.set(1, edited);
+        assertEquals("Иванов Иван Иванович", list.fullNameAt(1));
+        assertEquals(4, list.get(1).getPhones().size());
+
+        list.remove(0);
+        assertEquals(2, list.size());
+        assertEquals(1, list.idAt(0));
+        assertEquals("Smith John", list.fullNameAt(1));
+    }
+
+    private static void compactionKeepsContents(boolean offHeap) {
+        ColumnarContactList list = new ColumnarContactList(offHeap);
+        for (int i = 0; i < 1000; i++) list.add(contact(i + 1, "Контакт " + i, "", "8 (495) 000-" + i));
+        String note = "x".repeat(500);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 1000; i++) {
+                Contact c = list.get(i).copy();
+                c.note = note + round;
+                list.set(i, c);
+            }
+        }
+        assertTrue(list.allocatedBytes() < 4_000_000, "мусор переписывается: " + list.allocatedBytes());
+        assertEquals("Контакт 999", list.fullNameAt(999));
+        assertEquals(note + 9, list.noteAt(500));
+        assertEquals("8 (495) 000-500 (Сотовый)", list.phonesAt(500));
+    }
+
+    private static void removeRows(boolean offHeap) {
+        ColumnarContactList list = new ColumnarContactList(offHeap);
+        for (int i = 0; i < 10; i++) list.add(contact(i + 1, "Контакт " + i, "", "8 (495) 000-0" + i));
+        BitSet rows = new BitSet();
+        rows.set(0);
+        rows.set(3, 6);
+        rows.set(9);
+        list.removeRows(rows);
+
+        assertEquals(5, list.size());
+        int[] ids = new int[list.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = list.idAt(i);
+        assertArrayEquals(new int[]{2, 3, 7, 8, 9}, ids);
+        assertEquals("8 (495) 000-07 (Сотовый)", list.phonesAt(3));
+        list.removeRows(new BitSet());
+        assertEquals(5, list.size());
+    }
+
+    private static void snapshotIsolation(boolean offHeap) {
+        ColumnarContactList list = new ColumnarContactList(offHeap);
+        for (int i = 0; i < 10; i++) list.add(contact(i + 1, "Контакт " + i, "", "8 (495) 000-0" + i));
+        List<Contact> snapshot = list.snapshot();
+
+        Contact edited = list.get(2).copy();
+        edited.fullName = "Изменён";
+        list.set(2, edited);
+        list.remove(0);
+        list.add(contact(11, "Новый", null));
+        BitSet rows = new BitSet();
+        rows.set(4, 6);
+        list.removeRows(rows);
+
+        ColumnarContactList view = (ColumnarContactList) snapshot;
+        assertEquals(10, view.size());
+        assertEquals(1, view.idAt(0));
+        assertEquals("Контакт 2", view.fullNameAt(2));
+        assertEquals("8 (495) 000-09 (Сотовый)", view.phonesAt(9));
+        assertEquals(8, list.size());
+        assertEquals("Изменён", list.fullNameAt(1));
+        assertEquals(11, list.idAt(7));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+
+        list.clear();
+        assertEquals("Контакт 5", view.fullNameAt(5));
+    }
+
+    /**
+     * Правки, вставки и удаления по многим порциям строк со снимками между ними.
+     */
+    private static void chunkedEditsMatchList(boolean offHeap) {
+        ColumnarContactList list = new ColumnarContactList(offHeap);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            list.add(contact(i + 1, "Контакт " + i, null, "8 (495) 000-" + i));
+            expected.add("Контакт " + i);
+        }
+        Random rnd = new Random(7);
+        List<Contact> snapshot = list.snapshot();
+        List<String> atSnapshot = new ArrayList<>(expected);
+        int nextId = 5001;
+        for (int op = 0; op < 3000; op++) {
+            int row = rnd.nextInt(expected.size());
+            switch (op % 4) {
+                case 0 -> {
+                    Contact c = list.get(row).copy();
+                    c.fullName = "Изменён " + op;
+                    list.set(row, c);
+                    expected.set(row, c.fullName);
+                }
+                case 1 -> {
+                    list.add(row, contact(nextId++, "Вставлен " + op, null));
+                    expected.add(row, "Вставлен " + op);
+                }
+                case 2 -> {
+                    list.remove(row);
+                    expected.remove(row);
+                }
+                default -> {
+                    BitSet rows = new BitSet();
+                    rows.set(row, Math.min(expected.size(), row + rnd.nextInt(1500)));
+                    list.removeRows(rows);
+                    for (int i = rows.length() - 1; i >= row; i--) expected.remove(i);
+                    list.add(contact(nextId++, "Дописан " + op, null));
+                    expected.add("Дописан " + op);
+                }
+            }
+            if (op % 500 == 0) {
+                snapshot = list.snapshot();
+                atSnapshot = new ArrayList<>(expected);
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), list.fullNameAt(i));
+        ColumnarContactList view = (ColumnarContactList) snapshot;
+        assertEquals(atSnapshot.size(), view.size());
+        for (int i = 0; i < atSnapshot.size(); i++) assertEquals(atSnapshot.get(i), view.fullNameAt(i));
+    }
+}
@@ -0,0 +1,65 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.storage.ColumnarContactList;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сравнение занимаемой памяти: список объектов {@link Contact} и хранение по столбцам
+ * {@link ColumnarContactList} в куче и вне кучи.
+ * Запуск: {@code ./gradlew perfTest -Dperf.footprint=1000000,10000000}
+ * (для 10 млн контактов списку объектов нужно больше 4 ГБ кучи: тогда он пропускается).
+ */
+@Tag("perf")
+class ColumnarFootprintTest {
+
+    @Test
+    void compareFootprint() {
+        for (String n : System.getProperty("perf.footprint", "1000000,10000000").split(",")) {
+            int size = Integer.parseInt(n.trim());
+            System.out.printf("contacts=%d%n", size);
+            measure("  ArrayList<Contact>", () -> {
+                List<Contact> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(StorageThroughputTest.contact(i));
+                return list;
+            });
+            measure("  columnar (heap)   ", () -> fill(new ColumnarContactList(false, size), size));
+            measure("  columnar (offheap)", () -> fill(new ColumnarContactList(true, size), size));
+        }
+    }
+
+    private static ColumnarContactList fill(ColumnarContactList list, int size) {
+        for (int i = 0; i < size; i++) list.add(StorageThroughputTest.contact(i));
+        return list;
+    }
+
+    private static void measure(String name, java.util.function.Supplier<List<Contact>> build) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedHeap(memory);
+        long t = System.nanoTime();
+        List<Contact> list;
+        try {
+            list = build.get();
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%s  не поместился в кучу (-Xmx %d MB)%n", name, Runtime.getRuntime().maxMemory() >> 20);
+            return;
+        }
+        long build_ = (System.nanoTime() - t) / 1_000_000;
+        long heap = usedHeap(memory) - before;
+        long offHeap = list instanceof ColumnarContactList c && c.isOffHeap() ? c.allocatedBytes() : 0;
+        System.out.printf("%s  heap=%,d B (%d B/contact)  offheap=%,d B  build=%d ms%n",
+                name, heap, heap / list.size(), offHeap, build_);
+        list.clear();
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,49 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.exchange.ContactExporter;
+import phonebook.exchange.ContactImporter;
+import phonebook.exchange.ExchangeFormat;
+import phonebook.exchange.ExchangeStats;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.util.ContactGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Скорость импорта и экспорта CSV и vCard на синтетической книге.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class ContactExchangeThroughputTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importExportThroughput() throws Exception {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = new ContactGenerator(1).generate(n);
+        System.out.printf("contacts=%d%n", n);
+        for (ExchangeFormat format : new ExchangeFormat[]{ExchangeFormat.CSV, ExchangeFormat.VCARD_3}) {
+            Path file = dir.resolve("book." + format.getExtension());
+            ExchangeStats exported = new ContactExporter().export(contacts, file, format);
+
+            PhoneBookModel model = new PhoneBookModel(dir.resolve("book-" + format + ".dat").toFile());
+            ExchangeStats imported = new ContactImporter(model).importFile(file, format);
+            assertEquals(n, imported.contacts());
+            assertEquals(n, model.getContacts().size());
+
+            System.out.printf("%-8s size=%,d B  export=%d ms (%,d rows/s)  import=%d ms (%,d rows/s)%n", format,
+                    Files.size(file), exported.millis(), exported.recordsPerSecond(),
+                    imported.millis(), imported.recordsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.exchange.ContactExporter;
+import phonebook.exchange.ContactImporter;
+import phonebook.exchange.ExchangeFormat;
+import phonebook.exchange.ExchangeStats;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactExporterTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Contact> contacts() {
+        List<Contact> list = new ArrayList<>();
+        Contact ivanov = Contact.restore(1, "Иванов; Иван, \"Ваня\"", "заметка\nв две строки");
+        ivanov.addPhone("+7 (916) 123-45-67", PhoneType.MOBILE);
+        ivanov.addPhone("12 доб. 3", PhoneType.WORK);
+        ivanov.addPhone("+74950000000", PhoneType.FAX);
+        list.add(ivanov);
+        Contact petrov = Contact.restore(2, "Петров Пётр Петрович".repeat(4), null);
+        petrov.addPhone("84951112233", PhoneType.HOME);
+        list.add(petrov);
+        for (int i = 0; i < 100; i++) {
+            Contact c = Contact.restore(3 + i, "Контакт " + i, null);
+            c.addPhone("+7900" + String.format("%07d", i), PhoneType.OTHER);
+            list.add(c);
+        }
+        return list;
+    }
+
+    private static void assertSameContacts(List<Contact> expected, List<Contact> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Contact e = expected.get(i), a = actual.get(i);
+            assertEquals(e.fullName, a.fullName);
+            assertEquals(e.note, a.note);
+            assertEquals(e.getPhones(), a.getPhones());
+        }
+    }
+
+    @Test
+    void testCsvRoundTrip() throws IOException {
+        Path file = dir.resolve("out.csv");
+        ExchangeStats stats = new ContactExporter().setBatchSize(7).export(contacts(), file, ExchangeFormat.CSV);
+        assertEquals(102, stats.contacts());
+        assertTrue(Files.readString(file, StandardCharsets.UTF_8)
+                .startsWith("ФИО,Телефон 1,Тип 1,Телефон 2,Тип 2,Телефон 3,Тип 3,Заметка\r\n"));
+
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        new ContactImporter(model).setBatchSize(5).importFile(file);
+        assertSameContacts(contacts(), model.getContacts());
+    }
+
+    @Test
+    void testVCardRoundTrip() throws IOException {
+        for (ExchangeFormat format : new ExchangeFormat[]{ExchangeFormat.VCARD_3, ExchangeFormat.VCARD_4}) {
+            Path file = dir.resolve("out-" + format + ".vcf");
+            new ContactExporter().setBatchSize(7).export(contacts(), file, format);
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            assertTrue(text.contains(format == ExchangeFormat.VCARD_4 ? "VERSION:4.0" : "VERSION:3.0"));
+            for (String line : text.split("\r\n")) {
+                assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, "длинные строки переносятся: " + line);
+            }
+
+            PhoneBookModel model = new PhoneBookModel(dir.resolve("book-" + format + ".dat").toFile());
+            new ContactImporter(model).importFile(file);
+            assertSameContacts(contacts(), model.getContacts());
+        }
+    }
+
+    @Test
+    void testVCardLayout() throws IOException {
+        StringWriter out = new StringWriter();
+        new ContactExporter().export(contacts().subList(0, 1), out, ExchangeFormat.VCARD_3);
+        assertEquals("BEGIN:VCARD\r\nVERSION:3.0\r\n"
+                + "FN:Иванов\\; Иван\\, \"Ваня\"\r\n"
+                + "N:Иванов\\; Иван\\, \"Ваня\";;;;\r\n"
+                + "TEL;TYPE=CELL:+7 (916) 123-45-67\r\n"
+                + "TEL;TYPE=WORK:12 доб. 3\r\n"
+                + "TEL;TYPE=FAX:+74950000000\r\n"
+                + "NOTE:заметка\\nв две строки\r\n"
+                + "END:VCARD\r\n", out.toString());
+    }
+}
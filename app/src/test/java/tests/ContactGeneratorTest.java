@@ -0,0 +1,70 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+import phonebook.util.ContactGenerator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactGeneratorTest {
+
+    @Test
+    void testSameSeedGivesSameBook() {
+        List<Contact> a = new ContactGenerator(42).generate(2_000);
+        List<Contact> b = new ContactGenerator(42).generate(2_000);
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(a.get(i).fullName, b.get(i).fullName);
+            assertEquals(a.get(i).note, b.get(i).note);
+            assertEquals(a.get(i).getPhones(), b.get(i).getPhones());
+            assertEquals(0, a.get(i).id);
+        }
+        assertEquals(a.get(1_500).fullName, new ContactGenerator(42).contact(1_500).fullName);
+        assertNotEquals(a.get(7).getPhones(), new ContactGenerator(43).contact(7).getPhones());
+    }
+
+    @Test
+    void testDistributions() {
+        List<Contact> book = new ContactGenerator(1)
+                .setLatinShare(0.5)
+                .setPhones(2, 4)
+                .setTypeWeights(0, 0, 1, 0, 0)
+                .setNotes(0, 100)
+                .generate(4_000);
+
+        long latin = book.stream().filter(c -> c.fullName.chars().allMatch(ch -> ch < 128)).count();
+        assertTrue(latin > 1_800 && latin < 2_200, "латинских имён: " + latin);
+        int phones = 0;
+        int extensions = 0;
+        for (Contact c : book) {
+            assertTrue(c.getPhones().size() >= 2 && c.getPhones().size() <= 4);
+            assertTrue(c.note.isEmpty());
+            for (PhoneNumber p : c.getPhones()) {
+                assertEquals(PhoneType.WORK, p.type);
+                phones++;
+                if (p.getPacked() == 0) {
+                    assertTrue(p.getNumber().contains(" доб. "), p.getNumber()); // с добавочным не упаковывается
+                    extensions++;
+                }
+            }
+        }
+        assertTrue(extensions > 0 && extensions < phones / 5, "добавочных: " + extensions);
+    }
+
+    @Test
+    void testNoteLength() {
+        List<Contact> book = new ContactGenerator(7).setNotes(1, 20).generate(500);
+        assertTrue(book.stream().allMatch(c -> !c.note.isEmpty() && c.note.length() <= 20));
+    }
+
+    @Test
+    void testRejectsBadSettings() {
+        ContactGenerator g = new ContactGenerator(1);
+        assertThrows(IllegalArgumentException.class, () -> g.setPhones(3, 1));
+        assertThrows(IllegalArgumentException.class, () -> g.setTypeWeights(1, 2));
+        assertThrows(IllegalArgumentException.class, () -> g.setTypeWeights(0, 0, 0, 0, 0));
+    }
+}
@@ -0,0 +1,156 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.exchange.ContactImporter;
+import phonebook.exchange.ExchangeFormat;
+import phonebook.exchange.ExchangeStats;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private static ExchangeStats importText(PhoneBookModel model, String text, ExchangeFormat format, int batch) throws IOException {
+        return new ContactImporter(model).setBatchSize(batch).importFrom(new BufferedReader(new StringReader(text)), format);
+    }
+
+    @Test
+    void testCsvWithQuotesAndTypes() throws IOException {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        String csv = "\uFEFFФИО,Телефон 1,Тип 1,Телефон 2,Тип 2,Заметка\r\n"
+                + "Иванов Иван,+7 916 123-45-67,Сотовый,8 495 111-22-33,work,\r\n"
+                + "\"Петров, Пётр\",84951112233,,,,\"многострочная\n\"\"заметка\"\"\"\r\n"
+                + "\r\n"
+                + ",,,,,пустая строка\r\n"
+                + ",+79000000000,fax,,,\r\n";
+        ExchangeStats stats = importText(model, csv, ExchangeFormat.CSV, 2);
+
+        assertEquals(4, stats.records());
+        assertEquals(3, stats.contacts());
+        assertEquals(1, stats.skipped());
+        List<Contact> contacts = model.getContacts();
+        assertEquals(3, contacts.size());
+
+        Contact ivanov = contacts.get(0);
+        assertEquals("Иванов Иван", ivanov.fullName);
+        assertEquals(PhoneType.MOBILE, ivanov.getPhones().get(0).type);
+        assertEquals(PhoneType.WORK, ivanov.getPhones().get(1).type);
+        assertNull(ivanov.note);
+
+        Contact petrov = contacts.get(1);
+        assertEquals("Петров, Пётр", petrov.fullName);
+        assertEquals(1, petrov.getPhones().size());
+        assertEquals(PhoneType.OTHER, petrov.getPhones().get(0).type);
+        assertEquals("многострочная\n\"заметка\"", petrov.note);
+
+        assertEquals("+79000000000", contacts.get(2).fullName, "номер без ФИО становится именем");
+        assertEquals(PhoneType.FAX, contacts.get(2).getPhones().get(0).type);
+        assertEquals(2, model.findContactsByNumber("+74951112233").size());
+    }
+
+    @Test
+    void testCsvFromCrmLayout() throws IOException {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        String csv = "Фамилия;Имя;Отчество;Мобильный телефон;Рабочий телефон;Комментарий\n"
+                + "Сидоров;Сидор;Сидорович;8 (916) 000-00-01;8 (495) 000-00-02;VIP\n"
+                + "Smith;John;;;+1 555 0100;\n";
+        ExchangeStats stats = importText(model, csv, ExchangeFormat.CSV, 100);
+
+        assertEquals(2, stats.contacts());
+        Contact sidorov = model.getContacts().get(0);
+        assertEquals("Сидоров Сидор Сидорович", sidorov.fullName);
+        assertEquals(PhoneType.MOBILE, sidorov.getPhones().get(0).type);
+        assertEquals(PhoneType.WORK, sidorov.getPhones().get(1).type);
+        assertEquals("VIP", sidorov.note);
+        assertEquals("Smith John", model.getContacts().get(1).fullName);
+    }
+
+    @Test
+    void testCsvWithoutNameOrPhoneColumns() {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        assertThrows(IOException.class, () -> importText(model, "Город,Улица\nМосква,Тверская\n", ExchangeFormat.CSV, 10));
+    }
+
+    @Test
+    void testVCard() throws IOException {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        String vcf = """
+                BEGIN:VCARD
+                VERSION:3.0
+                N:Иванов;Иван;Иванович;;
+                FN:Иванов Иван Иванович
+                TEL;TYPE=CELL,VOICE:+7 916 123-45-67
+                item1.TEL;TYPE=HOME:8 495 111 22 33
+                NOTE:первая строка\\nвторая\\, с запятой
+                END:VCARD
+                мусор между карточками
+                BEGIN:VCARD
+                VERSION:4.0
+                N:Петров;Пётр;;;
+                TEL;VALUE=uri;TYPE="work,voice":tel:+7-495-000-00-01
+                TEL;TYPE=fax:+7 495 000 00 02
+                NOTE:очень длинная заметка, перенесённая на следующую строку по правилам v
+                 card
+                END:VCARD
+                BEGIN:VCARD
+                VERSION:2.1
+                FN:Сидоров
+                TEL;CELL:+7 916 000 00 03
+                END:VCARD
+                BEGIN:VCARD
+                VERSION:3.0
+                EMAIL:nobody@example.com
+                END:VCARD
+                """;
+        ExchangeStats stats = importText(model, vcf, ExchangeFormat.VCARD_3, 3);
+
+        assertEquals(4, stats.records());
+        assertEquals(3, stats.contacts());
+        List<Contact> contacts = model.getContacts();
+
+        Contact ivanov = contacts.get(0);
+        assertEquals("Иванов Иван Иванович", ivanov.fullName);
+        assertEquals(PhoneType.MOBILE, ivanov.getPhones().get(0).type);
+        assertEquals(PhoneType.HOME, ivanov.getPhones().get(1).type);
+        assertEquals("первая строка\nвторая, с запятой", ivanov.note);
+
+        Contact petrov = contacts.get(1);
+        assertEquals("Петров Пётр", petrov.fullName, "без FN ФИО собирается из N");
+        assertEquals(PhoneType.WORK, petrov.getPhones().get(0).type);
+        assertEquals("+7-495-000-00-01", petrov.getPhones().get(0).getNumber());
+        assertEquals(PhoneType.FAX, petrov.getPhones().get(1).type);
+        assertEquals("очень длинная заметка, перенесённая на следующую строку по правилам vcard", petrov.note);
+
+        assertEquals(PhoneType.MOBILE, contacts.get(2).getPhones().get(0).type);
+    }
+
+    @Test
+    void testImportFileByExtension() throws IOException {
+        Path file = dir.resolve("crm.csv");
+        StringBuilder sb = new StringBuilder("Name,Phone\n");
+        for (int i = 0; i < 1000; i++) sb.append("Контакт ").append(i).append(",+7900").append(String.format("%07d", i)).append('\n');
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        ExchangeStats stats = new ContactImporter(model).setBatchSize(64).importFile(file);
+        assertEquals(1000, stats.contacts());
+        assertEquals(1000, model.getContacts().size());
+        for (int i = 0; i < 1000; i++) assertEquals("Контакт " + i, model.getContacts().get(i).fullName, "порядок файла сохраняется");
+        assertEquals("Контакт 999", model.findContactsByNumber("+79000000999").get(0).fullName);
+        assertThrows(IllegalArgumentException.class, () -> ExchangeFormat.forFile(dir.resolve("book.xlsx")));
+    }
+}
@@ -0,0 +1,79 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneType;
+import phonebook.storage.ContactJournal;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Contact contact(int id, String name) {
+        Contact c = new Contact(name);
+        c.id = id;
+        c.addPhone("111", PhoneType.WORK);
+        return c;
+    }
+
+    @Test
+    void testReplayAddUpdateRemove() throws Exception {
+        ContactJournal journal = new ContactJournal(dir.resolve("j").toFile());
+        journal.reset(7, new byte[0]);
+
+        Contact updated = contact(1, "Иванов Иван");
+        updated.note = "новая заметка";
+        journal.append(List.of(
+                ContactJournal.encode(ContactJournal.OP_ADD, contact(1, "Иванов")),
+                ContactJournal.encode(ContactJournal.OP_ADD, contact(2, "Петров")),
+                ContactJournal.encode(ContactJournal.OP_UPDATE, updated),
+                ContactJournal.encode(ContactJournal.OP_REMOVE, contact(2, "Петров"))));
+
+        Map<Integer, Contact> state = new LinkedHashMap<>();
+        assertEquals(4, journal.replay(7, 0, state));
+        assertEquals(1, state.size());
+        assertEquals("Иванов Иван", state.get(1).fullName);
+        assertEquals("новая заметка", state.get(1).note);
+        assertEquals("111 (Рабочий)", state.get(1).phonesAsString());
+    }
+
+    @Test
+    void testForeignGenerationIgnored() throws Exception {
+        ContactJournal journal = new ContactJournal(dir.resolve("j").toFile());
+        journal.reset(7, new byte[0]);
+        journal.append(List.of(ContactJournal.encode(ContactJournal.OP_ADD, contact(1, "Иванов"))));
+
+        Map<Integer, Contact> state = new LinkedHashMap<>();
+        assertEquals(0, journal.replay(8, 9, state));
+        assertTrue(state.isEmpty());
+        assertEquals(1, journal.replay(8, 7, state));
+    }
+
+    @Test
+    void testTornTailDiscarded() throws Exception {
+        File f = dir.resolve("j").toFile();
+        ContactJournal journal = new ContactJournal(f);
+        journal.reset(1, new byte[0]);
+        journal.append(List.of(
+                ContactJournal.encode(ContactJournal.OP_ADD, contact(1, "Иванов")),
+                ContactJournal.encode(ContactJournal.OP_ADD, contact(2, "Петров"))));
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        Map<Integer, Contact> state = new LinkedHashMap<>();
+        assertEquals(1, journal.replay(1, 0, state));
+        assertEquals("Иванов", state.get(1).fullName);
+    }
+}
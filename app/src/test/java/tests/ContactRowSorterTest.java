@@ -0,0 +1,183 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.ui.ContactRowSorter;
+import phonebook.ui.ContactTableModel;
+
+import javax.swing.*;
+import java.nio.file.Path;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactRowSorterTest {
+
+    @Test
+    void testSortByPhonesUsesDigits() {
+        List<Contact> contacts = new ArrayList<>();
+        for (String n : new String[]{"8 (495) 000", "+7 916 000", "(123) 45"}) {
+            Contact c = new Contact("Контакт " + n);
+            c.addPhone(n, PhoneType.MOBILE);
+            contacts.add(c);
+        }
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(contacts));
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+
+        assertEquals(2, sorter.convertRowIndexToModel(0));
+        assertEquals(1, sorter.convertRowIndexToModel(1));
+        assertEquals(0, sorter.convertRowIndexToModel(2));
+    }
+
+    @Test
+    void testFilterSeesDisplayedText() {
+        Contact c = new Contact("Иванов");
+        c.addPhone("123", PhoneType.FAX);
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(List.of(c)));
+        sorter.setRowFilter(RowFilter.regexFilter("Факс", 1));
+        assertEquals(1, sorter.getViewRowCount());
+    }
+
+    private static List<Contact> named(String... names) {
+        List<Contact> contacts = new ArrayList<>();
+        for (String n : names) contacts.add(new Contact(n));
+        return contacts;
+    }
+
+    private static String[] view(ContactRowSorter sorter, List<Contact> contacts) {
+        String[] names = new String[sorter.getViewRowCount()];
+        for (int i = 0; i < names.length; i++) names[i] = contacts.get(sorter.convertRowIndexToModel(i)).fullName;
+        return names;
+    }
+
+    @Test
+    void testCollationKeyKeepsCollatorOrder() {
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("ru-RU"));
+        String[] words = {"Ёжиков", "ежиков", "Ежов", "Иванов", "иванов", "Ivanov", "Яковлев", "", "Ан-на", "Анна", "Ω"};
+        for (String a : words) {
+            for (String b : words) {
+                int expected = Integer.signum(collator.compare(a, b));
+                int actual = Integer.signum(Arrays.compareUnsigned(
+                        ContactRowSorter.collationKey(collator, a), ContactRowSorter.collationKey(collator, b)));
+                assertEquals(expected, actual, a + " / " + b);
+            }
+        }
+    }
+
+    @Test
+    void testSortByNameUsesRussianCollation() {
+        List<Contact> contacts = named("Яковлев", "ёлкин", "Ежов", "Bond", "Елисеев");
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(contacts));
+        sorter.toggleSortOrder(0);
+        assertArrayEquals(new String[]{"Bond", "Ежов", "Елисеев", "ёлкин", "Яковлев"}, view(sorter, contacts));
+
+        sorter.toggleSortOrder(0);
+        assertEquals(SortOrder.DESCENDING, sorter.getSortKeys().get(0).getSortOrder());
+        assertArrayEquals(new String[]{"Яковлев", "ёлкин", "Елисеев", "Ежов", "Bond"}, view(sorter, contacts));
+    }
+
+    @Test
+    void testSecondaryKeyAndStableOrder() {
+        List<Contact> contacts = named("Петров", "Петров", "Петров", "Андреев");
+        contacts.get(0).note = "б";
+        contacts.get(1).note = "а";
+        contacts.get(2).note = "б";
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(contacts));
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(0, SortOrder.ASCENDING), new RowSorter.SortKey(2, SortOrder.ASCENDING)));
+        int[] order = new int[4];
+        for (int i = 0; i < 4; i++) order[i] = sorter.convertRowIndexToModel(i);
+        assertArrayEquals(new int[]{3, 1, 0, 2}, order); // равные строки — в порядке модели
+        assertEquals(2, sorter.convertRowIndexToView(0));
+    }
+
+    @Test
+    void testEditMovesOnlyChangedRow() {
+        List<Contact> contacts = named("Борисов", "Алексеев", "Васильев");
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(contacts));
+        sorter.setSortsOnUpdates(true);
+        sorter.toggleSortOrder(0);
+        assertArrayEquals(new String[]{"Алексеев", "Борисов", "Васильев"}, view(sorter, contacts));
+
+        contacts.set(1, new Contact("Яшин"));
+        sorter.rowsUpdated(1, 1);
+        assertArrayEquals(new String[]{"Борисов", "Васильев", "Яшин"}, view(sorter, contacts));
+    }
+
+    @Test
+    void testInsertAndDeleteKeepOrderAndFilter() {
+        List<Contact> contacts = named("Борисов", "Алексеев", "Васильев");
+        ContactRowSorter sorter = new ContactRowSorter(new ContactTableModel(contacts));
+        sorter.toggleSortOrder(0);
+        sorter.setRowFilter(RowFilter.notFilter(RowFilter.regexFilter("^Г", 0)));
+
+        contacts.add(0, new Contact("Аверин"));
+        contacts.add(1, new Contact("Гусев"));
+        sorter.rowsInserted(0, 1);
+        assertArrayEquals(new String[]{"Аверин", "Алексеев", "Борисов", "Васильев"}, view(sorter, contacts));
+        assertEquals(-1, sorter.convertRowIndexToView(1), "строка скрыта фильтром");
+
+        contacts.remove(2);
+        sorter.rowsDeleted(2, 2);
+        assertArrayEquals(new String[]{"Аверин", "Алексеев", "Васильев"}, view(sorter, contacts));
+
+        sorter.setRowFilter(null);
+        sorter.setSortKeys(null);
+        assertEquals(4, sorter.getViewRowCount());
+        assertEquals(3, sorter.convertRowIndexToModel(3));
+    }
+
+    @Test
+    void testImportFromOtherThreadKeepsOrder(@TempDir Path dir) throws Exception {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addAll(named("Борисов", "Васильев"));
+        ContactRowSorter[] sorter = new ContactRowSorter[1];
+        SwingUtilities.invokeAndWait(() -> {
+            JTable table = new JTable(new ContactTableModel(model));
+            sorter[0] = new ContactRowSorter((ContactTableModel) table.getModel());
+            table.setRowSorter(sorter[0]);
+            sorter[0].toggleSortOrder(0);
+        });
+
+        model.addAll(named("Аверин", "Гусев"));
+        model.addAll(named("Алексеев"));
+        SwingUtilities.invokeAndWait(() -> {
+            ContactTableModel m = sorter[0].getModel();
+            String[] names = new String[sorter[0].getViewRowCount()];
+            for (int i = 0; i < names.length; i++) names[i] = (String) m.getValueAt(sorter[0].convertRowIndexToModel(i), 0);
+            assertArrayEquals(new String[]{"Аверин", "Алексеев", "Борисов", "Васильев", "Гусев"}, names);
+        });
+    }
+
+    @Test
+    void testRankedRowsShownInRankOrder(@TempDir Path dir) {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addAll(named("Иванова Анна", "Петров Иван", "Иванов Пётр", "Сидоров Олег", "Иваненко Ольга"));
+        ContactTableModel table = new ContactTableModel(model);
+        ContactRowSorter sorter = new ContactRowSorter(table);
+        sorter.toggleSortOrder(0);
+
+        // точное совпадение фамилии, затем фамилия с ошибкой, затем совпадение имени
+        sorter.setRowOrder(model.findRowsFuzzy("Иванов", 10));
+        assertTrue(sorter.getSortKeys().isEmpty(), "сортировка по столбцу не перекрывает релевантность");
+        List<Contact> contacts = model.getContacts();
+        assertArrayEquals(new String[]{"Иванов Пётр", "Иванова Анна", "Петров Иван"}, view(sorter, contacts));
+
+        // пробел при сравнении ФИО не учитывается: "ИвановаАнна" < "ИвановПётр"
+        sorter.toggleSortOrder(0);
+        assertArrayEquals(new String[]{"Иванова Анна", "Иванов Пётр", "Петров Иван"}, view(sorter, contacts));
+        sorter.toggleSortOrder(0);
+        assertArrayEquals(new String[]{"Петров Иван", "Иванов Пётр", "Иванова Анна"}, view(sorter, contacts));
+        sorter.setSortKeys(null);
+        assertArrayEquals(new String[]{"Иванов Пётр", "Иванова Анна", "Петров Иван"}, view(sorter, contacts));
+
+        sorter.setRowFilter(null);
+        assertEquals(5, sorter.getViewRowCount());
+    }
+}
@@ -0,0 +1,123 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.ui.ContactTableModel;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactTableModelTest {
+
+    @Test
+    void testRowEventsFromModel(@TempDir Path dir) throws Exception {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addContact(new Contact("Иванов Иван"));
+        List<TableModelEvent> events = new ArrayList<>();
+
+        SwingUtilities.invokeAndWait(() -> {
+            ContactTableModel tableModel = new ContactTableModel(model);
+            tableModel.addTableModelListener(events::add);
+
+            model.addContact(new Contact("Петров Пётр"));
+            Contact edited = model.getContacts().get(0).copy();
+            edited.fullName = "Иванов Иван Иванович";
+            model.updateContact(0, edited);
+            model.removeContact(1);
+
+            assertEquals(1, tableModel.getRowCount());
+            assertEquals("Иванов Иван Иванович", tableModel.getValueAt(0, 0));
+        });
+
+        assertEquals(3, events.size());
+        assertEvent(events.get(0), TableModelEvent.INSERT, 1);
+        assertEvent(events.get(1), TableModelEvent.UPDATE, 0);
+        assertEvent(events.get(2), TableModelEvent.DELETE, 1);
+    }
+
+    @Test
+    void testLoadReplacesWholeTable(@TempDir Path dir) throws Exception {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addContact(new Contact("Иванов Иван"));
+        model.saveToFile();
+        List<TableModelEvent> events = new ArrayList<>();
+
+        SwingUtilities.invokeAndWait(() -> {
+            ContactTableModel tableModel = new ContactTableModel(model);
+            tableModel.addTableModelListener(events::add);
+            model.loadFromFile();
+            assertEquals(1, tableModel.getRowCount());
+        });
+
+        assertEquals(1, events.size());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+    }
+
+    @Test
+    void testChangesFromOtherThreadsAreCoalesced(@TempDir Path dir) throws Exception {
+        PhoneBookModel model = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        model.addContact(new Contact("Иванов Иван"));
+        model.addContact(new Contact("Петров Пётр"));
+        List<TableModelEvent> events = new ArrayList<>();
+        ContactTableModel[] tableModel = new ContactTableModel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            tableModel[0] = new ContactTableModel(model);
+            tableModel[0].addTableModelListener(events::add);
+        });
+
+        // не в EDT: дописывание и правка на месте показываются событиями об этих строках
+        CountDownLatch busy = blockEdt();
+        for (int i = 0; i < 3; i++) model.addContact(new Contact("Новый " + i));
+        Contact edited = model.getContacts().get(1).copy();
+        edited.note = "Заметка";
+        model.updateContact(1, edited);
+        busy.countDown();
+        SwingUtilities.invokeAndWait(() -> assertEquals(5, tableModel[0].getRowCount()));
+
+        assertEquals(2, events.size());
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        assertEquals(4, events.get(0).getLastRow());
+        assertEvent(events.get(1), TableModelEvent.UPDATE, 1);
+
+        // удаление сдвигает строки — таблица обновляется целиком
+        events.clear();
+        busy = blockEdt();
+        model.removeContact(0);
+        model.addContact(new Contact("Ещё один"));
+        busy.countDown();
+        SwingUtilities.invokeAndWait(() -> assertEquals(5, tableModel[0].getRowCount()));
+        assertEquals(1, events.size());
+        assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+    }
+
+    /**
+     * Занимает EDT, пока не будет отпущена защёлка, чтобы изменения из теста накопились.
+     */
+    private static CountDownLatch blockEdt() {
+        CountDownLatch latch = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return latch;
+    }
+
+    private static void assertEvent(TableModelEvent e, int type, int row) {
+        assertEquals(type, e.getType());
+        assertEquals(row, e.getFirstRow());
+        assertEquals(row, e.getLastRow());
+    }
+}
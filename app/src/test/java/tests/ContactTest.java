@@ -2,8 +2,11 @@ package tests;
 
 import org.junit.jupiter.api.Test;
 import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
 import phonebook.model.PhoneType;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ContactTest {
@@ -12,7 +15,7 @@ class ContactTest {
     void testAddPhone() {
         Contact c = new Contact("Иванов Иван");
         c.addPhone("123456", PhoneType.MOBILE);
-        assertEquals(1, c.phones.size());
+        assertEquals(1, c.getPhones().size());
         assertEquals("123456 (Сотовый)", c.phonesAsString());
     }
 
@@ -22,4 +25,39 @@ class ContactTest {
         c.note = "Тестовая заметка";
         assertEquals("Тестовая заметка", c.note);
     }
+
+    @Test
+    void testPhonesCacheInvalidation() {
+        Contact c = new Contact("Сидоров Сидор");
+        c.addPhone("+7 (916) 123", PhoneType.MOBILE);
+        String first = c.phonesAsString();
+        assertSame(first, c.phonesAsString());
+        assertEquals("7916123", c.phonesSortKey());
+
+        c.addPhone("8-495", PhoneType.WORK);
+        assertEquals("+7 (916) 123 (Сотовый); 8-495 (Рабочий)", c.phonesAsString());
+        assertEquals("7916123 8495", c.phonesSortKey());
+
+        c.setPhones(List.of(new PhoneNumber("1", PhoneType.FAX)));
+        assertEquals("1 (Факс)", c.phonesAsString());
+        assertEquals("1", c.phonesSortKey());
+    }
+
+    @Test
+    void testCopySharesNothingMutable() {
+        Contact c = new Contact("Иванов Иван");
+        c.addPhone("+7 916 123-45-67", PhoneType.MOBILE);
+        String text = c.phonesAsString();
+
+        Contact edited = c.copy();
+        edited.addPhone("8-495", PhoneType.WORK);
+        edited.setPhones(List.of(new PhoneNumber("1", PhoneType.FAX)));
+        assertEquals(1, c.getPhones().size());
+        assertSame(text, c.phonesAsString());
+        assertThrows(UnsupportedOperationException.class, () -> c.getPhones().add(new PhoneNumber("2", PhoneType.HOME)));
+        assertThrows(UnsupportedOperationException.class, () -> c.getPhones().clear());
+
+        edited.setPhones(edited.getPhones());
+        assertEquals("1 (Факс)", edited.phonesAsString());
+    }
 }
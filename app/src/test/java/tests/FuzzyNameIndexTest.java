@@ -0,0 +1,101 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.search.FuzzyNameIndex;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyNameIndexTest {
+
+    private static Contact contact(int id, String name) {
+        Contact c = new Contact(name);
+        c.id = id;
+        return c;
+    }
+
+    private static List<Integer> ids(List<FuzzyNameIndex.Match> matches) {
+        return matches.stream().map(FuzzyNameIndex.Match::id).toList();
+    }
+
+    @Test
+    void testTypoFindsName() {
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.add(contact(1, "Иванов Иван Иванович"));
+        index.add(contact(2, "Петров Пётр"));
+
+        List<FuzzyNameIndex.Match> found = index.search("Иванв", 10);
+        assertEquals(List.of(1), ids(found));
+        assertEquals(1, found.get(0).distance());
+        assertEquals(0, found.get(0).position());
+        assertEquals(List.of(2), ids(index.search("петр", 10)), "ё и регистр не считаются ошибкой");
+        assertEquals(List.of(2), ids(index.search("ПЕТРОВ ПЕТР", 10)));
+        assertEquals(List.of(), ids(index.search("Сидоров", 10)));
+        assertEquals(List.of(1), ids(index.search("Ivanv", 10)), "опечатка в латинской записи");
+    }
+
+    @Test
+    void testToleranceDependsOnLength() {
+        assertEquals(0, FuzzyNameIndex.maxDistance(2));
+        assertEquals(1, FuzzyNameIndex.maxDistance(5));
+        assertEquals(2, FuzzyNameIndex.maxDistance(8));
+
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.add(contact(1, "Ли"));
+        index.add(contact(2, "Александров"));
+        assertEquals(List.of(), ids(index.search("Лю", 10)), "короткое слово — только точно");
+        assertEquals(List.of(2), ids(index.search("Алксандров", 10)));
+        assertEquals(List.of(), ids(index.search("Аксанров", 10)), "три ошибки — слишком много");
+    }
+
+    @Test
+    void testRankingByDistanceThenPosition() {
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.add(contact(1, "Петров Сергей Иванович"));
+        index.add(contact(2, "Иванова Анна"));
+        index.add(contact(3, "Иванов Олег"));
+        index.add(contact(4, "Сидоров Иванов"));
+
+        // "иванов": точное совпадение фамилии, затем точное совпадение второго слова,
+        // затем "иванова" (одна ошибка); "иванович" в латинской записи "ivanovich" дальше допуска
+        assertEquals(List.of(3, 4, 2), ids(index.search("иванов", 10)));
+        assertEquals(List.of(3, 4), ids(index.search("иванов", 2)));
+    }
+
+    @Test
+    void testAllQueryWordsMustMatch() {
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.add(contact(1, "Иванов Иван"));
+        index.add(contact(2, "Иванов Пётр"));
+        assertEquals(List.of(2), ids(index.search("иваноы петр", 10)));
+        assertEquals(List.of(), ids(index.search("иванов олег", 10)));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.add(contact(1, "Сидоров"));
+        index.add(contact(2, "Сидоренко"));
+        index.add(contact(3, "Кузнецов"));
+        assertEquals(List.of(1), ids(index.search("сидоро", 10)));
+
+        index.update(contact(1, "Смирнов"));
+        assertEquals(List.of(), ids(index.search("сидоров", 10)));
+        assertEquals(List.of(1), ids(index.search("смирнв", 10)));
+
+        BitSet removed = new BitSet();
+        removed.set(2);
+        removed.set(3);
+        index.removeAll(removed);
+        assertEquals(List.of(), ids(index.search("сидоренко", 10)));
+        assertEquals(List.of(), ids(index.search("кузнецов", 10)));
+        index.remove(1);
+        assertEquals(List.of(), ids(index.search("смирнов", 10)));
+
+        index.add(contact(4, "Кузнецова"));
+        assertEquals(List.of(4), ids(index.search("кузнецов", 10)));
+    }
+}
@@ -0,0 +1,31 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.util.LatencyStats;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyStatsTest {
+
+    @Test
+    void testPercentiles() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.percentileNanos(99));
+        for (int i = 1; i <= 100; i++) stats.record(i);
+
+        assertEquals(100, stats.count());
+        assertEquals(50, stats.percentileNanos(50));
+        assertEquals(99, stats.percentileNanos(99));
+        assertEquals(100, stats.percentileNanos(100));
+        assertEquals(50, stats.meanNanos());
+    }
+
+    @Test
+    void testWindowKeepsRecentSamples() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < LatencyStats.WINDOW; i++) stats.record(1_000);
+        for (int i = 0; i < LatencyStats.WINDOW; i++) stats.record(5);
+        assertEquals(5, stats.percentileNanos(100));
+        assertEquals(2L * LatencyStats.WINDOW, stats.count());
+    }
+}
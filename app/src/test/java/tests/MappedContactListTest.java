@@ -0,0 +1,223 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.MappedContactList;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedContactListTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeBook(int n) throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            Contact c = new Contact("Контакт " + i);
+            c.id = i;
+            c.addPhone(String.valueOf(1000 + i), PhoneType.MOBILE);
+            contacts.add(c);
+        }
+        Path file = dir.resolve("book.dat");
+        BinaryStorage.write(file, contacts, 3, 0);
+        return file;
+    }
+
+    @Test
+    void testLazyReadAndBoundedCache() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(100), 10);
+        assertEquals(100, list.size());
+        assertEquals(3, list.generation());
+        assertEquals("Контакт 57", list.get(56).fullName);
+        assertEquals("1100 (Сотовый)", list.get(99).phonesAsString());
+        assertSame(list.get(56), list.get(56));
+        assertEquals(100, list.maxId());
+
+        Contact first = list.get(0);
+        for (int i = 1; i < 100; i++) list.get(i);
+        assertNotSame(first, list.get(0));
+        assertEquals(first.fullName, list.get(0).fullName);
+    }
+
+    @Test
+    void testMutations() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(5), 2);
+        Contact added = new Contact("Новый");
+        added.id = 6;
+        list.add(added);
+        list.remove(0);
+        Contact edited = list.get(1).copy();
+        edited.note = "изменён";
+        list.set(1, edited);
+
+        assertEquals(5, list.size());
+        assertEquals("Контакт 2", list.get(0).fullName);
+        assertEquals("изменён", list.get(1).note);
+        assertEquals("Новый", list.get(4).fullName);
+        assertEquals(6, list.maxId());
+        assertEquals(2, list.idAt(0));
+        assertEquals(3, list.idAt(1));
+        assertEquals(6, list.idAt(4));
+    }
+
+    @Test
+    void testSnapshotIsolation() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(5), 2);
+        List<Contact> base = list.snapshot();
+        list.remove(0);
+        List<Contact> removed = list.snapshot();
+        Contact edited = list.get(0).copy();
+        edited.note = "изменён";
+        list.set(0, edited);
+        Contact added = new Contact("Новый");
+        added.id = 6;
+        list.add(1, added);
+
+        assertEquals(5, base.size());
+        assertEquals("Контакт 1", base.get(0).fullName);
+        assertEquals(4, removed.size());
+        assertNotEquals("изменён", removed.get(0).note);
+        assertEquals("Контакт 3", removed.get(1).fullName);
+        assertEquals("изменён", list.get(0).note);
+        assertEquals("Новый", list.get(1).fullName);
+        assertThrows(UnsupportedOperationException.class, () -> removed.add(added));
+    }
+
+    @Test
+    void testEditsAcrossChunksKeepSnapshots() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(5000), 64);
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) expected.add("Контакт " + i);
+        List<Contact> first = list.snapshot();
+        List<Contact> snapshot = first;
+        List<String> atSnapshot = new ArrayList<>(expected);
+        Random rnd = new Random(11);
+        int nextId = 5001;
+        for (int op = 0; op < 3000; op++) {
+            int row = rnd.nextInt(expected.size());
+            switch (op % 4) {
+                case 0 -> {
+                    Contact edited = list.get(row).copy();
+                    edited.fullName = "Изменён " + op;
+                    list.set(row, edited);
+                    expected.set(row, edited.fullName);
+                }
+                case 1 -> {
+                    Contact added = new Contact("Вставлен " + op);
+                    added.id = nextId++;
+                    list.add(row, added);
+                    expected.add(row, added.fullName);
+                }
+                case 2 -> expected.remove(list.remove(row).fullName);
+                default -> {
+                    BitSet rows = new BitSet();
+                    rows.set(row, Math.min(expected.size(), row + 1 + rnd.nextInt(8)));
+                    list.removeRows(rows);
+                    for (int i = rows.length() - 1; i >= row; i--) expected.remove(i);
+                }
+            }
+            if (op % 300 == 0) {
+                snapshot = list.snapshot();
+                atSnapshot = new ArrayList<>(expected);
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), list.get(i).fullName);
+        assertEquals(atSnapshot.size(), snapshot.size());
+        for (int i = 0; i < atSnapshot.size(); i++) assertEquals(atSnapshot.get(i), snapshot.get(i).fullName);
+        assertEquals(5000, first.size());
+        assertEquals("Контакт 4321", first.get(4320).fullName);
+    }
+
+    @Test
+    void testRepeatedEditsDoNotGrowOverlay() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(10), 4);
+        // без снимков прежняя версия заменяется на месте
+        for (int i = 0; i < 100; i++) {
+            Contact edited = list.get(3).copy();
+            edited.note = "правка " + i;
+            list.set(3, edited);
+        }
+        assertEquals(1, list.overlaySize());
+
+        // снимок после каждой правки, как в модели: вытесненные версии убираются при снимке
+        List<Contact> first = list.snapshot();
+        List<Contact> snapshot = first;
+        for (int i = 0; i < 5000; i++) {
+            Contact edited = list.get(i % 2).copy();
+            edited.note = "снимок " + i;
+            list.set(i % 2, edited);
+            snapshot = list.snapshot();
+        }
+        assertTrue(list.overlaySize() <= 2100, "контактов в памяти: " + list.overlaySize());
+        assertEquals("снимок 4999", snapshot.get(1).note);
+        assertEquals("снимок 4998", snapshot.get(0).note);
+        assertEquals("правка 99", first.get(3).note);
+        assertEquals("Контакт 1", first.get(0).fullName);
+        assertEquals("правка 99", list.get(3).note);
+
+        list.remove(3);
+        Contact added = new Contact("Новый");
+        added.id = 11;
+        list.add(added);
+        assertEquals("Новый", list.get(9).fullName);
+        assertEquals("снимок 4998", list.get(0).note);
+    }
+
+    @Test
+    void testApplyJournalChanges() throws Exception {
+        MappedContactList list = MappedContactList.open(writeBook(4), 16);
+        Map<Integer, Contact> changes = new LinkedHashMap<>();
+        Contact edited = new Contact("Изменённый 3");
+        edited.id = 3;
+        Contact added = new Contact("Добавленный");
+        added.id = 9;
+        changes.put(2, null);
+        changes.put(3, edited);
+        changes.put(9, added);
+        changes.put(7, null);
+        list.applyChanges(changes);
+
+        assertEquals(4, list.size());
+        assertEquals("Контакт 1", list.get(0).fullName);
+        assertEquals("Изменённый 3", list.get(1).fullName);
+        assertEquals("Контакт 4", list.get(2).fullName);
+        assertEquals("Добавленный", list.get(3).fullName);
+        assertEquals(9, list.maxId());
+    }
+
+    @Test
+    void testModelLazyLoadWithJournal() {
+        PhoneBookModel m = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        m.addContact(new Contact("Иванов Иван"));
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveToFile();
+        m.removeContact(0);
+        m.addContact(new Contact("Сидоров Сидор"));
+        m.saveToFile();
+
+        PhoneBookModel lazy = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        lazy.setLazyLoading(true, 16);
+        lazy.loadFromFile();
+        assertTrue(lazy.getContacts() instanceof MappedContactList);
+        assertEquals(2, lazy.getContacts().size());
+        assertEquals("Петров Пётр", lazy.getContacts().get(0).fullName);
+        assertEquals("Сидоров Сидор", lazy.getContacts().get(1).fullName);
+
+        lazy.addContact(new Contact("Кузнецов"));
+        assertEquals(4, lazy.getContacts().get(2).id);
+    }
+}
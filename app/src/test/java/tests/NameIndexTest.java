@@ -0,0 +1,92 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.search.NameIndex;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameIndexTest {
+
+    private static Contact contact(int id, String name) {
+        Contact c = new Contact(name);
+        c.id = id;
+        return c;
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet b = new BitSet();
+        for (int id : ids) b.set(id);
+        return b;
+    }
+
+    @Test
+    void testCaseAndYoInsensitiveSubstring() {
+        NameIndex index = new NameIndex();
+        index.add(contact(1, "Фёдоров Пётр"));
+        index.add(contact(2, "Федорова Анна"));
+        index.add(contact(3, "Иванов Иван"));
+
+        assertEquals(ids(1, 2), index.search("ФЕДОРОВ"));
+        assertEquals(ids(1), index.search("петр"));
+        assertEquals(ids(3), index.search("ов ив"));
+        assertEquals(ids(1, 2, 3), index.search("в"));
+        assertEquals(ids(), index.search("ванова"));
+    }
+
+    @Test
+    void testCyrillicAndLatinMatchEachOther() {
+        NameIndex index = new NameIndex();
+        index.add(contact(1, "Иванов Иван"));
+        index.add(contact(2, "John Smith"));
+        index.add(contact(3, "Хабаров Пётр"));
+
+        assertEquals(ids(1), index.search("Ivanov"));
+        assertEquals(ids(1), index.search("ivan"));
+        assertEquals(ids(2), index.search("Смит"));
+        assertEquals(ids(3), index.search("Khabarov"));
+        assertEquals(ids(3), index.search("khabarov petr"));
+    }
+
+    @Test
+    void testPrefixAndInnerSubstringAcrossScripts() {
+        NameIndex index = new NameIndex();
+        index.add(contact(1, "Матсон Ольга"));
+        index.add(contact(2, "Khabarov Ivan"));
+        index.add(contact(3, "Цой Виктор"));
+        index.add(contact(4, "Watson John"));
+
+        assertEquals(ids(1), index.search("Мат"));
+        assertEquals(ids(1, 4), index.search("атсо"));
+        assertEquals(ids(2), index.search("Хаб"));
+        assertEquals(ids(2, 3), index.search("K"));
+        assertEquals(ids(1, 3, 4), index.search("T"));
+        assertEquals(ids(3), index.search("Tsoy"));
+        assertEquals(ids(4), index.search("Wat"));
+    }
+
+    @Test
+    void testTrigramsMustBeAdjacent() {
+        NameIndex index = new NameIndex();
+        index.add(contact(1, "абвгд бвгде"));
+        assertEquals(ids(), index.search("абвгде"));
+        assertEquals(ids(1), index.search("бвгде"));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        NameIndex index = new NameIndex();
+        index.add(contact(5, "Сидоров"));
+        index.add(contact(2, "Сидоренко"));
+        assertEquals(ids(2, 5), index.search("сидор"));
+
+        index.update(contact(5, "Кузнецов"));
+        assertEquals(ids(2), index.search("сидор"));
+        assertEquals(ids(5), index.search("кузн"));
+
+        index.remove(2);
+        assertEquals(ids(), index.search("сидор"));
+    }
+}
@@ -2,11 +2,27 @@ package tests;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import phonebook.model.Contact;
+import phonebook.model.ContactBatch;
+import phonebook.model.PhoneBookEvent;
 import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneBookSnapshot;
+import phonebook.model.PhoneNumber;
 import phonebook.model.PhoneType;
+import phonebook.model.SaveState;
+import phonebook.storage.ColumnarContactList;
+import phonebook.storage.StorageLayout;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,4 +64,417 @@ class PhoneBookModelTest {
         assertEquals("111 (Домашний)", lc.phonesAsString());
         assertEquals("Заметка", lc.note);
     }
+
+    @Test
+    void testJournalReplayAfterIncrementalSave(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        m.addContact(new Contact("Иванов Иван"));
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveToFile();
+        long baseSize = file.length();
+
+        Contact edited = m.getContacts().get(0).copy();
+        edited.note = "Изменено";
+        m.updateContact(0, edited);
+        m.removeContact(1);
+        m.addContact(new Contact("Сидоров Сидор"));
+        m.saveToFile();
+        assertEquals(baseSize, file.length());
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(2, loaded.getContacts().size());
+        assertEquals("Изменено", loaded.getContacts().get(0).note);
+        assertEquals("Сидоров Сидор", loaded.getContacts().get(1).fullName);
+    }
+
+    @Test
+    void testCompactionKeepsState(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        m.addContact(new Contact("Иванов Иван"));
+        m.saveToFile();
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveToFile();
+
+        m.compactInBackground().join();
+        m.addContact(new Contact("Сидоров Сидор"));
+        m.saveToFile();
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(3, loaded.getContacts().size());
+        assertEquals("Петров Пётр", loaded.getContacts().get(1).fullName);
+    }
+
+    @Test
+    void testDirtyCountCollapsesEdits() {
+        model.addContact(new Contact("Иванов Иван"));
+        Contact edited = model.getContacts().get(0).copy();
+        edited.note = "1";
+        model.updateContact(0, edited);
+        edited = edited.copy();
+        edited.note = "2";
+        model.updateContact(0, edited);
+        model.addContact(new Contact("Петров Пётр"));
+        assertEquals(2, model.getDirtyCount());
+
+        model.removeContact(1);
+        assertEquals(1, model.getDirtyCount(), "добавленный и удалённый до сохранения контакт не сохраняется");
+    }
+
+    @Test
+    void testEditAndRemoveById() {
+        model.addContact(new Contact("Иванов Иван"));
+        model.addContact(new Contact("Петров Пётр"));
+        model.addContact(new Contact("Сидоров Сидор"));
+        Contact edited = model.getContacts().get(2).copy();
+        edited.note = "изменён";
+        model.removeContact(0); // строки сдвинулись, пока контакт редактировался
+
+        assertTrue(model.updateContact(edited));
+        assertEquals("изменён", model.getContacts().get(1).note);
+        // копия другого контакта не подменяет id
+        assertThrows(IllegalArgumentException.class, () -> model.updateContact(0, edited));
+        assertEquals("Петров Пётр", model.getContacts().get(0).fullName);
+
+        assertTrue(model.removeContactById(edited.id));
+        assertEquals(1, model.getContacts().size());
+        assertEquals("Петров Пётр", model.getContacts().get(0).fullName);
+        assertFalse(model.removeContactById(edited.id));
+        assertFalse(model.updateContact(edited));
+    }
+
+    @Test
+    void testRecordsLayoutRoundTrip(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        m.setStorageLayout(StorageLayout.RECORDS);
+        for (int i = 0; i < 10; i++) m.addContact(new Contact("Контакт " + i));
+        assertTrue(m.saveToFile());
+        long size = file.length();
+
+        Contact edited = m.getContacts().get(3).copy();
+        edited.fullName = "Контакт З";
+        m.updateContact(3, edited);
+        m.removeContact(5);
+        m.addContact(new Contact("Новый"));
+        assertEquals(3, m.getDirtyCount());
+        assertTrue(m.saveToFile());
+        assertEquals(0, m.getDirtyCount());
+        assertEquals(size, file.length(), "новый контакт занял слот удалённого");
+        assertFalse(new File(file.getPath() + ".journal").exists());
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.setStorageLayout(StorageLayout.RECORDS);
+        loaded.loadFromFile();
+        assertEquals(10, loaded.getContacts().size());
+        assertEquals("Контакт З", loaded.getContacts().get(3).fullName);
+        assertEquals("Контакт 6", loaded.getContacts().get(5).fullName);
+        assertEquals("Новый", loaded.getContacts().get(9).fullName);
+
+        loaded.addContact(new Contact("Ещё один"));
+        assertTrue(loaded.getContacts().get(10).id > 11, "id не пересекаются с загруженными");
+        loaded.compactInBackground().join();
+        assertTrue(loaded.saveToFile());
+
+        PhoneBookModel chunked = new PhoneBookModel(file);
+        chunked.loadInBackground(4, Runnable::run, (n, total) -> { }).join();
+        assertEquals(11, chunked.getContacts().size());
+        assertEquals("Ещё один", chunked.getContacts().get(10).fullName);
+    }
+
+    @Test
+    void testSwitchBetweenLayouts(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        m.addContact(new Contact("Иванов Иван"));
+        m.saveToFile();
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveToFile();
+
+        PhoneBookModel records = new PhoneBookModel(file);
+        records.setStorageLayout(StorageLayout.RECORDS);
+        records.loadFromFile();
+        records.addContact(new Contact("Сидоров Сидор"));
+        assertTrue(records.saveToFile());
+
+        PhoneBookModel journal = new PhoneBookModel(file);
+        journal.loadFromFile();
+        assertEquals(3, journal.getContacts().size());
+        journal.removeContact(0);
+        assertTrue(journal.saveToFile());
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(List.of("Петров Пётр", "Сидоров Сидор"),
+                loaded.getContacts().stream().map(c -> c.fullName).toList());
+    }
+
+    @Test
+    void testFindRowsByNumberFollowsEdits() {
+        Contact a = new Contact("Иванов");
+        a.addPhone("+7 916 111-22-33", PhoneType.MOBILE);
+        Contact b = new Contact("Петров");
+        b.addPhone("8 495 444-55-66", PhoneType.WORK);
+        model.addContact(a);
+        model.addContact(b);
+
+        assertEquals(1, model.findRowsByNumber("4445").nextSetBit(0));
+        assertTrue(model.findRowsByNumber("Рабочий").get(1));
+
+        model.removeContact(0);
+        assertEquals(0, model.findRowsByNumber("4445").nextSetBit(0));
+        assertTrue(model.findRowsByNumber("916").isEmpty());
+
+        Contact c = new Contact("Сидоров");
+        c.addPhone("916", PhoneType.HOME);
+        model.addContact(c);
+        Contact edited = model.getContacts().get(0).copy();
+        edited.setPhones(List.of());
+        model.updateContact(0, edited);
+        assertTrue(model.findRowsByNumber("4445").isEmpty());
+        assertEquals(1, model.findRowsByNumber("916").nextSetBit(0));
+    }
+
+    @Test
+    void testBackgroundSaveStateAndRetry(@TempDir Path dir) {
+        File file = dir.resolve("missing").resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        List<SaveState.Status> states = new CopyOnWriteArrayList<>();
+        m.addSaveListener(s -> states.add(s.status()));
+        m.addContact(new Contact("Иванов Иван"));
+
+        assertThrows(CompletionException.class, () -> m.saveInBackground().join());
+        assertEquals(SaveState.Status.FAILED, m.getSaveState().status());
+        assertNotNull(m.getSaveState().error());
+        assertTrue(m.hasUnsavedChanges(), "изменения возвращаются в очередь после ошибки");
+
+        assertTrue(file.getParentFile().mkdirs());
+        assertTrue(m.saveToFile());
+        assertEquals(SaveState.Status.SUCCEEDED, m.getSaveState().status());
+        assertFalse(m.hasUnsavedChanges());
+        assertEquals(List.of(SaveState.Status.IN_FLIGHT, SaveState.Status.FAILED,
+                SaveState.Status.IN_FLIGHT, SaveState.Status.SUCCEEDED), states);
+
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveInBackground();
+        m.addContact(new Contact("Сидоров Сидор"));
+        assertTrue(m.saveToFile());
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(3, loaded.getContacts().size());
+    }
+
+    @Test
+    void testLoadInBackgroundInChunks(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        for (int i = 0; i < 12; i++) m.addContact(new Contact("Контакт " + i));
+        m.saveToFile();
+        Contact edited = m.getContacts().get(3).copy();
+        edited.fullName = "Изменённый";
+        m.updateContact(3, edited);
+        m.removeContact(0);
+        m.addContact(new Contact("Новый"));
+        m.saveToFile();
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        List<PhoneBookEvent> events = new ArrayList<>();
+        List<Integer> progress = new ArrayList<>();
+        loaded.addPhoneBookListener(events::add);
+        loaded.loadInBackground(5, Runnable::run, (n, total) -> progress.add(n)).join();
+
+        assertFalse(loaded.isLoading());
+        assertEquals(12, loaded.getContacts().size());
+        assertEquals("Контакт 1", loaded.getContacts().get(0).fullName);
+        assertEquals("Изменённый", loaded.getContacts().get(2).fullName);
+        assertEquals("Новый", loaded.getContacts().get(11).fullName);
+        assertEquals(List.of(4, 9, 11, 12), progress);
+        assertEquals(PhoneBookEvent.Type.CHANGED, events.get(0).getType());
+        assertEquals(4, events.stream().filter(e -> e.getType() == PhoneBookEvent.Type.INSERTED).count());
+
+        loaded.addContact(new Contact("Ещё один"));
+        assertTrue(loaded.getContacts().get(12).id > 13, "id не пересекаются с загруженными");
+    }
+
+    @Test
+    void testColumnarStore(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        Contact c = new Contact("Иванов Иван");
+        c.addPhone("8 (495) 123-45-67", PhoneType.WORK);
+        m.addContact(c);
+        m.addContact(new Contact("Петров Пётр"));
+        m.saveToFile();
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.setColumnarStore(true, true);
+        loaded.loadFromFile();
+        assertTrue(loaded.getContacts() instanceof ColumnarContactList);
+        assertEquals("8 (495) 123-45-67 (Рабочий)", loaded.getRows().phonesAt(0));
+
+        Contact edited = loaded.getContacts().get(1).copy();
+        edited.note = "Заметка";
+        loaded.updateContact(1, edited);
+        assertEquals("Заметка", loaded.getRows().noteAt(1));
+        assertEquals(1, loaded.findRowsByName("петров").nextSetBit(0));
+    }
+
+    @Test
+    void testNameSearchByPrefixAndInnerSubstring(@TempDir Path dir) {
+        PhoneBookModel m = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        m.addContact(new Contact("Матсон Ольга"));
+        m.addContact(new Contact("Khabarov Ivan"));
+        m.addContact(new Contact("Betsy Watson"));
+
+        assertEquals(0, m.findRowsByName("Мат").nextSetBit(0));
+        assertEquals(1, m.findRowsByName("K").nextSetBit(0));
+        assertEquals(1, m.findRowsByName("Хаб").nextSetBit(0));
+        assertEquals(2, m.findRowsByName("Bet").nextSetBit(0));
+        assertEquals(2, m.findRowsByName("атсо").cardinality());
+    }
+
+    @Test
+    void testBatchChangesFireOneEvent(@TempDir Path dir) {
+        File file = dir.resolve("book.dat").toFile();
+        PhoneBookModel m = new PhoneBookModel(file);
+        List<PhoneBookEvent> events = new ArrayList<>();
+        m.addPhoneBookListener(events::add);
+
+        List<Contact> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) added.add(new Contact("Контакт " + i));
+        m.addAll(added);
+        assertEquals(1, events.size());
+        assertEquals(PhoneBookEvent.Type.INSERTED, events.get(0).getType());
+        assertEquals(9, events.get(0).getLastRow());
+        assertEquals(2, m.findRowsByName("контакт 2").nextSetBit(0));
+
+        events.clear();
+        int removed = m.removeAll(List.of(added.get(3).id, added.get(4).id, 999));
+        assertEquals(2, removed);
+        assertEquals(1, events.size());
+        assertEquals(PhoneBookEvent.Type.REMOVED, events.get(0).getType());
+        assertEquals(3, events.get(0).getFirstRow());
+        assertEquals(4, events.get(0).getLastRow());
+        assertEquals("Контакт 5", m.getContacts().get(3).fullName);
+
+        events.clear();
+        Contact edited = added.get(8).copy();
+        edited.fullName = "Изменённый";
+        int applied = m.apply(new ContactBatch()
+                .remove(added.get(0).id)
+                .update(edited)
+                .add(new Contact("Новый")));
+        assertEquals(3, applied);
+        assertEquals(1, events.size());
+        assertEquals(PhoneBookEvent.Type.CHANGED, events.get(0).getType());
+        assertEquals(8, m.getContacts().size());
+        assertEquals("Изменённый", m.getContacts().get(5).fullName);
+        assertTrue(m.findRowsByName("контакт 8").isEmpty());
+        assertEquals(5, m.findRowsByName("изменённый").nextSetBit(0));
+        assertTrue(m.hasUnsavedChanges());
+        m.saveToFile();
+
+        PhoneBookModel loaded = new PhoneBookModel(file);
+        loaded.loadFromFile();
+        assertEquals(8, loaded.getContacts().size());
+        assertEquals("Контакт 1", loaded.getContacts().get(0).fullName);
+        assertEquals("Новый", loaded.getContacts().get(7).fullName);
+    }
+
+    @Test
+    void testFindContactsByNumberFollowsEdits() {
+        Contact c = new Contact("Иванов Иван");
+        c.addPhone("+7 (916) 123-45-67", PhoneType.MOBILE);
+        model.addContact(c);
+        assertEquals("Иванов Иван", model.findContactsByNumber("8 916 123 45 67").get(0).fullName);
+
+        Contact edited = model.getContacts().get(0).copy();
+        edited.setPhones(List.of(new PhoneNumber("+7 495 000-00-00", PhoneType.WORK)));
+        model.updateContact(0, edited);
+        assertTrue(model.findContactsByNumber("+79161234567").isEmpty());
+        assertEquals(1, model.findContactsByNumber("84950000000").size());
+
+        model.removeContact(0);
+        assertTrue(model.findContactsByNumber("84950000000").isEmpty());
+        assertTrue(model.findContactsByNumber("не номер").isEmpty());
+    }
+
+    @Test
+    void testSnapshotsAreImmutable() {
+        model.addContact(new Contact("Иванов Иван"));
+        PhoneBookSnapshot before = model.snapshot();
+        Contact edited = model.getContacts().get(0).copy();
+        edited.fullName = "Петров Пётр";
+        model.updateContact(0, edited);
+        model.addContact(new Contact("Сидоров Сидор"));
+
+        assertEquals(1, before.size());
+        assertEquals("Иванов Иван", before.fullNameAt(0));
+        assertEquals(model.getVersion(), model.snapshot().getVersion());
+        assertTrue(before.getVersion() < model.snapshot().getVersion());
+        assertEquals("Петров Пётр", model.getRows().fullNameAt(0));
+        assertThrows(UnsupportedOperationException.class, () -> model.getContacts().remove(0));
+    }
+
+    @Test
+    void testConcurrentReadersDuringWrites(@TempDir Path dir) throws Exception {
+        PhoneBookModel m = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        for (int i = 0; i < 2000; i++) m.addContact(new Contact("Контакт " + i));
+        m.saveToFile();
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int kind = t;
+            readers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (!done.get()) {
+                        PhoneBookSnapshot s = m.snapshot();
+                        int n = 0;
+                        for (Contact c : s.getContacts()) {
+                            assertNotNull(c.fullName);
+                            n++;
+                        }
+                        assertEquals(s.size(), n);
+                        if (kind == 1) m.findRowsByName("контакт 1");
+                        if (kind == 2) m.saveInBackground().join();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (int i = 0; i < 3000; i++) {
+            int size = m.getContacts().size();
+            switch (i % 3) {
+                case 0 -> m.addContact(new Contact("Новый " + i));
+                case 1 -> m.removeContact(i % size);
+                default -> {
+                    Contact c = m.getContacts().get(i % size).copy();
+                    c.note = "изменён " + i;
+                    m.updateContact(i % size, c);
+                }
+            }
+        }
+        done.set(true);
+        for (Thread t : readers) t.join();
+        assertNull(failure.get());
+
+        List<Contact> contacts = m.getContacts();
+        assertEquals(2000, contacts.size());
+        for (int row = 0; row < contacts.size(); row += 101) {
+            String name = contacts.get(row).fullName.toLowerCase();
+            BitSet rows = m.findRowsByName(name);
+            assertTrue(rows.get(row), name);
+        }
+        m.saveToFile();
+        PhoneBookModel loaded = new PhoneBookModel(dir.resolve("book.dat").toFile());
+        loaded.loadFromFile();
+        assertEquals(2000, loaded.getContacts().size());
+    }
 }
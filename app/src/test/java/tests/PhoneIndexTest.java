@@ -0,0 +1,56 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.model.PhoneType;
+import phonebook.search.PhoneIndex;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneIndexTest {
+
+    private static Contact contact(int id, String... numbers) {
+        Contact c = new Contact("Контакт " + id);
+        c.id = id;
+        for (String n : numbers) c.addPhone(n, PhoneType.MOBILE);
+        return c;
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet b = new BitSet();
+        for (int id : ids) b.set(id);
+        return b;
+    }
+
+    @Test
+    void testSubstringSearch() {
+        PhoneIndex index = new PhoneIndex(4);
+        index.add(contact(1, "+7 (916) 123-45-67"));
+        index.add(contact(2, "8-495-765-43-21", "112"));
+        index.add(contact(3));
+
+        assertEquals(ids(1), index.search("916"));
+        assertEquals(ids(1), index.search("1234567"));
+        assertEquals(ids(2), index.search("765 43"));
+        assertEquals(ids(1, 2), index.search("12"));
+        assertEquals(ids(), index.search("99999"));
+        assertEquals(ids(), index.search("абв"));
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        PhoneIndex index = new PhoneIndex();
+        index.add(contact(1, "111222"));
+        index.add(contact(2, "222333"));
+
+        index.update(contact(1, "444555"));
+        assertEquals(ids(2), index.search("222"));
+        assertEquals(ids(1), index.search("445"));
+
+        index.remove(2);
+        assertEquals(ids(), index.search("222"));
+        assertEquals(ids(1), index.search("4"));
+    }
+}
@@ -4,6 +4,11 @@ import org.junit.jupiter.api.Test;
 import phonebook.model.PhoneNumber;
 import phonebook.model.PhoneType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PhoneNumberTest {
@@ -13,4 +18,50 @@ class PhoneNumberTest {
         PhoneNumber pn = new PhoneNumber("123", PhoneType.WORK);
         assertEquals("123 (Рабочий)", pn.toString());
     }
+
+    @Test
+    void testNormalize() {
+        assertEquals("+74951234567", PhoneNumber.format(PhoneNumber.normalize("8 (495) 123-45-67")));
+        assertEquals("+79161234567", PhoneNumber.format(PhoneNumber.normalize("+7 916 123.45.67")));
+        assertEquals("00123", PhoneNumber.format(PhoneNumber.normalize("00-123")));
+        assertEquals(0, PhoneNumber.normalize("8 (495) 123-45-67 доб. 12"));
+        assertEquals(0, PhoneNumber.normalize("1234567890123456"));
+        assertEquals(0, PhoneNumber.normalize("12+3"));
+        assertEquals(0, PhoneNumber.normalize("+"));
+    }
+
+    @Test
+    void testOriginalFormattingKeptOnlyWhenDifferent() {
+        PhoneNumber formatted = new PhoneNumber("8 (495) 123-45-67", PhoneType.WORK);
+        assertEquals("8 (495) 123-45-67", formatted.getNumber());
+        PhoneNumber canonical = new PhoneNumber("+74951234567", PhoneType.WORK);
+        assertEquals("+74951234567", canonical.getNumber());
+        PhoneNumber extension = new PhoneNumber("123 доб. 4", PhoneType.WORK);
+        assertEquals(0, extension.getPacked());
+        assertEquals("123 доб. 4 (Рабочий)", extension.toString());
+    }
+
+    @Test
+    void testEqualityByCanonicalForm() {
+        PhoneNumber a = new PhoneNumber("8 (495) 123-45-67", PhoneType.WORK);
+        PhoneNumber b = new PhoneNumber("+7 495 1234567", PhoneType.WORK);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(a.getPacked(), b.getPacked());
+        assertNotEquals(a, new PhoneNumber("+7 495 1234567", PhoneType.HOME));
+        assertNotEquals(a, new PhoneNumber("84951234568", PhoneType.WORK));
+    }
+
+    @Test
+    void testSerializedFormIsCompatible() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new PhoneNumber("8 (495) 123-45-67", PhoneType.FAX));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            PhoneNumber p = (PhoneNumber) in.readObject();
+            assertEquals("8 (495) 123-45-67 (Факс)", p.toString());
+            assertEquals(PhoneNumber.normalize("+74951234567"), p.getPacked());
+        }
+    }
 }
@@ -17,6 +17,18 @@ class PhoneTypeTest {
         assertEquals(PhoneType.OTHER, PhoneType.fromString(null));
     }
 
+    @Test
+    void testFromLabelsAndVCardTypes() {
+        assertEquals(PhoneType.MOBILE, PhoneType.fromString("CELL,VOICE"));
+        assertEquals(PhoneType.MOBILE, PhoneType.fromString("Мобильный телефон"));
+        assertEquals(PhoneType.MOBILE, PhoneType.fromString("сот."));
+        assertEquals(PhoneType.WORK, PhoneType.fromString("\"work,voice\""));
+        assertEquals(PhoneType.FAX, PhoneType.fromString("home;fax"));
+        assertEquals(PhoneType.MOBILE, PhoneType.fromString("WORK,CELL"), "сотовый точнее рабочего");
+        assertEquals(PhoneType.OTHER, PhoneType.fromString("VOICE,PREF"));
+        assertEquals(PhoneType.OTHER, PhoneType.fromString(""));
+    }
+
     @Test
     void testToString() {
         assertEquals("Сотовый", PhoneType.MOBILE.toString());
@@ -0,0 +1,175 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneType;
+import phonebook.storage.RecordStorage;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private static Contact contact(int id, String name) {
+        Contact c = new Contact(name);
+        c.id = id;
+        c.addPhone("+7 916 000-00-0" + id % 10, PhoneType.MOBILE);
+        return c;
+    }
+
+    private static List<Contact> book(int n) {
+        List<Contact> list = new ArrayList<>();
+        for (int i = 1; i <= n; i++) list.add(contact(i, "Контакт " + i));
+        return list;
+    }
+
+    private static List<String> names(List<Contact> contacts) {
+        return contacts.stream().map(c -> c.fullName).toList();
+    }
+
+    @Test
+    void testCreateAndOpen() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage.create(file, book(3));
+
+        assertTrue(RecordStorage.isRecordFile(file));
+        RecordStorage.Loaded loaded = RecordStorage.open(file);
+        assertEquals(List.of("Контакт 1", "Контакт 2", "Контакт 3"), names(loaded.contacts()));
+        assertEquals("+7 916 000-00-02 (Сотовый)", loaded.contacts().get(1).phonesAsString());
+        assertEquals(0.0, loaded.storage().fragmentation());
+    }
+
+    @Test
+    void testSmallEditIsWrittenInPlace() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage storage = RecordStorage.create(file, book(100));
+        long size = Files.size(file);
+
+        Contact edited = contact(50, "Контакт 5O");
+        RecordStorage.WriteStats stats = storage.write(Map.of(50, edited));
+        assertEquals(1, stats.inPlace());
+        assertEquals(0, stats.appended());
+        assertEquals(size, Files.size(file));
+        assertTrue(stats.bytes() < 100, "перезаписан один контакт");
+
+        List<Contact> loaded = RecordStorage.open(file).contacts();
+        assertEquals(100, loaded.size());
+        assertEquals("Контакт 5O", loaded.get(49).fullName);
+    }
+
+    @Test
+    void testGrownRecordIsRelocatedAndKeepsOrder() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage storage = RecordStorage.create(file, book(3));
+
+        Contact grown = contact(2, "Контакт 2");
+        grown.note = "длинная заметка, которая не помещается в прежний слот записи";
+        RecordStorage.WriteStats stats = storage.write(Map.of(2, grown));
+        assertEquals(0, stats.inPlace());
+        assertEquals(1, stats.appended());
+        assertTrue(storage.fragmentation() > 0, "прежний слот освобождён");
+
+        RecordStorage.Loaded loaded = RecordStorage.open(file);
+        assertEquals(List.of("Контакт 1", "Контакт 2", "Контакт 3"), names(loaded.contacts()));
+        assertEquals(grown.note, loaded.contacts().get(1).note);
+        assertEquals(storage.freeBytes(), loaded.storage().freeBytes(), "свободные слоты восстанавливаются при открытии");
+    }
+
+    @Test
+    void testRemovedSlotIsReused() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage storage = RecordStorage.create(file, book(3));
+        long size = Files.size(file);
+
+        Map<Integer, Contact> removed = new HashMap<>();
+        removed.put(2, null);
+        assertEquals(1, storage.write(removed).removed());
+        assertTrue(storage.freeBytes() > 0);
+
+        RecordStorage.WriteStats stats = storage.write(Map.of(4, contact(4, "Контакт 4")));
+        assertEquals(1, stats.relocated(), "новый контакт занимает освободившийся слот");
+        assertEquals(0, storage.freeBytes());
+        assertEquals(size, Files.size(file));
+
+        List<Contact> loaded = RecordStorage.open(file).contacts();
+        assertEquals(List.of("Контакт 1", "Контакт 3", "Контакт 4"), names(loaded));
+    }
+
+    @Test
+    void testSlotFreedBySaveIsNotReusedBySameSave() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage storage = RecordStorage.create(file, book(3));
+
+        // контакт 2 переносится, а новый контакт 4 поместился бы в его прежний слот
+        Contact grown = contact(2, "Контакт 2");
+        grown.note = "длинная заметка, которая не помещается в прежний слот записи";
+        Map<Integer, Contact> changes = new LinkedHashMap<>();
+        changes.put(2, grown);
+        changes.put(4, contact(4, "Контакт 4"));
+        RecordStorage.WriteStats stats = storage.write(changes);
+        assertEquals(0, stats.relocated(), "прежний слот ещё хранит сохранённую копию");
+        assertEquals(2, stats.appended());
+        assertTrue(storage.freeBytes() > 0, "слот освобождён после сброса на диск");
+
+        List<Contact> loaded = RecordStorage.open(file).contacts();
+        assertEquals(List.of("Контакт 1", "Контакт 2", "Контакт 3", "Контакт 4"), names(loaded));
+        assertEquals(grown.note, loaded.get(1).note);
+
+        stats = storage.write(Map.of(5, contact(5, "Контакт 5")));
+        assertEquals(1, stats.relocated(), "следующее сохранение занимает освободившийся слот");
+        assertEquals(5, RecordStorage.open(file).contacts().size());
+    }
+
+    @Test
+    void testCorruptRecordIsSkipped() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage.create(file, book(3));
+        // испорченный байт в теле первой записи
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long body = RecordStorage.HEADER_SIZE + RecordStorage.RECORD_HEADER_SIZE + 6;
+            raf.seek(body);
+            int b = raf.read();
+            raf.seek(body);
+            raf.write(b ^ 0xFF);
+        }
+
+        RecordStorage.Loaded loaded = RecordStorage.open(file);
+        assertEquals(List.of("Контакт 2", "Контакт 3"), names(loaded.contacts()));
+        assertTrue(loaded.storage().freeBytes() > 0, "слот повреждённой записи считается свободным");
+    }
+
+    @Test
+    void testManySavesAfterReopen() throws Exception {
+        Path file = dir.resolve("book.dat");
+        RecordStorage.create(file, book(20));
+        for (int round = 0; round < 5; round++) {
+            RecordStorage storage = RecordStorage.open(file).storage();
+            Map<Integer, Contact> changes = new LinkedHashMap<>();
+            for (int id = 1; id <= 20; id += 3) {
+                Contact c = contact(id, "Контакт " + id);
+                c.note = "правка ".repeat(round * id % 7);
+                changes.put(id, c);
+            }
+            changes.put(100 + round, contact(100 + round, "Новый " + round));
+            storage.write(changes);
+        }
+
+        List<Contact> loaded = RecordStorage.open(file).contacts();
+        assertEquals(25, loaded.size());
+        assertEquals("Контакт 1", loaded.get(0).fullName);
+        assertEquals("правка ".repeat(4 * 19 % 7), loaded.get(18).note);
+        assertEquals("Новый 4", loaded.get(24).fullName);
+    }
+}
@@ -0,0 +1,67 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.storage.StorageLayout;
+import phonebook.util.ContactGenerator;
+import phonebook.util.LatencyStats;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Время сохранения в зависимости от количества изменённых контактов:
+ * журнал изменений против файла записей с обновлением на месте.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class SaveLatencyTest {
+
+    private static final int ROUNDS = 5;
+
+    private static final int[] DIRTY = {1, 10, 100, 1_000, 10_000};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saveLatencyByDirtyCount() {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        System.out.printf("contacts=%d, мс на сохранение (p50 / макс из %d)%n", n, ROUNDS);
+        System.out.printf("%-8s %8s %16s %16s%n", "layout", "dirty", "p50", "max");
+        for (StorageLayout layout : StorageLayout.values()) {
+            File file = dir.resolve(layout.name().toLowerCase() + ".dat").toFile();
+            PhoneBookModel model = new PhoneBookModel(file);
+            model.setStorageLayout(layout);
+            ContactGenerator generator = new ContactGenerator(1);
+            model.addAll(generator.generate(n));
+            assertTrue(model.saveToFile());
+
+            SplittableRandom rnd = new SplittableRandom(7);
+            for (int dirty : DIRTY) {
+                if (dirty > n) break;
+                LatencyStats stats = new LatencyStats();
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (int i = 0; i < dirty; i++) {
+                        int row = rnd.nextInt(model.getContacts().size());
+                        Contact edited = model.getContacts().get(row).copy();
+                        edited.note = "правка " + round;
+                        model.updateContact(row, edited);
+                    }
+                    assertTrue(model.getDirtyCount() <= dirty, "повторные правки контакта не удваиваются");
+                    long t = System.nanoTime();
+                    assertTrue(model.saveToFile());
+                    stats.record(System.nanoTime() - t);
+                }
+                System.out.printf("%-8s %8d %16.2f %16.2f%n", layout, dirty,
+                        stats.percentileNanos(50) / 1e6, stats.percentileNanos(100) / 1e6);
+            }
+        }
+    }
+}
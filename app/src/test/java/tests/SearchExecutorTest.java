@@ -0,0 +1,58 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.search.SearchExecutor;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchExecutorTest {
+
+    @Test
+    void testOnlyLastQueryRunsAndIsApplied() throws Exception {
+        AtomicInteger computed = new AtomicInteger();
+        List<String> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        try (SearchExecutor search = new SearchExecutor(100)) {
+            SwingUtilities.invokeAndWait(() -> {
+                for (String q : new String[]{"и", "ив", "ива"}) {
+                    search.submit(() -> {
+                        computed.incrementAndGet();
+                        return q;
+                    }, r -> {
+                        assertTrue(SwingUtilities.isEventDispatchThread());
+                        applied.add(r);
+                        done.countDown();
+                    });
+                }
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+
+            assertEquals(1, computed.get());
+            assertEquals(List.of("ива"), applied);
+            assertEquals(1, search.getLatency().count());
+        }
+    }
+
+    @Test
+    void testCancelDropsResult() throws Exception {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        try (SearchExecutor search = new SearchExecutor(50)) {
+            SwingUtilities.invokeAndWait(() -> {
+                search.submit(() -> "x", applied::add);
+                search.cancel();
+            });
+            Thread.sleep(200);
+            SwingUtilities.invokeAndWait(() -> { });
+            assertTrue(applied.isEmpty());
+        }
+    }
+}
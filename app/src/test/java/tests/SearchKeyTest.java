@@ -0,0 +1,56 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.search.SearchKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchKeyTest {
+
+    @Test
+    void testCaseAndYoFolded() {
+        assertEquals(SearchKey.of("фёдоров"), SearchKey.of("ФЕДОРОВ"));
+        assertEquals("", SearchKey.of(null));
+        assertEquals("", SearchKey.of(""));
+    }
+
+    @Test
+    void testCyrillicAndLatinGiveSameKey() {
+        assertEquals("ivanov", SearchKey.of("Иванов"));
+        assertEquals("ivanov", SearchKey.of("IVANOV"));
+        assertEquals(SearchKey.of("Хабаров"), SearchKey.of("Khabarov"));
+        assertEquals(SearchKey.of("Цветков"), SearchKey.of("Tsvetkov"));
+        assertEquals(SearchKey.of("Щукин"), SearchKey.of("Shchukin"));
+        assertEquals(SearchKey.of("Жуков"), SearchKey.of("Zhukov"));
+        assertEquals(SearchKey.of("Юлия"), SearchKey.of("Yuliya"));
+        assertEquals(SearchKey.of("Цой"), SearchKey.of("Tsoy"));
+    }
+
+    @Test
+    void testPrefixesAndInnerSubstringsStaySubstrings() {
+        String[][] cases = {
+                {"Мат", "Матсон"}, {"Mat", "Матсон"}, {"K", "Khabarov"}, {"К", "Khabarov"},
+                {"Wat", "Watson"}, {"Bet", "Betsy"}, {"T", "Tsoy"}, {"Т", "Цой"}, {"ts", "Цой"},
+                {"тсо", "Матсон"}, {"ab", "Хабаров"}, {"Xen", "Xenia"}, {"щу", "Щукин"}
+        };
+        for (String[] c : cases) {
+            assertTrue(SearchKey.of(c[1]).contains(SearchKey.of(c[0])), c[0] + " → " + c[1]);
+        }
+    }
+
+    @Test
+    void testSeparatorsAndDigitsKept() {
+        assertEquals("petrov-vodkin 2", SearchKey.of("Петров-Водкин 2"));
+        assertTrue(SearchKey.of("Иванов Иван").contains(SearchKey.of("ов ив")));
+    }
+
+    @Test
+    void testContactCachesKeyPerName() {
+        Contact c = new Contact("Иванов");
+        String key = c.searchKey();
+        assertSame(key, c.searchKey());
+        c.fullName = "Петров";
+        assertEquals("petrov", c.searchKey());
+    }
+}
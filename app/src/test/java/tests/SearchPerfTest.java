@@ -0,0 +1,89 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.search.FuzzyNameIndex;
+import phonebook.search.NameIndex;
+import phonebook.search.PhoneIndex;
+import phonebook.util.ContactGenerator;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Замеры скорости поиска по индексам на синтетической книге.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class SearchPerfTest {
+
+    private static final int QUERIES = 1000;
+
+    @Test
+    void nameIndexSearch() {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = StorageThroughputTest.generate(n);
+
+        long t = System.nanoTime();
+        NameIndex index = new NameIndex();
+        for (Contact c : contacts) index.add(c);
+        long build = System.nanoTime() - t;
+
+        int found = 0;
+        t = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += index.search("ИВАН " + (i * 97 % n)).cardinality();
+        }
+        long search = (System.nanoTime() - t) / QUERIES;
+        System.out.printf("contacts=%d  name index build=%d ms  search=%d us/query  (found %d)%n",
+                n, build / 1_000_000, search / 1_000, found);
+    }
+
+    @Test
+    void fuzzyNameSearch() {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = new ContactGenerator(1).generate(n);
+        for (int i = 0; i < n; i++) contacts.get(i).id = i + 1; // id назначает модель
+
+        long t = System.nanoTime();
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        for (Contact c : contacts) index.add(c);
+        long build = System.nanoTime() - t;
+
+        // запрос — фамилия случайного контакта с пропущенной буквой
+        SplittableRandom rnd = new SplittableRandom(1);
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String surname = contacts.get(rnd.nextInt(n)).fullName.split(" ")[0];
+            int cut = 1 + rnd.nextInt(surname.length() - 1);
+            queries[i] = surname.substring(0, cut) + surname.substring(cut + 1);
+        }
+        int found = 0;
+        t = System.nanoTime();
+        for (String q : queries) found += index.search(q, 100).size();
+        long search = (System.nanoTime() - t) / QUERIES;
+        System.out.printf("contacts=%d  fuzzy index build=%d ms (%d terms)  search=%d us/query  (found %d)%n",
+                n, build / 1_000_000, index.termCount(), search / 1_000, found);
+    }
+
+    @Test
+    void phoneIndexSearch() {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = StorageThroughputTest.generate(n);
+
+        long t = System.nanoTime();
+        PhoneIndex index = new PhoneIndex();
+        for (Contact c : contacts) index.add(c);
+        long build = System.nanoTime() - t;
+
+        int found = 0;
+        t = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            found += index.search(String.valueOf(1_000_000 + i * 97 % n)).cardinality();
+        }
+        long search = (System.nanoTime() - t) / QUERIES;
+        System.out.printf("contacts=%d  phone index build=%d ms  search=%d us/query  (found %d)%n",
+                n, build / 1_000_000, search / 1_000, found);
+    }
+}
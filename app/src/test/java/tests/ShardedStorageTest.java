@@ -0,0 +1,179 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.BlockStorage;
+import phonebook.storage.ShardedStorage;
+import phonebook.storage.Snapshot;
+import phonebook.storage.StorageLayout;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Contact> book(int n) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            Contact c = new Contact("Контакт " + i);
+            c.id = i;
+            c.note = i % 4 == 0 ? "Заметка " + i : "";
+            c.addPhone(String.valueOf(2000 + i), PhoneType.HOME);
+            contacts.add(c);
+        }
+        return contacts;
+    }
+
+    private long files(Path shards) throws IOException {
+        try (Stream<Path> s = Files.list(shards)) {
+            return s.count();
+        }
+    }
+
+    @Test
+    void testRoundTripKeepsIdOrder() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        List<Contact> contacts = book(1000);
+        ShardedStorage.Manifest manifest = ShardedStorage.write(shards, contacts, 7, 6, 8, false);
+        assertEquals(8, manifest.shards().size());
+        assertEquals(9, files(shards), "8 шардов и манифест");
+        assertTrue(ShardedStorage.exists(shards));
+
+        Snapshot s = ShardedStorage.read(shards);
+        assertEquals(7, s.generation());
+        assertEquals(6, s.previousGeneration());
+        assertEquals(1000, s.contacts().size());
+        for (int i = 0; i < 1000; i++) {
+            Contact r = s.contacts().get(i);
+            assertEquals(i + 1, r.id);
+            assertEquals(contacts.get(i).fullName, r.fullName);
+            assertEquals(contacts.get(i).phonesAsString(), r.phonesAsString());
+        }
+    }
+
+    @Test
+    void testShardsAreBalanced() {
+        int[] counts = new int[16];
+        for (int id = 1; id <= 16_000; id++) counts[ShardedStorage.shardOf(id, 16)]++;
+        for (int c : counts) assertTrue(c > 800 && c < 1200, "неравномерно: " + c);
+    }
+
+    @Test
+    void testCompressedShards() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        ShardedStorage.Manifest manifest = ShardedStorage.write(shards, book(500), 1, 0, 4, true);
+        for (ShardedStorage.Shard s : manifest.shards()) {
+            assertTrue(BlockStorage.isBlockFile(shards.resolve(s.file())));
+        }
+        assertEquals(500, ShardedStorage.read(shards).contacts().size());
+    }
+
+    @Test
+    void testNewSnapshotReplacesOldShards() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        ShardedStorage.write(shards, book(100), 1, 0, 4, false);
+        ShardedStorage.write(shards, book(50), 2, 1, 2, false);
+        assertEquals(3, files(shards), "шарды прежнего снимка удалены");
+        Snapshot s = ShardedStorage.read(shards);
+        assertEquals(2, s.generation());
+        assertEquals(50, s.contacts().size());
+    }
+
+    @Test
+    void testUnfinishedWriteDoesNotReplaceSnapshot() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        ShardedStorage.write(shards, book(100), 1, 0, 4, false);
+        // шард нового снимка записан, а манифест заменить не успели
+        BinaryStorage.write(shards.resolve("shard-0000000000000002-0000.dat"), book(10), 2, 1);
+
+        Snapshot s = ShardedStorage.read(shards);
+        assertEquals(1, s.generation());
+        assertEquals(100, s.contacts().size());
+    }
+
+    @Test
+    void testShardFromOtherSnapshotDetected() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        ShardedStorage.Manifest manifest = ShardedStorage.write(shards, book(100), 1, 0, 4, false);
+        Path first = shards.resolve(manifest.shards().get(0).file());
+        BinaryStorage.write(first, book(100).subList(0, manifest.shards().get(0).count()), 5, 4);
+        assertThrows(IOException.class, () -> ShardedStorage.read(shards));
+    }
+
+    @Test
+    void testCorruptManifestDetected() throws Exception {
+        Path shards = dir.resolve("book.shards");
+        ShardedStorage.write(shards, book(100), 1, 0, 4, false);
+        try (RandomAccessFile raf = new RandomAccessFile(shards.resolve(ShardedStorage.MANIFEST).toFile(), "rw")) {
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0x55);
+        }
+        assertThrows(IOException.class, () -> ShardedStorage.read(shards));
+    }
+
+    @Test
+    void testModelShardedLayoutWithJournal() {
+        Path file = dir.resolve("book.dat");
+        PhoneBookModel m = new PhoneBookModel(file.toFile());
+        m.addAll(book(300));
+        assertTrue(m.saveToFile());
+
+        m.setStorageLayout(StorageLayout.SHARDED);
+        m.setShardCount(5);
+        m.addContact(new Contact("Новый"));
+        assertTrue(m.saveToFile());
+        assertFalse(Files.exists(file), "файл прежнего вида удалён");
+        assertTrue(ShardedStorage.exists(ShardedStorage.directoryFor(file)));
+
+        m.removeContact(0);
+        Contact edited = m.getContacts().get(10).copy();
+        edited.note = "Изменено";
+        m.updateContact(10, edited);
+        assertTrue(m.saveToFile());
+
+        PhoneBookModel loaded = new PhoneBookModel(file.toFile());
+        loaded.loadFromFile();
+        assertEquals(300, loaded.getContacts().size());
+        assertEquals("Контакт 2", loaded.getContacts().get(0).fullName);
+        assertEquals("Изменено", loaded.getContacts().get(10).note);
+        assertEquals("Новый", loaded.getContacts().get(299).fullName);
+
+        PhoneBookModel chunked = new PhoneBookModel(file.toFile());
+        chunked.setStorageLayout(StorageLayout.SHARDED);
+        chunked.loadInBackground(64, Runnable::run, (n, total) -> { }).join();
+        assertEquals(300, chunked.getContacts().size());
+        assertEquals("Изменено", chunked.getContacts().get(10).note);
+
+        chunked.compactInBackground().join();
+        PhoneBookModel compacted = new PhoneBookModel(file.toFile());
+        compacted.loadFromFile();
+        assertEquals(300, compacted.getContacts().size());
+        assertEquals("Новый", compacted.getContacts().get(299).fullName);
+
+        compacted.setStorageLayout(StorageLayout.JOURNAL);
+        compacted.compactInBackground().join();
+        compacted.addContact(new Contact("Ещё один"));
+        assertTrue(compacted.saveToFile());
+        assertTrue(Files.exists(file));
+        assertFalse(Files.exists(ShardedStorage.directoryFor(file)), "каталог шардов удалён");
+        PhoneBookModel back = new PhoneBookModel(file.toFile());
+        back.loadFromFile();
+        assertEquals(301, back.getContacts().size());
+    }
+}
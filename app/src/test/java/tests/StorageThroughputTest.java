@@ -0,0 +1,196 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+import phonebook.storage.BlockStorage;
+import phonebook.storage.MappedContactList;
+import phonebook.storage.ShardedStorage;
+import phonebook.util.ContactGenerator;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение скорости сохранения и загрузки: двоичный формат против Java-сериализации
+ * и сжатого блочного формата, ленивое открытие через отображение в память против полного чтения,
+ * параллельная загрузка снимка из шардов в зависимости от числа потоков.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class StorageThroughputTest {
+
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compareWithSerialization() throws Exception {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = generate(n);
+        Path binary = dir.resolve("book.dat");
+        Path serialized = dir.resolve("book.ser");
+
+        long binSave = Long.MAX_VALUE, binLoad = Long.MAX_VALUE;
+        long serSave = Long.MAX_VALUE, serLoad = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t = System.nanoTime();
+            BinaryStorage.write(binary, contacts, 1, 0);
+            binSave = Math.min(binSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            assertEquals(n, BinaryStorage.read(binary).contacts().size());
+            binLoad = Math.min(binLoad, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(serialized)))) {
+                oos.writeObject(contacts);
+            }
+            serSave = Math.min(serSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(serialized)))) {
+                assertEquals(n, ((List<Contact>) ois.readObject()).size());
+            }
+            serLoad = Math.min(serLoad, System.nanoTime() - t);
+        }
+
+        System.out.printf("contacts=%d%n", n);
+        System.out.printf("binary:       size=%,d B  save=%d ms  load=%d ms%n",
+                Files.size(binary), binSave / 1_000_000, binLoad / 1_000_000);
+        System.out.printf("serializable: size=%,d B  save=%d ms  load=%d ms%n",
+                Files.size(serialized), serSave / 1_000_000, serLoad / 1_000_000);
+    }
+
+    @Test
+    void mappedOpenDoesNotDependOnSize() throws Exception {
+        for (int n : new int[]{10_000, Integer.getInteger("perf.contacts", 100_000)}) {
+            Path file = dir.resolve("book-" + n + ".dat");
+            BinaryStorage.write(file, generate(n), 1, 0);
+
+            long t = System.nanoTime();
+            MappedContactList list = MappedContactList.open(file, MappedContactList.DEFAULT_CACHE_SIZE);
+            for (int row = 0; row < 50; row++) list.get(row); // первый экран таблицы
+            long open = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            BinaryStorage.read(file);
+            long eager = System.nanoTime() - t;
+            System.out.printf("contacts=%d  mapped open + first screen=%d us  full read=%d ms%n",
+                    n, open / 1_000, eager / 1_000_000);
+        }
+    }
+
+    @Test
+    void compareBlockCompression() throws Exception {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        // генератор даёт разнообразные ФИО и заметки: сжатие не завышено повторами
+        List<Contact> contacts = new ContactGenerator(1).generate(n);
+        Path binary = dir.resolve("book.dat");
+        Path blocks = dir.resolve("book.pbkz");
+
+        long binSave = Long.MAX_VALUE, binLoad = Long.MAX_VALUE;
+        long blkSave = Long.MAX_VALUE, blkLoad = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t = System.nanoTime();
+            BinaryStorage.write(binary, contacts, 1, 0);
+            binSave = Math.min(binSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            assertEquals(n, BinaryStorage.read(binary).contacts().size());
+            binLoad = Math.min(binLoad, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            BlockStorage.write(blocks, contacts, 1, 0);
+            blkSave = Math.min(blkSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            assertEquals(n, BlockStorage.read(blocks).contacts().size());
+            blkLoad = Math.min(blkLoad, System.nanoTime() - t);
+        }
+
+        // случайный доступ: каждое обращение мимо кэша распаковывает один блок
+        SplittableRandom rnd = new SplittableRandom(1);
+        MappedContactList mapped = MappedContactList.open(blocks, 1);
+        int reads = 10_000;
+        long t = System.nanoTime();
+        for (int i = 0; i < reads; i++) assertNotNull(mapped.get(rnd.nextInt(n)));
+        long random = (System.nanoTime() - t) / reads;
+
+        System.out.printf("contacts=%d, threads=%d%n", n, ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("binary: size=%,d B  save=%d ms  load=%d ms%n",
+                Files.size(binary), binSave / 1_000_000, binLoad / 1_000_000);
+        System.out.printf("blocks: size=%,d B (%.1fx)  save=%d ms  load=%d ms  random get=%d us%n",
+                Files.size(blocks), (double) Files.size(binary) / Files.size(blocks),
+                blkSave / 1_000_000, blkLoad / 1_000_000, random / 1_000);
+    }
+
+    @Test
+    void shardedLoadScalesWithThreads() throws Exception {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = new ContactGenerator(1).generate(n);
+        Path binary = dir.resolve("book.dat");
+        Path shards = ShardedStorage.directoryFor(binary);
+        BinaryStorage.write(binary, contacts, 1, 0);
+
+        long single = Long.MAX_VALUE, save = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t = System.nanoTime();
+            assertEquals(n, BinaryStorage.read(binary).contacts().size());
+            single = Math.min(single, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            ShardedStorage.write(shards, contacts, round + 2, round + 1, ShardedStorage.DEFAULT_SHARDS, false);
+            save = Math.min(save, System.nanoTime() - t);
+        }
+
+        System.out.printf("contacts=%d, cores=%d, shards=%d%n", n, Runtime.getRuntime().availableProcessors(),
+                ShardedStorage.DEFAULT_SHARDS);
+        System.out.printf("single file: load=%d ms%n", single / 1_000_000);
+        System.out.printf("sharded:     save=%d ms (%d threads)%n", save / 1_000_000,
+                ForkJoinPool.getCommonPoolParallelism());
+        // параллельные потоки внутри задачи пула выполняются в этом же пуле
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long load = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long t = System.nanoTime();
+                    assertEquals(n, pool.submit(() -> ShardedStorage.read(shards)).get().contacts().size());
+                    load = Math.min(load, System.nanoTime() - t);
+                }
+                System.out.printf("sharded:     load=%d ms (%d threads, %.1fx)%n", load / 1_000_000, threads,
+                        (double) single / load);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    static List<Contact> generate(int n) {
+        List<Contact> contacts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) contacts.add(contact(i));
+        return contacts;
+    }
+
+    static Contact contact(int i) {
+        PhoneType[] types = PhoneType.values();
+        Contact c = Contact.restore(i + 1, "Иванов Иван " + i, i % 3 == 0 ? "Заметка к контакту " + i : "");
+        c.addPhone(PhoneNumber.restore("+7916" + (1_000_000 + i), types[i % types.length]));
+        if (i % 2 == 0) c.addPhone(PhoneNumber.restore("8495" + (2_000_000 + i), PhoneType.WORK));
+        return c;
+    }
+}
@@ -0,0 +1,59 @@
+package tests;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import phonebook.model.Contact;
+import phonebook.ui.ContactRowSorter;
+import phonebook.ui.ContactTableModel;
+import phonebook.util.ContactGenerator;
+
+import javax.swing.*;
+import javax.swing.table.TableRowSorter;
+import java.text.Collator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Замеры сортировки таблицы контактов по ФИО: стандартный {@link TableRowSorter}
+ * с русским {@link Collator} против {@link ContactRowSorter} с кэшированными ключами.
+ * Запуск: {@code ./gradlew perfTest -Dperf.contacts=1000000}.
+ */
+@Tag("perf")
+class TableSortPerfTest {
+
+    private static final List<RowSorter.SortKey> BY_NAME = List.of(new RowSorter.SortKey(0, SortOrder.ASCENDING));
+
+    @Test
+    void sortByName() {
+        int n = Integer.getInteger("perf.contacts", 100_000);
+        List<Contact> contacts = new ContactGenerator(1).generate(n);
+        ContactTableModel table = new ContactTableModel(contacts);
+
+        TableRowSorter<ContactTableModel> plain = new TableRowSorter<>(table);
+        plain.setComparator(0, Collator.getInstance(Locale.forLanguageTag("ru-RU")));
+        long t = System.nanoTime();
+        plain.setSortKeys(BY_NAME);
+        long plainSort = System.nanoTime() - t;
+
+        ContactRowSorter cached = new ContactRowSorter(table);
+        cached.setSortsOnUpdates(true);
+        t = System.nanoTime();
+        cached.setSortKeys(BY_NAME);
+        long firstSort = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        cached.setSortKeys(List.of(new RowSorter.SortKey(0, SortOrder.DESCENDING)));
+        long resort = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            int row = i * 9973 % n;
+            contacts.set(row, new Contact("Правка " + i));
+            cached.rowsUpdated(row, row);
+        }
+        long edit = (System.nanoTime() - t) / 100;
+
+        System.out.printf("contacts=%d  TableRowSorter=%d ms  cached keys: first sort=%d ms  resort=%d ms  edit=%d us%n",
+                n, plainSort / 1_000_000, firstSort / 1_000_000, resort / 1_000_000, edit / 1_000);
+    }
+}
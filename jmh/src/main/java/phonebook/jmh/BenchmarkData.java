@@ -0,0 +1,65 @@
+package phonebook.jmh;
+
+import phonebook.model.Contact;
+import phonebook.model.PhoneNumber;
+import phonebook.model.PhoneType;
+import phonebook.storage.BinaryStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Синтетическая книга для замеров: детерминированные контакты и файл базы из них.
+ */
+final class BenchmarkData {
+
+    /** Аргументы JVM для форков: куча под 10 млн контактов и логирование только ошибок */
+    static final String HEAP = "-Xmx16g";
+    static final String QUIET_LOG = "-Dlog4j2.configurationFile=log4j2-jmh.xml";
+
+    private static final PhoneType[] TYPES = PhoneType.values();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Создаёт контакт с номером i: половина с одним номером, половина с двумя,
+     * часть номеров в исходном оформлении.
+     */
+    static Contact contact(int i) {
+        Contact c = Contact.restore(i + 1, "Иванов Иван " + i, i % 3 == 0 ? "Заметка к контакту " + i : "");
+        c.addPhone(PhoneNumber.restore("+7916" + (1_000_000 + i % 9_000_000), TYPES[i % TYPES.length]));
+        if (i % 2 == 0) c.addPhone(PhoneNumber.restore("8 (495) " + (2_000_000 + i % 8_000_000), PhoneType.WORK));
+        return c;
+    }
+
+    static List<Contact> generate(int n) {
+        List<Contact> contacts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) contacts.add(contact(i));
+        return contacts;
+    }
+
+    /**
+     * Записывает файл базы из n контактов во временный каталог.
+     *
+     * @return путь к файлу базы
+     */
+    static Path writeBase(int n) throws IOException {
+        Path dir = Files.createTempDirectory("phonebook-jmh");
+        Path file = dir.resolve("phonebook.dat");
+        BinaryStorage.write(file, generate(n), 1, 0);
+        return file;
+    }
+
+    static void delete(Path file) throws IOException {
+        if (file == null) return;
+        try (Stream<Path> paths = Files.walk(file.getParent())) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+}
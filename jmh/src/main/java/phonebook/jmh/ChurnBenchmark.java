@@ -0,0 +1,83 @@
+package phonebook.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление и удаление контактов в загруженной книге с построенными индексами поиска:
+ * {@code addRemoveLast} — добавление и удаление последней строки,
+ * {@code addRemoveMiddle} — добавление и удаление строки из середины списка,
+ * {@code addRemoveBatch} — то же, что {@code addRemoveLast}, но пакетами по {@value #BATCH}
+ * контактов через {@link PhoneBookModel#addAll} и {@link PhoneBookModel#removeAll}
+ * (время указано на один контакт).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkData.HEAP, BenchmarkData.QUIET_LOG})
+public class ChurnBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int contacts;
+
+    private Path file;
+    private PhoneBookModel model;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.writeBase(contacts);
+        model = new PhoneBookModel(file.toFile());
+        model.loadFromFile();
+        model.findRowsByName("иван");
+        model.findRowsByNumber("916");
+    }
+
+    /** Изменения копятся до сохранения: сбрасываем их между итерациями, вне замера */
+    @Setup(Level.Iteration)
+    public void flush() {
+        model.saveToFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public int addRemoveLast() {
+        model.addContact(BenchmarkData.contact(contacts + next++));
+        model.removeContact(model.getContacts().size() - 1);
+        return model.getContacts().size();
+    }
+
+    @Benchmark
+    public int addRemoveMiddle() {
+        model.addContact(BenchmarkData.contact(contacts + next++));
+        model.removeContact(model.getContacts().size() / 2);
+        return model.getContacts().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addRemoveBatch() {
+        List<Contact> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) batch.add(BenchmarkData.contact(contacts + next++));
+        model.addAll(batch);
+        List<Integer> ids = new ArrayList<>(BATCH);
+        for (Contact c : batch) ids.add(c.id);
+        model.removeAll(ids);
+        return model.getContacts().size();
+    }
+}
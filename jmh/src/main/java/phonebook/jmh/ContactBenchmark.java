@@ -0,0 +1,44 @@
+package phonebook.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import phonebook.model.Contact;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение строки телефонов {@link Contact#phonesAsString()} для всей книги:
+ * {@code cold} — после сброса кэша (первый показ или правка), {@code cached} — повторный показ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkData.HEAP, BenchmarkData.QUIET_LOG})
+public class ContactBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int contacts;
+
+    private List<Contact> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = BenchmarkData.generate(contacts);
+    }
+
+    @Benchmark
+    public void phonesAsStringCold(Blackhole bh) {
+        for (Contact c : list) {
+            c.invalidatePhones();
+            bh.consume(c.phonesAsString());
+        }
+    }
+
+    @Benchmark
+    public void phonesAsStringCached(Blackhole bh) {
+        for (Contact c : list) bh.consume(c.phonesAsString());
+    }
+}
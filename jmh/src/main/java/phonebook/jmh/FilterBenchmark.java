@@ -0,0 +1,61 @@
+package phonebook.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import phonebook.model.PhoneBookModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтры строки поиска главного окна: {@link PhoneBookModel#findRowsByName(String)}
+ * и {@link PhoneBookModel#findRowsByNumber(String)} (индексы построены заранее,
+ * как после первого запроса).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkData.HEAP, BenchmarkData.QUIET_LOG})
+public class FilterBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int contacts;
+
+    private Path file;
+    private PhoneBookModel model;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.writeBase(contacts);
+        model = new PhoneBookModel(file.toFile());
+        model.loadFromFile();
+        model.findRowsByName("иван");
+        model.findRowsByNumber("916");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public BitSet byName() {
+        query = (query + 7919) % contacts;
+        return model.findRowsByName("Иван " + query);
+    }
+
+    @Benchmark
+    public BitSet byNumber() {
+        query = (query + 7919) % contacts;
+        return model.findRowsByNumber(String.valueOf(1_000_000 + query));
+    }
+
+    @Benchmark
+    public BitSet byNumberPrefix() {
+        return model.findRowsByNumber("+7 916 10");
+    }
+}
@@ -0,0 +1,64 @@
+package phonebook.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import phonebook.model.Contact;
+import phonebook.model.PhoneBookModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение и загрузка базы через {@link PhoneBookModel}.
+ * <p>
+ * {@code saveToFile} — сохранение после {@link #EDITS} правок (журнал изменений, как при
+ * обычной работе); {@code loadFromFile} — чтение снимка и журнала в новую модель.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkData.HEAP, BenchmarkData.QUIET_LOG})
+public class StorageBenchmark {
+
+    /** Количество правок перед каждым сохранением */
+    static final int EDITS = 100;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int contacts;
+
+    private Path file;
+    private PhoneBookModel model;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchmarkData.writeBase(contacts);
+        model = new PhoneBookModel(file.toFile());
+        model.loadFromFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(file);
+    }
+
+    @Benchmark
+    public boolean saveToFile() {
+        for (int i = 0; i < EDITS; i++) {
+            int row = next++ % contacts;
+            Contact c = model.getContacts().get(row).copy();
+            c.note = "Правка " + next;
+            model.updateContact(row, c);
+        }
+        return model.saveToFile();
+    }
+
+    @Benchmark
+    public PhoneBookModel loadFromFile() {
+        PhoneBookModel loaded = new PhoneBookModel(file.toFile());
+        loaded.loadFromFile();
+        return loaded;
+    }
+}
@@ -0,0 +1,63 @@
+package phonebook.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import phonebook.model.Contact;
+import phonebook.storage.ColumnarContactList;
+import phonebook.ui.ContactTableModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение ячеек таблицы через {@link ContactTableModel#getValueAt(int, int)}:
+ * {@code screen} — один экран (50 строк) в случайном месте, как при прокрутке;
+ * {@code scan} — все строки, как при сортировке или экспорте.
+ * Сравниваются список объектов и хранение по столбцам.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkData.HEAP, BenchmarkData.QUIET_LOG})
+public class TableBenchmark {
+
+    private static final int SCREEN_ROWS = 50;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int contacts;
+
+    @Param({"objects", "columnar", "offheap"})
+    public String store;
+
+    private ContactTableModel table;
+    private int offset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Contact> list = BenchmarkData.generate(contacts);
+        if (!store.equals("objects")) {
+            ColumnarContactList columnar = new ColumnarContactList(store.equals("offheap"), contacts);
+            columnar.addAll(list);
+            list = columnar;
+        }
+        table = new ContactTableModel(list);
+    }
+
+    @Benchmark
+    public void screen(Blackhole bh) {
+        offset = (offset + 7919 * SCREEN_ROWS) % Math.max(1, contacts - SCREEN_ROWS);
+        for (int row = offset; row < offset + SCREEN_ROWS && row < contacts; row++) {
+            for (int col = 0; col < 3; col++) bh.consume(table.getValueAt(row, col));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void scan(Blackhole bh) {
+        for (int row = 0; row < contacts; row++) {
+            for (int col = 0; col < 3; col++) bh.consume(table.getValueAt(row, col));
+        }
+    }
+}